@@ -0,0 +1,18 @@
+package com.haiphamcoder.dataprocessing.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.haiphamcoder.dataprocessing.config.properties.ChartCacheProperties;
+
+@Configuration
+public class ChartCacheConfiguration {
+
+    @Bean(name = "chartCacheProperties")
+    @ConfigurationProperties(prefix = "chart.cache")
+    ChartCacheProperties getChartCacheProperties() {
+        return new ChartCacheProperties();
+    }
+
+}
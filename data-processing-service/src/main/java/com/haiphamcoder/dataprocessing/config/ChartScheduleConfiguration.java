@@ -0,0 +1,18 @@
+package com.haiphamcoder.dataprocessing.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.haiphamcoder.dataprocessing.config.properties.ChartScheduleProperties;
+
+@Configuration
+public class ChartScheduleConfiguration {
+
+    @Bean(name = "chartScheduleProperties")
+    @ConfigurationProperties(prefix = "chart.schedule")
+    ChartScheduleProperties getChartScheduleProperties() {
+        return new ChartScheduleProperties();
+    }
+
+}
@@ -18,6 +18,12 @@ public class GrpcConfiguration {
     @Value("${chart.grpc.chart-service.port:9092}")
     private int chartServicePort;
 
+    @Value("${grpc.user-management-service.host:localhost}")
+    private String userManagementServiceHost;
+
+    @Value("${grpc.user-management-service.port:9090}")
+    private int userManagementServicePort;
+
     @Bean("sourceServiceChannel")
     public ManagedChannel sourceServiceChannel() {
         return ManagedChannelBuilder.forAddress(reportingServiceHost, sourceServicePort)
@@ -31,4 +37,11 @@ public class GrpcConfiguration {
                 .usePlaintext()
                 .build();
     }
+
+    @Bean("userManagementServiceChannel")
+    public ManagedChannel userManagementServiceChannel() {
+        return ManagedChannelBuilder.forAddress(userManagementServiceHost, userManagementServicePort)
+                .usePlaintext()
+                .build();
+    }
 }
@@ -0,0 +1,18 @@
+package com.haiphamcoder.dataprocessing.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.haiphamcoder.dataprocessing.config.properties.ImportProperties;
+
+@Configuration
+public class ImportConfiguration {
+
+    @Bean(name = "importProperties")
+    @ConfigurationProperties(prefix = "import")
+    ImportProperties getImportProperties() {
+        return new ImportProperties();
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.haiphamcoder.dataprocessing.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.haiphamcoder.dataprocessing.config.properties.IndexAdvisorProperties;
+
+@Configuration
+public class IndexAdvisorConfiguration {
+
+    @Bean(name = "indexAdvisorProperties")
+    @ConfigurationProperties(prefix = "index.advisor")
+    IndexAdvisorProperties getIndexAdvisorProperties() {
+        return new IndexAdvisorProperties();
+    }
+
+}
@@ -54,7 +54,7 @@ public class MainDataSourceConfiguration {
                 entityManagerFactoryBuilder,
                 mainDataSource,
                 "main",
-                "com.haiphamcoder.reporting.domain.entity");
+                "com.haiphamcoder.dataprocessing.domain.entity");
     }
 
     @Bean(name = "mainTransactionManager")
@@ -0,0 +1,79 @@
+package com.haiphamcoder.dataprocessing.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.haiphamcoder.dataprocessing.shared.StringUtils;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Connection pools used by the TiDB reader and writer.
+ * <p>
+ * Writes and reads use separate pools so that a long import cannot starve
+ * preview and chart queries. The read pool can point to a different endpoint
+ * (e.g. a load balancer in front of TiDB followers) and can enable follower
+ * read through the {@code tidb_replica_read} session variable. Both pools are
+ * plain {@link HikariDataSource} beans, so Spring Boot Actuator publishes their
+ * {@code hikaricp.connections.*} metrics and includes them in the health check.
+ */
+@Configuration
+public class TidbDataSourceConfiguration {
+
+    @Bean(name = "tidbWriteDataSource", destroyMethod = "close")
+    DataSource tidbWriteDataSource(@Value("${tidb.datasource.url}") String url,
+            @Value("${tidb.datasource.username}") String username,
+            @Value("${tidb.datasource.password}") String password,
+            @Value("${tidb.datasource.pool.write.max-size:10}") int maxPoolSize,
+            @Value("${tidb.datasource.pool.write.min-idle:2}") int minIdle) {
+        return createDataSource("tidb-write-pool", url, username, password, maxPoolSize, minIdle, null);
+    }
+
+    @Bean(name = "tidbReadDataSource", destroyMethod = "close")
+    DataSource tidbReadDataSource(@Value("${tidb.datasource.read.url:${tidb.datasource.url}}") String url,
+            @Value("${tidb.datasource.read.username:${tidb.datasource.username}}") String username,
+            @Value("${tidb.datasource.read.password:${tidb.datasource.password}}") String password,
+            @Value("${tidb.datasource.read.replica-read:}") String replicaRead,
+            @Value("${tidb.datasource.pool.read.max-size:10}") int maxPoolSize,
+            @Value("${tidb.datasource.pool.read.min-idle:2}") int minIdle) {
+        String connectionInitSql = StringUtils.isNullOrEmpty(replicaRead)
+                ? null
+                : "SET SESSION tidb_replica_read = '" + replicaRead + "'";
+        return createDataSource("tidb-read-pool", url, username, password, maxPoolSize, minIdle,
+                connectionInitSql);
+    }
+
+    private HikariDataSource createDataSource(String poolName, String url, String username, String password,
+            int maxPoolSize, int minIdle, String connectionInitSql) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(poolName);
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(maxPoolSize);
+        dataSource.setMinimumIdle(Math.min(minIdle, maxPoolSize));
+        // Fail fast when the pool is saturated instead of queueing callers forever
+        dataSource.setConnectionTimeout(10_000L);
+        // Validate idle connections periodically and recycle them before TiDB closes them
+        dataSource.setKeepaliveTime(60_000L);
+        dataSource.setValidationTimeout(3_000L);
+        dataSource.setMaxLifetime(1_800_000L);
+        dataSource.setInitializationFailTimeout(-1L);
+        if (connectionInitSql != null) {
+            dataSource.setConnectionInitSql(connectionInitSql);
+        }
+        // Let the driver reuse server-side statements across pooled connections
+        dataSource.addDataSourceProperty("cachePrepStmts", "true");
+        dataSource.addDataSourceProperty("prepStmtCacheSize", "250");
+        dataSource.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        dataSource.addDataSourceProperty("useServerPrepStmts", "true");
+        // Honour Statement#setFetchSize with a server-side cursor for streaming reads
+        dataSource.addDataSourceProperty("useCursorFetch", "true");
+        // Collapse any remaining addBatch() loops into multi-row statements
+        dataSource.addDataSourceProperty("rewriteBatchedStatements", "true");
+        return dataSource;
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.haiphamcoder.dataprocessing.config.properties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChartCacheProperties {
+    private boolean enabled = true;
+    private int maxEntries = 1000;
+    private long maxSizeMb = 64L;
+    private long maxEntrySizeMb = 4L;
+    private long ttlSeconds = 300L;
+    private Map<Long, Long> chartTtlSeconds = new HashMap<>();
+}
@@ -0,0 +1,17 @@
+package com.haiphamcoder.dataprocessing.config.properties;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChartScheduleProperties {
+    private boolean enabled = true;
+    private int workers = 4;
+    private int queueSize = 16;
+    private long pollIntervalMs = 10000L;
+    private long leaseSeconds = 300L;
+    private String zone;
+}
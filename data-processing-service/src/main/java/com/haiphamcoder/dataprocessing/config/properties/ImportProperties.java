@@ -0,0 +1,19 @@
+package com.haiphamcoder.dataprocessing.config.properties;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportProperties {
+    private int chunkSize = 200;
+    private int queueCapacity = 16;
+    private int convertParallelism = Runtime.getRuntime().availableProcessors();
+    private int writeParallelism = Runtime.getRuntime().availableProcessors();
+    private int maxRetries = 3;
+    private long retryDelayMs = 1000L;
+    private int csvParseParallelism = 1;
+    private long csvRangeSizeMb = 64L;
+}
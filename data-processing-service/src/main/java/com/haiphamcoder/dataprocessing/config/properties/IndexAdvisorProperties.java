@@ -0,0 +1,18 @@
+package com.haiphamcoder.dataprocessing.config.properties;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IndexAdvisorProperties {
+    private boolean enabled = true;
+    private boolean autoCreate = false;
+    private long minUses = 50L;
+    private long minRows = 100000L;
+    private int maxIndexesPerTable = 5;
+    private int maxTrackedColumns = 10000;
+    private int tiflashReplicas = 0;
+}
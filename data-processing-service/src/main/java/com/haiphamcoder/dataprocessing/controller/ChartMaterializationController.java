@@ -0,0 +1,77 @@
+package com.haiphamcoder.dataprocessing.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CookieValue;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.haiphamcoder.dataprocessing.domain.exception.business.detail.ForbiddenException;
+import com.haiphamcoder.dataprocessing.service.ChartDataService;
+import com.haiphamcoder.dataprocessing.service.ChartGrpcClient;
+import com.haiphamcoder.dataprocessing.service.MaterializationService;
+import com.haiphamcoder.dataprocessing.service.QueryService;
+import com.haiphamcoder.dataprocessing.shared.http.ApiResponse;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/charts/{id}")
+@RequiredArgsConstructor
+public class ChartMaterializationController {
+
+    private final MaterializationService materializationService;
+    private final ChartDataService chartDataService;
+    private final QueryService queryService;
+    private final ChartGrpcClient chartGrpcClient;
+
+    @GetMapping("/materialization")
+    public ResponseEntity<ApiResponse<Object>> getChartData(
+            @CookieValue(value = "user-id", required = true) Long userId,
+            @PathVariable("id") Long chartId) {
+        checkPermission(userId, chartId, "view");
+        return ResponseEntity.ok()
+                .body(ApiResponse.success(chartDataService.getChartData(chartId), "Chart data fetched successfully"));
+    }
+
+    @PostMapping("/materialization")
+    public ResponseEntity<ApiResponse<Object>> refresh(
+            @CookieValue(value = "user-id", required = true) Long userId,
+            @PathVariable("id") Long chartId) {
+        checkPermission(userId, chartId, "edit");
+        return ResponseEntity.ok()
+                .body(ApiResponse.success(materializationService.refresh(chartId), "Chart data refreshed"));
+    }
+
+    @PutMapping("/schedule")
+    public ResponseEntity<ApiResponse<Object>> schedule(
+            @CookieValue(value = "user-id", required = true) Long userId,
+            @PathVariable("id") Long chartId,
+            @RequestParam("cron") String cronExpression) {
+        checkPermission(userId, chartId, "edit");
+        return ResponseEntity.ok()
+                .body(ApiResponse.success(queryService.updateSchedule(chartId, cronExpression),
+                        "Chart refresh scheduled"));
+    }
+
+    @DeleteMapping("/schedule")
+    public ResponseEntity<ApiResponse<Object>> disableSchedule(
+            @CookieValue(value = "user-id", required = true) Long userId,
+            @PathVariable("id") Long chartId) {
+        checkPermission(userId, chartId, "edit");
+        queryService.disableSchedule(chartId);
+        return ResponseEntity.ok().body(ApiResponse.success(null, "Chart refresh schedule disabled"));
+    }
+
+    private void checkPermission(Long userId, Long chartId, String permission) {
+        if (!chartGrpcClient.hasChartPermission(userId, chartId, permission)) {
+            throw new ForbiddenException("You are not allowed to " + permission + " this chart");
+        }
+    }
+
+}
@@ -77,9 +77,10 @@ public class DataProcessingController {
             @PathVariable("id") Long sourceId,
             @RequestParam(value = "search", required = false, defaultValue = "") String search,
             @RequestParam(value = "search-by", required = false) String searchBy,
+            @RequestParam(value = "cursor", required = false) String cursor,
             @RequestParam(value = "page", defaultValue = "0") Integer page,
             @RequestParam(value = "limit", defaultValue = "10") Integer limit) {
-        PreviewData previewData = rawDataService.previewSource(sourceId, search, searchBy, page, limit);
+        PreviewData previewData = rawDataService.previewSource(sourceId, search, searchBy, cursor, page, limit);
         return ResponseEntity.ok().body(ApiResponse.success(previewData, "Source previewed successfully"));
     }
 
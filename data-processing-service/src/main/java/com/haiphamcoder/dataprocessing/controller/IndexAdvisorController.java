@@ -0,0 +1,62 @@
+package com.haiphamcoder.dataprocessing.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CookieValue;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.haiphamcoder.dataprocessing.domain.exception.business.detail.ForbiddenException;
+import com.haiphamcoder.dataprocessing.service.IndexAdvisorService;
+import com.haiphamcoder.dataprocessing.service.UserGrpcClient;
+import com.haiphamcoder.dataprocessing.shared.http.ApiResponse;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/admin/index-advisor")
+@RequiredArgsConstructor
+public class IndexAdvisorController {
+
+    private final IndexAdvisorService indexAdvisorService;
+    private final UserGrpcClient userGrpcClient;
+
+    @GetMapping
+    public ResponseEntity<ApiResponse<Object>> getAdvice(
+            @CookieValue(value = "user-id", required = true) Long userId) {
+        checkAdmin(userId);
+        return ResponseEntity.ok()
+                .body(ApiResponse.success(indexAdvisorService.getAdvice(), "Index advice fetched successfully"));
+    }
+
+    @PostMapping("/evaluate")
+    public ResponseEntity<ApiResponse<Object>> evaluate(
+            @CookieValue(value = "user-id", required = true) Long userId) {
+        checkAdmin(userId);
+        return ResponseEntity.ok()
+                .body(ApiResponse.success(indexAdvisorService.evaluate(), "Index advice evaluated successfully"));
+    }
+
+    @PostMapping("/apply")
+    public ResponseEntity<ApiResponse<Object>> apply(
+            @CookieValue(value = "user-id", required = true) Long userId,
+            @RequestParam("table") String table,
+            @RequestParam("column") String column) {
+        checkAdmin(userId);
+        return ResponseEntity.ok()
+                .body(ApiResponse.success(indexAdvisorService.apply(table, column), "Index advice applied"));
+    }
+
+    /**
+     * The advisor changes the indexes and replicas of shared tables, so only
+     * admins may use it.
+     */
+    private void checkAdmin(Long userId) {
+        if (!userGrpcClient.isAdmin(userId)) {
+            throw new ForbiddenException("Only admins can use the index advisor");
+        }
+    }
+
+}
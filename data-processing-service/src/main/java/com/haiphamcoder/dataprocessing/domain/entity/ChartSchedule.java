@@ -0,0 +1,94 @@
+package com.haiphamcoder.dataprocessing.domain.entity;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Refresh schedule of a chart. Times are epoch milliseconds. A replica runs a
+ * due schedule only while it holds its lease, so one run happens per fire
+ * time across all replicas.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+@Builder
+@Entity
+@Table(name = "chart_schedule")
+public class ChartSchedule {
+
+    @Id
+    @Column(name = "chart_id", nullable = false)
+    @JsonProperty("chart_id")
+    private Long chartId;
+
+    @Column(name = "cron_expression", nullable = false)
+    @JsonProperty("cron_expression")
+    private String cronExpression;
+
+    @Column(name = "enabled", nullable = false)
+    @Builder.Default
+    @JsonProperty("enabled")
+    private Boolean enabled = true;
+
+    @Column(name = "status", nullable = false)
+    @JsonProperty("status")
+    private String status;
+
+    @Column(name = "next_fire_at", nullable = false)
+    @JsonProperty("next_fire_at")
+    private Long nextFireAt;
+
+    @Column(name = "last_started_at")
+    @JsonProperty("last_started_at")
+    private Long lastStartedAt;
+
+    @Column(name = "last_duration_ms")
+    @JsonProperty("last_duration_ms")
+    private Long lastDurationMs;
+
+    @Column(name = "lease_owner")
+    @JsonProperty("lease_owner")
+    private String leaseOwner;
+
+    @Column(name = "lease_until")
+    @JsonProperty("lease_until")
+    private Long leaseUntil;
+
+    @Column(name = "created_at", nullable = false)
+    @JsonProperty("created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "modified_at", nullable = false)
+    @JsonProperty("modified_at")
+    private LocalDateTime modifiedAt;
+
+    @PrePersist
+    public void prePersist() {
+        this.createdAt = LocalDateTime.now();
+        this.modifiedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        this.modifiedAt = LocalDateTime.now();
+    }
+
+}
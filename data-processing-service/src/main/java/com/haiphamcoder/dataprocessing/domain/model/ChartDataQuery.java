@@ -0,0 +1,37 @@
+package com.haiphamcoder.dataprocessing.domain.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * How to read the data of one chart of a batch: from its materialized result
+ * when it matches {@link #definitionHash}, otherwise by running {@link #sql}.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChartDataQuery {
+
+    private Long chartId;
+
+    /** Null to skip the materialized result. */
+    private String definitionHash;
+
+    private long offset;
+
+    private int limit;
+
+    /** Null when the chart can only be served from its materialized result. */
+    private String sql;
+
+    private List<Object> parameters;
+
+    /** Tables {@link #sql} reads; its result is not cached when empty. */
+    private List<String> tables;
+
+}
@@ -0,0 +1,28 @@
+package com.haiphamcoder.dataprocessing.domain.model;
+
+import java.util.List;
+
+import org.json.JSONObject;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChartDataResult {
+
+    private Long chartId;
+
+    private List<JSONObject> records;
+
+    /** Whether the records come from the materialized result. */
+    private boolean materialized;
+
+    /** Set instead of the records when the chart could not be read. */
+    private String error;
+
+}
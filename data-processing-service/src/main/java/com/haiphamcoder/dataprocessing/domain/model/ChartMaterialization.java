@@ -0,0 +1,98 @@
+package com.haiphamcoder.dataprocessing.domain.model;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * State of the materialized result of a chart, stored in the
+ * {@code chart_<id>} table.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ChartMaterialization {
+
+    @JsonProperty("chart_id")
+    private Long chartId;
+
+    /** Definition hash of the query the result was computed with. */
+    @JsonProperty("definition_hash")
+    private String definitionHash;
+
+    /** Labels of the result columns, in order. */
+    @JsonProperty("columns")
+    private List<String> columns;
+
+    /** The table new rows are merged from, null when the result is always recomputed. */
+    @JsonProperty("source_table")
+    private String sourceTable;
+
+    /** Highest row key of the source table included in the result. */
+    @JsonProperty("watermark")
+    private Long watermark;
+
+    /** Rows of the source table up to the watermark when the result was computed. */
+    @JsonProperty("source_rows")
+    private Long sourceRows;
+
+    /**
+     * Whether the source table has only received new rows since the result
+     * was computed; cleared when rows are edited.
+     */
+    @JsonProperty("append_only")
+    private boolean appendOnly;
+
+    @JsonProperty("row_count")
+    private long rowCount;
+
+    @JsonProperty("refresh_mode")
+    private RefreshMode refreshMode;
+
+    @JsonProperty("refresh_duration_ms")
+    private long refreshDurationMs;
+
+    /** Epoch milliseconds. */
+    @JsonProperty("refreshed_at")
+    private long refreshedAt;
+
+    /** Every table the result was computed from. */
+    @JsonProperty("source_tables")
+    private List<String> sourceTables;
+
+    /**
+     * Epoch milliseconds of the last change to one of the source tables, null
+     * if none was seen.
+     */
+    @JsonProperty("source_changed_at")
+    private Long sourceChangedAt;
+
+    /**
+     * @return true if a source table changed after the refresh started, so the
+     *         stored rows may not match the query anymore
+     */
+    @JsonProperty("stale")
+    public boolean isStale() {
+        return sourceChangedAt != null && sourceChangedAt >= refreshedAt - refreshDurationMs;
+    }
+
+    public enum RefreshMode {
+        /** The whole query was run again. */
+        FULL,
+        /** Only the new rows of the source table were aggregated and merged. */
+        INCREMENTAL,
+        /** The source table had no new rows. */
+        UNCHANGED
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.haiphamcoder.dataprocessing.domain.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The query of a chart compiled by the reporting service for the
+ * materialization of its result.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChartQuery {
+
+    private Long chartId;
+
+    /** All rows of the chart. */
+    private String sql;
+
+    private List<Object> parameters;
+
+    private List<String> columns;
+
+    /** Changes whenever the query or its values change. */
+    private String definitionHash;
+
+    /**
+     * {@link #sql} restricted to a range of row keys of {@link #sourceTable},
+     * whose exclusive lower and inclusive upper bound are bound after
+     * {@link #parameters}. Null when new rows cannot be merged into the
+     * result.
+     */
+    private String deltaSql;
+
+    private String sourceTable;
+
+    /**
+     * Per column, the function merging new values into it ({@code SUM},
+     * {@code COUNT}, {@code MIN} or {@code MAX}), null for group keys. All
+     * null when the rows are not grouped, and new rows are appended.
+     */
+    private List<String> aggregates;
+
+    /** Columns the rows are ordered by, as {@code <column index> ASC|DESC}. */
+    private List<String> sort;
+
+    /** Every table {@link #sql} reads. */
+    private List<String> tables;
+
+    public boolean isMergeable() {
+        return deltaSql != null;
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.haiphamcoder.dataprocessing.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A column of a source table used by a query, and how it is used.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ColumnPredicate {
+
+    private String table;
+    private String column;
+    private PredicateKind kind;
+
+    public enum PredicateKind {
+        /** {@code =}, {@code IN}, {@code IS NULL}: served by an index */
+        EQUALITY,
+        /** {@code <}, {@code >}, {@code BETWEEN}: served by an index */
+        RANGE,
+        /** {@code LIKE 'x%'}: served by an index */
+        PREFIX_LIKE,
+        /** {@code LIKE '%x%'}: always a scan, faster on a columnar replica */
+        CONTAINS_LIKE,
+        /** {@code <>}, {@code NOT IN}: always a scan */
+        NOT_EQUAL,
+        /** grouped on: an aggregation over a scan, faster on a columnar replica */
+        GROUP_BY;
+
+        public boolean isIndexable() {
+            return this == EQUALITY || this == RANGE || this == PREFIX_LIKE;
+        }
+
+        public boolean isAnalytic() {
+            return this == CONTAINS_LIKE || this == GROUP_BY;
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.haiphamcoder.dataprocessing.domain.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Summary of a CSV file collected in a single pass.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileProfile {
+    private String filePath;
+    private Long modificationTime;
+    private Character delimiter;
+    private List<String> header;
+    private Long rowCount;
+    private List<ColumnProfile> columns;
+    private List<String[]> previewRecords;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ColumnProfile {
+        private String name;
+        private Long nullCount;
+        private Long distinctCount;
+        private String type;
+    }
+}
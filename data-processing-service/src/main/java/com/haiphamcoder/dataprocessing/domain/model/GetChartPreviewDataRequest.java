@@ -25,6 +25,19 @@ public class GetChartPreviewDataRequest {
     @JsonProperty("fields")
     private List<Field> fields;
 
+    /**
+     * Values bound to the {@code ?} placeholders of a compiled query. A query
+     * with parameters already carries its own {@code LIMIT ? OFFSET ?}.
+     */
+    @JsonProperty("parameters")
+    private List<Object> parameters;
+
+    /**
+     * The chart the query belongs to, for the TTL of its cached results.
+     */
+    @JsonProperty("chart_id")
+    private Long chartId;
+
     @Data
     @Builder
     @AllArgsConstructor
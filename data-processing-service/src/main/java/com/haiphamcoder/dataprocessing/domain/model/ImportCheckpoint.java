@@ -0,0 +1,22 @@
+package com.haiphamcoder.dataprocessing.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A chunk of a source file that has been committed to the source table.
+ * Checkpoints are written in the same transaction as the chunk's rows.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportCheckpoint {
+    private Long sourceId;
+    private Long sequence;
+    private Long startOffset;
+    private Long endOffset;
+    private Long rowCount;
+}
@@ -0,0 +1,71 @@
+package com.haiphamcoder.dataprocessing.domain.model;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.haiphamcoder.dataprocessing.domain.model.ColumnPredicate.PredicateKind;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A decision of the index advisor for one column of a source table.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class IndexAdvice {
+
+    @JsonProperty("table")
+    private String table;
+
+    @JsonProperty("column")
+    private String column;
+
+    @JsonProperty("kind")
+    private Kind kind;
+
+    @JsonProperty("status")
+    private Status status;
+
+    @JsonProperty("uses")
+    private Map<PredicateKind, Long> uses;
+
+    @JsonProperty("table_rows")
+    private Long tableRows;
+
+    @JsonProperty("ddl")
+    private String ddl;
+
+    @JsonProperty("reason")
+    private String reason;
+
+    @JsonProperty("updated_at")
+    private Long updatedAt;
+
+    public enum Kind {
+        /** secondary index on the column */
+        INDEX,
+        /** TiFlash columnar replica of the table */
+        TIFLASH_REPLICA
+    }
+
+    public enum Status {
+        /** worth creating; not created because automatic creation is off or a limit was hit */
+        PROPOSED,
+        CREATED,
+        /** the index or replica already exists */
+        EXISTS,
+        /** nothing worth creating for the current usage */
+        SKIPPED,
+        FAILED
+    }
+
+}
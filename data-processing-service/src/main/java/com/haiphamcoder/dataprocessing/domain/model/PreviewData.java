@@ -24,5 +24,8 @@ public class PreviewData {
 
     @JsonProperty("records")
     private List<JsonNode> records;
-    
+
+    @JsonProperty("next_cursor")
+    private String nextCursor;
+
 }
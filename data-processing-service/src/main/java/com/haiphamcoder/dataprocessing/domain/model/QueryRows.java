@@ -0,0 +1,22 @@
+package com.haiphamcoder.dataprocessing.domain.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Rows of a query result as JDBC returned them, with the label and type name
+ * of every column.
+ */
+@Data
+@AllArgsConstructor
+public class QueryRows {
+
+    private List<String> columns;
+
+    private List<String> typeNames;
+
+    private List<Object[]> rows;
+
+}
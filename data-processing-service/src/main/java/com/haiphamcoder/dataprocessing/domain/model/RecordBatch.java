@@ -0,0 +1,158 @@
+package com.haiphamcoder.dataprocessing.domain.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Columnar batch of imported records.
+ * <p>
+ * Values are stored per column in a {@code String[]} with a {@link BitSet}
+ * marking the null cells, and columns are addressed by index. Column names are
+ * normalized once for the whole batch, so neither the readers nor the writer
+ * build or look up a map per row. Empty values are stored as null.
+ * <p>
+ * A batch may carry a row key per row, chosen by the reader from the position
+ * of the record in its file; batches without row keys are keyed by the writer.
+ */
+public class RecordBatch {
+
+    private final List<String> columnNames;
+    private final String[][] columns;
+    private final BitSet[] nulls;
+    private long[] rowKeys;
+    private int rowCount;
+
+    /**
+     * @param columnNames the normalized column names
+     * @param capacity    the expected number of rows; the batch grows past it
+     */
+    public RecordBatch(List<String> columnNames, int capacity) {
+        this.columnNames = List.copyOf(columnNames);
+        int columnCount = columnNames.size();
+        this.columns = new String[columnCount][Math.max(1, capacity)];
+        this.nulls = new BitSet[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            nulls[i] = new BitSet();
+        }
+    }
+
+    /**
+     * Build a batch from row-oriented records. Records whose length does not
+     * match the number of columns are skipped.
+     */
+    public static RecordBatch fromRecords(List<String> columnNames, List<String[]> records) {
+        RecordBatch batch = new RecordBatch(columnNames, records.size());
+        for (String[] record : records) {
+            batch.addRow(record);
+        }
+        return batch;
+    }
+
+    /**
+     * Build a batch from row-oriented records and the row key of each record.
+     * Records whose length does not match the number of columns are skipped
+     * together with their key.
+     */
+    public static RecordBatch fromRecords(List<String> columnNames, List<String[]> records, long[] rowKeys) {
+        RecordBatch batch = new RecordBatch(columnNames, records.size());
+        batch.rowKeys = new long[Math.max(1, records.size())];
+        for (int r = 0; r < records.size(); r++) {
+            batch.addRow(records.get(r), rowKeys[r]);
+        }
+        return batch;
+    }
+
+    /**
+     * Append a record.
+     *
+     * @return false if the record length does not match the number of columns,
+     *         in which case it is not added
+     */
+    public boolean addRow(String[] record) {
+        if (rowKeys != null) {
+            throw new IllegalStateException("Rows of a keyed batch need a row key");
+        }
+        return append(record);
+    }
+
+    /**
+     * Append a record of a keyed batch.
+     *
+     * @return false if the record length does not match the number of columns,
+     *         in which case it is not added
+     */
+    private boolean addRow(String[] record, long rowKey) {
+        if (!append(record)) {
+            return false;
+        }
+        if (rowCount > rowKeys.length) {
+            rowKeys = Arrays.copyOf(rowKeys, rowKeys.length * 2);
+        }
+        rowKeys[rowCount - 1] = rowKey;
+        return true;
+    }
+
+    private boolean append(String[] record) {
+        if (record.length != columns.length) {
+            return false;
+        }
+        if (columns.length > 0 && rowCount == columns[0].length) {
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = Arrays.copyOf(columns[i], rowCount * 2);
+            }
+        }
+        for (int i = 0; i < columns.length; i++) {
+            String value = record[i];
+            if (value == null || value.isEmpty()) {
+                nulls[i].set(rowCount);
+            } else {
+                columns[i][rowCount] = value;
+            }
+        }
+        rowCount++;
+        return true;
+    }
+
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return the index of the column, or -1 if the batch has no such column
+     */
+    public int getColumnIndex(String columnName) {
+        return columnNames.indexOf(columnName);
+    }
+
+    public boolean hasRowKeys() {
+        return rowKeys != null;
+    }
+
+    /**
+     * @return the row key of the row; only for batches with row keys
+     */
+    public long getRowKey(int row) {
+        return rowKeys[row];
+    }
+
+    public boolean isNull(int column, int row) {
+        return nulls[column].get(row);
+    }
+
+    /**
+     * @return the value of the cell, null if it is null
+     */
+    public String getValue(int column, int row) {
+        return columns[column][row];
+    }
+
+}
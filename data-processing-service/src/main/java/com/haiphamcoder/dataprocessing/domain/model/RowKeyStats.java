@@ -0,0 +1,19 @@
+package com.haiphamcoder.dataprocessing.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Number of rows and highest row key of a source table, read in one
+ * statement.
+ */
+@Data
+@AllArgsConstructor
+public class RowKeyStats {
+
+    private long rowCount;
+
+    /** Null when the table is empty. */
+    private Long maxRowKey;
+
+}
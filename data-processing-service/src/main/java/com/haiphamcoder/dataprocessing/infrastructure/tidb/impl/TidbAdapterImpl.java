@@ -2,18 +2,25 @@ package com.haiphamcoder.dataprocessing.infrastructure.tidb.impl;
 
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
+import javax.sql.DataSource;
+
 import com.haiphamcoder.dataprocessing.infrastructure.tidb.TidbAdapter;
 
 public class TidbAdapterImpl implements TidbAdapter {
 
     private Connection connection;
 
-    public TidbAdapterImpl(String url, String username, String password) {
+    /**
+     * Borrow a connection from the given pool. The connection is handed back to
+     * the pool when this adapter is closed.
+     * 
+     * @param dataSource the pooled data source to borrow the connection from
+     */
+    public TidbAdapterImpl(DataSource dataSource) {
         try {
-            connection = DriverManager.getConnection(url, username, password);
+            connection = dataSource.getConnection();
         } catch (SQLException e) {
             throw new RuntimeException("Failed to connect to TiDB", e);
         }
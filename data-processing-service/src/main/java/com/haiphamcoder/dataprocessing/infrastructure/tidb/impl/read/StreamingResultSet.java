@@ -0,0 +1,154 @@
+package com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.read;
+
+import java.io.Closeable;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.haiphamcoder.dataprocessing.domain.exception.technical.detail.DatabaseQueryException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Forward-only view over a server-side cursor.
+ * <p>
+ * Rows are fetched from TiDB {@code fetchSize} at a time and read by column
+ * index into a single reusable buffer, so only one row is ever held by this
+ * class. The array returned by {@link #next()} is overwritten by the following
+ * call; callers that keep a row must copy it. The estimated size of all rows
+ * read so far is checked against {@code maxBytes} and the query is aborted with
+ * a {@link DatabaseQueryException} once the cap is crossed.
+ */
+@Slf4j
+public class StreamingResultSet implements Iterator<Object[]>, Closeable {
+
+    private final Statement statement;
+    private final ResultSet resultSet;
+    private final CustomResultSet.MetaData metaData;
+    private final Object[] rowBuffer;
+    private final long maxBytes;
+    private final long runtime;
+
+    private long consumedBytes;
+    private long rowCount;
+    private boolean hasNextRow;
+    private boolean advanced;
+    private boolean closed;
+
+    StreamingResultSet(Statement statement, ResultSet resultSet, long maxBytes, long runtime) throws SQLException {
+        this.statement = statement;
+        this.resultSet = resultSet;
+        this.metaData = new CustomResultSet.MetaData(resultSet.getMetaData());
+        this.rowBuffer = new Object[metaData.getColumnCount()];
+        this.maxBytes = maxBytes;
+        this.runtime = runtime;
+    }
+
+    public CustomResultSet.MetaData getMetaData() {
+        return metaData;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getConsumedBytes() {
+        return consumedBytes;
+    }
+
+    public long getRuntime() {
+        return runtime;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (!advanced) {
+            try {
+                hasNextRow = resultSet.next();
+            } catch (SQLException e) {
+                throw new DatabaseQueryException("Failed to fetch next row: " + e.getMessage());
+            }
+            advanced = true;
+        }
+        return hasNextRow;
+    }
+
+    @Override
+    public Object[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        advanced = false;
+        try {
+            for (int i = 0; i < rowBuffer.length; i++) {
+                Object value = resultSet.getObject(i + 1);
+                rowBuffer[i] = value;
+                consumedBytes += estimateSize(value);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseQueryException("Failed to read row: " + e.getMessage());
+        }
+        rowCount++;
+        if (maxBytes > 0 && consumedBytes > maxBytes) {
+            throw new DatabaseQueryException(
+                    "Query result exceeds the limit of " + maxBytes + " bytes after " + rowCount + " rows");
+        }
+        return rowBuffer;
+    }
+
+    /**
+     * Expose the remaining rows as a sequential stream. The stream shares the
+     * reusable row buffer and must be consumed before this result set is closed.
+     *
+     * @return stream of rows
+     */
+    public Stream<Object[]> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            resultSet.close();
+        } catch (SQLException e) {
+            log.warn("Failed to close result set: {}", e.getMessage());
+        }
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            log.warn("Failed to close statement: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rough heap footprint of a JDBC value, used to enforce the per-query
+     * memory cap.
+     */
+    static long estimateSize(Object value) {
+        if (value == null) {
+            return 8;
+        }
+        if (value instanceof CharSequence charSequence) {
+            return 40L + 2L * charSequence.length();
+        }
+        if (value instanceof byte[] bytes) {
+            return 16L + bytes.length;
+        }
+        return 24;
+    }
+
+}
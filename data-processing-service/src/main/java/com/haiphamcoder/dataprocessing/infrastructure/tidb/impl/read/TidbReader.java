@@ -1,25 +1,44 @@
 package com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.read;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
+import javax.sql.DataSource;
+
+import org.json.JSONArray;
 import org.json.JSONObject;
 
 import com.haiphamcoder.dataprocessing.domain.dto.Mapping;
+import com.haiphamcoder.dataprocessing.domain.model.ChartMaterialization;
+import com.haiphamcoder.dataprocessing.domain.model.ChartMaterialization.RefreshMode;
+import com.haiphamcoder.dataprocessing.domain.model.ImportCheckpoint;
+import com.haiphamcoder.dataprocessing.domain.model.QueryRows;
+import com.haiphamcoder.dataprocessing.domain.model.RowKeyStats;
 import com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.TidbAdapterImpl;
+import com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.write.ChartTableDdl;
+import com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.write.SourceTableDdl;
+import com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.write.TidbWriter;
+import com.haiphamcoder.dataprocessing.shared.TidbDataTypeDetector;
 
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class TidbReader extends TidbAdapterImpl {
 
-    public TidbReader(String url, String username, String password) {
-        super(url, username, password);
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+    public static final long DEFAULT_MAX_RESULT_BYTES = 64L * 1024 * 1024;
+    public static final String ROW_KEY_COLUMN = SourceTableDdl.ROW_KEY_COLUMN;
+
+    public TidbReader(DataSource dataSource) {
+        super(dataSource);
     }
 
     private CustomResultSet doExecuteQuery(Statement statement, String sql) throws SQLException {
@@ -35,6 +54,60 @@ public class TidbReader extends TidbAdapterImpl {
         }
     }
 
+    /**
+     * Execute a query over a server-side cursor. Rows are fetched
+     * {@code fetchSize} at a time instead of being buffered by the driver, and
+     * the returned result set aborts once {@code maxBytes} of row data have been
+     * read. The caller must close the returned result set.
+     * 
+     * @param sql       the query to execute
+     * @param fetchSize the number of rows fetched per round trip
+     * @param maxBytes  the memory cap for the whole result, 0 for no cap
+     * @return the streaming result set
+     * @throws SQLException if the query fails
+     */
+    public StreamingResultSet executeStreamingQuery(String sql, int fetchSize, long maxBytes) throws SQLException {
+        Statement statement = getConnection().createStatement(ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY);
+        try {
+            statement.setFetchSize(fetchSize);
+            long startTime = System.currentTimeMillis();
+            ResultSet resultSet = statement.executeQuery(sql);
+            long endTime = System.currentTimeMillis();
+            log.info("Streaming query opened in {} ms", endTime - startTime);
+            return new StreamingResultSet(statement, resultSet, maxBytes, endTime - startTime);
+        } catch (SQLException e) {
+            log.error("Query execution failed! {}", e.getMessage());
+            statement.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Like {@link #executeStreamingQuery(String, int, long)} for a query with
+     * {@code ?} placeholders, bound in order to {@code parameters}.
+     */
+    public StreamingResultSet executeStreamingQuery(String sql, List<Object> parameters, int fetchSize,
+            long maxBytes) throws SQLException {
+        PreparedStatement statement = getConnection().prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY);
+        try {
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+            statement.setFetchSize(fetchSize);
+            long startTime = System.currentTimeMillis();
+            ResultSet resultSet = statement.executeQuery();
+            long endTime = System.currentTimeMillis();
+            log.info("Streaming query opened in {} ms", endTime - startTime);
+            return new StreamingResultSet(statement, resultSet, maxBytes, endTime - startTime);
+        } catch (SQLException e) {
+            log.error("Query execution failed! {}", e.getMessage());
+            statement.close();
+            throw e;
+        }
+    }
+
     public CustomResultSet executeQuery(String sql) throws SQLException {
         try (Statement statement = getConnection().createStatement()) {
             return doExecuteQuery(statement, sql);
@@ -44,9 +117,28 @@ public class TidbReader extends TidbAdapterImpl {
         }
     }
 
+    /**
+     * Read one page of a source table in row key order. With {@code afterKey}
+     * the page starts after that key, so TiDB seeks to it instead of scanning
+     * and discarding the rows of the previous pages; without it {@code page}
+     * is used as an offset.
+     * 
+     * @param tableName     the source table
+     * @param mappings      the column mappings; hidden columns are not read
+     * @param search        the value to search for, or null
+     * @param searchBy      the column to search in, or null
+     * @param afterKey      the row key of the last row of the previous page, or
+     *                      null
+     * @param page          the page number, used only without {@code afterKey}
+     * @param limit         the page size
+     * @param numericRowKey true if the table has a numeric row key column, see
+     *                      {@link SourceTableDdl#rowKeyParameter}
+     * @return the rows of the page, each including its row key
+     * @throws SQLException if the query fails
+     */
     public List<JSONObject> getPreviewData(String tableName, List<Mapping> mappings, String search, String searchBy,
-            Integer page, Integer limit)
-            throws SQLException {
+            String afterKey, Integer page, Integer limit, boolean numericRowKey) throws SQLException {
+        List<Object> parameters = new ArrayList<>();
         StringBuilder sql = new StringBuilder();
         sql.append("SELECT ");
         mappings.forEach(mapping -> {
@@ -54,39 +146,53 @@ public class TidbReader extends TidbAdapterImpl {
                 sql.append(mapping.getFieldMapping() + ",");
             }
         });
-        sql.append("_id_,");
-        sql.deleteCharAt(sql.length() - 1);
+        sql.append(ROW_KEY_COLUMN);
         sql.append(" FROM ");
         sql.append(tableName);
+
+        List<String> conditions = new ArrayList<>(2);
         if (search != null && searchBy != null) {
             for (Mapping mapping : mappings) {
                 if (mapping.getFieldMapping().equals(searchBy)) {
-                    sql.append(" WHERE ");
-                    if (mapping.getFieldType().equalsIgnoreCase("text")) {
-                        sql.append(mapping.getFieldMapping());
-                        sql.append(" COLLATE utf8mb4_general_ci");
-                        sql.append(" LIKE ");
-                        sql.append("'%");
-                        sql.append(search);
-                        sql.append("%'");
+                    if (TidbDataTypeDetector.isStringType(mapping.getFieldType())) {
+                        conditions.add(mapping.getFieldMapping() + " COLLATE utf8mb4_general_ci LIKE ?");
+                        parameters.add("%" + search + "%");
                     } else {
-                        sql.append(mapping.getFieldMapping());
-                        sql.append(" = ");
-                        sql.append("'");
-                        sql.append(search);
-                        sql.append("'");
+                        conditions.add(mapping.getFieldMapping() + " = ?");
+                        parameters.add(search);
                     }
                     break;
                 }
             }
         }
-        sql.append(" LIMIT ");
-        sql.append(limit);
-        sql.append(" OFFSET ");
-        sql.append(page * limit);
+        if (afterKey != null) {
+            conditions.add(ROW_KEY_COLUMN + " > ?");
+            parameters.add(SourceTableDdl.rowKeyParameter(afterKey, numericRowKey));
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY ").append(ROW_KEY_COLUMN);
+        sql.append(" LIMIT ?");
+        parameters.add(limit);
+        if (afterKey == null && page > 0) {
+            sql.append(" OFFSET ?");
+            parameters.add(page * limit);
+        }
+
+        List<Map<String, Object>> data;
+        try (PreparedStatement statement = getConnection().prepareStatement(sql.toString())) {
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+            long startTime = System.currentTimeMillis();
+            ResultSet resultSet = statement.executeQuery();
+            data = new CustomResultSet(resultSet, System.currentTimeMillis() - startTime).getRows();
+        } catch (SQLException e) {
+            log.error("Query execution failed! {}", e.getMessage());
+            throw e;
+        }
 
-        CustomResultSet resultSet = executeQuery(sql.toString());
-        List<Map<String, Object>> data = resultSet.getRows();
         List<JSONObject> records = new LinkedList<>();
         for (Map<String, Object> row : data) {
             JSONObject record = new JSONObject();
@@ -95,26 +201,246 @@ public class TidbReader extends TidbAdapterImpl {
                     record.put(mapping.getFieldMapping(), row.get(mapping.getFieldMapping()));
                 }
             }
-            record.put("_id_", row.get("_id_"));
+            // Snowflake keys do not fit a JavaScript number, so they are sent as text
+            Object rowKey = row.get(ROW_KEY_COLUMN);
+            record.put(ROW_KEY_COLUMN, rowKey != null ? rowKey.toString() : JSONObject.NULL);
             records.add(record);
         }
         return records;
     }
 
     public List<JSONObject> getPreviewDataByQuery(String sqlQuery) throws SQLException {
-        CustomResultSet resultSet = executeQuery(sqlQuery);
-        List<Map<String, Object>> data = resultSet.getRows();
+        return getPreviewDataByQuery(sqlQuery, DEFAULT_FETCH_SIZE, DEFAULT_MAX_RESULT_BYTES);
+    }
 
+    public List<JSONObject> getPreviewDataByQuery(String sqlQuery, int fetchSize, long maxBytes)
+            throws SQLException {
+        return getPreviewDataByQuery(sqlQuery, List.of(), fetchSize, maxBytes);
+    }
+
+    /**
+     * Read the rows of a query with {@code ?} placeholders, bound in order to
+     * {@code parameters}.
+     */
+    public List<JSONObject> getPreviewDataByQuery(String sqlQuery, List<Object> parameters, int fetchSize,
+            long maxBytes) throws SQLException {
         List<JSONObject> records = new LinkedList<>();
-        for (Map<String, Object> row : data) {
-            log.info("Row: {}", row);
-            JSONObject record = new JSONObject();
-            for (Entry<String, Object> entry : row.entrySet()) {
-                record.put(entry.getKey(), entry.getValue());
+        try (StreamingResultSet resultSet = parameters.isEmpty()
+                ? executeStreamingQuery(sqlQuery, fetchSize, maxBytes)
+                : executeStreamingQuery(sqlQuery, parameters, fetchSize, maxBytes)) {
+            CustomResultSet.MetaData metaData = resultSet.getMetaData();
+            while (resultSet.hasNext()) {
+                Object[] row = resultSet.next();
+                JSONObject record = new JSONObject();
+                for (int i = 0; i < row.length; i++) {
+                    record.put(metaData.getColumnLabel(i + 1), row[i]);
+                }
+                records.add(record);
             }
-            records.add(record);
+            log.info("Read {} rows ({} bytes) by query", resultSet.getRowCount(), resultSet.getConsumedBytes());
         }
         return records;
     }
 
+    /**
+     * Like {@link #getPreviewDataByQuery(String, List, int, long)}, keeping
+     * the values as the driver returned them along with the column types.
+     */
+    public QueryRows readRows(String sqlQuery, List<Object> parameters, int fetchSize, long maxBytes)
+            throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        try (StreamingResultSet resultSet = executeStreamingQuery(sqlQuery, parameters, fetchSize, maxBytes)) {
+            CustomResultSet.MetaData metaData = resultSet.getMetaData();
+            List<String> columns = new ArrayList<>(metaData.getColumnCount());
+            List<String> typeNames = new ArrayList<>(metaData.getColumnCount());
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                columns.add(metaData.getColumnLabel(i));
+                typeNames.add(metaData.getColumnTypeName(i));
+            }
+            while (resultSet.hasNext()) {
+                // The result set reuses its row buffer
+                rows.add(resultSet.next().clone());
+            }
+            return new QueryRows(columns, typeNames, rows);
+        }
+    }
+
+    /**
+     * @param upTo count only the rows with a row key up to this one, null for
+     *             all rows
+     */
+    public RowKeyStats getRowKeyStats(String table, Long upTo) throws SQLException {
+        String sql = "SELECT COUNT(*), MAX(" + ROW_KEY_COLUMN + ") FROM " + table
+                + (upTo != null ? " WHERE " + ROW_KEY_COLUMN + " <= ?" : "");
+        try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
+            if (upTo != null) {
+                statement.setLong(1, upTo);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                long maxRowKey = resultSet.getLong(2);
+                return new RowKeyStats(resultSet.getLong(1), resultSet.wasNull() ? null : maxRowKey);
+            }
+        }
+    }
+
+    /**
+     * @return the state of the materialized result of a chart, null if it has
+     *         none
+     */
+    public ChartMaterialization getChartMaterialization(Long chartId) throws SQLException {
+        String sql = "SELECT definition_hash, columns_json, source_table, watermark, source_rows, append_only,"
+                + " row_count, refresh_mode, refresh_duration_ms, refreshed_at, source_tables, source_changed_at FROM "
+                + ChartTableDdl.MATERIALIZATION_TABLE + " WHERE chart_id = ?";
+        try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
+            statement.setLong(1, chartId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                List<String> columns = new ArrayList<>();
+                for (Object column : new JSONArray(resultSet.getString("columns_json"))) {
+                    columns.add(String.valueOf(column));
+                }
+                return ChartMaterialization.builder()
+                        .chartId(chartId)
+                        .definitionHash(resultSet.getString("definition_hash"))
+                        .columns(columns)
+                        .sourceTable(resultSet.getString("source_table"))
+                        .watermark(resultSet.getObject("watermark", Long.class))
+                        .sourceRows(resultSet.getObject("source_rows", Long.class))
+                        .appendOnly(resultSet.getBoolean("append_only"))
+                        .rowCount(resultSet.getLong("row_count"))
+                        .refreshMode(RefreshMode.valueOf(resultSet.getString("refresh_mode")))
+                        .refreshDurationMs(resultSet.getLong("refresh_duration_ms"))
+                        .refreshedAt(resultSet.getLong("refreshed_at"))
+                        .sourceTables(sourceTables(resultSet.getString("source_tables")))
+                        .sourceChangedAt(resultSet.getObject("source_changed_at", Long.class))
+                        .build();
+            }
+        }
+    }
+
+    private static List<String> sourceTables(String value) {
+        List<String> tables = new ArrayList<>();
+        if (value != null && !value.isEmpty()) {
+            for (String table : value.split(",")) {
+                tables.add(table);
+            }
+        }
+        return tables;
+    }
+
+    public List<ImportCheckpoint> getImportCheckpoints(Long sourceId) throws SQLException {
+        String sql = "SELECT sequence, start_offset, end_offset, row_count FROM "
+                + TidbWriter.IMPORT_CHECKPOINT_TABLE + " WHERE source_id = ? ORDER BY sequence";
+        List<ImportCheckpoint> checkpoints = new LinkedList<>();
+        try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
+            statement.setLong(1, sourceId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    checkpoints.add(ImportCheckpoint.builder()
+                            .sourceId(sourceId)
+                            .sequence(resultSet.getLong(1))
+                            .startOffset(resultSet.getLong(2))
+                            .endOffset(resultSet.getLong(3))
+                            .rowCount(resultSet.getLong(4))
+                            .build());
+                }
+            }
+        }
+        return checkpoints;
+    }
+
+    /**
+     * @return the estimated number of rows of the table, 0 if it does not exist
+     */
+    public long getTableRowCount(String table) throws SQLException {
+        String sql = "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE()"
+                + " AND TABLE_NAME = ?";
+        try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
+            statement.setString(1, table);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * @return the data type of the column (e.g. {@code varchar}), null if the
+     *         column does not exist
+     */
+    public String getColumnDataType(String table, String column) throws SQLException {
+        String sql = "SELECT DATA_TYPE FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE()"
+                + " AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+        try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
+            statement.setString(1, table);
+            statement.setString(2, column);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+    }
+
+    /**
+     * @return index name to the first column of the index, for every index of
+     *         the table
+     */
+    public Map<String, String> getIndexLeadingColumns(String table) throws SQLException {
+        String sql = "SELECT INDEX_NAME, COLUMN_NAME FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = DATABASE()"
+                + " AND TABLE_NAME = ? AND SEQ_IN_INDEX = 1";
+        Map<String, String> indexes = new LinkedHashMap<>();
+        try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
+            statement.setString(1, table);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    indexes.put(resultSet.getString(1), resultSet.getString(2));
+                }
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * @return the number of TiFlash replicas of the table, 0 if it has none or
+     *         the cluster has no TiFlash
+     */
+    public int getTiFlashReplicaCount(String table) {
+        String sql = "SELECT REPLICA_COUNT FROM information_schema.TIFLASH_REPLICA WHERE TABLE_SCHEMA = DATABASE()"
+                + " AND TABLE_NAME = ?";
+        try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
+            statement.setString(1, table);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            log.debug("Get TiFlash replicas of {} failed! {}", table, e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * @return the rows of {@code EXPLAIN FORMAT = 'verbose'} for a query, each
+     *         with the plan columns in order ({@code id}, {@code estRows},
+     *         {@code estCost}, {@code task}, ...)
+     */
+    public List<Map<String, Object>> explain(String sqlQuery) throws SQLException {
+        List<Map<String, Object>> plan = new ArrayList<>();
+        try (Statement statement = getConnection().createStatement();
+                ResultSet resultSet = statement.executeQuery("EXPLAIN FORMAT = 'verbose' " + sqlQuery)) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            while (resultSet.next()) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    row.put(metaData.getColumnLabel(i), resultSet.getObject(i));
+                }
+                plan.add(row);
+            }
+        } catch (SQLException e) {
+            log.error("Explain query failed! {}", e.getMessage());
+            throw e;
+        }
+        return plan;
+    }
+
 }
@@ -0,0 +1,112 @@
+package com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.write;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * DDL of the tables that hold the materialized results of charts.
+ * <p>
+ * The result of chart {@code id} lives in {@code chart_<id>}. Result labels
+ * such as {@code SUM(`t`.`amount`)} are not valid column names, so the columns
+ * are named {@code c0}, {@code c1}, ... and their labels are kept in
+ * {@link #MATERIALIZATION_TABLE}. Rows are numbered in result order by
+ * {@link #ROW_COLUMN}, the clustered primary key, so a page of the result is
+ * one range read.
+ */
+@UtilityClass
+public class ChartTableDdl {
+
+    public static final String MATERIALIZATION_TABLE = "chart_materialization";
+    public static final String ROW_COLUMN = "_row_";
+    private static final String TABLE_PREFIX = "chart_";
+
+    public static String tableName(Long chartId) {
+        return TABLE_PREFIX + chartId;
+    }
+
+    /**
+     * @return the row number column followed by a column per result column
+     */
+    public static List<String> columnNames(int columnCount) {
+        List<String> columns = new ArrayList<>(columnCount + 1);
+        columns.add(ROW_COLUMN);
+        for (int i = 0; i < columnCount; i++) {
+            columns.add("c" + i);
+        }
+        return columns;
+    }
+
+    /**
+     * @param columnTypes the column type of every result column, see
+     *                    {@link #columnType}
+     */
+    public static String createTableSql(String table, List<String> columnTypes) {
+        StringBuilder sql = new StringBuilder("CREATE TABLE IF NOT EXISTS ").append(table).append(" (")
+                .append(ROW_COLUMN).append(" BIGINT NOT NULL,");
+        for (int i = 0; i < columnTypes.size(); i++) {
+            sql.append('c').append(i).append(' ').append(columnTypes.get(i)).append(',');
+        }
+        return sql.append("PRIMARY KEY (").append(ROW_COLUMN).append(") /*T![clustered_index] CLUSTERED */)")
+                .toString();
+    }
+
+    /**
+     * Column type holding the values of a result column of the given JDBC type
+     * name. Types are widened so merged aggregates never overflow them.
+     */
+    public static String columnType(String typeName) {
+        String type = typeName != null ? typeName.toUpperCase(Locale.ROOT) : "";
+        if (type.contains("INT") || type.equals("BIT") || type.equals("YEAR")) {
+            return "BIGINT";
+        }
+        if (type.startsWith("DECIMAL")) {
+            return "DECIMAL(65,10)";
+        }
+        if (type.startsWith("DOUBLE") || type.startsWith("FLOAT") || type.equals("REAL")) {
+            return "DOUBLE";
+        }
+        if (type.equals("DATE")) {
+            return "DATE";
+        }
+        if (type.equals("DATETIME") || type.equals("TIMESTAMP")) {
+            return "DATETIME(6)";
+        }
+        if (type.equals("TIME")) {
+            return "TIME(6)";
+        }
+        return "LONGTEXT";
+    }
+
+    public static String createMaterializationTableSql() {
+        return "CREATE TABLE IF NOT EXISTS " + MATERIALIZATION_TABLE + " ("
+                + "chart_id BIGINT NOT NULL,"
+                + "definition_hash VARCHAR(64) NOT NULL,"
+                + "columns_json LONGTEXT NOT NULL,"
+                + "source_table VARCHAR(64) NULL,"
+                + "watermark BIGINT NULL,"
+                + "source_rows BIGINT NULL,"
+                + "append_only TINYINT(1) NOT NULL DEFAULT 0,"
+                + "row_count BIGINT NOT NULL,"
+                + "refresh_mode VARCHAR(16) NOT NULL,"
+                + "refresh_duration_ms BIGINT NOT NULL,"
+                + "refreshed_at BIGINT NOT NULL,"
+                + "source_tables TEXT NULL,"
+                + "source_changed_at BIGINT NULL,"
+                + "PRIMARY KEY (chart_id),"
+                + "KEY idx_chart_materialization_source (source_table))";
+    }
+
+    /**
+     * @return the statements adding the columns introduced after
+     *         {@link #MATERIALIZATION_TABLE} was first created
+     */
+    public static List<String> migrateMaterializationTableSql() {
+        return List.of(
+                "ALTER TABLE " + MATERIALIZATION_TABLE + " ADD COLUMN IF NOT EXISTS source_tables TEXT NULL",
+                "ALTER TABLE " + MATERIALIZATION_TABLE + " ADD COLUMN IF NOT EXISTS source_changed_at BIGINT NULL");
+    }
+
+}
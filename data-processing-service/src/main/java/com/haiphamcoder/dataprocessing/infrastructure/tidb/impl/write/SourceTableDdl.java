@@ -0,0 +1,113 @@
+package com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.write;
+
+import java.util.Map;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * DDL of the tables that hold imported source data.
+ * <p>
+ * Every row is keyed by a snowflake id in a {@code BIGINT} primary key on
+ * {@link #ROW_KEY_COLUMN}, so updates and keyset pages are index lookups. The
+ * key is non-clustered and the hidden row id is sharded with
+ * {@code SHARD_ROW_ID_BITS}: snowflake ids grow with time, and clustering on
+ * them would send every insert of an import to the last region. Large imports
+ * also pre-split the table into {@code 2^PRE_SPLIT_REGIONS} regions so the
+ * writes are spread from the first row. The TiDB options are written in
+ * TiDB-only comments, like {@code SHOW CREATE TABLE} does.
+ */
+@UtilityClass
+public class SourceTableDdl {
+
+    public static final String ROW_KEY_COLUMN = "_id_";
+    public static final String ROW_KEY_TYPE = "BIGINT";
+    /** Prefix of the row keys of tables whose key column is still text. */
+    public static final String LEGACY_ROW_KEY_PREFIX = "row_";
+
+    /**
+     * @param table          the table name
+     * @param columns        column name to type, without the row key
+     * @param shardRowIdBits bits of the hidden row id used to scatter rows
+     * @param preSplitBits   pre-split the table into {@code 2^preSplitBits}
+     *                       regions; 0 for none
+     * @return the {@code CREATE TABLE} statement
+     */
+    public static String createTableSql(String table, Map<String, String> columns, int shardRowIdBits,
+            int preSplitBits) {
+        StringBuilder sql = new StringBuilder("CREATE TABLE IF NOT EXISTS ").append(table).append(" (");
+        sql.append(ROW_KEY_COLUMN).append(' ').append(ROW_KEY_TYPE).append(" NOT NULL,");
+        columns.forEach((name, type) -> {
+            if (!ROW_KEY_COLUMN.equals(name)) {
+                sql.append(name).append(' ').append(type).append(',');
+            }
+        });
+        sql.append("PRIMARY KEY (").append(ROW_KEY_COLUMN).append(") /*T![clustered_index] NONCLUSTERED */)");
+        if (shardRowIdBits > 0) {
+            sql.append(" /*T! SHARD_ROW_ID_BITS=").append(shardRowIdBits);
+            if (preSplitBits > 0) {
+                sql.append(" PRE_SPLIT_REGIONS=").append(Math.min(preSplitBits, shardRowIdBits));
+            }
+            sql.append(" */");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Number of pre-split bits for a table expected to hold
+     * {@code expectedBytes}: enough regions of {@code regionSizeBytes} for the
+     * data, at most {@code 2^shardRowIdBits}.
+     *
+     * @return 0 when the size is unknown or fits in one region
+     */
+    public static int preSplitBits(long expectedBytes, long regionSizeBytes, int shardRowIdBits) {
+        if (expectedBytes <= regionSizeBytes || regionSizeBytes <= 0) {
+            return 0;
+        }
+        long regions = (expectedBytes + regionSizeBytes - 1) / regionSizeBytes;
+        int bits = Long.SIZE - Long.numberOfLeadingZeros(regions - 1);
+        return Math.min(bits, shardRowIdBits);
+    }
+
+    /**
+     * Value to bind for a row key received as text, matching the type of the
+     * table's row key column so the key is compared exactly and keyset pages
+     * follow the column's own order.
+     *
+     * @param rowKey     the row key
+     * @param numericKey true if the table has a numeric row key column
+     * @throws IllegalArgumentException if a numeric key is not a number
+     */
+    public static Object rowKeyParameter(String rowKey, boolean numericKey) {
+        if (!numericKey) {
+            return rowKey;
+        }
+        // A key read before the table was migrated keeps its snowflake id
+        String digits = rowKey.startsWith(LEGACY_ROW_KEY_PREFIX) ? rowKey.substring(LEGACY_ROW_KEY_PREFIX.length())
+                : rowKey;
+        try {
+            return Long.valueOf(digits);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid row key " + rowKey, e);
+        }
+    }
+
+    /**
+     * Value to write as the row key of a new row. Tables not migrated yet keep
+     * their text {@code row_} keys; the number is zero-padded so the text keys
+     * written from now on sort in numeric order.
+     *
+     * @param id         the numeric key
+     * @param numericKey true if the table has a numeric row key column
+     */
+    public static Object rowKeyValue(long id, boolean numericKey) {
+        return numericKey ? (Object) id : String.format("%s%019d", LEGACY_ROW_KEY_PREFIX, id);
+    }
+
+    /**
+     * @return true if a column of this type holds numeric row keys
+     */
+    public static boolean isNumericRowKeyType(String type) {
+        return type != null && type.toLowerCase().contains("int");
+    }
+
+}
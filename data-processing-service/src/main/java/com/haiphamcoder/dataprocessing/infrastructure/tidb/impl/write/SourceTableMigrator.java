@@ -0,0 +1,210 @@
+package com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.write;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.TidbAdapterImpl;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Converts source tables created with a {@code TEXT} row key and no primary
+ * key to the layout of {@link SourceTableDdl}.
+ * <p>
+ * {@link #addRowKeyIndex} is an online DDL that only indexes the existing text
+ * key. {@link #rebuild} copies the table into a new one with the
+ * {@code BIGINT} key, batch by batch in key order, keeping the snowflake part
+ * of each {@code row_<id>} key, and then swaps the two tables in one
+ * {@code RENAME TABLE}. The old table is kept as {@code <table>_legacy}. Rows
+ * written to the table while it is rebuilt are not copied, so imports and
+ * edits of the table must be stopped while it runs.
+ */
+@Slf4j
+public class SourceTableMigrator extends TidbAdapterImpl {
+
+    static final String MIGRATING_SUFFIX = "_migrating";
+    static final String LEGACY_SUFFIX = "_legacy";
+    private static final String ROW_KEY_INDEX = "idx_row_key";
+    private static final int ROW_KEY_INDEX_PREFIX = 64;
+
+    public SourceTableMigrator(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    /**
+     * @return the tables of the current database whose row key is still text
+     */
+    public List<String> findLegacyTables() throws SQLException {
+        String sql = "SELECT TABLE_NAME FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE()"
+                + " AND COLUMN_NAME = ? AND DATA_TYPE IN ('text', 'tinytext', 'mediumtext', 'longtext', 'varchar',"
+                + " 'char') ORDER BY TABLE_NAME";
+        List<String> tables = new ArrayList<>();
+        try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
+            statement.setString(1, SourceTableDdl.ROW_KEY_COLUMN);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    String table = resultSet.getString(1);
+                    if (!table.endsWith(MIGRATING_SUFFIX) && !table.endsWith(LEGACY_SUFFIX)) {
+                        tables.add(table);
+                    }
+                }
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Index the text row key of a legacy table, if it is not indexed yet.
+     *
+     * @return true if the index was added
+     */
+    public boolean addRowKeyIndex(String table) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = DATABASE()"
+                + " AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+        try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
+            statement.setString(1, table);
+            statement.setString(2, SourceTableDdl.ROW_KEY_COLUMN);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next() && resultSet.getLong(1) > 0) {
+                    return false;
+                }
+            }
+        }
+        executeUpdate("ALTER TABLE " + table + " ADD INDEX " + ROW_KEY_INDEX + " ("
+                + SourceTableDdl.ROW_KEY_COLUMN + "(" + ROW_KEY_INDEX_PREFIX + "))");
+        log.info("Indexed row key of {}", table);
+        return true;
+    }
+
+    /**
+     * Rebuild a legacy table with a {@code BIGINT} primary key.
+     *
+     * @param table           the legacy table
+     * @param batchRows       rows copied per statement
+     * @param shardRowIdBits  see {@link SourceTableDdl#createTableSql}
+     * @param regionSizeBytes region size used to pre-split the new table
+     * @return the number of rows copied
+     */
+    public long rebuild(String table, int batchRows, int shardRowIdBits, long regionSizeBytes)
+            throws SQLException {
+        // The key index makes every batch boundary a seek
+        addRowKeyIndex(table);
+
+        Map<String, String> columns = getColumns(table);
+        columns.remove(SourceTableDdl.ROW_KEY_COLUMN);
+        String newTable = table + MIGRATING_SUFFIX;
+        int preSplitBits = SourceTableDdl.preSplitBits(getDataLength(table), regionSizeBytes, shardRowIdBits);
+        executeUpdate("DROP TABLE IF EXISTS " + newTable);
+        executeUpdate(SourceTableDdl.createTableSql(newTable, columns, shardRowIdBits, preSplitBits));
+
+        // row_<id> keys keep their snowflake id; keys written without the prefix are already numeric
+        String rowKey = SourceTableDdl.ROW_KEY_COLUMN;
+        String prefix = SourceTableDdl.LEGACY_ROW_KEY_PREFIX;
+        String numericKey = "CAST(IF(LEFT(" + rowKey + ", " + prefix.length() + ") = '" + prefix + "', SUBSTRING("
+                + rowKey + ", " + (prefix.length() + 1) + "), " + rowKey + ") AS SIGNED)";
+        StringBuilder targetColumns = new StringBuilder(rowKey);
+        StringBuilder sourceColumns = new StringBuilder(numericKey);
+        for (String column : columns.keySet()) {
+            targetColumns.append(',').append(column);
+            sourceColumns.append(',').append(column);
+        }
+        String insertPrefix = "INSERT INTO " + newTable + " (" + targetColumns + ") SELECT " + sourceColumns
+                + " FROM " + table + " WHERE " + rowKey + " > ?";
+
+        long copied = 0;
+        String lowerKey = "";
+        while (true) {
+            String upperKey = findBatchEnd(table, lowerKey, batchRows);
+            String sql = insertPrefix + (upperKey != null ? " AND " + rowKey + " <= ?" : "");
+            try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
+                statement.setString(1, lowerKey);
+                if (upperKey != null) {
+                    statement.setString(2, upperKey);
+                }
+                copied += statement.executeUpdate();
+            }
+            if (upperKey == null) {
+                break;
+            }
+            lowerKey = upperKey;
+            log.info("Copied {} rows of {}", copied, table);
+        }
+
+        long expected = countRows(table);
+        if (copied != expected) {
+            throw new SQLException("Rebuild of " + table + " failed! Copied " + copied + " of " + expected
+                    + " rows");
+        }
+        executeUpdate("RENAME TABLE " + table + " TO " + table + LEGACY_SUFFIX + ", " + newTable + " TO " + table);
+        log.info("Rebuilt {} with a numeric row key ({} rows), old table kept as {}{}", table, copied, table,
+                LEGACY_SUFFIX);
+        return copied;
+    }
+
+    /**
+     * @return the key of the last row of the batch after {@code lowerKey}, or
+     *         null if fewer than {@code batchRows} rows are left
+     */
+    private String findBatchEnd(String table, String lowerKey, int batchRows) throws SQLException {
+        String rowKey = SourceTableDdl.ROW_KEY_COLUMN;
+        String sql = "SELECT " + rowKey + " FROM " + table + " WHERE " + rowKey + " > ? ORDER BY " + rowKey
+                + " LIMIT 1 OFFSET ?";
+        try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
+            statement.setString(1, lowerKey);
+            statement.setInt(2, Math.max(1, batchRows) - 1);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+    }
+
+    private Map<String, String> getColumns(String table) throws SQLException {
+        String sql = "SELECT COLUMN_NAME, COLUMN_TYPE FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE()"
+                + " AND TABLE_NAME = ? ORDER BY ORDINAL_POSITION";
+        Map<String, String> columns = new LinkedHashMap<>();
+        try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
+            statement.setString(1, table);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    columns.put(resultSet.getString(1), resultSet.getString(2));
+                }
+            }
+        }
+        return columns;
+    }
+
+    private long getDataLength(String table) throws SQLException {
+        String sql = "SELECT DATA_LENGTH FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE()"
+                + " AND TABLE_NAME = ?";
+        try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
+            statement.setString(1, table);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+        }
+    }
+
+    private long countRows(String table) throws SQLException {
+        try (PreparedStatement statement = getConnection().prepareStatement("SELECT COUNT(*) FROM " + table);
+                ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+
+    private void executeUpdate(String sql) throws SQLException {
+        try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            log.error("Execute update failed! {}", e.getMessage());
+            throw e;
+        }
+    }
+
+}
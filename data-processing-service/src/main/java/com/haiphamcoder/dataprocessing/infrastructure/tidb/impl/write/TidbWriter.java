@@ -2,26 +2,49 @@ package com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.write;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
 
+import javax.sql.DataSource;
+
+import org.json.JSONArray;
 import org.json.JSONObject;
 
 import com.haiphamcoder.dataprocessing.domain.dto.Mapping;
+import com.haiphamcoder.dataprocessing.domain.model.ChartMaterialization;
+import com.haiphamcoder.dataprocessing.domain.model.ImportCheckpoint;
+import com.haiphamcoder.dataprocessing.domain.model.RecordBatch;
 import com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.TidbAdapterImpl;
 import com.haiphamcoder.dataprocessing.shared.SnowflakeIdGenerator;
-import com.haiphamcoder.dataprocessing.shared.StringUtils;
+import com.haiphamcoder.dataprocessing.shared.TidbDataTypeDetector;
 
 @Slf4j
 public class TidbWriter extends TidbAdapterImpl {
 
-    public TidbWriter(String url, String username, String password) {
-        super(url, username, password);
+    public static final String IMPORT_CHECKPOINT_TABLE = "import_checkpoint";
+    public static final int DEFAULT_MAX_ROWS_PER_STATEMENT = 200;
+    public static final long DEFAULT_MAX_BYTES_PER_STATEMENT = 1024L * 1024;
+
+    // MySQL protocol limit on the number of placeholders in one prepared statement
+    private static final int MAX_PLACEHOLDERS_PER_STATEMENT = 65535;
+
+    private final int maxRowsPerStatement;
+    private final long maxBytesPerStatement;
+
+    public TidbWriter(DataSource dataSource) {
+        this(dataSource, DEFAULT_MAX_ROWS_PER_STATEMENT, DEFAULT_MAX_BYTES_PER_STATEMENT);
+    }
+
+    public TidbWriter(DataSource dataSource, int maxRowsPerStatement, long maxBytesPerStatement) {
+        super(dataSource);
+        this.maxRowsPerStatement = Math.max(1, maxRowsPerStatement);
+        this.maxBytesPerStatement = Math.max(1, maxBytesPerStatement);
     }
 
     public void insert(String table, Map<String, Object> data) throws SQLException {
@@ -40,66 +63,524 @@ public class TidbWriter extends TidbAdapterImpl {
         executeUpdate(sql.toString());
     }
 
-    public void batchInsert(String table, List<Mapping> mappings, List<JSONObject> dataList)
-            throws SQLException {
+    /**
+     * @param numericRowKey true if the table has a numeric row key column, see
+     *                      {@link SourceTableDdl#rowKeyValue}
+     */
+    public void batchInsert(String table, List<Mapping> mappings, List<JSONObject> dataList,
+            boolean numericRowKey) throws SQLException {
         if (dataList.isEmpty()) {
             return;
         }
+        List<String> columns = toColumns(mappings);
+        List<Object[]> rows = toRows(mappings, columns, dataList, numericRowKey);
+        inTransaction(() -> insertRows(table, columns, rows));
+    }
 
-        List<String> columns = new LinkedList<>();
+    /**
+     * Insert a chunk of an import together with its checkpoint in one
+     * transaction, so a checkpoint exists if and only if its rows do.
+     * 
+     * @param table         the target table
+     * @param mappings      the column mappings of the source
+     * @param batch         the rows of the chunk
+     * @param checkpoint    the checkpoint describing the chunk
+     * @param numericRowKey true if the table has a numeric row key column
+     * @throws SQLException if the insert fails
+     */
+    public void batchInsert(String table, List<Mapping> mappings, RecordBatch batch, ImportCheckpoint checkpoint,
+            boolean numericRowKey) throws SQLException {
+        List<String> columns = toColumns(mappings);
+        RowSource rows = new BatchRows(columns, batch, numericRowKey);
+        inTransaction(() -> {
+            insertRows(table, columns, rows);
+            insertCheckpoint(checkpoint);
+        });
+    }
+
+    private static List<String> toColumns(List<Mapping> mappings) {
+        List<String> columns = new ArrayList<>(mappings.size() + 1);
+        columns.add(SourceTableDdl.ROW_KEY_COLUMN);
         for (Mapping mapping : mappings) {
             columns.add(mapping.getFieldMapping());
         }
+        return columns;
+    }
 
-        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
-        StringBuilder values = new StringBuilder(" VALUES (");
-        sql.append("_id_").append(",");
-        values.append("?,");
-        columns.forEach(column -> {
-            sql.append(column).append(",");
-            values.append("?,");
-        });
-        sql.deleteCharAt(sql.length() - 1).append(") ");
-        values.deleteCharAt(values.length() - 1).append(")");
-        sql.append(values);
+    private List<Object[]> toRows(List<Mapping> mappings, List<String> columns, List<JSONObject> dataList,
+            boolean numericRowKey) {
+        int columnCount = mappings.size();
+        boolean[] textColumns = new boolean[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            textColumns[i] = TidbDataTypeDetector.isStringType(mappings.get(i).getFieldType());
+        }
 
-        try (PreparedStatement statement = getConnection().prepareStatement(sql.toString())) {
-            for (JSONObject data : dataList) {
-                String rowKey = generateRowKey(data);
-                statement.setString(1, rowKey);
-                for (int i = 0; i < columns.size(); i++){
-                    String column = columns.get(i);
-                    Object value = data.get(column);
-                    if (mappings.get(i).getFieldType().equals("text")) {
-                        if (StringUtils.isNullOrEmpty(value.toString())) {
-                            value = null;
-                        } else {
-                            value = value.toString();
-                        }
-                    } else {
-                        if (StringUtils.isNullOrEmpty(value.toString())) {
-                            value = null;
-                        }
+        // Pull every cell out of the JSON form exactly once into a typed row
+        List<Object[]> rows = new ArrayList<>(dataList.size());
+        for (JSONObject data : dataList) {
+            Object[] row = new Object[columnCount + 1];
+            row[0] = SourceTableDdl.rowKeyValue(generateRowKey(), numericRowKey);
+            for (int i = 0; i < columnCount; i++) {
+                row[i + 1] = toColumnValue(data.opt(columns.get(i + 1)), textColumns[i]);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Insert rows with multi-row {@code INSERT ... VALUES (...),(...)}
+     * statements. Values are bound by column index; a statement is flushed when
+     * it reaches {@code maxRowsPerStatement} rows or {@code maxBytesPerStatement}
+     * bytes of values. All statements run in one transaction so the batch is
+     * either fully written or not written at all.
+     * 
+     * @param table   the target table
+     * @param columns the column names, in the order of the row values
+     * @param rows    the rows to insert
+     * @throws SQLException if the insert fails
+     */
+    public void batchInsertRows(String table, List<String> columns, List<Object[]> rows) throws SQLException {
+        inTransaction(() -> insertRows(table, columns, rows));
+    }
+
+    private void insertRows(String table, List<String> columns, List<Object[]> rows) throws SQLException {
+        insertRows(table, columns, new ListRows(rows));
+    }
+
+    private void insertRows(String table, List<String> columns, RowSource rows) throws SQLException {
+        if (rows.size() == 0) {
+            return;
+        }
+
+        int columnCount = columns.size();
+        int rowsPerStatement = Math.max(1,
+                Math.min(maxRowsPerStatement, MAX_PLACEHOLDERS_PER_STATEMENT / columnCount));
+        String insertPrefix = buildInsertPrefix(table, columns);
+        String rowPlaceholders = buildRowPlaceholders(columnCount);
+
+        PreparedStatement fullStatement = null;
+        try {
+            int start = 0;
+            while (start < rows.size()) {
+                // Grow the statement until either the row or the byte limit is reached
+                int end = start;
+                long statementBytes = 0;
+                while (end < rows.size() && end - start < rowsPerStatement) {
+                    long rowBytes = rows.estimateSize(end);
+                    if (end > start && statementBytes + rowBytes > maxBytesPerStatement) {
+                        break;
                     }
-                    statement.setObject(i + 2, value);
+                    statementBytes += rowBytes;
+                    end++;
                 }
-                statement.addBatch();
+
+                int statementRows = end - start;
+                if (statementRows == rowsPerStatement) {
+                    // Full-size statements share the same text, so prepare it once
+                    if (fullStatement == null) {
+                        fullStatement = getConnection().prepareStatement(
+                                buildInsertSql(insertPrefix, rowPlaceholders, rowsPerStatement));
+                    }
+                    bindRows(fullStatement, rows, start, end);
+                    fullStatement.executeUpdate();
+                } else {
+                    try (PreparedStatement statement = getConnection().prepareStatement(
+                            buildInsertSql(insertPrefix, rowPlaceholders, statementRows))) {
+                        bindRows(statement, rows, start, end);
+                        statement.executeUpdate();
+                    }
+                }
+                start = end;
+            }
+        } finally {
+            if (fullStatement != null) {
+                fullStatement.close();
             }
-            statement.executeBatch();
+        }
+    }
+
+    private void insertCheckpoint(ImportCheckpoint checkpoint) throws SQLException {
+        String sql = "INSERT INTO " + IMPORT_CHECKPOINT_TABLE
+                + " (source_id, sequence, start_offset, end_offset, row_count) VALUES (?,?,?,?,?)";
+        try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
+            statement.setLong(1, checkpoint.getSourceId());
+            statement.setLong(2, checkpoint.getSequence());
+            statement.setLong(3, checkpoint.getStartOffset());
+            statement.setLong(4, checkpoint.getEndOffset());
+            statement.setLong(5, checkpoint.getRowCount());
+            statement.executeUpdate();
+        }
+    }
+
+    public void createCheckpointTable() throws SQLException {
+        executeUpdate("CREATE TABLE IF NOT EXISTS " + IMPORT_CHECKPOINT_TABLE + " ("
+                + "source_id BIGINT NOT NULL,"
+                + "sequence BIGINT NOT NULL,"
+                + "start_offset BIGINT NOT NULL,"
+                + "end_offset BIGINT NOT NULL,"
+                + "row_count BIGINT NOT NULL,"
+                + "created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,"
+                + "PRIMARY KEY (source_id, sequence))");
+    }
+
+    public void deleteCheckpoints(Long sourceId) throws SQLException {
+        try (PreparedStatement statement = getConnection().prepareStatement(
+                "DELETE FROM " + IMPORT_CHECKPOINT_TABLE + " WHERE source_id = ?")) {
+            statement.setLong(1, sourceId);
+            statement.executeUpdate();
+        }
+    }
+
+    public void createChartMaterializationTable() throws SQLException {
+        executeUpdate(ChartTableDdl.createMaterializationTableSql());
+        for (String sql : ChartTableDdl.migrateMaterializationTableSql()) {
+            executeUpdate(sql);
+        }
+    }
+
+    public void saveChartMaterialization(ChartMaterialization materialization) throws SQLException {
+        String sql = "INSERT INTO " + ChartTableDdl.MATERIALIZATION_TABLE
+                + " (chart_id, definition_hash, columns_json, source_table, watermark, source_rows, append_only,"
+                + " row_count, refresh_mode, refresh_duration_ms, refreshed_at, source_tables)"
+                + " VALUES (?,?,?,?,?,?,?,?,?,?,?,?)"
+                + " ON DUPLICATE KEY UPDATE definition_hash = VALUES(definition_hash),"
+                + " columns_json = VALUES(columns_json), source_table = VALUES(source_table),"
+                + " watermark = VALUES(watermark), source_rows = VALUES(source_rows),"
+                + " append_only = VALUES(append_only), row_count = VALUES(row_count),"
+                + " refresh_mode = VALUES(refresh_mode), refresh_duration_ms = VALUES(refresh_duration_ms),"
+                + " refreshed_at = VALUES(refreshed_at), source_tables = VALUES(source_tables)";
+        try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
+            statement.setLong(1, materialization.getChartId());
+            statement.setString(2, materialization.getDefinitionHash());
+            statement.setString(3, new JSONArray(materialization.getColumns()).toString());
+            statement.setString(4, materialization.getSourceTable());
+            statement.setObject(5, materialization.getWatermark());
+            statement.setObject(6, materialization.getSourceRows());
+            statement.setBoolean(7, materialization.isAppendOnly());
+            statement.setLong(8, materialization.getRowCount());
+            statement.setString(9, materialization.getRefreshMode().name());
+            statement.setLong(10, materialization.getRefreshDurationMs());
+            statement.setLong(11, materialization.getRefreshedAt());
+            List<String> sourceTables = materialization.getSourceTables();
+            statement.setString(12, sourceTables != null && !sourceTables.isEmpty()
+                    ? String.join(",", sourceTables).toLowerCase(Locale.ROOT)
+                    : null);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Record a change to a table on the charts materialized from it, so their
+     * results are not served until they are refreshed again.
+     *
+     * @param inPlace rows were changed in place, which also forces the next
+     *                refresh to run the whole query
+     */
+    public void markSourceChanged(String sourceTable, boolean inPlace, long changedAt) throws SQLException {
+        String sql = "UPDATE " + ChartTableDdl.MATERIALIZATION_TABLE + " SET "
+                + (inPlace ? "append_only = 0, " : "")
+                + "source_changed_at = ? WHERE source_table = ? OR FIND_IN_SET(?, source_tables)";
+        try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
+            statement.setLong(1, changedAt);
+            statement.setString(2, sourceTable);
+            statement.setString(3, sourceTable.toLowerCase(Locale.ROOT));
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Delete the materialized result of a chart, its state first so it is
+     * never served without its rows.
+     */
+    public void deleteChartMaterialization(Long chartId) throws SQLException {
+        try (PreparedStatement statement = getConnection().prepareStatement(
+                "DELETE FROM " + ChartTableDdl.MATERIALIZATION_TABLE + " WHERE chart_id = ?")) {
+            statement.setLong(1, chartId);
+            statement.executeUpdate();
+        }
+        dropTable(ChartTableDdl.tableName(chartId));
+    }
+
+    public void clearAppendOnly(Long chartId) throws SQLException {
+        try (PreparedStatement statement = getConnection().prepareStatement(
+                "UPDATE " + ChartTableDdl.MATERIALIZATION_TABLE + " SET append_only = 0 WHERE chart_id = ?")) {
+            statement.setLong(1, chartId);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Replace the rows of a chart table. The rows are written to a staging
+     * table that is then swapped in with one {@code RENAME TABLE}, so readers
+     * see either the old or the new result, never a partial one.
+     *
+     * @param columnTypes the type of every result column
+     * @param rows        the result rows, numbered in order
+     */
+    public void replaceChartTable(String table, List<String> columnTypes, List<Object[]> rows) throws SQLException {
+        String staging = table + "_new";
+        String retired = table + "_old";
+        dropTable(staging);
+        dropTable(retired);
+        executeUpdate(ChartTableDdl.createTableSql(staging, columnTypes));
+        // An empty table to swap out the first time, so the swap is always the same statement
+        executeUpdate("CREATE TABLE IF NOT EXISTS " + table + " LIKE " + staging);
+
+        List<Object[]> numbered = new ArrayList<>(rows.size());
+        long rowNumber = 0;
+        for (Object[] row : rows) {
+            Object[] values = new Object[row.length + 1];
+            values[0] = rowNumber++;
+            System.arraycopy(row, 0, values, 1, row.length);
+            numbered.add(values);
+        }
+        batchInsertRows(staging, ChartTableDdl.columnNames(columnTypes.size()), numbered);
+
+        executeUpdate("RENAME TABLE " + table + " TO " + retired + ", " + staging + " TO " + table);
+        dropTable(retired);
+    }
+
+    /**
+     * Run the action in a single transaction, rolling back on failure. A
+     * failing rollback or auto-commit reset is attached to the original error
+     * as suppressed instead of replacing it.
+     */
+    private void inTransaction(SqlAction action) throws SQLException {
+        Connection connection = getConnection();
+        boolean autoCommit = connection.getAutoCommit();
+        try {
+            connection.setAutoCommit(false);
+            action.run();
+            connection.commit();
         } catch (SQLException e) {
-            e.printStackTrace();
             log.error("Batch insert failed! {}", e.getMessage());
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackError) {
+                e.addSuppressed(rollbackError);
+            }
+            try {
+                connection.setAutoCommit(autoCommit);
+            } catch (SQLException resetError) {
+                e.addSuppressed(resetError);
+            }
             throw e;
         }
+        connection.setAutoCommit(autoCommit);
+    }
+
+    @FunctionalInterface
+    private interface SqlAction {
+        void run() throws SQLException;
+    }
+
+    private static void bindRows(PreparedStatement statement, RowSource rows, int start, int end)
+            throws SQLException {
+        int index = 1;
+        for (int r = start; r < end; r++) {
+            index = rows.bind(statement, r, index);
+        }
+    }
+
+    private static void bindValue(PreparedStatement statement, int index, Object value) throws SQLException {
+        if (value instanceof String str) {
+            statement.setString(index, str);
+        } else {
+            statement.setObject(index, value);
+        }
+    }
+
+    /**
+     * Rows to insert, addressed by index, in table column order.
+     */
+    private interface RowSource {
+        int size();
+
+        long estimateSize(int row);
+
+        /**
+         * Bind the values of a row starting at parameter {@code index}.
+         *
+         * @return the parameter index after the row
+         */
+        int bind(PreparedStatement statement, int row, int index) throws SQLException;
+    }
+
+    private static class ListRows implements RowSource {
+        private final List<Object[]> rows;
+
+        ListRows(List<Object[]> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public int size() {
+            return rows.size();
+        }
+
+        @Override
+        public long estimateSize(int row) {
+            return estimateRowSize(rows.get(row));
+        }
+
+        @Override
+        public int bind(PreparedStatement statement, int row, int index) throws SQLException {
+            for (Object value : rows.get(row)) {
+                bindValue(statement, index++, value);
+            }
+            return index;
+        }
     }
 
-    public void update(String table, String rowKey, Map<String, Object> data) throws SQLException {
+    /**
+     * The rows of a columnar batch, bound straight from its column arrays.
+     * Columns are matched by name once per batch; mapped columns missing from
+     * the batch are stored as NULL. Rows keep the row keys of the batch when it
+     * has them.
+     */
+    private class BatchRows implements RowSource {
+        private final RecordBatch batch;
+        private final int[] batchColumns;
+        private final long[] generatedKeys;
+        private final boolean numericRowKey;
+
+        BatchRows(List<String> columns, RecordBatch batch, boolean numericRowKey) {
+            this.batch = batch;
+            this.numericRowKey = numericRowKey;
+            this.batchColumns = new int[columns.size() - 1];
+            for (int i = 0; i < batchColumns.length; i++) {
+                batchColumns[i] = batch.getColumnIndex(columns.get(i + 1));
+            }
+            if (batch.hasRowKeys()) {
+                this.generatedKeys = null;
+            } else {
+                this.generatedKeys = new long[batch.getRowCount()];
+                for (int r = 0; r < generatedKeys.length; r++) {
+                    generatedKeys[r] = generateRowKey();
+                }
+            }
+        }
+
+        private long rowKey(int row) {
+            return generatedKeys == null ? batch.getRowKey(row) : generatedKeys[row];
+        }
+
+        @Override
+        public int size() {
+            return batch.getRowCount();
+        }
+
+        @Override
+        public long estimateSize(int row) {
+            long size = 8;
+            for (int column : batchColumns) {
+                String value = column >= 0 ? batch.getValue(column, row) : null;
+                size += value == null ? 1 : value.length() + 2;
+            }
+            return size;
+        }
+
+        @Override
+        public int bind(PreparedStatement statement, int row, int index) throws SQLException {
+            if (numericRowKey) {
+                statement.setLong(index++, rowKey(row));
+            } else {
+                statement.setObject(index++, SourceTableDdl.rowKeyValue(rowKey(row), false));
+            }
+            for (int column : batchColumns) {
+                if (column >= 0 && !batch.isNull(column, row)) {
+                    statement.setString(index++, batch.getValue(column, row));
+                } else {
+                    statement.setObject(index++, null);
+                }
+            }
+            return index;
+        }
+    }
+
+    private static String buildInsertPrefix(String table, List<String> columns) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+        for (String column : columns) {
+            sql.append(column).append(",");
+        }
+        sql.setLength(sql.length() - 1);
+        return sql.append(") VALUES ").toString();
+    }
+
+    private static String buildRowPlaceholders(int columnCount) {
+        StringBuilder placeholders = new StringBuilder(columnCount * 2 + 1).append("(");
+        for (int i = 0; i < columnCount; i++) {
+            placeholders.append(i == 0 ? "?" : ",?");
+        }
+        return placeholders.append(")").toString();
+    }
+
+    private static String buildInsertSql(String insertPrefix, String rowPlaceholders, int rowCount) {
+        StringBuilder sql = new StringBuilder(insertPrefix.length() + rowCount * (rowPlaceholders.length() + 1));
+        sql.append(insertPrefix);
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(rowPlaceholders);
+        }
+        return sql.toString();
+    }
+
+    private static long estimateRowSize(Object[] row) {
+        long size = 0;
+        for (Object value : row) {
+            if (value == null) {
+                size += 1;
+            } else if (value instanceof String str) {
+                size += str.length() + 2;
+            } else {
+                size += 8;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Convert a raw cell into the value bound for the column. Empty strings are
+     * stored as NULL and text columns are always bound as strings.
+     */
+    static Object toColumnValue(Object value, boolean isText) {
+        if (value == null || value == JSONObject.NULL) {
+            return null;
+        }
+        if (value instanceof String str) {
+            return str.isEmpty() ? null : str;
+        }
+        if (isText) {
+            String str = value.toString();
+            return str.isEmpty() ? null : str;
+        }
+        return value;
+    }
+
+    /**
+     * @param numericRowKey true if the table has a numeric row key column, see
+     *                      {@link SourceTableDdl#rowKeyParameter}
+     */
+    public void update(String table, String rowKey, Map<String, Object> data, boolean numericRowKey)
+            throws SQLException {
         StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
-        Set<String> keys = data.keySet();
+        List<String> keys = new ArrayList<>(data.size());
+        for (String key : data.keySet()) {
+            // The row key identifies the row and is never rewritten
+            if (!SourceTableDdl.ROW_KEY_COLUMN.equals(key)) {
+                keys.add(key);
+            }
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
         for (String key : keys) {
             sql.append(key).append(" = ?").append(",");
         }
-        sql.deleteCharAt(sql.length() - 1).append(" WHERE _id_ = ?");
+        sql.deleteCharAt(sql.length() - 1).append(" WHERE ").append(SourceTableDdl.ROW_KEY_COLUMN).append(" = ?");
 
         try (PreparedStatement statement = getConnection().prepareStatement(sql.toString())) {
             int index = 1;
@@ -107,7 +588,7 @@ public class TidbWriter extends TidbAdapterImpl {
                 statement.setObject(index, data.get(key));
                 index++;
             }
-            statement.setString(index, rowKey);
+            statement.setObject(index, SourceTableDdl.rowKeyParameter(rowKey, numericRowKey));
             statement.executeUpdate();
         } catch (SQLException e) {
             log.error("Update failed! {}", e.getMessage());
@@ -115,13 +596,9 @@ public class TidbWriter extends TidbAdapterImpl {
         }
     }
 
-    private String generateRowKey(JSONObject data) {
-        // Generate a unique row key using Snowflake ID generator
-        SnowflakeIdGenerator idGenerator = SnowflakeIdGenerator.getInstance();
-        long uniqueId = idGenerator.generateId();
-        
-        // Convert to string and add a prefix for better readability
-        return "row_" + String.valueOf(uniqueId);
+    private long generateRowKey() {
+        // Snowflake ids are unique and fit the BIGINT row key as they are
+        return SnowflakeIdGenerator.getInstance().generateId();
     }
 
     private void doExecuteUpdate(Statement statement, String sql) throws SQLException {
@@ -149,6 +626,15 @@ public class TidbWriter extends TidbAdapterImpl {
         executeUpdate(sql.toString());
     }
 
+    /**
+     * Create a source table keyed by a numeric row key, see
+     * {@link SourceTableDdl#createTableSql}.
+     */
+    public void createSourceTable(String table, Map<String, String> columns, int shardRowIdBits, int preSplitBits)
+            throws SQLException {
+        executeUpdate(SourceTableDdl.createTableSql(table, columns, shardRowIdBits, preSplitBits));
+    }
+
     public void dropTable(String table) throws SQLException {
         StringBuilder sql = new StringBuilder("DROP TABLE IF EXISTS ").append(table);
         executeUpdate(sql.toString());
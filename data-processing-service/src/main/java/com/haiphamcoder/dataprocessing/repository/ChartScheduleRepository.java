@@ -0,0 +1,44 @@
+package com.haiphamcoder.dataprocessing.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import com.haiphamcoder.dataprocessing.domain.entity.ChartSchedule;
+
+public interface ChartScheduleRepository {
+
+    Optional<ChartSchedule> getScheduleByChartId(Long chartId);
+
+    List<ChartSchedule> getEnabledSchedules();
+
+    /**
+     * @return enabled schedules whose fire time has passed and whose lease is
+     *         free or expired, earliest first
+     */
+    List<ChartSchedule> getDueSchedules(long now, int limit);
+
+    ChartSchedule save(ChartSchedule schedule);
+
+    /**
+     * Take the lease of a due schedule. Only one caller gets it until it is
+     * released or expires.
+     *
+     * @return true if the lease was taken
+     */
+    boolean acquireLease(Long chartId, String owner, long now, long leaseUntil);
+
+    /**
+     * Extend the leases the owner still holds on the given schedules.
+     */
+    int renewLeases(Collection<Long> chartIds, String owner, long leaseUntil);
+
+    void releaseLease(Long chartId, String owner);
+
+    /**
+     * Record a run and release the lease, if the owner still holds it.
+     */
+    boolean completeRun(Long chartId, String owner, long nextFireAt, String status, long startedAt,
+            long durationMs);
+
+}
@@ -11,5 +11,11 @@ public interface HdfsRepository {
 
     InputStream streamFile(String fileUrl);
 
+    InputStream streamFile(String fileUrl, long offset);
+
+    long getFileSize(String fileUrl);
+
+    long getModificationTime(String fileUrl);
+
     Map<String, String> getHistoryUploadFile(String userId, Integer connectorType);
 }
@@ -0,0 +1,114 @@
+package com.haiphamcoder.dataprocessing.repository.impl;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.haiphamcoder.dataprocessing.domain.entity.ChartSchedule;
+import com.haiphamcoder.dataprocessing.repository.ChartScheduleRepository;
+
+import lombok.RequiredArgsConstructor;
+
+@Repository
+interface ChartScheduleJpaRepository extends JpaRepository<ChartSchedule, Long> {
+
+    List<ChartSchedule> findAllByEnabled(Boolean enabled);
+
+    @Query("SELECT s FROM ChartSchedule s WHERE s.enabled = true AND s.nextFireAt <= :now"
+            + " AND (s.leaseUntil IS NULL OR s.leaseUntil < :now) ORDER BY s.nextFireAt")
+    List<ChartSchedule> findDue(@Param("now") Long now, Pageable pageable);
+
+    // The row lock of the update makes the lease exclusive across replicas
+    @Modifying
+    @Query("UPDATE ChartSchedule s SET s.leaseOwner = :owner, s.leaseUntil = :leaseUntil"
+            + " WHERE s.chartId = :chartId AND s.enabled = true AND s.nextFireAt <= :now"
+            + " AND (s.leaseUntil IS NULL OR s.leaseUntil < :now)")
+    int acquireLease(@Param("chartId") Long chartId, @Param("owner") String owner, @Param("now") Long now,
+            @Param("leaseUntil") Long leaseUntil);
+
+    @Modifying
+    @Query("UPDATE ChartSchedule s SET s.leaseUntil = :leaseUntil"
+            + " WHERE s.chartId IN :chartIds AND s.leaseOwner = :owner")
+    int renewLeases(@Param("chartIds") Collection<Long> chartIds, @Param("owner") String owner,
+            @Param("leaseUntil") Long leaseUntil);
+
+    @Modifying
+    @Query("UPDATE ChartSchedule s SET s.leaseOwner = NULL, s.leaseUntil = NULL"
+            + " WHERE s.chartId = :chartId AND s.leaseOwner = :owner")
+    int releaseLease(@Param("chartId") Long chartId, @Param("owner") String owner);
+
+    @Modifying
+    @Query("UPDATE ChartSchedule s SET s.leaseOwner = NULL, s.leaseUntil = NULL, s.nextFireAt = :nextFireAt,"
+            + " s.status = :status, s.lastStartedAt = :startedAt, s.lastDurationMs = :durationMs"
+            + " WHERE s.chartId = :chartId AND s.leaseOwner = :owner")
+    int completeRun(@Param("chartId") Long chartId, @Param("owner") String owner,
+            @Param("nextFireAt") Long nextFireAt, @Param("status") String status,
+            @Param("startedAt") Long startedAt, @Param("durationMs") Long durationMs);
+}
+
+@Component
+@RequiredArgsConstructor
+public class ChartScheduleRepositoryImpl implements ChartScheduleRepository {
+
+    private final ChartScheduleJpaRepository chartScheduleJpaRepository;
+
+    @Override
+    public Optional<ChartSchedule> getScheduleByChartId(Long chartId) {
+        return chartScheduleJpaRepository.findById(chartId);
+    }
+
+    @Override
+    public List<ChartSchedule> getEnabledSchedules() {
+        return chartScheduleJpaRepository.findAllByEnabled(true);
+    }
+
+    @Override
+    public List<ChartSchedule> getDueSchedules(long now, int limit) {
+        return chartScheduleJpaRepository.findDue(now, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public ChartSchedule save(ChartSchedule schedule) {
+        return chartScheduleJpaRepository.save(schedule);
+    }
+
+    @Override
+    @Transactional
+    public boolean acquireLease(Long chartId, String owner, long now, long leaseUntil) {
+        return chartScheduleJpaRepository.acquireLease(chartId, owner, now, leaseUntil) == 1;
+    }
+
+    @Override
+    @Transactional
+    public int renewLeases(Collection<Long> chartIds, String owner, long leaseUntil) {
+        if (chartIds.isEmpty()) {
+            return 0;
+        }
+        return chartScheduleJpaRepository.renewLeases(chartIds, owner, leaseUntil);
+    }
+
+    @Override
+    @Transactional
+    public void releaseLease(Long chartId, String owner) {
+        chartScheduleJpaRepository.releaseLease(chartId, owner);
+    }
+
+    @Override
+    @Transactional
+    public boolean completeRun(Long chartId, String owner, long nextFireAt, String status, long startedAt,
+            long durationMs) {
+        return chartScheduleJpaRepository.completeRun(chartId, owner, nextFireAt, status, startedAt,
+                durationMs) == 1;
+    }
+
+}
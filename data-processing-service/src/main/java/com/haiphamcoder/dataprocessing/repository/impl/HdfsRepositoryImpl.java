@@ -95,6 +95,38 @@ public class HdfsRepositoryImpl implements HdfsRepository {
         return null;
     }
 
+    @Override
+    public InputStream streamFile(String fileUrl, long offset) {
+        try {
+            FSDataInputStream dataInputStream = this.fileSystem.open(new Path(fileUrl));
+            dataInputStream.seek(offset);
+            return dataInputStream;
+        } catch (IOException e) {
+            log.error("Error stream file from hdfs", e);
+        }
+        return null;
+    }
+
+    @Override
+    public long getFileSize(String fileUrl) {
+        try {
+            return this.fileSystem.getFileStatus(new Path(fileUrl)).getLen();
+        } catch (IOException e) {
+            log.error("Error get file status from hdfs", e);
+        }
+        return -1;
+    }
+
+    @Override
+    public long getModificationTime(String fileUrl) {
+        try {
+            return this.fileSystem.getFileStatus(new Path(fileUrl)).getModificationTime();
+        } catch (IOException e) {
+            log.error("Error get file status from hdfs", e);
+        }
+        return -1;
+    }
+
     @Override
     public Map<String, String> getHistoryUploadFile(String userId, Integer connectorType) {
         String hdfsFolder = this.defaultFS + hdfsProperties.getRootFolder();
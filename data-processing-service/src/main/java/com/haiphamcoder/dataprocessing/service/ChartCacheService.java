@@ -0,0 +1,38 @@
+package com.haiphamcoder.dataprocessing.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.json.JSONObject;
+
+public interface ChartCacheService {
+
+    /**
+     * Return the cached result of a chart query, or load and cache it. Cached
+     * records are shared between callers and must not be modified.
+     *
+     * @param chartId the chart the query belongs to, for its TTL override, or
+     *                null
+     * @param tables  every table the query reads. A result whose tables are
+     *                not all known could never be invalidated, so it is not
+     *                cached when this is null or empty.
+     */
+    List<JSONObject> getOrLoad(Long chartId, String sqlQuery, List<Object> parameters, Collection<String> tables,
+            Supplier<List<JSONObject>> loader);
+
+    /**
+     * Bump the version of a source table after its data changed, dropping the
+     * cached results that read it.
+     */
+    void invalidateTable(String tableName);
+
+    /**
+     * @return a version of the data a query of the chart over these tables
+     *         reads, which changes with every {@link #invalidateTable} of one
+     *         of them and at least once per TTL of the chart, or null when its
+     *         result would not be cached
+     */
+    String version(Long chartId, Collection<String> tables);
+
+}
@@ -2,6 +2,10 @@ package com.haiphamcoder.dataprocessing.service;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+
+import com.haiphamcoder.dataprocessing.domain.model.ChartDataQuery;
+import com.haiphamcoder.dataprocessing.domain.model.ChartDataResult;
 
 public interface ChartDataService {
     /**
@@ -20,6 +24,36 @@ public interface ChartDataService {
      */
     List<Map<String, Object>> getChartsData(List<Long> chartIds);
 
+    /**
+     * Đọc dữ liệu của nhiều biểu đồ song song. Các biểu đồ có cùng câu truy
+     * vấn và tham số dùng chung một lần chạy
+     * 
+     * @param queries   Cách đọc dữ liệu của từng biểu đồ
+     * @param timeoutMs Thời gian chờ tối đa, 0 để dùng giá trị mặc định
+     * @return Kết quả theo thứ tự của queries, có lỗi riêng cho từng biểu đồ
+     */
+    List<ChartDataResult> getChartsData(List<ChartDataQuery> queries, long timeoutMs);
+
+    /**
+     * Như getChartsData, nhưng trả từng kết quả ngay khi đọc xong, theo thứ tự
+     * hoàn thành. consumer được gọi trên luồng của người gọi
+     * 
+     * @param queries   Cách đọc dữ liệu của từng biểu đồ
+     * @param timeoutMs Thời gian chờ tối đa, 0 để dùng giá trị mặc định
+     * @param consumer  Nhận kết quả của từng biểu đồ
+     */
+    void streamChartsData(List<ChartDataQuery> queries, long timeoutMs, Consumer<ChartDataResult> consumer);
+
+    /**
+     * Lấy phiên bản dữ liệu mà getChartsData sẽ đọc cho từng biểu đồ, mà
+     * không đọc dữ liệu. Phiên bản đổi khi dữ liệu có thể đã đổi
+     * 
+     * @param queries Cách đọc dữ liệu của từng biểu đồ
+     * @return Phiên bản theo thứ tự của queries, null cho biểu đồ không xác
+     *         định được phiên bản
+     */
+    List<String> getChartsVersion(List<ChartDataQuery> queries);
+
     /**
      * Kiểm tra xem dữ liệu của biểu đồ có tồn tại không
      * 
@@ -1,11 +1,27 @@
 package com.haiphamcoder.dataprocessing.service;
 
 import com.haiphamcoder.dataprocessing.domain.dto.ChartDto;
+import com.haiphamcoder.dataprocessing.domain.exception.business.detail.ResourceNotFoundException;
+import com.haiphamcoder.dataprocessing.domain.model.ChartQuery;
 
 public interface ChartGrpcClient {
 
     public ChartDto getChartById(Long id);
 
     public ChartDto updateChart(ChartDto chart);
-    
+
+    /**
+     * @return the query of a chart compiled by the reporting service, so
+     *         charts are compiled in one place
+     */
+    public ChartQuery getChartQuery(Long id);
+
+    /**
+     * @param permission "view" or "edit"
+     * @return true if the user owns the chart or was granted the permission,
+     *         as checked by the reporting service
+     * @throws ResourceNotFoundException if the chart does not exist
+     */
+    public boolean hasChartPermission(Long userId, Long chartId, String permission);
+
 }
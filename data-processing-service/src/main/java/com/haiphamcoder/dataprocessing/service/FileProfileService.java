@@ -0,0 +1,9 @@
+package com.haiphamcoder.dataprocessing.service;
+
+import com.haiphamcoder.dataprocessing.domain.model.FileProfile;
+
+public interface FileProfileService {
+
+    FileProfile getCSVProfile(String filePath);
+
+}
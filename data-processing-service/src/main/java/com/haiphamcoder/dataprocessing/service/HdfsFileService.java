@@ -11,6 +11,12 @@ public interface HdfsFileService {
 
     public InputStream streamFile(String fileUrl);
 
+    public InputStream streamFile(String fileUrl, long offset);
+
+    public long getFileSize(String fileUrl);
+
+    public long getModificationTime(String fileUrl);
+
     public Map<String, String> getHistoryUploadFile(String userId, Integer connectorType);
 
 }
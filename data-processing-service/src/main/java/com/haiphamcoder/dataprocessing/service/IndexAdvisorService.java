@@ -0,0 +1,37 @@
+package com.haiphamcoder.dataprocessing.service;
+
+import java.util.List;
+
+import com.haiphamcoder.dataprocessing.domain.model.ColumnPredicate;
+import com.haiphamcoder.dataprocessing.domain.model.IndexAdvice;
+
+public interface IndexAdvisorService {
+
+    /**
+     * Count one use of a column by a query.
+     */
+    void record(ColumnPredicate predicate);
+
+    /**
+     * Count the columns filtered and grouped on by a chart query.
+     */
+    void recordQuery(String sqlQuery);
+
+    /**
+     * @return the latest decision for every column evaluated so far
+     */
+    List<IndexAdvice> getAdvice();
+
+    /**
+     * Evaluate every column used often enough now, instead of waiting for its
+     * next threshold.
+     */
+    List<IndexAdvice> evaluate();
+
+    /**
+     * Create the index or replica proposed for a column, whether or not
+     * automatic creation is enabled.
+     */
+    IndexAdvice apply(String table, String column);
+
+}
@@ -0,0 +1,53 @@
+package com.haiphamcoder.dataprocessing.service;
+
+import java.util.List;
+
+import org.json.JSONObject;
+
+import com.haiphamcoder.dataprocessing.domain.model.ChartMaterialization;
+
+public interface MaterializationService {
+
+    /**
+     * Run the query of a chart and store its result in {@code chart_<id>}.
+     * When the source table only received new rows since the last refresh,
+     * only those rows are aggregated and merged into the stored result.
+     *
+     * @return the state of the new result, null if a refresh of the chart was
+     *         already running
+     */
+    ChartMaterialization refresh(Long chartId);
+
+    /**
+     * @return the state of the stored result of a chart, null if it has none
+     */
+    ChartMaterialization getMaterialization(Long chartId);
+
+    /**
+     * @param definitionHash the hash of the query the caller would run, see
+     *                       {@link ChartMaterialization#getDefinitionHash()}
+     * @param limit          the number of rows, 0 for all of them
+     * @return rows of the stored result keyed by column label, null if the
+     *         chart has no result computed with that query
+     */
+    List<JSONObject> getMaterializedRecords(Long chartId, String definitionHash, long offset, int limit);
+
+    /**
+     * Called after rows of a source table were changed in place, so the
+     * results computed from it are no longer served and are recomputed in
+     * full.
+     */
+    void sourceChanged(String table);
+
+    /**
+     * Called after rows were added to a source table, so the results computed
+     * from it are no longer served until their next refresh.
+     */
+    void sourceAppended(String table);
+
+    /**
+     * Delete the stored result of a chart, once it is no longer refreshed.
+     */
+    void drop(Long chartId);
+
+}
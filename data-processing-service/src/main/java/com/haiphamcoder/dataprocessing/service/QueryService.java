@@ -3,17 +3,17 @@ package com.haiphamcoder.dataprocessing.service;
 import java.util.List;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.haiphamcoder.dataprocessing.domain.model.ChartSchedule;
+import com.haiphamcoder.dataprocessing.domain.entity.ChartSchedule;
 
 public interface QueryService {
     /**
-     * Thực thi truy vấn dựa trên các tùy chọn và lưu kết quả vào bảng chart_{chartId}
+     * Thực thi truy vấn của biểu đồ và lưu kết quả vào bảng chart_{chartId},
+     * chỉ gộp các dòng mới của bảng nguồn khi có thể
      * 
      * @param chartId ID của biểu đồ
-     * @param queryOption Các tùy chọn truy vấn
      * @return true nếu thực thi thành công, false nếu thất bại
      */
-    boolean executeAndSaveQuery(Long chartId, JsonNode queryOption);
+    boolean executeAndSaveQuery(Long chartId);
 
     /**
      * Lên lịch thực thi truy vấn cho một biểu đồ
@@ -70,11 +70,4 @@ public interface QueryService {
      */
     boolean validateQuery(JsonNode queryOption);
 
-    /**
-     * Tối ưu hóa truy vấn
-     * 
-     * @param queryOption Các tùy chọn truy vấn
-     * @return Các tùy chọn truy vấn đã được tối ưu hóa
-     */
-    JsonNode optimizeQuery(JsonNode queryOption);
 }
@@ -1,15 +1,43 @@
 package com.haiphamcoder.dataprocessing.service;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONObject;
+
 import com.haiphamcoder.dataprocessing.domain.model.GetChartPreviewDataRequest;
 import com.haiphamcoder.dataprocessing.domain.model.PreviewData;
 import com.haiphamcoder.dataprocessing.domain.model.request.UpdateSourceDataRequest;
 
 public interface RawDataService {
 
-    PreviewData previewSource(Long sourceId, String search, String searchBy, Integer page, Integer limit);
+    /**
+     * Read a page of a source. Pages are addressed by {@code cursor}, the
+     * {@code next_cursor} of the previous page; {@code page} is only used when
+     * no cursor is given.
+     */
+    PreviewData previewSource(Long sourceId, String search, String searchBy, String cursor, Integer page,
+            Integer limit);
 
     PreviewData getChartPreviewData(GetChartPreviewDataRequest request, Integer page, Integer limit);
 
+    /**
+     * Run a compiled chart query, binding {@code parameters} to its {@code ?}
+     * placeholders in order. Results are cached until a table the query reads
+     * changes.
+     *
+     * @param chartId the chart the query belongs to, or null
+     * @param tables  the tables the query reads; the result is not cached
+     *                when null or empty
+     */
+    List<JSONObject> queryData(Long chartId, String sqlQuery, List<Object> parameters, Collection<String> tables);
+
+    /**
+     * @return the TiDB plan of a chart query, one row per operator
+     */
+    List<Map<String, Object>> explainQuery(String sqlQuery);
+
     void updateSourceData(Long sourceId, UpdateSourceDataRequest request);
 
     boolean cloneTable(String sourceTable, String targetTable);
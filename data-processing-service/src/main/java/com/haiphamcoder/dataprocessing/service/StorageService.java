@@ -7,19 +7,117 @@ import org.json.JSONObject;
 
 import com.haiphamcoder.dataprocessing.domain.dto.Mapping;
 import com.haiphamcoder.dataprocessing.domain.dto.SourceDto;
+import com.haiphamcoder.dataprocessing.domain.model.ChartMaterialization;
+import com.haiphamcoder.dataprocessing.domain.model.ImportCheckpoint;
+import com.haiphamcoder.dataprocessing.domain.model.QueryRows;
+import com.haiphamcoder.dataprocessing.domain.model.RecordBatch;
+import com.haiphamcoder.dataprocessing.domain.model.RowKeyStats;
 
 public interface StorageService {
 
     void batchInsert(SourceDto sourceDto, List<JSONObject> data);
 
-    List<Mapping> createStorageSource(SourceDto sourceDto);
+    void batchInsert(SourceDto sourceDto, RecordBatch batch, ImportCheckpoint checkpoint);
 
-    List<JSONObject> getPreviewData(SourceDto sourceDto, String search, String searchBy, Integer page, Integer limit);
+    List<ImportCheckpoint> getImportCheckpoints(Long sourceId);
+
+    void clearImportCheckpoints(Long sourceId);
+
+    /**
+     * Create the table of a source.
+     *
+     * @param expectedBytes size of the data about to be imported, used to
+     *                      pre-split the table; -1 if unknown
+     */
+    List<Mapping> createStorageSource(SourceDto sourceDto, long expectedBytes);
+
+    List<JSONObject> getPreviewData(SourceDto sourceDto, String search, String searchBy, String afterKey, Integer page,
+            Integer limit);
 
     List<JSONObject> getPreviewDataByQuery(String sqlQuery);
 
+    /**
+     * Run a query with {@code ?} placeholders, bound in order to
+     * {@code parameters}.
+     */
+    List<JSONObject> getPreviewDataByQuery(String sqlQuery, List<Object> parameters);
+
+    /**
+     * @return the TiDB plan of a query, one row per operator
+     */
+    List<Map<String, Object>> explainQuery(String sqlQuery);
+
     void updateSourceData(SourceDto sourceDto, Map<String, Object> data);
 
     void cloneTable(String sourceTable, String targetTable);
 
+    /**
+     * Move source tables still keyed by a text row key to the numeric key.
+     *
+     * @param rebuild   rebuild the tables with a {@code BIGINT} primary key;
+     *                  otherwise only index the text key
+     * @param batchRows rows copied per statement when rebuilding
+     * @return the number of tables migrated
+     */
+    int migrateSourceTables(boolean rebuild, int batchRows);
+
+    /**
+     * Run a query through the write pool, so it sees every committed row,
+     * keeping the values as the driver returned them.
+     */
+    QueryRows queryRows(String sqlQuery, List<Object> parameters);
+
+    /**
+     * @param upTo count only the rows with a row key up to this one, null for
+     *             all rows
+     */
+    RowKeyStats getRowKeyStats(String table, Long upTo);
+
+    /**
+     * @return true if the rows of the table are keyed by a numeric row key,
+     *         which grows as rows are added
+     */
+    boolean hasNumericRowKey(String table);
+
+    /**
+     * @return the state of the materialized result of a chart, null if it has
+     *         none
+     */
+    ChartMaterialization getChartMaterialization(Long chartId);
+
+    /**
+     * Save the state of the materialized result of a chart, leaving its rows
+     * as they are.
+     */
+    void saveChartMaterialization(ChartMaterialization materialization);
+
+    /**
+     * Read rows of the materialized result of a chart, in order.
+     *
+     * @param limit  the number of rows, 0 for all of them
+     * @param latest read through the write pool, to see the last refresh
+     */
+    QueryRows getChartRows(Long chartId, long offset, int limit, boolean latest);
+
+    /**
+     * Replace the materialized result of a chart and save its state.
+     *
+     * @param columnTypes the column type of every result column
+     */
+    void saveChartResult(ChartMaterialization materialization, List<String> columnTypes, List<Object[]> rows);
+
+    /**
+     * Stop serving the results of the charts materialized from a table until
+     * they are refreshed, after its rows changed.
+     *
+     * @param inPlace rows were changed in place, or added below the row key
+     *                watermark, so the next refresh must run the whole query
+     */
+    void markSourceChanged(String sourceTable, boolean inPlace);
+
+    /**
+     * Delete the materialized result of a chart, if any.
+     */
+    void deleteChartResult(Long chartId);
+
 }
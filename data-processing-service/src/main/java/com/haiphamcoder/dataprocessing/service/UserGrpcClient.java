@@ -0,0 +1,10 @@
+package com.haiphamcoder.dataprocessing.service;
+
+public interface UserGrpcClient {
+
+    /**
+     * @return true if the user exists and has the admin role
+     */
+    public boolean isAdmin(Long userId);
+
+}
@@ -1,8 +1,6 @@
 package com.haiphamcoder.dataprocessing.service.impl;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -14,11 +12,12 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.haiphamcoder.dataprocessing.domain.dto.Mapping;
 import com.haiphamcoder.dataprocessing.domain.dto.SourceDto;
 import com.haiphamcoder.dataprocessing.service.CSVProcessingService;
+import com.haiphamcoder.dataprocessing.service.FileProfileService;
 import com.haiphamcoder.dataprocessing.service.HdfsFileService;
+import com.haiphamcoder.dataprocessing.domain.model.FileProfile;
 import com.haiphamcoder.dataprocessing.domain.model.PreviewData;
 import com.haiphamcoder.dataprocessing.shared.MapperUtils;
 import com.haiphamcoder.dataprocessing.shared.StringUtils;
-import com.haiphamcoder.dataprocessing.shared.TidbDataTypeDetector;
 import com.haiphamcoder.dataprocessing.shared.processing.CSVFileUtils;
 import com.haiphamcoder.dataprocessing.shared.processing.HeaderNormalizer;
 import com.opencsv.CSVReader;
@@ -32,61 +31,49 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class CSVProcessingServiceImpl implements CSVProcessingService {
     private final HdfsFileService hdfsFileService;
+    private final FileProfileService fileProfileService;
 
     @Override
     public List<String> getSchema(String userId, String fileName) {
-        return CSVFileUtils.getFieldNames(hdfsFileService.streamFile(fileName));
+        return fileProfileService.getCSVProfile(fileName).getHeader();
     }
 
     @Override
     public PreviewData getPreviewData(String userId, String filePath, Integer limit) {
         PreviewData previewData = new PreviewData();
 
-        char delimiter = ',';
-        try (BufferedReader bufferedReader = new BufferedReader(
-                new InputStreamReader(hdfsFileService.streamFile(filePath)))) {
-            String firstLine = bufferedReader.readLine();
-            if (firstLine == null) {
-                throw new RuntimeException("File error");
-            }
-            delimiter = CSVFileUtils.detectDelimiter(firstLine);
-        } catch (IOException e) {
-            log.error("Get file on server error");
-            e.printStackTrace();
-            throw new RuntimeException("Get file on server error");
+        FileProfile profile = fileProfileService.getCSVProfile(filePath);
+        List<String> fieldNames = new LinkedList<>();
+        for (String fieldName : profile.getHeader()) {
+            fieldNames.add(HeaderNormalizer.normalize(fieldName));
+        }
+        if (fieldNames.isEmpty()) {
+            throw new RuntimeException("File error");
         }
 
-        try (CSVReader csvReader = CSVFileUtils.createCSVReader(hdfsFileService.streamFile(filePath),
-                delimiter)) {
-            String[] fieldNameArray = csvReader.readNext();
-            List<String> fieldNames = new LinkedList<>();
-            for (String fieldName : fieldNameArray) {
-                fieldNames.add(HeaderNormalizer.normalize(fieldName));
-            }
-
-            if (fieldNames.isEmpty()) {
-                throw new Exception("File error");
-            }
-
-            previewData.setSchema(fieldNames.stream().map(fieldName -> Mapping.builder()
-                    .fieldName(fieldName)
-                    .fieldMapping(fieldName)
-                    .fieldType("text")
-                    .build())
-                    .collect(Collectors.toList()));
-
-            previewData.setRecords(new LinkedList<>());
-            int recordCount = 0;
-            String[] record;
-            while (recordCount < limit && (record = csvReader.readNext()) != null) {
+        previewData.setSchema(fieldNames.stream().map(fieldName -> Mapping.builder()
+                .fieldName(fieldName)
+                .fieldMapping(fieldName)
+                .fieldType("text")
+                .build())
+                .collect(Collectors.toList()));
+
+        // The profile keeps the first rows; only larger previews read the file again
+        List<String[]> records = profile.getPreviewRecords().size() >= limit
+                || profile.getPreviewRecords().size() >= profile.getRowCount()
+                        ? profile.getPreviewRecords()
+                        : readRecords(filePath, profile.getDelimiter(), limit);
+
+        previewData.setRecords(new LinkedList<>());
+        try {
+            for (String[] record : records.subList(0, Math.min(limit, records.size()))) {
                 JSONObject recordJson = new JSONObject();
-                for (int i = 0; i < fieldNames.size(); i++) {
+                for (int i = 0; i < fieldNames.size() && i < record.length; i++) {
                     recordJson.put(fieldNames.get(i), record[i]);
                 }
                 if (recordJson.length() > 0) {
                     previewData.getRecords().add(MapperUtils.objectMapper.readTree(recordJson.toString()));
                 }
-                recordCount++;
             }
         } catch (Exception e) {
             log.error("Get file on server error");
@@ -97,6 +84,22 @@ public class CSVProcessingServiceImpl implements CSVProcessingService {
         return previewData;
     }
 
+    private List<String[]> readRecords(String filePath, char delimiter, int limit) {
+        List<String[]> records = new LinkedList<>();
+        try (CSVReader csvReader = CSVFileUtils.createCSVReader(hdfsFileService.streamFile(filePath), delimiter)) {
+            csvReader.skip(1);
+            String[] record;
+            while (records.size() < limit && (record = csvReader.readNext()) != null) {
+                records.add(record);
+            }
+        } catch (IOException | CsvValidationException e) {
+            log.error("Get file on server error");
+            e.printStackTrace();
+            throw new RuntimeException("Get file on server error");
+        }
+        return records;
+    }
+
     @Override
     public List<Mapping> getSchema(SourceDto source) {
         log.info("Source: {}", source);
@@ -114,43 +117,17 @@ public class CSVProcessingServiceImpl implements CSVProcessingService {
             throw new RuntimeException("File path is null");
         }
 
-        char delimiter = ',';
-        try (CSVReader csvReader = CSVFileUtils.createCSVReader(hdfsFileService.streamFile(filePath), delimiter)) {
-            String[] fieldNameArray = csvReader.readNext();
-            List<String> fieldNames = new LinkedList<>();
-            for (String fieldName : fieldNameArray) {
-                fieldNames.add(fieldName);
-            }
-
-            List<Mapping> mappings = new LinkedList<>();
-            String[] firstRecord = csvReader.readNext();
-            if (firstRecord == null || (firstRecord != null && firstRecord.length != fieldNames.size())) {
-                mappings = fieldNames.stream().map(fieldName -> Mapping.builder()
-                        .fieldName(fieldName)
-                        .fieldMapping(HeaderNormalizer.normalize(fieldName))
-                        .fieldType("text")
-                        .build())
-                        .collect(Collectors.toList());
-            } else {
-                for (int i = 0; i < fieldNames.size(); i++) {
-                    mappings.add(Mapping.builder()
-                            .fieldName(fieldNames.get(i))
-                            .fieldMapping(HeaderNormalizer.normalize(fieldNames.get(i)))
-                            .fieldType(TidbDataTypeDetector.detectGeneralizedDataType(firstRecord[i]).name())
-                            .build());
-                }
-            }
-
-            return mappings;
-        } catch (IOException e) {
-            log.error("Get file on server error");
-            e.printStackTrace();
-            throw new RuntimeException("Get file on server error");
-        } catch (CsvValidationException e) {
-            log.error("Get file on server error");
+        // Column types are inferred from a sample of the whole file, collected with the profile
+        FileProfile profile = fileProfileService.getCSVProfile(filePath);
+        List<Mapping> mappings = new LinkedList<>();
+        for (FileProfile.ColumnProfile column : profile.getColumns()) {
+            mappings.add(Mapping.builder()
+                    .fieldName(column.getName())
+                    .fieldMapping(HeaderNormalizer.normalize(column.getName()))
+                    .fieldType(column.getType())
+                    .build());
         }
-
-        return new LinkedList<>();
+        return mappings;
     }
 
 }
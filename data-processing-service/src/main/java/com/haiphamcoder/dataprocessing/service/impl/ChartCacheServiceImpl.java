@@ -0,0 +1,272 @@
+package com.haiphamcoder.dataprocessing.service.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.haiphamcoder.dataprocessing.config.properties.ChartCacheProperties;
+import com.haiphamcoder.dataprocessing.service.ChartCacheService;
+import com.haiphamcoder.dataprocessing.shared.MapperUtils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caches chart query results in memory, keyed by the normalized SQL and its
+ * parameters. Every entry remembers the versions of the source tables the
+ * query reads; an import, edit or clone into one of them bumps its version, so
+ * the entries that read it are never served again. Entries are evicted least
+ * recently used first once {@code chart.cache.max-entries} or
+ * {@code chart.cache.max-size-mb} is reached, and expire after the TTL of
+ * their chart.
+ * <p>
+ * Versions live in memory, so a change made through another instance is only
+ * seen here once the entry expires.
+ */
+@Service
+@Slf4j
+public class ChartCacheServiceImpl implements ChartCacheService {
+
+    private static final String METRIC_PREFIX = "chart.cache";
+
+    private final ChartCacheProperties properties;
+    private final Map<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+    private final String instanceId = UUID.randomUUID().toString();
+    // Access order, so the eldest entry is the least recently used
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+    private final Counter invalidatedEvictions;
+
+    public ChartCacheServiceImpl(@Qualifier("chartCacheProperties") ChartCacheProperties properties,
+            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.hits = meterRegistry.counter(METRIC_PREFIX + ".requests", "result", "hit");
+        this.misses = meterRegistry.counter(METRIC_PREFIX + ".requests", "result", "miss");
+        this.sizeEvictions = meterRegistry.counter(METRIC_PREFIX + ".evictions", "reason", "size");
+        this.expiredEvictions = meterRegistry.counter(METRIC_PREFIX + ".evictions", "reason", "expired");
+        this.invalidatedEvictions = meterRegistry.counter(METRIC_PREFIX + ".evictions", "reason", "invalidated");
+        Gauge.builder(METRIC_PREFIX + ".entries", this, ChartCacheServiceImpl::size).register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".size", this, ChartCacheServiceImpl::bytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<JSONObject> getOrLoad(Long chartId, String sqlQuery, List<Object> parameters,
+            Collection<String> queryTables, Supplier<List<JSONObject>> loader) {
+        long ttlMillis = ttlSeconds(chartId) * 1000;
+        if (!properties.isEnabled() || ttlMillis <= 0 || queryTables == null || queryTables.isEmpty()) {
+            return loader.get();
+        }
+        String key = key(sqlQuery, parameters);
+        if (key == null) {
+            return loader.get();
+        }
+        Set<String> tables = tableSet(queryTables);
+
+        Map<String, Long> versions = versionsOf(tables);
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null) {
+                if (!entry.versions.equals(versions)) {
+                    remove(key);
+                    invalidatedEvictions.increment();
+                } else if (now - entry.createdAt >= ttlMillis) {
+                    remove(key);
+                    expiredEvictions.increment();
+                } else {
+                    hits.increment();
+                    return entry.records;
+                }
+            }
+        }
+
+        misses.increment();
+        List<JSONObject> records = Collections.unmodifiableList(loader.get());
+        long bytes = estimateBytes(records);
+        // A table written while the query ran may be only partly in the result
+        if (bytes <= properties.getMaxEntrySizeMb() * 1024 * 1024 && versionsOf(tables).equals(versions)) {
+            put(key, new CacheEntry(records, versions, now, bytes));
+        }
+        return records;
+    }
+
+    @Override
+    public void invalidateTable(String tableName) {
+        if (tableName == null || tableName.isBlank()) {
+            return;
+        }
+        String table = tableName.toLowerCase(Locale.ROOT);
+        long version = tableVersions.computeIfAbsent(table, t -> new AtomicLong()).incrementAndGet();
+        int removed = 0;
+        synchronized (this) {
+            Iterator<Map.Entry<String, CacheEntry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                CacheEntry entry = iterator.next().getValue();
+                if (entry.versions.containsKey(table)) {
+                    iterator.remove();
+                    totalBytes -= entry.bytes;
+                    removed++;
+                }
+            }
+        }
+        invalidatedEvictions.increment(removed);
+        log.debug("Chart cache version of {} is now {}, {} results dropped", table, version, removed);
+    }
+
+    @Override
+    public String version(Long chartId, Collection<String> queryTables) {
+        long ttlMillis = ttlSeconds(chartId) * 1000;
+        if (!properties.isEnabled() || ttlMillis <= 0 || queryTables == null || queryTables.isEmpty()) {
+            return null;
+        }
+        // Changes made through another instance are not in the versions, so the
+        // version also moves on once per TTL, as the cached entries do; the
+        // instance id keeps the versions counted again after a restart apart
+        return instanceId + ":" + System.currentTimeMillis() / ttlMillis + ":" + versionsOf(tableSet(queryTables));
+    }
+
+    private synchronized void put(String key, CacheEntry entry) {
+        remove(key);
+        entries.put(key, entry);
+        totalBytes += entry.bytes;
+        long maxBytes = properties.getMaxSizeMb() * 1024 * 1024;
+        Iterator<Map.Entry<String, CacheEntry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > properties.getMaxEntries() || totalBytes > maxBytes) && eldest.hasNext()) {
+            totalBytes -= eldest.next().getValue().bytes;
+            eldest.remove();
+            sizeEvictions.increment();
+        }
+    }
+
+    private void remove(String key) {
+        CacheEntry removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.bytes;
+        }
+    }
+
+    private synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized long bytes() {
+        return totalBytes;
+    }
+
+    private long ttlSeconds(Long chartId) {
+        Long override = chartId != null ? properties.getChartTtlSeconds().get(chartId) : null;
+        return override != null ? override : properties.getTtlSeconds();
+    }
+
+    private static Set<String> tableSet(Collection<String> queryTables) {
+        Set<String> tables = new TreeSet<>();
+        for (String table : queryTables) {
+            tables.add(table.toLowerCase(Locale.ROOT));
+        }
+        return tables;
+    }
+
+    private Map<String, Long> versionsOf(Set<String> tables) {
+        Map<String, Long> versions = new TreeMap<>();
+        for (String table : tables) {
+            AtomicLong version = tableVersions.get(table);
+            versions.put(table, version != null ? version.get() : 0L);
+        }
+        return versions;
+    }
+
+    private static String key(String sqlQuery, List<Object> parameters) {
+        try {
+            return normalize(sqlQuery) + "\n" + MapperUtils.objectMapper.writeValueAsString(parameters);
+        } catch (JsonProcessingException e) {
+            log.debug("Serialize chart query parameters failed! {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Collapse whitespace outside quoted text and drop a trailing semicolon, so
+     * the same query formatted differently shares an entry.
+     */
+    private static String normalize(String sqlQuery) {
+        String sql = sqlQuery.trim();
+        if (sql.endsWith(";")) {
+            sql = sql.substring(0, sql.length() - 1).trim();
+        }
+        StringBuilder result = new StringBuilder(sql.length());
+        char quote = 0;
+        boolean space = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                result.append(c);
+                if (c == '\\' && quote != '`' && i + 1 < sql.length()) {
+                    result.append(sql.charAt(++i));
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (Character.isWhitespace(c)) {
+                space = true;
+            } else {
+                if (space) {
+                    result.append(' ');
+                    space = false;
+                }
+                if (c == '\'' || c == '"' || c == '`') {
+                    quote = c;
+                }
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private static long estimateBytes(List<JSONObject> records) {
+        // Two bytes per character of the serialized records, plus the list itself
+        long bytes = 64;
+        for (JSONObject record : records) {
+            bytes += 2L * record.toString().length() + 64;
+        }
+        return bytes;
+    }
+
+    private static class CacheEntry {
+        private final List<JSONObject> records;
+        private final Map<String, Long> versions;
+        private final long createdAt;
+        private final long bytes;
+
+        CacheEntry(List<JSONObject> records, Map<String, Long> versions, long createdAt, long bytes) {
+            this.records = records;
+            this.versions = versions;
+            this.createdAt = createdAt;
+            this.bytes = bytes;
+        }
+    }
+
+}
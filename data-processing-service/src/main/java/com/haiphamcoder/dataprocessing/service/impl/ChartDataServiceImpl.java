@@ -1,42 +1,112 @@
 package com.haiphamcoder.dataprocessing.service.impl;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.haiphamcoder.dataprocessing.domain.dto.SourceDto;
+import com.haiphamcoder.dataprocessing.domain.model.ChartDataQuery;
+import com.haiphamcoder.dataprocessing.domain.model.ChartDataResult;
+import com.haiphamcoder.dataprocessing.domain.model.ChartMaterialization;
+import com.haiphamcoder.dataprocessing.service.ChartCacheService;
 import com.haiphamcoder.dataprocessing.service.ChartDataService;
-import com.haiphamcoder.dataprocessing.service.StorageService;
+import com.haiphamcoder.dataprocessing.service.MaterializationService;
+import com.haiphamcoder.dataprocessing.service.RawDataService;
+import com.haiphamcoder.dataprocessing.shared.concurrent.ThreadPool;
 
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class ChartDataServiceImpl implements ChartDataService {
-    private final StorageService storageService;
+    private final MaterializationService materializationService;
+    private final RawDataService rawDataService;
+    private final ChartCacheService chartCacheService;
+    private final ExecutorService executor;
+    private final long defaultTimeoutMs;
+    private final long maxTimeoutMs;
+    private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    public ChartDataServiceImpl(MaterializationService materializationService,
+            RawDataService rawDataService,
+            ChartCacheService chartCacheService,
+            @Value("${chart.batch.parallelism:8}") int parallelism,
+            @Value("${chart.batch.queue-size:256}") int queueSize,
+            @Value("${chart.batch.timeout-ms:10000}") long defaultTimeoutMs,
+            @Value("${chart.batch.max-timeout-ms:60000}") long maxTimeoutMs) {
+        this.materializationService = materializationService;
+        this.rawDataService = rawDataService;
+        this.chartCacheService = chartCacheService;
+        // Bounds the TiDB connections one batch holds; charts beyond the queue fail instead of waiting
+        this.executor = ThreadPool.builder()
+                .setCoreSize(Math.max(1, parallelism))
+                .setMaxSize(Math.max(1, parallelism))
+                .setQueueSize(Math.max(1, queueSize))
+                .setNamePrefix("chart-data-")
+                .setDaemon(true)
+                .build()
+                .getExecutorService();
+        this.defaultTimeoutMs = defaultTimeoutMs;
+        this.maxTimeoutMs = maxTimeoutMs;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
 
     @Override
     public Map<String, Object> getChartData(Long chartId) {
         log.info("Getting data for chart {}", chartId);
         try {
-            // Tạo SourceDto để truy vấn dữ liệu
-            SourceDto sourceDto = SourceDto.builder()
-                    .id(chartId)
-                    .name("chart_" + chartId)
-                    .build();
-
-            // Lấy dữ liệu mới nhất từ StorageService
-            List<JSONObject> data = storageService.getPreviewData(sourceDto, null, null, 1, 1);
-            if (!data.isEmpty()) {
-                return data.get(0).toMap();
+            // Served from the materialized result, the source table is not read
+            ChartMaterialization materialization = materializationService.getMaterialization(chartId);
+            if (materialization == null) {
+                return new HashMap<>();
             }
-            return new HashMap<>();
+            List<JSONObject> records = materializationService.getMaterializedRecords(chartId,
+                    materialization.getDefinitionHash(), 0, 0);
+            if (records == null) {
+                return new HashMap<>();
+            }
+            List<Map<String, Object>> rows = new ArrayList<>(records.size());
+            for (JSONObject record : records) {
+                rows.add(record.toMap());
+            }
+            Map<String, Object> chartData = new LinkedHashMap<>();
+            chartData.put("chart_id", chartId);
+            chartData.put("columns", materialization.getColumns());
+            chartData.put("records", rows);
+            chartData.put("row_count", materialization.getRowCount());
+            chartData.put("refresh_mode", materialization.getRefreshMode().name());
+            chartData.put("refresh_duration_ms", materialization.getRefreshDurationMs());
+            chartData.put("refreshed_at", format(materialization.getRefreshedAt()));
+            return chartData;
         } catch (Exception e) {
             log.error("Error getting data for chart {}: {}", chartId, e.getMessage());
             return new HashMap<>();
@@ -46,29 +116,194 @@ public class ChartDataServiceImpl implements ChartDataService {
     @Override
     public List<Map<String, Object>> getChartsData(List<Long> chartIds) {
         log.info("Getting data for charts: {}", chartIds);
-        List<Map<String, Object>> chartsData = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(defaultTimeoutMs);
+        List<Future<Map<String, Object>>> futures = new ArrayList<>(chartIds.size());
         for (Long chartId : chartIds) {
-            Map<String, Object> chartData = getChartData(chartId);
-            if (!chartData.isEmpty()) {
-                chartsData.add(chartData);
+            futures.add(submit(() -> getChartData(chartId)));
+        }
+        List<Map<String, Object>> chartsData = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                Map<String, Object> chartData = await(futures.get(i), deadline);
+                if (!chartData.isEmpty()) {
+                    chartsData.add(chartData);
+                }
+            } catch (Exception e) {
+                log.error("Error getting data for chart {}: {}", chartIds.get(i), e.getMessage());
             }
         }
         return chartsData;
     }
 
+    @Override
+    public List<ChartDataResult> getChartsData(List<ChartDataQuery> queries, long timeoutMs) {
+        ChartDataResult[] results = new ChartDataResult[queries.size()];
+        readCharts(queries, timeoutMs, (index, result) -> results[index] = result);
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public void streamChartsData(List<ChartDataQuery> queries, long timeoutMs, Consumer<ChartDataResult> consumer) {
+        readCharts(queries, timeoutMs, (index, result) -> consumer.accept(result));
+    }
+
+    @Override
+    public List<String> getChartsVersion(List<ChartDataQuery> queries) {
+        List<String> versions = new ArrayList<>(queries.size());
+        for (ChartDataQuery query : queries) {
+            try {
+                versions.add(version(query));
+            } catch (Exception e) {
+                log.error("Error getting data version of chart {}: {}", query.getChartId(), e.getMessage());
+                versions.add(null);
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * @return the refresh time of the materialized result read serves, or
+     *         else the cache version of the tables its query reads
+     */
+    private String version(ChartDataQuery query) {
+        Long chartId = query.getChartId();
+        if (query.getDefinitionHash() != null && !query.getDefinitionHash().isEmpty()) {
+            ChartMaterialization materialization = materializationService.getMaterialization(chartId);
+            if (materialization != null && !materialization.isStale()
+                    && query.getDefinitionHash().equals(materialization.getDefinitionHash())) {
+                return "materialized:" + materialization.getRefreshedAt();
+            }
+        }
+        if (query.getSql() == null || query.getSql().isEmpty()) {
+            return null;
+        }
+        String version = chartCacheService.version(chartId, query.getTables());
+        return version != null ? "query:" + version : null;
+    }
+
+    /**
+     * Read the charts on the pool and hand every result to the sink on the
+     * calling thread as soon as it is read, so the sink needs no locking. The
+     * charts not read by the deadline are handed over with an error.
+     */
+    private void readCharts(List<ChartDataQuery> queries, long timeoutMs,
+            BiConsumer<Integer, ChartDataResult> sink) {
+        long timeout = timeoutMs > 0 ? Math.min(timeoutMs, maxTimeoutMs) : defaultTimeoutMs;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        // Runs of one batch by SQL and parameters, so charts with the same query share one
+        Map<String, CompletableFuture<List<JSONObject>>> runs = new ConcurrentHashMap<>();
+        BlockingQueue<Map.Entry<Integer, ChartDataResult>> done = new LinkedBlockingQueue<>();
+        List<Future<?>> futures = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            int index = i;
+            ChartDataQuery query = queries.get(i);
+            try {
+                futures.add(executor.submit(() -> done.add(Map.entry(index, readOrFail(query, runs)))));
+            } catch (RejectedExecutionException e) {
+                done.add(Map.entry(index, failed(query.getChartId(), "Too many charts are being read")));
+            }
+        }
+
+        boolean[] delivered = new boolean[queries.size()];
+        int remaining = queries.size();
+        try {
+            while (remaining > 0) {
+                Map.Entry<Integer, ChartDataResult> result = done.poll(Math.max(0, deadline - System.nanoTime()),
+                        TimeUnit.NANOSECONDS);
+                if (result == null) {
+                    break;
+                }
+                delivered[result.getKey()] = true;
+                remaining--;
+                sink.accept(result.getKey(), result.getValue());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+        String error = Thread.currentThread().isInterrupted() ? "Interrupted"
+                : "Deadline of " + timeout + " ms exceeded";
+        for (int i = 0; i < delivered.length; i++) {
+            if (!delivered[i]) {
+                sink.accept(i, failed(queries.get(i).getChartId(), error));
+            }
+        }
+        log.info("Read {} charts with {} queries in a batch", queries.size(), runs.size());
+    }
+
+    private ChartDataResult readOrFail(ChartDataQuery query, Map<String, CompletableFuture<List<JSONObject>>> runs) {
+        try {
+            return read(query, runs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failed(query.getChartId(), "Interrupted");
+        } catch (Exception e) {
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            log.error("Error getting data for chart {}: {}", query.getChartId(), cause.getMessage());
+            return failed(query.getChartId(), cause.getMessage());
+        }
+    }
+
+    private ChartDataResult read(ChartDataQuery query, Map<String, CompletableFuture<List<JSONObject>>> runs)
+            throws InterruptedException, ExecutionException {
+        Long chartId = query.getChartId();
+        if (query.getDefinitionHash() != null && !query.getDefinitionHash().isEmpty()) {
+            List<JSONObject> records = materializationService.getMaterializedRecords(chartId,
+                    query.getDefinitionHash(), query.getOffset(), query.getLimit());
+            if (records != null) {
+                return ChartDataResult.builder().chartId(chartId).records(records).materialized(true).build();
+            }
+        }
+        if (query.getSql() == null || query.getSql().isEmpty()) {
+            return failed(chartId, "Chart has no materialized result");
+        }
+
+        CompletableFuture<List<JSONObject>> run = new CompletableFuture<>();
+        CompletableFuture<List<JSONObject>> shared = runs.putIfAbsent(
+                query.getSql() + "\n" + query.getParameters(), run);
+        if (shared != null) {
+            return ChartDataResult.builder().chartId(chartId).records(shared.get()).build();
+        }
+        try {
+            run.complete(rawDataService.queryData(chartId, query.getSql(), query.getParameters(),
+                    query.getTables()));
+        } catch (RuntimeException e) {
+            run.completeExceptionally(e);
+            throw e;
+        }
+        return ChartDataResult.builder().chartId(chartId).records(run.get()).build();
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Too many charts are being read"));
+        }
+    }
+
+    private static <T> T await(Future<T> future, long deadline)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (CancellationException e) {
+            throw new ExecutionException("Cancelled", e);
+        }
+    }
+
+    private static ChartDataResult failed(Long chartId, String error) {
+        return ChartDataResult.builder().chartId(chartId).error(error != null ? error : "Unknown error").build();
+    }
+
     @Override
     public boolean hasChartData(Long chartId) {
         log.info("Checking data existence for chart {}", chartId);
         try {
-            // Tạo SourceDto để kiểm tra dữ liệu
-            SourceDto sourceDto = SourceDto.builder()
-                    .id(chartId)
-                    .name("chart_" + chartId)
-                    .build();
-
-            // Lấy một bản ghi để kiểm tra sự tồn tại
-            List<JSONObject> data = storageService.getPreviewData(sourceDto, null, null, 1, 1);
-            return !data.isEmpty();
+            ChartMaterialization materialization = materializationService.getMaterialization(chartId);
+            return materialization != null && !materialization.isStale();
         } catch (Exception e) {
             log.error("Error checking data existence for chart {}: {}", chartId, e.getMessage());
             return false;
@@ -79,21 +314,16 @@ public class ChartDataServiceImpl implements ChartDataService {
     public String getLastUpdateTime(Long chartId) {
         log.info("Getting last update time for chart {}", chartId);
         try {
-            // Tạo SourceDto để lấy dữ liệu
-            SourceDto sourceDto = SourceDto.builder()
-                    .id(chartId)
-                    .name("chart_" + chartId)
-                    .build();
-
-            // Lấy bản ghi mới nhất để lấy thời gian cập nhật
-            List<JSONObject> data = storageService.getPreviewData(sourceDto, null, null, 1, 1);
-            if (!data.isEmpty()) {
-                return data.get(0).optString("updated_at");
-            }
-            return null;
+            ChartMaterialization materialization = materializationService.getMaterialization(chartId);
+            return materialization != null ? format(materialization.getRefreshedAt()) : null;
         } catch (Exception e) {
             log.error("Error getting last update time for chart {}: {}", chartId, e.getMessage());
             return null;
         }
     }
+
+    private String format(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault())
+                .format(dateFormatter);
+    }
 }
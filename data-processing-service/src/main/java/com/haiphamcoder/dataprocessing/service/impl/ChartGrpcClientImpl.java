@@ -1,5 +1,8 @@
 package com.haiphamcoder.dataprocessing.service.impl;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -10,16 +13,24 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.haiphamcoder.dataprocessing.domain.dto.ChartDto;
 import com.haiphamcoder.dataprocessing.domain.dto.ChartDto.ChartDtoBuilder;
+import com.haiphamcoder.dataprocessing.domain.exception.business.detail.ResourceNotFoundException;
+import com.haiphamcoder.dataprocessing.domain.model.ChartQuery;
 import com.haiphamcoder.dataprocessing.service.ChartGrpcClient;
 import com.haiphamcoder.dataprocessing.shared.MapperUtils;
+import com.haiphamcoder.dataprocessing.shared.QueryParameters;
 import com.haiphamcoder.dataprocessing.shared.StringUtils;
 import com.haiphamcoder.reporting.proto.ChartProto;
 import com.haiphamcoder.reporting.proto.ChartServiceGrpc;
+import com.haiphamcoder.reporting.proto.CheckChartPermissionRequest;
 import com.haiphamcoder.reporting.proto.GetChartByIdRequest;
 import com.haiphamcoder.reporting.proto.GetChartByIdResponse;
+import com.haiphamcoder.reporting.proto.GetChartQueryRequest;
+import com.haiphamcoder.reporting.proto.GetChartQueryResponse;
 import com.haiphamcoder.reporting.proto.UpdateChartRequest;
 import com.haiphamcoder.reporting.proto.UpdateChartResponse;
 import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
@@ -48,6 +59,51 @@ public class ChartGrpcClientImpl implements ChartGrpcClient {
         return convertChartProtoToChartDto(updatedChart);
     }
 
+    @Override
+    public ChartQuery getChartQuery(Long id) {
+        GetChartQueryRequest request = GetChartQueryRequest.newBuilder().setId(id).build();
+        GetChartQueryResponse response = chartServiceBlockingStub.getChartQuery(request);
+        try {
+            ChartQuery.ChartQueryBuilder builder = ChartQuery.builder()
+                    .chartId(id)
+                    .sql(response.getSql())
+                    .parameters(QueryParameters.parse(response.getParameters()))
+                    .columns(new ArrayList<>(response.getColumnsList()))
+                    .definitionHash(response.getDefinitionHash())
+                    .tables(new ArrayList<>(response.getTablesList()));
+            if (!StringUtils.isNullOrEmpty(response.getDeltaSql())) {
+                List<String> aggregates = new ArrayList<>();
+                for (String aggregate : response.getAggregatesList()) {
+                    aggregates.add(StringUtils.isNullOrEmpty(aggregate) ? null : aggregate);
+                }
+                builder.deltaSql(response.getDeltaSql())
+                        .sourceTable(response.getSourceTable())
+                        .aggregates(aggregates)
+                        .sort(new ArrayList<>(response.getSortList()));
+            }
+            return builder.build();
+        } catch (IOException e) {
+            throw new RuntimeException("Parse chart query parameters failed! " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean hasChartPermission(Long userId, Long chartId, String permission) {
+        CheckChartPermissionRequest request = CheckChartPermissionRequest.newBuilder()
+                .setChartId(chartId)
+                .setUserId(userId)
+                .setPermission(permission)
+                .build();
+        try {
+            return chartServiceBlockingStub.checkChartPermission(request).getAllowed();
+        } catch (StatusRuntimeException e) {
+            if (e.getStatus().getCode() == Status.Code.NOT_FOUND) {
+                throw new ResourceNotFoundException("Chart", chartId);
+            }
+            throw e;
+        }
+    }
+
     private ChartDto convertChartProtoToChartDto(ChartProto chart) {
         try {
 
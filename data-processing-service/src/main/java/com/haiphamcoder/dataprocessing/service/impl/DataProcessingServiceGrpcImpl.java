@@ -1,10 +1,24 @@
 package com.haiphamcoder.dataprocessing.service.impl;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONObject;
 import org.springframework.stereotype.Service;
 
 import com.haiphamcoder.dataprocessing.proto.*;
+import com.haiphamcoder.dataprocessing.domain.model.ChartDataQuery;
+import com.haiphamcoder.dataprocessing.domain.model.ChartDataResult;
+import com.haiphamcoder.dataprocessing.domain.model.ChartMaterialization;
+import com.haiphamcoder.dataprocessing.service.ChartDataService;
+import com.haiphamcoder.dataprocessing.service.MaterializationService;
 import com.haiphamcoder.dataprocessing.service.RawDataService;
+import com.haiphamcoder.dataprocessing.shared.MapperUtils;
+import com.haiphamcoder.dataprocessing.shared.QueryParameters;
 
+import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,6 +29,8 @@ import lombok.extern.slf4j.Slf4j;
 public class DataProcessingServiceGrpcImpl extends DataProcessingServiceGrpc.DataProcessingServiceImplBase {
 
     private final RawDataService rawDataService;
+    private final MaterializationService materializationService;
+    private final ChartDataService chartDataService;
 
     @Override
     public void cloneSource(CloneSourceRequest request, StreamObserver<CloneSourceResponse> responseObserver) {
@@ -23,4 +39,164 @@ public class DataProcessingServiceGrpcImpl extends DataProcessingServiceGrpc.Dat
         responseObserver.onCompleted();
     }
 
+    @Override
+    public void queryData(QueryDataRequest request, StreamObserver<QueryDataResponse> responseObserver) {
+        try {
+            List<JSONObject> records = rawDataService.queryData(
+                    request.getChartId() > 0 ? request.getChartId() : null, request.getSql(),
+                    QueryParameters.parse(request.getParameters()), request.getTablesList());
+            QueryDataResponse.Builder response = QueryDataResponse.newBuilder();
+            for (JSONObject record : records) {
+                response.addRecords(record.toString());
+            }
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        } catch (Exception e) {
+            log.error("Query data failed! {}", e.getMessage());
+            responseObserver.onError(Status.INTERNAL.withDescription(e.getMessage()).asRuntimeException());
+        }
+    }
+
+    @Override
+    public void explainQuery(ExplainQueryRequest request, StreamObserver<ExplainQueryResponse> responseObserver) {
+        try {
+            ExplainQueryResponse.Builder response = ExplainQueryResponse.newBuilder();
+            for (Map<String, Object> row : rawDataService.explainQuery(request.getSql())) {
+                response.addRows(MapperUtils.objectMapper.writeValueAsString(row));
+            }
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        } catch (Exception e) {
+            log.error("Explain query failed! {}", e.getMessage());
+            responseObserver.onError(Status.INTERNAL.withDescription(e.getMessage()).asRuntimeException());
+        }
+    }
+
+    @Override
+    public void getMaterializedChartData(GetMaterializedChartDataRequest request,
+            StreamObserver<GetMaterializedChartDataResponse> responseObserver) {
+        try {
+            GetMaterializedChartDataResponse.Builder response = GetMaterializedChartDataResponse.newBuilder();
+            ChartMaterialization materialization = materializationService.getMaterialization(request.getChartId());
+            List<JSONObject> records = materialization != null
+                    ? materializationService.getMaterializedRecords(request.getChartId(),
+                            request.getDefinitionHash(), request.getOffset(), request.getLimit())
+                    : null;
+            if (records != null) {
+                response.setFound(true).setRefreshedAt(materialization.getRefreshedAt());
+                for (JSONObject record : records) {
+                    response.addRecords(record.toString());
+                }
+            }
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        } catch (Exception e) {
+            log.error("Get materialized chart data failed! {}", e.getMessage());
+            responseObserver.onError(Status.INTERNAL.withDescription(e.getMessage()).asRuntimeException());
+        }
+    }
+
+    @Override
+    public void getChartsData(GetChartsDataRequest request, StreamObserver<GetChartsDataResponse> responseObserver) {
+        List<ChartDataQuery> queries;
+        try {
+            queries = toChartDataQueries(request);
+        } catch (IOException e) {
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException());
+            return;
+        }
+
+        try {
+            GetChartsDataResponse.Builder response = GetChartsDataResponse.newBuilder();
+            for (ChartDataResult result : chartDataService.getChartsData(queries, request.getTimeoutMs())) {
+                response.addCharts(toProto(result));
+            }
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        } catch (Exception e) {
+            log.error("Get charts data failed! {}", e.getMessage());
+            responseObserver.onError(Status.INTERNAL.withDescription(e.getMessage()).asRuntimeException());
+        }
+    }
+
+    @Override
+    public void streamChartsData(GetChartsDataRequest request,
+            StreamObserver<com.haiphamcoder.dataprocessing.proto.ChartDataResult> responseObserver) {
+        List<ChartDataQuery> queries;
+        try {
+            queries = toChartDataQueries(request);
+        } catch (IOException e) {
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException());
+            return;
+        }
+
+        try {
+            chartDataService.streamChartsData(queries, request.getTimeoutMs(),
+                    result -> responseObserver.onNext(toProto(result)));
+            responseObserver.onCompleted();
+        } catch (Exception e) {
+            log.error("Stream charts data failed! {}", e.getMessage());
+            responseObserver.onError(Status.INTERNAL.withDescription(e.getMessage()).asRuntimeException());
+        }
+    }
+
+    @Override
+    public void getChartsVersion(GetChartsDataRequest request,
+            StreamObserver<GetChartsVersionResponse> responseObserver) {
+        List<ChartDataQuery> queries;
+        try {
+            queries = toChartDataQueries(request);
+        } catch (IOException e) {
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException());
+            return;
+        }
+
+        try {
+            GetChartsVersionResponse.Builder response = GetChartsVersionResponse.newBuilder();
+            List<String> versions = chartDataService.getChartsVersion(queries);
+            for (int i = 0; i < queries.size(); i++) {
+                response.addCharts(ChartVersion.newBuilder()
+                        .setChartId(queries.get(i).getChartId())
+                        .setVersion(versions.get(i) != null ? versions.get(i) : "")
+                        .build());
+            }
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        } catch (Exception e) {
+            log.error("Get charts version failed! {}", e.getMessage());
+            responseObserver.onError(Status.INTERNAL.withDescription(e.getMessage()).asRuntimeException());
+        }
+    }
+
+    private static List<ChartDataQuery> toChartDataQueries(GetChartsDataRequest request) throws IOException {
+        List<ChartDataQuery> queries = new ArrayList<>(request.getChartsCount());
+        for (com.haiphamcoder.dataprocessing.proto.ChartDataQuery chart : request.getChartsList()) {
+            queries.add(ChartDataQuery.builder()
+                    .chartId(chart.getChartId())
+                    .definitionHash(chart.getDefinitionHash())
+                    .offset(chart.getOffset())
+                    .limit(chart.getLimit())
+                    .sql(chart.getSql())
+                    .parameters(QueryParameters.parse(chart.getParameters()))
+                    .tables(chart.getTablesList())
+                    .build());
+        }
+        return queries;
+    }
+
+    private static com.haiphamcoder.dataprocessing.proto.ChartDataResult toProto(ChartDataResult result) {
+        com.haiphamcoder.dataprocessing.proto.ChartDataResult.Builder chart = com.haiphamcoder.dataprocessing.proto
+                .ChartDataResult.newBuilder()
+                .setChartId(result.getChartId())
+                .setMaterialized(result.isMaterialized());
+        if (result.getError() != null) {
+            chart.setError(result.getError());
+        } else {
+            for (JSONObject record : result.getRecords()) {
+                chart.addRecords(record.toString());
+            }
+        }
+        return chart.build();
+    }
+
 }
@@ -2,16 +2,13 @@ package com.haiphamcoder.dataprocessing.service.impl;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.databind.JsonNode;
@@ -22,19 +19,25 @@ import com.haiphamcoder.dataprocessing.domain.model.PreviewData;
 import com.haiphamcoder.dataprocessing.service.ExcelProcessingService;
 import com.haiphamcoder.dataprocessing.service.HdfsFileService;
 import com.haiphamcoder.dataprocessing.shared.StringUtils;
-import com.haiphamcoder.dataprocessing.shared.TidbDataTypeDetector;
+import com.haiphamcoder.dataprocessing.shared.TidbTypeInferrer;
 import com.haiphamcoder.dataprocessing.shared.processing.ExcelFileUtils;
 import com.haiphamcoder.dataprocessing.shared.processing.ExcelFileUtils.ExcelFileFormat;
 import com.haiphamcoder.dataprocessing.shared.processing.HeaderNormalizer;
+import com.haiphamcoder.dataprocessing.shared.processing.ReservoirSample;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class ExcelProcessingServiceImpl implements ExcelProcessingService {
     private final HdfsFileService hdfsFileService;
+    private final int typeSampleRows;
+
+    public ExcelProcessingServiceImpl(HdfsFileService hdfsFileService,
+            @Value("${file.profile.type-sample-rows:10000}") int typeSampleRows) {
+        this.hdfsFileService = hdfsFileService;
+        this.typeSampleRows = typeSampleRows;
+    }
 
     @Override
     public PreviewData getPreviewData(String userId, String filePath, String sheetName, String dataRangeSelected,
@@ -45,22 +48,13 @@ public class ExcelProcessingServiceImpl implements ExcelProcessingService {
 
         try (InputStream inputStream = hdfsFileService.streamFile(filePath)) {
             ExcelFileFormat fileFormat = ExcelFileUtils.getFileFormat(filePath);
-            try (Workbook workbook = ExcelFileUtils.createWorkbook(inputStream, fileFormat)) {
-                Sheet sheet = workbook.getSheet(sheetName);
-
-                if (sheet == null) {
-                    throw new RuntimeException("Sheet not found");
-                }
-
-                Iterator<Row> rowIterator = sheet.rowIterator();
-
-                while (rowIterator.hasNext() && previewData.getRecords().size() < limit) {
-                    Row row = rowIterator.next();
-                    if (schemaMap.isEmpty()) {
-                        schemaMap.put(row.getRowNum(), row.getCell(0).getStringCellValue());
-                    }
-                }
-
+            boolean sheetFound = ExcelFileUtils.readRows(inputStream, fileFormat, sheetName, null,
+                    (rowNum, values) -> {
+                        schemaMap.put(rowNum, values.length > 0 ? values[0] : null);
+                        return false;
+                    });
+            if (!sheetFound) {
+                throw new RuntimeException("Sheet not found");
             }
         } catch (IOException e) {
             log.error("Get file on server error");
@@ -109,73 +103,50 @@ public class ExcelProcessingServiceImpl implements ExcelProcessingService {
             throw new RuntimeException("Data range selected is null");
         }
 
+        // The header row is kept and the data rows are sampled to infer the column types;
+        // every data row is observed so the types are sized for all of them
+        List<String[]> header = new ArrayList<>(1);
+        List<TidbTypeInferrer[]> inferrers = new ArrayList<>(1);
+        ReservoirSample<String[]> sample = new ReservoirSample<>(typeSampleRows);
         try (InputStream inputStream = hdfsFileService.streamFile(filePath)) {
             ExcelFileFormat fileFormat = ExcelFileUtils.getFileFormat(filePath);
-            try (Workbook workbook = ExcelFileUtils.createWorkbook(inputStream, fileFormat)) {
-                Sheet sheet = workbook.getSheet(sheetName);
-                if (sheet == null) {
-                    throw new RuntimeException("Sheet not found");
-                }
-
-                int[] dataRange = ExcelFileUtils.processFileSelection(sheet, dataRangeSelected);
-                int rowsMin = dataRange[0];
-                int colsMin = dataRange[1];
-                int rowsMax = dataRange[2];
-                int colsMax = dataRange[3];
-
-                // Get header
-                List<String> header = new LinkedList<>();
-                Iterator<Row> rowIterator = sheet.iterator();
-                while (rowIterator.hasNext() && header.isEmpty()) {
-                    Row row = rowIterator.next();
-                    if (row.getRowNum() < rowsMin || row.getRowNum() > rowsMax) {
-                        continue;
-                    }
-                    for (int i = colsMin; i < colsMax; i++) {
-                        Cell cell = row.getCell(i);
-                        if (cell == null) {
-                            header.add(null);
-                            continue;
-                        }
-                        header.add(ExcelFileUtils.getCellValueAsString(cell));
-                    }
-                }
-
-                // Get data to detect schema
-                List<Mapping> schema = new LinkedList<>();
-                while (rowIterator.hasNext() && schema.isEmpty()) {
-                    Row row = rowIterator.next();
-                    int index = 0;
-                    for (int i = colsMin; i < colsMax; i++) {
-                        Cell cell = row.getCell(i);
-                        if (cell == null) {
-                            continue;
-                        }
-                        String cellValue = ExcelFileUtils.getCellValueAsString(cell);
-                        if (cellValue.isEmpty()) {
-                            schema.add(Mapping.builder()
-                                    .fieldName(header.get(index))
-                                    .fieldMapping(HeaderNormalizer.normalize(header.get(index)))
-                                    .fieldType("text")
-                                    .build());
+            boolean sheetFound = ExcelFileUtils.readRows(inputStream, fileFormat, sheetName, dataRangeSelected,
+                    (rowNum, values) -> {
+                        if (header.isEmpty()) {
+                            header.add(values);
+                            inferrers.add(TidbTypeInferrer.forColumns(values.length));
                         } else {
-                            schema.add(Mapping.builder()
-                                    .fieldName(header.get(index))
-                                    .fieldMapping(HeaderNormalizer.normalize(header.get(index)))
-                                    .fieldType(TidbDataTypeDetector.detectGeneralizedDataType(cellValue).name())
-                                    .build());
+                            TidbTypeInferrer.observeRow(inferrers.get(0), values);
+                            sample.offer(values);
                         }
-                        index++;
-                    }
-                }
-
-                return schema;
+                        return true;
+                    });
+            if (!sheetFound) {
+                throw new RuntimeException("Sheet not found");
             }
         } catch (IOException e) {
             log.error("Get file on server error");
             e.printStackTrace();
             throw new RuntimeException("Get file on server error");
         }
+
+        List<Mapping> schema = new LinkedList<>();
+        if (header.isEmpty() || sample.getItems().isEmpty()) {
+            return schema;
+        }
+        String[] fieldNames = header.get(0);
+        TidbTypeInferrer[] columnTypes = TidbTypeInferrer.inferColumns(sample.getItems(), inferrers.get(0));
+        for (int i = 0; i < fieldNames.length; i++) {
+            if (fieldNames[i] == null) {
+                continue;
+            }
+            schema.add(Mapping.builder()
+                    .fieldName(fieldNames[i])
+                    .fieldMapping(HeaderNormalizer.normalize(fieldNames[i]))
+                    .fieldType(columnTypes[i].resolveType())
+                    .build());
+        }
+        return schema;
     }
 
     @Override
@@ -0,0 +1,75 @@
+package com.haiphamcoder.dataprocessing.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.haiphamcoder.dataprocessing.domain.model.FileProfile;
+import com.haiphamcoder.dataprocessing.service.FileProfileService;
+import com.haiphamcoder.dataprocessing.service.HdfsFileService;
+import com.haiphamcoder.dataprocessing.shared.processing.CSVProfiler;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Profiles files once and keeps the result in an LRU cache keyed by the HDFS
+ * path and modification time, so a re-uploaded file is profiled again.
+ */
+@Service
+@Slf4j
+public class FileProfileServiceImpl implements FileProfileService {
+
+    private final HdfsFileService hdfsFileService;
+    private final int previewRows;
+    private final int typeSampleRows;
+    private final Map<String, FileProfile> cache;
+
+    public FileProfileServiceImpl(HdfsFileService hdfsFileService,
+            @Value("${file.profile.cache-size:100}") int cacheSize,
+            @Value("${file.profile.preview-rows:100}") int previewRows,
+            @Value("${file.profile.type-sample-rows:10000}") int typeSampleRows) {
+        this.hdfsFileService = hdfsFileService;
+        this.previewRows = previewRows;
+        this.typeSampleRows = typeSampleRows;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FileProfile> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    @Override
+    public FileProfile getCSVProfile(String filePath) {
+        long modificationTime = hdfsFileService.getModificationTime(filePath);
+        String cacheKey = filePath + "@" + modificationTime;
+        FileProfile profile = cache.get(cacheKey);
+        if (profile != null) {
+            return profile;
+        }
+
+        try (InputStream inputStream = hdfsFileService.streamFile(filePath)) {
+            if (inputStream == null) {
+                throw new IOException("Cannot open " + filePath);
+            }
+            profile = CSVProfiler.profile(inputStream, Charset.defaultCharset(), previewRows, typeSampleRows);
+        } catch (IOException e) {
+            log.error("Profile file {} failed! {}", filePath, e.getMessage());
+            throw new RuntimeException("Profile file failed! " + e.getMessage(), e);
+        }
+        profile.setFilePath(filePath);
+        profile.setModificationTime(modificationTime);
+        // A failed status lookup (-1) must not pin a stale profile
+        if (modificationTime >= 0) {
+            cache.put(cacheKey, profile);
+        }
+        return profile;
+    }
+
+}
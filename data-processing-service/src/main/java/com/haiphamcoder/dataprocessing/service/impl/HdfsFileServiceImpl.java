@@ -27,6 +27,21 @@ public class HdfsFileServiceImpl implements HdfsFileService {
         return hdfsRepository.streamFile(fileUrl);
     }
 
+    @Override
+    public InputStream streamFile(String fileUrl, long offset) {
+        return hdfsRepository.streamFile(fileUrl, offset);
+    }
+
+    @Override
+    public long getFileSize(String fileUrl) {
+        return hdfsRepository.getFileSize(fileUrl);
+    }
+
+    @Override
+    public long getModificationTime(String fileUrl) {
+        return hdfsRepository.getModificationTime(fileUrl);
+    }
+
     @Override
     public Map<String, String> getHistoryUploadFile(String userId, Integer connectorType) {
         return hdfsRepository.getHistoryUploadFile(userId, connectorType);
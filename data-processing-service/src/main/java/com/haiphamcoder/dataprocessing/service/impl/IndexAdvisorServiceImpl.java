@@ -0,0 +1,295 @@
+package com.haiphamcoder.dataprocessing.service.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import com.haiphamcoder.dataprocessing.config.properties.IndexAdvisorProperties;
+import com.haiphamcoder.dataprocessing.domain.exception.business.detail.InvalidInputException;
+import com.haiphamcoder.dataprocessing.domain.model.ColumnPredicate;
+import com.haiphamcoder.dataprocessing.domain.model.ColumnPredicate.PredicateKind;
+import com.haiphamcoder.dataprocessing.domain.model.IndexAdvice;
+import com.haiphamcoder.dataprocessing.domain.model.IndexAdvice.Kind;
+import com.haiphamcoder.dataprocessing.domain.model.IndexAdvice.Status;
+import com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.read.TidbReader;
+import com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.write.TidbWriter;
+import com.haiphamcoder.dataprocessing.service.IndexAdvisorService;
+import com.haiphamcoder.dataprocessing.shared.SqlPredicateExtractor;
+import com.haiphamcoder.dataprocessing.shared.TidbDataTypeDetector;
+import com.haiphamcoder.dataprocessing.shared.concurrent.ThreadPool;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Counts how source columns are used by previews and chart queries and, every
+ * {@code index.advisor.min-uses} uses of a column, decides whether it deserves
+ * a secondary index (equality, range and prefix lookups) or its table a
+ * TiFlash replica (substring searches and aggregations, which no B-tree index
+ * serves). Decisions are proposed, and created when
+ * {@code index.advisor.auto-create} is on. Counters live in memory, so they
+ * start over on restart.
+ */
+@Service
+@Slf4j
+public class IndexAdvisorServiceImpl implements IndexAdvisorService {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z0-9_]{1,64}");
+    private static final String INDEX_PREFIX = "idx_adv_";
+    private static final int MAX_IDENTIFIER_LENGTH = 64;
+    // Indexed prefix of text columns, enough to tell values apart without the key length limit
+    private static final int TEXT_INDEX_PREFIX = 64;
+
+    private final DataSource writeDataSource;
+    private final IndexAdvisorProperties properties;
+    private final Map<String, ColumnUsage> usages = new ConcurrentHashMap<>();
+    private final Map<String, IndexAdvice> advice = new ConcurrentHashMap<>();
+    private final ExecutorService evaluator;
+
+    public IndexAdvisorServiceImpl(@Qualifier("tidbWriteDataSource") DataSource writeDataSource,
+            @Qualifier("indexAdvisorProperties") IndexAdvisorProperties properties) {
+        this.writeDataSource = writeDataSource;
+        this.properties = properties;
+        // One evaluation at a time; evaluations beyond the queue are dropped and retried at the next threshold
+        this.evaluator = ThreadPool.builder()
+                .setCoreSize(1)
+                .setMaxSize(1)
+                .setQueueSize(64)
+                .setNamePrefix("index-advisor-")
+                .setDaemon(true)
+                .build()
+                .getExecutorService();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        evaluator.shutdownNow();
+    }
+
+    @Override
+    public void record(ColumnPredicate predicate) {
+        if (!properties.isEnabled() || predicate == null || predicate.getKind() == null
+                || !isIdentifier(predicate.getTable()) || !isIdentifier(predicate.getColumn())) {
+            return;
+        }
+        String key = key(predicate.getTable(), predicate.getColumn());
+        ColumnUsage usage = usages.get(key);
+        if (usage == null) {
+            if (usages.size() >= properties.getMaxTrackedColumns()) {
+                return;
+            }
+            usage = usages.computeIfAbsent(key,
+                    k -> new ColumnUsage(predicate.getTable(), predicate.getColumn()));
+        }
+        long total = usage.add(predicate.getKind());
+        if (total % Math.max(1, properties.getMinUses()) == 0) {
+            ColumnUsage evaluated = usage;
+            try {
+                evaluator.execute(() -> evaluate(evaluated, properties.isAutoCreate()));
+            } catch (RejectedExecutionException e) {
+                log.debug("Index advisor queue full, skipped {}", key);
+            }
+        }
+    }
+
+    @Override
+    public void recordQuery(String sqlQuery) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            SqlPredicateExtractor.extract(sqlQuery).forEach(this::record);
+        } catch (RuntimeException e) {
+            log.debug("Extract query predicates failed! {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public List<IndexAdvice> getAdvice() {
+        List<IndexAdvice> result = new ArrayList<>(advice.values());
+        result.sort(Comparator.comparing(IndexAdvice::getTable).thenComparing(IndexAdvice::getColumn));
+        return result;
+    }
+
+    @Override
+    public List<IndexAdvice> evaluate() {
+        for (ColumnUsage usage : usages.values()) {
+            if (usage.total() >= properties.getMinUses()) {
+                evaluate(usage, properties.isAutoCreate());
+            }
+        }
+        return getAdvice();
+    }
+
+    @Override
+    public IndexAdvice apply(String table, String column) {
+        if (!isIdentifier(table) || !isIdentifier(column)) {
+            throw new InvalidInputException("Invalid table or column");
+        }
+        ColumnUsage usage = usages.get(key(table, column));
+        if (usage == null) {
+            throw new InvalidInputException("No usage recorded for " + table + "." + column);
+        }
+        return evaluate(usage, true);
+    }
+
+    private synchronized IndexAdvice evaluate(ColumnUsage usage, boolean create) {
+        String key = key(usage.table, usage.column);
+        IndexAdvice decision;
+        try (TidbReader tidbReader = new TidbReader(writeDataSource)) {
+            decision = decide(tidbReader, usage);
+        } catch (Exception e) {
+            log.error("Evaluate index for {} failed! {}", key, e.getMessage());
+            return advice.get(key);
+        }
+        if (decision == null) {
+            // The column or its table is gone
+            usages.remove(key);
+            advice.remove(key);
+            return null;
+        }
+
+        if (create && decision.getStatus() == Status.PROPOSED && decision.getDdl() != null) {
+            try (TidbWriter tidbWriter = new TidbWriter(writeDataSource)) {
+                tidbWriter.executeUpdate(decision.getDdl());
+                decision.setStatus(Status.CREATED);
+                log.info("Index advisor created {}", decision.getDdl());
+            } catch (Exception e) {
+                decision.setStatus(Status.FAILED);
+                decision.setReason(e.getMessage());
+                log.error("Index advisor failed to run {}! {}", decision.getDdl(), e.getMessage());
+            }
+        }
+        advice.put(key, decision);
+        return decision;
+    }
+
+    private IndexAdvice decide(TidbReader tidbReader, ColumnUsage usage) throws Exception {
+        String dataType = tidbReader.getColumnDataType(usage.table, usage.column);
+        if (dataType == null) {
+            return null;
+        }
+        Map<PredicateKind, Long> uses = usage.snapshot();
+        long indexable = 0;
+        long analytic = 0;
+        for (Map.Entry<PredicateKind, Long> entry : uses.entrySet()) {
+            if (entry.getKey().isIndexable()) {
+                indexable += entry.getValue();
+            } else if (entry.getKey().isAnalytic()) {
+                analytic += entry.getValue();
+            }
+        }
+        long rows = tidbReader.getTableRowCount(usage.table);
+        IndexAdvice decision = IndexAdvice.builder()
+                .table(usage.table)
+                .column(usage.column)
+                .uses(uses)
+                .tableRows(rows)
+                .updatedAt(System.currentTimeMillis())
+                .build();
+
+        if (indexable >= properties.getMinUses()) {
+            decision.setKind(Kind.INDEX);
+            Map<String, String> indexes = tidbReader.getIndexLeadingColumns(usage.table);
+            boolean indexed = indexes.values().stream().anyMatch(usage.column::equalsIgnoreCase);
+            if (indexed) {
+                return withStatus(decision, Status.EXISTS, "Column is already the first column of an index");
+            }
+            if (rows < properties.getMinRows()) {
+                return withStatus(decision, Status.SKIPPED, "Table has " + rows + " rows, a scan is cheap");
+            }
+            if (indexes.size() >= properties.getMaxIndexesPerTable()) {
+                return withStatus(decision, Status.PROPOSED,
+                        "Table already has " + indexes.size() + " indexes, not creating more automatically");
+            }
+            boolean text = TidbDataTypeDetector.isStringType(dataType);
+            decision.setDdl("ALTER TABLE " + usage.table + " ADD INDEX " + indexName(usage.column) + " ("
+                    + usage.column + (text ? "(" + TEXT_INDEX_PREFIX + ")" : "") + ")");
+            return withStatus(decision, Status.PROPOSED, indexable + " lookups an index can serve");
+        }
+
+        if (analytic >= properties.getMinUses()) {
+            decision.setKind(Kind.TIFLASH_REPLICA);
+            if (properties.getTiflashReplicas() <= 0) {
+                return withStatus(decision, Status.SKIPPED,
+                        analytic + " scans or aggregations, but TiFlash replicas are disabled");
+            }
+            if (tidbReader.getTiFlashReplicaCount(usage.table) > 0) {
+                return withStatus(decision, Status.EXISTS, "Table already has a TiFlash replica");
+            }
+            if (rows < properties.getMinRows()) {
+                return withStatus(decision, Status.SKIPPED, "Table has " + rows + " rows, a scan is cheap");
+            }
+            decision.setDdl("ALTER TABLE " + usage.table + " SET TIFLASH REPLICA " + properties.getTiflashReplicas());
+            return withStatus(decision, Status.PROPOSED, analytic + " scans or aggregations no index can serve");
+        }
+
+        return withStatus(decision, Status.SKIPPED, "Not used often enough in a way an index or replica serves");
+    }
+
+    private static IndexAdvice withStatus(IndexAdvice decision, Status status, String reason) {
+        decision.setStatus(status);
+        decision.setReason(reason);
+        return decision;
+    }
+
+    private static String indexName(String column) {
+        String name = INDEX_PREFIX + column;
+        return name.length() > MAX_IDENTIFIER_LENGTH ? name.substring(0, MAX_IDENTIFIER_LENGTH) : name;
+    }
+
+    private static boolean isIdentifier(String name) {
+        return name != null && IDENTIFIER.matcher(name).matches();
+    }
+
+    private static String key(String table, String column) {
+        return (table + "." + column).toLowerCase(Locale.ROOT);
+    }
+
+    private static class ColumnUsage {
+        private final String table;
+        private final String column;
+        private final AtomicLongArray counts = new AtomicLongArray(PredicateKind.values().length);
+        private final AtomicLong total = new AtomicLong();
+
+        ColumnUsage(String table, String column) {
+            this.table = table;
+            this.column = column;
+        }
+
+        long add(PredicateKind kind) {
+            counts.incrementAndGet(kind.ordinal());
+            return total.incrementAndGet();
+        }
+
+        long total() {
+            return total.get();
+        }
+
+        Map<PredicateKind, Long> snapshot() {
+            Map<PredicateKind, Long> snapshot = new EnumMap<>(PredicateKind.class);
+            for (PredicateKind kind : PredicateKind.values()) {
+                long count = counts.get(kind.ordinal());
+                if (count > 0) {
+                    snapshot.put(kind, count);
+                }
+            }
+            return snapshot;
+        }
+    }
+
+}
@@ -0,0 +1,333 @@
+package com.haiphamcoder.dataprocessing.service.impl;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.json.JSONObject;
+import org.springframework.stereotype.Service;
+
+import com.haiphamcoder.dataprocessing.domain.model.ChartMaterialization;
+import com.haiphamcoder.dataprocessing.domain.model.ChartMaterialization.RefreshMode;
+import com.haiphamcoder.dataprocessing.domain.model.ChartQuery;
+import com.haiphamcoder.dataprocessing.domain.model.QueryRows;
+import com.haiphamcoder.dataprocessing.domain.model.RowKeyStats;
+import com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.write.ChartTableDdl;
+import com.haiphamcoder.dataprocessing.service.ChartGrpcClient;
+import com.haiphamcoder.dataprocessing.service.MaterializationService;
+import com.haiphamcoder.dataprocessing.service.StorageService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Materializes the results of charts into {@code chart_<id>} tables.
+ * <p>
+ * The query is compiled by the reporting service. When it reads a single
+ * source table keyed by a numeric row key and only sums, counts, or takes the
+ * minimum or maximum per group, a refresh aggregates the rows added since the
+ * last one (row keys above the stored watermark) and merges them into the
+ * stored groups. It falls back to running the whole query when the query
+ * changed, rows were edited in place, or the number of rows up to the
+ * watermark moved, which means rows were deleted or committed late.
+ * <p>
+ * A result is only served while none of the tables it reads changed since its
+ * refresh started; until the next refresh, charts run their live query.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class MaterializationServiceImpl implements MaterializationService {
+
+    private final ChartGrpcClient chartGrpcClient;
+    private final StorageService storageService;
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public ChartMaterialization refresh(Long chartId) {
+        // Refreshes of one chart never overlap within this instance
+        if (!refreshing.add(chartId)) {
+            log.info("Refresh of chart {} is already running, skipped", chartId);
+            return null;
+        }
+        try {
+            long startedAt = System.currentTimeMillis();
+            ChartQuery query = chartGrpcClient.getChartQuery(chartId);
+            ChartMaterialization previous = storageService.getChartMaterialization(chartId);
+            ChartMaterialization result = query.isMergeable() && storageService.hasNumericRowKey(query.getSourceTable())
+                    ? refreshByRowKey(query, previous, startedAt)
+                    : refreshFull(query, startedAt);
+            log.info("Refreshed chart {} ({}) in {} ms: {} rows", chartId, result.getRefreshMode(),
+                    result.getRefreshDurationMs(), result.getRowCount());
+            return result;
+        } finally {
+            refreshing.remove(chartId);
+        }
+    }
+
+    @Override
+    public ChartMaterialization getMaterialization(Long chartId) {
+        return storageService.getChartMaterialization(chartId);
+    }
+
+    @Override
+    public List<JSONObject> getMaterializedRecords(Long chartId, String definitionHash, long offset, int limit) {
+        ChartMaterialization materialization = storageService.getChartMaterialization(chartId);
+        if (materialization == null || materialization.isStale()
+                || (definitionHash != null && !definitionHash.equals(materialization.getDefinitionHash()))) {
+            return null;
+        }
+        QueryRows rows = storageService.getChartRows(chartId, Math.max(0, offset), limit, false);
+        List<String> columns = materialization.getColumns();
+        List<JSONObject> records = new ArrayList<>(rows.getRows().size());
+        for (Object[] row : rows.getRows()) {
+            JSONObject record = new JSONObject();
+            for (int i = 0; i < columns.size() && i < row.length; i++) {
+                record.put(columns.get(i), row[i] != null ? row[i] : JSONObject.NULL);
+            }
+            records.add(record);
+        }
+        return records;
+    }
+
+    @Override
+    public void sourceChanged(String table) {
+        storageService.markSourceChanged(table, true);
+    }
+
+    @Override
+    public void sourceAppended(String table) {
+        storageService.markSourceChanged(table, false);
+    }
+
+    @Override
+    public void drop(Long chartId) {
+        storageService.deleteChartResult(chartId);
+        log.info("Dropped the materialized result of chart {}", chartId);
+    }
+
+    private ChartMaterialization refreshFull(ChartQuery query, long startedAt) {
+        QueryRows rows = storageService.queryRows(query.getSql(), query.getParameters());
+        ChartMaterialization materialization = materialization(query, RefreshMode.FULL, rows.getRows().size(),
+                startedAt);
+        storageService.saveChartResult(materialization, columnTypes(rows), rows.getRows());
+        return materialization;
+    }
+
+    private ChartMaterialization refreshByRowKey(ChartQuery query, ChartMaterialization previous, long startedAt) {
+        String table = query.getSourceTable();
+        // Read before the query, so rows added meanwhile are left for the next refresh
+        RowKeyStats stats = storageService.getRowKeyStats(table, null);
+        if (stats.getMaxRowKey() == null) {
+            return refreshFull(query, startedAt);
+        }
+
+        Long watermark = canMerge(query, previous) ? previous.getWatermark() : null;
+        RefreshMode mode = RefreshMode.FULL;
+        List<Object[]> rows;
+        List<String> columnTypes = null;
+        if (watermark != null && stats.getMaxRowKey() <= watermark) {
+            mode = RefreshMode.UNCHANGED;
+            rows = null;
+        } else {
+            QueryRows delta = storageService.queryRows(query.getDeltaSql(), bounds(query,
+                    watermark != null ? watermark : Long.MIN_VALUE, stats.getMaxRowKey()));
+            columnTypes = columnTypes(delta);
+            rows = delta.getRows();
+            if (watermark != null) {
+                mode = RefreshMode.INCREMENTAL;
+                List<Object[]> stored = storageService.getChartRows(query.getChartId(), 0, 0, true).getRows();
+                rows = merge(query, stored, rows);
+            }
+        }
+
+        ChartMaterialization materialization = materialization(query, mode,
+                rows != null ? rows.size() : previous.getRowCount(), startedAt);
+        materialization.setSourceTable(table);
+        materialization.setWatermark(stats.getMaxRowKey());
+        materialization.setSourceRows(stats.getRowCount());
+        materialization.setAppendOnly(true);
+        if (rows != null) {
+            storageService.saveChartResult(materialization, columnTypes, rows);
+        } else {
+            storageService.saveChartMaterialization(materialization);
+        }
+        return materialization;
+    }
+
+    /**
+     * New rows can be merged into the stored result if it was computed with
+     * the same query from the same table, and every row it counted is still
+     * there unchanged.
+     */
+    private boolean canMerge(ChartQuery query, ChartMaterialization previous) {
+        if (previous == null || !previous.isAppendOnly() || previous.getWatermark() == null
+                || previous.getSourceRows() == null
+                || !query.getDefinitionHash().equals(previous.getDefinitionHash())
+                || !query.getSourceTable().equals(previous.getSourceTable())) {
+            return false;
+        }
+        RowKeyStats counted = storageService.getRowKeyStats(query.getSourceTable(), previous.getWatermark());
+        if (counted.getRowCount() != previous.getSourceRows()) {
+            log.info("Rows of {} up to {} went from {} to {}, chart {} is recomputed", query.getSourceTable(),
+                    previous.getWatermark(), previous.getSourceRows(), counted.getRowCount(), query.getChartId());
+            return false;
+        }
+        return true;
+    }
+
+    private static ChartMaterialization materialization(ChartQuery query, RefreshMode mode, long rowCount,
+            long startedAt) {
+        long now = System.currentTimeMillis();
+        return ChartMaterialization.builder()
+                .chartId(query.getChartId())
+                .definitionHash(query.getDefinitionHash())
+                .columns(query.getColumns())
+                .sourceTables(query.getTables())
+                .rowCount(rowCount)
+                .refreshMode(mode)
+                .refreshDurationMs(now - startedAt)
+                .refreshedAt(now)
+                .build();
+    }
+
+    private static List<Object> bounds(ChartQuery query, long after, long upTo) {
+        List<Object> parameters = new ArrayList<>(query.getParameters());
+        parameters.add(after);
+        parameters.add(upTo);
+        return parameters;
+    }
+
+    private static List<String> columnTypes(QueryRows rows) {
+        return rows.getTypeNames().stream().map(ChartTableDdl::columnType).toList();
+    }
+
+    /**
+     * Merge the aggregated new rows into the stored rows: groups present in
+     * both are combined column by column, new groups are added, and the result
+     * is sorted again. Rows that are not grouped are appended.
+     */
+    static List<Object[]> merge(ChartQuery query, List<Object[]> stored, List<Object[]> added) {
+        List<String> aggregates = query.getAggregates();
+        boolean grouped = aggregates.stream().anyMatch(aggregate -> aggregate != null);
+        List<Object[]> rows;
+        if (grouped) {
+            Map<List<Object>, Object[]> groups = new LinkedHashMap<>();
+            for (Object[] row : stored) {
+                groups.put(groupKey(aggregates, row), row);
+            }
+            for (Object[] row : added) {
+                Object[] current = groups.putIfAbsent(groupKey(aggregates, row), row);
+                if (current != null) {
+                    for (int i = 0; i < row.length; i++) {
+                        if (aggregates.get(i) != null) {
+                            current[i] = combine(aggregates.get(i), current[i], row[i]);
+                        }
+                    }
+                }
+            }
+            rows = new ArrayList<>(groups.values());
+        } else {
+            rows = new ArrayList<>(stored.size() + added.size());
+            rows.addAll(stored);
+            rows.addAll(added);
+        }
+
+        Comparator<Object[]> order = order(query.getSort());
+        if (order != null) {
+            rows.sort(order);
+        }
+        return rows;
+    }
+
+    private static List<Object> groupKey(List<String> aggregates, Object[] row) {
+        List<Object> key = new ArrayList<>();
+        for (int i = 0; i < row.length; i++) {
+            if (aggregates.get(i) == null) {
+                key.add(normalize(row[i]));
+            }
+        }
+        return key;
+    }
+
+    private static Object combine(String function, Object current, Object added) {
+        if (current == null) {
+            return added;
+        }
+        if (added == null) {
+            return current;
+        }
+        return switch (function.toUpperCase(Locale.ROOT)) {
+            case "SUM", "COUNT" -> decimal(current).add(decimal(added));
+            case "MIN" -> compare(current, added) <= 0 ? current : added;
+            case "MAX" -> compare(current, added) >= 0 ? current : added;
+            default -> throw new IllegalStateException("Cannot merge " + function);
+        };
+    }
+
+    private static Comparator<Object[]> order(List<String> sort) {
+        Comparator<Object[]> order = null;
+        for (String entry : sort != null ? sort : List.<String>of()) {
+            String[] parts = entry.trim().split("\\s+");
+            int column = Integer.parseInt(parts[0]);
+            // Nulls sort first, as in TiDB
+            Comparator<Object[]> byColumn = (a, b) -> compare(a[column], b[column]);
+            if (parts.length > 1 && parts[1].equalsIgnoreCase("DESC")) {
+                byColumn = byColumn.reversed();
+            }
+            order = order == null ? byColumn : order.thenComparing(byColumn);
+        }
+        return order;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compare(Object a, Object b) {
+        Object left = normalize(a);
+        Object right = normalize(b);
+        if (left == null || right == null) {
+            return left == right ? 0 : left == null ? -1 : 1;
+        }
+        if (left.getClass() == right.getClass() && left instanceof Comparable comparable) {
+            return comparable.compareTo(right);
+        }
+        return left.toString().compareTo(right.toString());
+    }
+
+    private static BigDecimal decimal(Object value) {
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+
+    /**
+     * The same value read from the source and from the chart table may come
+     * back as different types, such as an integer and a decimal.
+     */
+    private static Object normalize(Object value) {
+        if (value instanceof Number number) {
+            return decimal(number).stripTrailingZeros();
+        }
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        if (value instanceof Date date) {
+            return date.toLocalDate();
+        }
+        if (value instanceof Time time) {
+            return time.toLocalTime();
+        }
+        if (value instanceof byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+}
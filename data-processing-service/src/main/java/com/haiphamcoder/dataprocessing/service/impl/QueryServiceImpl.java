@@ -1,152 +1,194 @@
 package com.haiphamcoder.dataprocessing.service.impl;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
-import org.json.JSONObject;
-import org.springframework.scheduling.TaskScheduler;
-import org.springframework.scheduling.concurrent.ConcurrentTaskScheduler;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.support.CronExpression;
 import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.scheduling.support.SimpleTriggerContext;
 import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.haiphamcoder.dataprocessing.domain.dto.SourceDto;
-import com.haiphamcoder.dataprocessing.domain.model.ChartSchedule;
+import com.haiphamcoder.dataprocessing.config.properties.ChartScheduleProperties;
+import com.haiphamcoder.dataprocessing.domain.entity.ChartSchedule;
+import com.haiphamcoder.dataprocessing.domain.exception.business.detail.InvalidInputException;
+import com.haiphamcoder.dataprocessing.domain.model.ChartMaterialization;
+import com.haiphamcoder.dataprocessing.repository.ChartScheduleRepository;
+import com.haiphamcoder.dataprocessing.service.MaterializationService;
 import com.haiphamcoder.dataprocessing.service.QueryService;
-import com.haiphamcoder.dataprocessing.service.StorageService;
-import com.haiphamcoder.dataprocessing.shared.MapperUtils;
+import com.haiphamcoder.dataprocessing.shared.concurrent.ThreadPool;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Runs chart refreshes on their cron schedules. Schedules are stored in
+ * {@code chart_schedule}; every {@code chart.schedule.poll-interval-ms} each
+ * replica leases as many due schedules as it has free workers and queue
+ * slots, so a run happens on one replica only. Leases of running refreshes
+ * are renewed at every poll, and a lease left by a replica that stopped
+ * expires after {@code chart.schedule.lease-seconds}. Fire times missed while
+ * no replica was running are run once, then the schedule moves on from now.
+ */
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class QueryServiceImpl implements QueryService {
-    private final StorageService storageService;
-    private final TaskScheduler taskScheduler = new ConcurrentTaskScheduler(
-            Executors.newScheduledThreadPool(10));
-    private final Map<Long, ScheduledFuture<?>> scheduledTasks = new ConcurrentHashMap<>();
-    private final Map<Long, ChartSchedule> schedules = new ConcurrentHashMap<>();
-    private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    @Override
-    public boolean executeAndSaveQuery(Long chartId, JsonNode queryOption) {
-        log.info("Executing query for chart {} with options: {}", chartId, queryOption);
-        if (!validateQuery(queryOption)) {
-            log.error("Invalid query options for chart {}", chartId);
-            return false;
-        }
-
-        try {
-            JsonNode optimizedQuery = optimizeQuery(queryOption);
-
-            // Thực thi query và lấy kết quả
-            List<JSONObject> queryResults = executeQuery(optimizedQuery);
+    private static final String METRIC_PREFIX = "chart.schedule";
+    private static final String STATUS_SCHEDULED = "SCHEDULED";
+    private static final String STATUS_SUCCESS = "SUCCESS";
+    private static final String STATUS_FAILED = "FAILED";
+
+    private final MaterializationService materializationService;
+    private final ChartScheduleRepository chartScheduleRepository;
+    private final ChartScheduleProperties properties;
+    private final ZoneId zone;
+    private final String owner;
+    // Claimed runs, queued or running, whose leases this replica renews
+    private final Set<Long> claimed = ConcurrentHashMap.newKeySet();
+    private final BlockingQueue<Runnable> queue;
+    private final ExecutorService workers;
+    private final int workerCount;
+    private final int queueSize;
+    private final ScheduledExecutorService poller;
+
+    private final Timer lag;
+    private final Timer succeeded;
+    private final Timer failed;
+
+    public QueryServiceImpl(MaterializationService materializationService,
+            ChartScheduleRepository chartScheduleRepository,
+            @Qualifier("chartScheduleProperties") ChartScheduleProperties properties,
+            MeterRegistry meterRegistry) {
+        this.materializationService = materializationService;
+        this.chartScheduleRepository = chartScheduleRepository;
+        this.properties = properties;
+        this.zone = properties.getZone() == null || properties.getZone().isBlank()
+                ? ZoneId.systemDefault()
+                : ZoneId.of(properties.getZone());
+        this.owner = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID();
+        this.workerCount = Math.max(1, properties.getWorkers());
+        this.queueSize = Math.max(1, properties.getQueueSize());
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.workers = ThreadPool.builder()
+                .setCoreSize(workerCount)
+                .setMaxSize(workerCount)
+                .setWorkQueue(queue)
+                .setNamePrefix("chart-schedule-")
+                .setDaemon(true)
+                .build()
+                .getExecutorService();
+        this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chart-schedule-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder(METRIC_PREFIX + ".queue", queue, BlockingQueue::size).register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".claimed", claimed, Set::size).register(meterRegistry);
+        this.lag = Timer.builder(METRIC_PREFIX + ".lag")
+                .description("Delay between the fire time of a run and its start")
+                .register(meterRegistry);
+        this.succeeded = Timer.builder(METRIC_PREFIX + ".run").tag("result", "success").register(meterRegistry);
+        this.failed = Timer.builder(METRIC_PREFIX + ".run").tag("result", "failure").register(meterRegistry);
+    }
 
-            // Tạo SourceDto để lưu dữ liệu
-            SourceDto sourceDto = SourceDto.builder()
-                    .id(chartId)
-                    .name("chart_" + chartId)
-                    .config((ObjectNode) optimizedQuery)
-                    .build();
+    @PostConstruct
+    public void start() {
+        if (properties.isEnabled()) {
+            poller.scheduleWithFixedDelay(this::poll, properties.getPollIntervalMs(),
+                    properties.getPollIntervalMs(), TimeUnit.MILLISECONDS);
+        }
+    }
 
-            // Lưu kết quả vào TiDB thông qua StorageService
-            storageService.batchInsert(sourceDto, queryResults);
+    @PreDestroy
+    public void shutdown() {
+        poller.shutdownNow();
+        workers.shutdownNow();
+    }
 
-            updateScheduleStatus(chartId, "SUCCESS");
+    @Override
+    public boolean executeAndSaveQuery(Long chartId) {
+        log.info("Executing query for chart {}", chartId);
+        try {
+            ChartMaterialization materialization = materializationService.refresh(chartId);
+            if (materialization == null) {
+                log.info("Chart {} is already being refreshed", chartId);
+            }
             return true;
         } catch (Exception e) {
             log.error("Error executing query for chart {}: {}", chartId, e.getMessage());
-            updateScheduleStatus(chartId, "FAILED");
             return false;
         }
     }
 
-    private List<JSONObject> executeQuery(JsonNode queryOption) {
-        // TODO: Implement query execution logic here
-        // This is just a placeholder implementation
-        List<JSONObject> results = new ArrayList<>();
-        JSONObject sampleData = new JSONObject();
-        sampleData.put("value", 100);
-        sampleData.put("category", "Sample");
-        results.add(sampleData);
-        return results;
-    }
-
     @Override
     public ChartSchedule scheduleQuery(Long chartId, String cronExpression) {
         log.info("Scheduling query for chart {} with cron expression: {}", chartId, cronExpression);
-        ChartSchedule schedule = ChartSchedule.builder()
-                .chartId(chartId)
-                .cronExpression(cronExpression)
-                .enabled(true)
-                .lastExecutionTime(null)
-                .nextExecutionTime(calculateNextExecutionTime(cronExpression))
-                .status("SCHEDULED")
-                .build();
-
-        schedules.put(chartId, schedule);
-        scheduleTask(chartId, cronExpression);
-        return schedule;
+        validateCron(cronExpression);
+        ChartSchedule schedule = chartScheduleRepository.getScheduleByChartId(chartId)
+                .orElseGet(() -> ChartSchedule.builder().chartId(chartId).build());
+        schedule.setCronExpression(cronExpression);
+        schedule.setEnabled(true);
+        schedule.setStatus(STATUS_SCHEDULED);
+        schedule.setNextFireAt(nextFireAt(cronExpression, System.currentTimeMillis()));
+        return chartScheduleRepository.save(schedule);
     }
 
     @Override
     public ChartSchedule updateSchedule(Long chartId, String cronExpression) {
         log.info("Updating schedule for chart {} with new cron expression: {}", chartId, cronExpression);
-        ChartSchedule schedule = schedules.get(chartId);
-        if (schedule == null) {
-            return scheduleQuery(chartId, cronExpression);
-        }
-
-        cancelScheduledTask(chartId);
-        schedule.setCronExpression(cronExpression);
-        schedule.setNextExecutionTime(calculateNextExecutionTime(cronExpression));
-        scheduleTask(chartId, cronExpression);
-        return schedule;
+        return scheduleQuery(chartId, cronExpression);
     }
 
     @Override
     public void disableSchedule(Long chartId) {
         log.info("Disabling schedule for chart {}", chartId);
-        ChartSchedule schedule = schedules.get(chartId);
-        if (schedule != null) {
+        chartScheduleRepository.getScheduleByChartId(chartId).ifPresent(schedule -> {
             schedule.setEnabled(false);
-            cancelScheduledTask(chartId);
-        }
+            chartScheduleRepository.save(schedule);
+        });
+        // Nothing refreshes the result anymore, so it must not be served
+        materializationService.drop(chartId);
     }
 
     @Override
     public void enableSchedule(Long chartId) {
         log.info("Enabling schedule for chart {}", chartId);
-        ChartSchedule schedule = schedules.get(chartId);
-        if (schedule != null) {
+        chartScheduleRepository.getScheduleByChartId(chartId).ifPresent(schedule -> {
             schedule.setEnabled(true);
-            scheduleTask(chartId, schedule.getCronExpression());
-        }
+            // Fire times passed while disabled are skipped
+            schedule.setNextFireAt(nextFireAt(schedule.getCronExpression(), System.currentTimeMillis()));
+            chartScheduleRepository.save(schedule);
+        });
     }
 
     @Override
     public ChartSchedule getSchedule(Long chartId) {
-        return schedules.get(chartId);
+        return chartScheduleRepository.getScheduleByChartId(chartId).orElse(null);
     }
 
     @Override
     public List<ChartSchedule> getAllActiveSchedules() {
-        List<ChartSchedule> activeSchedules = new ArrayList<>();
-        for (ChartSchedule schedule : schedules.values()) {
-            if (schedule.getEnabled()) {
-                activeSchedules.add(schedule);
-            }
-        }
-        return activeSchedules;
+        return chartScheduleRepository.getEnabledSchedules();
     }
 
     @Override
@@ -184,81 +226,75 @@ public class QueryServiceImpl implements QueryService {
         }
     }
 
-    @Override
-    public JsonNode optimizeQuery(JsonNode queryOption) {
-        if (!validateQuery(queryOption)) {
-            return queryOption;
-        }
-
+    private void poll() {
         try {
-            ObjectNode optimizedQuery = MapperUtils.objectMapper.createObjectNode();
+            long now = System.currentTimeMillis();
+            long leaseUntil = now + properties.getLeaseSeconds() * 1000;
+            chartScheduleRepository.renewLeases(Set.copyOf(claimed), owner, leaseUntil);
 
-            // Copy các trường cơ bản
-            optimizedQuery.set("source", queryOption.get("source"));
-            optimizedQuery.set("fields", queryOption.get("fields"));
-
-            // Tối ưu hóa điều kiện lọc nếu có
-            if (queryOption.has("filters")) {
-                JsonNode filters = queryOption.get("filters");
-                // TODO: Implement filter optimization logic here
-                optimizedQuery.set("filters", filters);
+            int capacity = workerCount + queueSize - claimed.size();
+            if (capacity <= 0) {
+                return;
             }
-
-            // Tối ưu hóa sắp xếp nếu có
-            if (queryOption.has("sort")) {
-                JsonNode sort = queryOption.get("sort");
-                // TODO: Implement sort optimization logic here
-                optimizedQuery.set("sort", sort);
+            for (ChartSchedule schedule : chartScheduleRepository.getDueSchedules(now, capacity)) {
+                if (claimed.contains(schedule.getChartId())
+                        || !chartScheduleRepository.acquireLease(schedule.getChartId(), owner, now, leaseUntil)) {
+                    continue;
+                }
+                claimed.add(schedule.getChartId());
+                try {
+                    workers.execute(() -> run(schedule));
+                } catch (RejectedExecutionException e) {
+                    // The fire time is unchanged, so the next poll claims it again
+                    claimed.remove(schedule.getChartId());
+                    chartScheduleRepository.releaseLease(schedule.getChartId(), owner);
+                }
             }
-
-            // Tối ưu hóa phân trang nếu có
-            if (queryOption.has("pagination")) {
-                JsonNode pagination = queryOption.get("pagination");
-                // TODO: Implement pagination optimization logic here
-                optimizedQuery.set("pagination", pagination);
-            }
-
-            return optimizedQuery;
         } catch (Exception e) {
-            log.error("Error optimizing query: {}", e.getMessage());
-            return queryOption;
+            log.error("Poll chart schedules failed! {}", e.getMessage());
         }
     }
 
-    private void scheduleTask(Long chartId, String cronExpression) {
-        ScheduledFuture<?> scheduledTask = taskScheduler.schedule(
-                () -> executeScheduledQuery(chartId),
-                new CronTrigger(cronExpression));
-        scheduledTasks.put(chartId, scheduledTask);
-    }
-
-    private void cancelScheduledTask(Long chartId) {
-        ScheduledFuture<?> scheduledTask = scheduledTasks.remove(chartId);
-        if (scheduledTask != null) {
-            scheduledTask.cancel(false);
+    private void run(ChartSchedule schedule) {
+        Long chartId = schedule.getChartId();
+        long startedAt = System.currentTimeMillis();
+        lag.record(Math.max(0, startedAt - schedule.getNextFireAt()), TimeUnit.MILLISECONDS);
+        boolean success = false;
+        try {
+            success = executeAndSaveQuery(chartId);
+        } finally {
+            long duration = System.currentTimeMillis() - startedAt;
+            (success ? succeeded : failed).record(duration, TimeUnit.MILLISECONDS);
+            try {
+                // The cron may have been changed while the refresh ran
+                String cronExpression = chartScheduleRepository.getScheduleByChartId(chartId)
+                        .map(ChartSchedule::getCronExpression)
+                        .orElse(schedule.getCronExpression());
+                if (!chartScheduleRepository.completeRun(chartId, owner,
+                        nextFireAt(cronExpression, System.currentTimeMillis()),
+                        success ? STATUS_SUCCESS : STATUS_FAILED, startedAt, duration)) {
+                    log.warn("Lease of chart {} schedule was lost during its run", chartId);
+                }
+            } catch (Exception e) {
+                log.error("Complete schedule run of chart {} failed! {}", chartId, e.getMessage());
+            } finally {
+                claimed.remove(chartId);
+            }
         }
     }
 
-    private void executeScheduledQuery(Long chartId) {
-        ChartSchedule schedule = schedules.get(chartId);
-        if (schedule != null && schedule.getEnabled()) {
-            schedule.setLastExecutionTime(LocalDateTime.now().format(dateFormatter));
-            schedule.setNextExecutionTime(calculateNextExecutionTime(schedule.getCronExpression()));
-            // TODO: Get query options for this chart and execute
-            // chartGrpcClient.getChartById(chartId) để lấy query options
+    private long nextFireAt(String cronExpression, long after) {
+        Instant next = new CronTrigger(cronExpression, zone)
+                .nextExecution(new SimpleTriggerContext(Clock.fixed(Instant.ofEpochMilli(after), zone)));
+        if (next == null) {
+            throw new InvalidInputException("Cron expression " + cronExpression + " never fires");
         }
+        return next.toEpochMilli();
     }
 
-    private String calculateNextExecutionTime(String cronExpression) {
-        // TODO: Implement next execution time calculation based on cron expression
-        return LocalDateTime.now().plusHours(1).format(dateFormatter);
-    }
-
-    private void updateScheduleStatus(Long chartId, String status) {
-        ChartSchedule schedule = schedules.get(chartId);
-        if (schedule != null) {
-            schedule.setStatus(status);
-            schedule.setLastExecutionTime(LocalDateTime.now().format(dateFormatter));
+    private static void validateCron(String cronExpression) {
+        if (cronExpression == null || !CronExpression.isValidExpression(cronExpression)) {
+            throw new InvalidInputException("Invalid cron expression " + cronExpression);
         }
     }
 }
@@ -1,8 +1,12 @@
 package com.haiphamcoder.dataprocessing.service.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.json.JSONObject;
 import org.springframework.stereotype.Service;
@@ -11,14 +15,23 @@ import com.haiphamcoder.dataprocessing.domain.dto.Mapping;
 import com.haiphamcoder.dataprocessing.domain.dto.SourceDto;
 import com.haiphamcoder.dataprocessing.domain.exception.SourceNotFoundException;
 import com.haiphamcoder.dataprocessing.domain.exception.business.detail.InvalidInputException;
+import com.haiphamcoder.dataprocessing.domain.model.ColumnPredicate;
+import com.haiphamcoder.dataprocessing.domain.model.ColumnPredicate.PredicateKind;
 import com.haiphamcoder.dataprocessing.domain.model.GetChartPreviewDataRequest;
 import com.haiphamcoder.dataprocessing.domain.model.PreviewData;
 import com.haiphamcoder.dataprocessing.domain.model.request.UpdateSourceDataRequest;
+import com.haiphamcoder.dataprocessing.service.ChartCacheService;
+import com.haiphamcoder.dataprocessing.service.IndexAdvisorService;
+import com.haiphamcoder.dataprocessing.service.MaterializationService;
 import com.haiphamcoder.dataprocessing.service.RawDataService;
 import com.haiphamcoder.dataprocessing.service.SourceGrpcClient;
 import com.haiphamcoder.dataprocessing.service.StorageService;
+import com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.read.TidbReader;
 import com.haiphamcoder.dataprocessing.shared.MapperUtils;
+import com.haiphamcoder.dataprocessing.shared.PageCursor;
+import com.haiphamcoder.dataprocessing.shared.SqlPredicateExtractor;
 import com.haiphamcoder.dataprocessing.shared.StringUtils;
+import com.haiphamcoder.dataprocessing.shared.TidbDataTypeDetector;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -28,18 +41,36 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class RawDataServiceImpl implements RawDataService {
 
+    private static final Pattern TRAILING_LIMIT = Pattern.compile(
+            "\\s+LIMIT\\s+(\\d+)(?:\\s*,\\s*(\\d+)|\\s+OFFSET\\s+(\\d+))?\\s*;?\\s*$",
+            Pattern.CASE_INSENSITIVE);
+
     private final SourceGrpcClient sourceGrpcClient;
     private final StorageService storageService;
+    private final IndexAdvisorService indexAdvisorService;
+    private final ChartCacheService chartCacheService;
+    private final MaterializationService materializationService;
 
     @Override
-    public PreviewData previewSource(Long sourceId, String search, String searchBy, Integer page, Integer limit) {
+    public PreviewData previewSource(Long sourceId, String search, String searchBy, String cursor, Integer page,
+            Integer limit) {
+        String afterKey = null;
+        if (!StringUtils.isNullOrEmpty(cursor)) {
+            try {
+                afterKey = PageCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                throw new InvalidInputException("Invalid cursor");
+            }
+        }
+
         SourceDto source = sourceGrpcClient.getSourceById(sourceId);
 
         if (source == null || source.getMapping() == null) {
             throw new SourceNotFoundException("Source not found");
         }
 
-        List<JSONObject> data = storageService.getPreviewData(source, search, searchBy, page, limit);
+        List<JSONObject> data = storageService.getPreviewData(source, search, searchBy, afterKey, page, limit);
+        recordSearch(source, search, searchBy);
 
         PreviewData previewData = new PreviewData();
         previewData.setSchema(source.getMapping());
@@ -52,9 +83,30 @@ public class RawDataServiceImpl implements RawDataService {
                 continue;
             }
         }
+        // A full page may be followed by more rows; the cursor resumes after its last row key
+        Object lastKey = data.isEmpty() ? null : data.get(data.size() - 1).opt(TidbReader.ROW_KEY_COLUMN);
+        if (lastKey != null && data.size() == limit) {
+            previewData.setNextCursor(PageCursor.encode(lastKey));
+        }
         return previewData;
     }
 
+    private void recordSearch(SourceDto source, String search, String searchBy) {
+        if (StringUtils.isNullOrEmpty(search) || searchBy == null) {
+            return;
+        }
+        for (Mapping mapping : source.getMapping()) {
+            if (mapping.getFieldMapping().equals(searchBy)) {
+                // Text columns are searched by substring, other columns by equality
+                PredicateKind kind = TidbDataTypeDetector.isStringType(mapping.getFieldType())
+                        ? PredicateKind.CONTAINS_LIKE
+                        : PredicateKind.EQUALITY;
+                indexAdvisorService.record(new ColumnPredicate(source.getTableName(), searchBy, kind));
+                return;
+            }
+        }
+    }
+
     @Override
     public void updateSourceData(Long sourceId, UpdateSourceDataRequest request) {
         SourceDto source = sourceGrpcClient.getSourceById(sourceId);
@@ -68,6 +120,9 @@ public class RawDataServiceImpl implements RawDataService {
         }
 
         storageService.updateSourceData(source, data);
+        chartCacheService.invalidateTable(source.getTableName());
+        // Edited rows cannot be merged, the charts reading them are recomputed
+        materializationService.sourceChanged(source.getTableName());
     }
 
     @Override
@@ -76,12 +131,18 @@ public class RawDataServiceImpl implements RawDataService {
             throw new InvalidInputException("SQL query is required");
         }
 
-        String sqlQuery = request.getSqlQuery();
-        if (!sqlQuery.contains("limit") && !sqlQuery.contains("offset")) {
-            sqlQuery = sqlQuery + " limit " + limit + " offset " + page * limit;
+        List<JSONObject> data;
+        if (request.getParameters() != null && !request.getParameters().isEmpty()) {
+            data = queryData(request.getChartId(), request.getSqlQuery(), request.getParameters(),
+                    SqlPredicateExtractor.extractTables(request.getSqlQuery()));
+        } else {
+            List<Object> parameters = new ArrayList<>(2);
+            String sqlQuery = paginate(request.getSqlQuery(), page, limit, parameters);
+            data = chartCacheService.getOrLoad(request.getChartId(), sqlQuery, parameters,
+                    SqlPredicateExtractor.extractTables(request.getSqlQuery()),
+                    () -> storageService.getPreviewDataByQuery(sqlQuery, parameters));
+            indexAdvisorService.recordQuery(request.getSqlQuery());
         }
-
-        List<JSONObject> data = storageService.getPreviewDataByQuery(sqlQuery);
         PreviewData previewData = new PreviewData();
         previewData.setSchema(request.getFields().stream().map(field -> Mapping.builder()
                 .fieldName(StringUtils.isNullOrEmpty(field.getAlias()) ? field.getFieldName() : field.getAlias())
@@ -97,12 +158,66 @@ public class RawDataServiceImpl implements RawDataService {
         return previewData;
     }
 
+    @Override
+    public List<JSONObject> queryData(Long chartId, String sqlQuery, List<Object> parameters,
+            Collection<String> tables) {
+        if (StringUtils.isNullOrEmpty(sqlQuery)) {
+            throw new InvalidInputException("SQL query is required");
+        }
+        List<JSONObject> data = chartCacheService.getOrLoad(chartId, sqlQuery, parameters, tables,
+                () -> storageService.getPreviewDataByQuery(sqlQuery, parameters));
+        indexAdvisorService.recordQuery(sqlQuery);
+        return data;
+    }
+
+    @Override
+    public List<Map<String, Object>> explainQuery(String sqlQuery) {
+        if (StringUtils.isNullOrEmpty(sqlQuery) || !sqlQuery.trim().regionMatches(true, 0, "SELECT", 0, 6)) {
+            throw new InvalidInputException("Only SELECT queries can be explained");
+        }
+        return storageService.explainQuery(sqlQuery);
+    }
+
+    /**
+     * Page a raw chart query with bound {@code LIMIT ? OFFSET ?}. A trailing
+     * {@code LIMIT} written in the query is the row limit of the chart, so it
+     * caps the pages instead of replacing them.
+     */
+    private static String paginate(String sqlQuery, Integer page, Integer limit, List<Object> parameters) {
+        String sql = sqlQuery.trim();
+        long rowLimit = -1;
+        long baseOffset = 0;
+        Matcher matcher = TRAILING_LIMIT.matcher(sql);
+        if (matcher.find()) {
+            if (matcher.group(2) != null) {
+                // LIMIT offset, count
+                baseOffset = Long.parseLong(matcher.group(1));
+                rowLimit = Long.parseLong(matcher.group(2));
+            } else {
+                rowLimit = Long.parseLong(matcher.group(1));
+                baseOffset = matcher.group(3) != null ? Long.parseLong(matcher.group(3)) : 0;
+            }
+            sql = sql.substring(0, matcher.start());
+        } else if (sql.endsWith(";")) {
+            sql = sql.substring(0, sql.length() - 1);
+        }
+
+        int pageSize = Math.max(1, limit != null ? limit : 10);
+        long start = (long) Math.max(0, page != null ? page : 0) * pageSize;
+        long rows = rowLimit >= 0 ? Math.max(0, Math.min(pageSize, rowLimit - start)) : pageSize;
+        parameters.add(rows);
+        parameters.add(baseOffset + start);
+        return sql + " LIMIT ? OFFSET ?";
+    }
+
     @Override
     public boolean cloneTable(String sourceTable, String targetTable) {
         if (StringUtils.isNullOrEmpty(sourceTable) || StringUtils.isNullOrEmpty(targetTable)) {
             throw new InvalidInputException("Source table and target table are required");
         }
         storageService.cloneTable(sourceTable, targetTable);
+        chartCacheService.invalidateTable(targetTable);
+        materializationService.sourceChanged(targetTable);
         return true;
     }
 }
@@ -1,19 +1,37 @@
 package com.haiphamcoder.dataprocessing.service.impl;
 
+import java.io.IOException;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
 
 import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.haiphamcoder.dataprocessing.domain.dto.Mapping;
 import com.haiphamcoder.dataprocessing.domain.dto.SourceDto;
+import com.haiphamcoder.dataprocessing.domain.exception.technical.detail.DatabaseQueryException;
+import com.haiphamcoder.dataprocessing.domain.model.ChartMaterialization;
+import com.haiphamcoder.dataprocessing.domain.model.ImportCheckpoint;
+import com.haiphamcoder.dataprocessing.domain.model.QueryRows;
+import com.haiphamcoder.dataprocessing.domain.model.RecordBatch;
+import com.haiphamcoder.dataprocessing.domain.model.RowKeyStats;
 import com.haiphamcoder.dataprocessing.service.StorageService;
 import com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.read.TidbReader;
 import com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.read.CustomResultSet;
+import com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.read.StreamingResultSet;
+import com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.write.ChartTableDdl;
+import com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.write.SourceTableDdl;
+import com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.write.SourceTableMigrator;
 import com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.write.TidbWriter;
 
 import lombok.extern.slf4j.Slf4j;
@@ -22,29 +40,55 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class StorageServiceImpl implements StorageService {
 
-    private final String url;
-    private final String username;
-    private final String password;
+    private final DataSource readDataSource;
+    private final DataSource writeDataSource;
+    private final int fetchSize;
+    private final long maxResultBytes;
+    private final int rowsPerStatement;
+    private final long bytesPerStatement;
+    private final int shardRowIdBits;
+    private final long regionSizeBytes;
+    private volatile boolean checkpointTableReady;
+    private volatile boolean materializationTableReady;
+    // Tables known to have a numeric row key. A migration only turns text keys into numeric
+    // ones, so text answers are not cached and a migrated table is picked up on its next use
+    private final Set<String> numericRowKeyTables = ConcurrentHashMap.newKeySet();
+
+    public StorageServiceImpl(@Qualifier("tidbReadDataSource") DataSource readDataSource,
+            @Qualifier("tidbWriteDataSource") DataSource writeDataSource,
+            @Value("${tidb.query.fetch-size:1000}") int fetchSize,
+            @Value("${tidb.query.max-result-size-mb:64}") long maxResultSizeMb,
+            @Value("${tidb.write.rows-per-statement:200}") int rowsPerStatement,
+            @Value("${tidb.write.bytes-per-statement-kb:1024}") long bytesPerStatementKb,
+            @Value("${tidb.table.shard-row-id-bits:4}") int shardRowIdBits,
+            @Value("${tidb.table.region-size-mb:96}") long regionSizeMb) {
+        this.readDataSource = readDataSource;
+        this.writeDataSource = writeDataSource;
+        this.fetchSize = fetchSize;
+        this.maxResultBytes = maxResultSizeMb * 1024 * 1024;
+        this.rowsPerStatement = rowsPerStatement;
+        this.bytesPerStatement = bytesPerStatementKb * 1024;
+        this.shardRowIdBits = shardRowIdBits;
+        this.regionSizeBytes = regionSizeMb * 1024 * 1024;
+    }
 
-    public StorageServiceImpl(@Value("${tidb.datasource.url}") String url,
-            @Value("${tidb.datasource.username}") String username,
-            @Value("${tidb.datasource.password}") String password) {
-        this.url = url;
-        this.username = username;
-        this.password = password;
+    private TidbWriter createWriter() {
+        return new TidbWriter(writeDataSource, rowsPerStatement, bytesPerStatement);
     }
 
     @Override
-    public List<Mapping> createStorageSource(SourceDto sourceDto) {
+    public List<Mapping> createStorageSource(SourceDto sourceDto, long expectedBytes) {
         String tableName = sourceDto.getTableName();
         Map<String, String> schemaMap = new LinkedHashMap<>();
-        schemaMap.put("_id_", "text");
         for (Mapping mapping : sourceDto.getMapping()) {
             schemaMap.put(mapping.getFieldMapping(), mapping.getFieldType());
         }
+        int preSplitBits = SourceTableDdl.preSplitBits(expectedBytes, regionSizeBytes, shardRowIdBits);
 
-        try (TidbWriter tidbWriter = new TidbWriter(url, username, password)) {
-            tidbWriter.createTable(tableName, schemaMap);
+        try (TidbWriter tidbWriter = createWriter()) {
+            numericRowKeyTables.remove(tableName);
+            tidbWriter.createSourceTable(tableName, schemaMap, shardRowIdBits, preSplitBits);
+            log.info("Created table {} pre-split into {} regions", tableName, 1 << preSplitBits);
         } catch (Exception e) {
             log.error("Create table failed! {}", e.getMessage());
         }
@@ -56,8 +100,9 @@ public class StorageServiceImpl implements StorageService {
     public void updateSourceData(SourceDto sourceDto, Map<String, Object> data) {
         String tableName = sourceDto.getTableName();
 
-        try (TidbWriter tidbWriter = new TidbWriter(url, username, password)) {
-            tidbWriter.update(tableName, data.get("_id_").toString(), data);
+        try (TidbWriter tidbWriter = createWriter()) {
+            tidbWriter.update(tableName, data.get(SourceTableDdl.ROW_KEY_COLUMN).toString(), data,
+                    isNumericRowKey(tableName));
         } catch (Exception e) {
             e.printStackTrace();
             log.error("Update source data failed! {}", e.getMessage());
@@ -72,8 +117,8 @@ public class StorageServiceImpl implements StorageService {
         String tableName = sourceDto.getTableName();
         List<Mapping> mappings = sourceDto.getMapping();
 
-        try (TidbWriter tidbWriter = new TidbWriter(url, username, password)) {
-            tidbWriter.batchInsert(tableName, mappings, data);
+        try (TidbWriter tidbWriter = createWriter()) {
+            tidbWriter.batchInsert(tableName, mappings, data, isNumericRowKey(tableName));
         } catch (Exception e) {
             log.error("Batch inserting failed! {}", e.getMessage());
         }
@@ -81,13 +126,61 @@ public class StorageServiceImpl implements StorageService {
     }
 
     @Override
-    public List<JSONObject> getPreviewData(SourceDto sourceDto, String search, String searchBy, Integer page,
-            Integer limit) {
+    public void batchInsert(SourceDto sourceDto, RecordBatch batch, ImportCheckpoint checkpoint) {
+        log.info("Batch inserting chunk {} ({} records) into {}", checkpoint.getSequence(), batch.getRowCount(),
+                sourceDto.getTableName());
+
+        try (TidbWriter tidbWriter = createWriter()) {
+            ensureCheckpointTable();
+            tidbWriter.batchInsert(sourceDto.getTableName(), sourceDto.getMapping(), batch, checkpoint,
+                    isNumericRowKey(sourceDto.getTableName()));
+        } catch (Exception e) {
+            log.error("Batch inserting chunk {} failed! {}", checkpoint.getSequence(), e.getMessage());
+            throw new RuntimeException("Batch inserting chunk failed! " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public List<ImportCheckpoint> getImportCheckpoints(Long sourceId) {
+        // Checkpoints are read through the write pool so a follower never returns a stale view
+        try (TidbReader tidbReader = new TidbReader(writeDataSource)) {
+            ensureCheckpointTable();
+            return tidbReader.getImportCheckpoints(sourceId);
+        } catch (Exception e) {
+            log.error("Get import checkpoints failed! {}", e.getMessage());
+            throw new RuntimeException("Get import checkpoints failed! " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void clearImportCheckpoints(Long sourceId) {
+        try (TidbWriter tidbWriter = createWriter()) {
+            ensureCheckpointTable();
+            tidbWriter.deleteCheckpoints(sourceId);
+        } catch (Exception e) {
+            log.error("Clear import checkpoints failed! {}", e.getMessage());
+        }
+    }
+
+    private void ensureCheckpointTable() throws SQLException, IOException {
+        if (checkpointTableReady) {
+            return;
+        }
+        try (TidbWriter tidbWriter = createWriter()) {
+            tidbWriter.createCheckpointTable();
+        }
+        checkpointTableReady = true;
+    }
+
+    @Override
+    public List<JSONObject> getPreviewData(SourceDto sourceDto, String search, String searchBy, String afterKey,
+            Integer page, Integer limit) {
         String tableName = sourceDto.getTableName();
         List<Mapping> mappings = sourceDto.getMapping();
 
-        try (TidbReader tidbReader = new TidbReader(url, username, password)) {
-            return tidbReader.getPreviewData(tableName, mappings, search, searchBy, page, limit);
+        try (TidbReader tidbReader = new TidbReader(readDataSource)) {
+            return tidbReader.getPreviewData(tableName, mappings, search, searchBy, afterKey, page, limit,
+                    isNumericRowKey(tableName));
         } catch (Exception e) {
             log.error("Get preview data failed! {}", e.getMessage());
             return new ArrayList<>();
@@ -96,35 +189,60 @@ public class StorageServiceImpl implements StorageService {
 
     @Override
     public List<JSONObject> getPreviewDataByQuery(String sqlQuery) {
-        try (TidbReader tidbReader = new TidbReader(url, username, password)) {
-            return tidbReader.getPreviewDataByQuery(sqlQuery);
+        return getPreviewDataByQuery(sqlQuery, List.of());
+    }
+
+    @Override
+    public List<JSONObject> getPreviewDataByQuery(String sqlQuery, List<Object> parameters) {
+        try (TidbReader tidbReader = new TidbReader(readDataSource)) {
+            return tidbReader.getPreviewDataByQuery(sqlQuery, parameters, fetchSize, maxResultBytes);
+        } catch (DatabaseQueryException e) {
+            log.error("Get preview data by query failed! {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
             log.error("Get preview data by query failed! {}", e.getMessage());
             return new ArrayList<>();
         }
     }
 
+    @Override
+    public List<Map<String, Object>> explainQuery(String sqlQuery) {
+        try (TidbReader tidbReader = new TidbReader(readDataSource)) {
+            return tidbReader.explain(sqlQuery);
+        } catch (Exception e) {
+            log.error("Explain query failed! {}", e.getMessage());
+            throw new RuntimeException("Explain query failed! " + e.getMessage());
+        }
+    }
+
     @Override
     public void cloneTable(String sourceTable, String targetTable) {
         log.info("Cloning table {} to {}", sourceTable, targetTable);
         
-        // Standard method with schema creation and data copying
-        try (TidbReader tidbReader = new TidbReader(url, username, password);
-             TidbWriter tidbWriter = new TidbWriter(url, username, password)) {
+        // Standard method with schema creation and data copying. The source table is read
+        // through the write pool so a freshly imported table is never read from a lagging follower
+        try (TidbReader tidbReader = new TidbReader(writeDataSource);
+             TidbWriter tidbWriter = createWriter()) {
             
             // Step 1: Get the schema of the source table
             Map<String, String> schema = getTableSchema(tidbReader, sourceTable);
 
             // Step 2: Drop the target table if it exists
+            numericRowKeyTables.remove(targetTable);
             tidbWriter.dropTable(targetTable);
             log.info("Dropped target table {}", targetTable);
             
-            // Step 3: Create the target table with the same schema
-            tidbWriter.createTable(targetTable, schema);
+            // Step 3: Create the target table with the same schema and key
+            boolean numericRowKey = SourceTableDdl.isNumericRowKeyType(schema.get(SourceTableDdl.ROW_KEY_COLUMN));
+            if (numericRowKey) {
+                tidbWriter.createSourceTable(targetTable, schema, shardRowIdBits, 0);
+            } else {
+                tidbWriter.createTable(targetTable, schema);
+            }
             log.info("Created target table {} with schema: {}", targetTable, schema);
             
             // Step 4: Copy data from source to target
-            copyTableData(tidbReader, tidbWriter, sourceTable, targetTable);
+            copyTableData(tidbReader, tidbWriter, sourceTable, targetTable, numericRowKey);
             log.info("Successfully cloned table {} to {}", sourceTable, targetTable);
             
         } catch (Exception e) {
@@ -143,40 +261,15 @@ public class StorageServiceImpl implements StorageService {
 
         for (Map<String, Object> column : columns) {
             String fieldName = column.get("Field").toString();
-            String fieldType = column.get("Type").toString();
-
-            // Convert TiDB types to our internal types
-            String internalType = convertToInternalType(fieldType);
-            schema.put(fieldName, internalType);
+            // Keep the exact column types so values are copied without loss
+            schema.put(fieldName, column.get("Type").toString());
         }
 
         return schema;
     }
 
-    private String convertToInternalType(String tidbType) {
-        String lowerType = tidbType.toLowerCase();
-
-        if (lowerType.contains("varchar") || lowerType.contains("char") ||
-                lowerType.contains("text") || lowerType.contains("json")) {
-            return "text";
-        } else if (lowerType.contains("int") || lowerType.contains("bigint") ||
-                lowerType.contains("smallint") || lowerType.contains("tinyint")) {
-            return "bigint";
-        } else if (lowerType.contains("decimal") || lowerType.contains("float") ||
-                lowerType.contains("double")) {
-            return "decimal";
-        } else if (lowerType.contains("date") || lowerType.contains("datetime") ||
-                lowerType.contains("timestamp")) {
-            return "datetime";
-        } else if (lowerType.contains("boolean") || lowerType.contains("bool")) {
-            return "boolean";
-        } else {
-            return "text"; // Default to text for unknown types
-        }
-    }
-
     private void copyTableData(TidbReader tidbReader, TidbWriter tidbWriter, 
-                              String sourceTable, String targetTable) throws Exception {
+                              String sourceTable, String targetTable, boolean numericRowKey) throws Exception {
         // Method 1: Use INSERT INTO SELECT for faster data copying
         try {
             String insertIntoSelect = "INSERT INTO " + targetTable + " SELECT * FROM " + sourceTable;
@@ -188,72 +281,243 @@ public class StorageServiceImpl implements StorageService {
         }
         
         // Method 2: Fallback to batch insert with pagination for large tables
-        copyTableDataWithPagination(tidbReader, tidbWriter, sourceTable, targetTable);
+        copyTableDataWithPagination(tidbReader, tidbWriter, sourceTable, targetTable, numericRowKey);
     }
     
+    /**
+     * Copy the table page by page in row key order. Each page seeks past the
+     * last key of the previous one, so every page costs the same however deep
+     * into the table it is.
+     */
     private void copyTableDataWithPagination(TidbReader tidbReader, TidbWriter tidbWriter,
-                                           String sourceTable, String targetTable) throws Exception {
+                                           String sourceTable, String targetTable, boolean numericRowKey)
+            throws Exception {
         final int BATCH_SIZE = 500; // Process 500 rows at a time
-        int offset = 0;
+        String rowKey = TidbReader.ROW_KEY_COLUMN;
+        Object lastKey = null;
         int totalCopied = 0;
+        List<Mapping> mappings = null;
         
         while (true) {
-            // Get data in batches
-            String selectSql = String.format("SELECT * FROM %s LIMIT %d OFFSET %d", 
-                                           sourceTable, BATCH_SIZE, offset);
-            CustomResultSet resultSet = tidbReader.executeQuery(selectSql);
-            List<Map<String, Object>> rows = resultSet.getRows();
-            
-            if (rows.isEmpty()) {
-                break; // No more data to copy
-            }
-            
-            // Convert to JSONObject format for batch insert
-            List<JSONObject> jsonData = new ArrayList<>();
-            for (Map<String, Object> row : rows) {
-                JSONObject jsonRow = new JSONObject();
-                for (Map.Entry<String, Object> entry : row.entrySet()) {
-                    jsonRow.put(entry.getKey(), entry.getValue());
-                }
-                jsonData.add(jsonRow);
-            }
-            
-            // Create mappings for the target table (only once)
-            if (offset == 0) {
-                List<Mapping> mappings = new ArrayList<>();
-                for (String columnName : rows.get(0).keySet()) {
-                    if (!"_id_".equals(columnName)) {
-                        Mapping mapping = new Mapping();
-                        mapping.setFieldMapping(columnName);
-                        mapping.setFieldType("text"); // Default type for cloned data
-                        mappings.add(mapping);
+            // Stream each batch through a cursor instead of materializing a CustomResultSet
+            String selectSql = "SELECT * FROM " + sourceTable
+                    + (lastKey != null ? " WHERE " + rowKey + " > ?" : "")
+                    + " ORDER BY " + rowKey + " LIMIT " + BATCH_SIZE;
+            List<Object> parameters = lastKey != null ? List.of(lastKey) : List.of();
+            List<JSONObject> jsonData = new ArrayList<>(BATCH_SIZE);
+            try (StreamingResultSet resultSet = tidbReader.executeStreamingQuery(selectSql, parameters, BATCH_SIZE,
+                    maxResultBytes)) {
+                CustomResultSet.MetaData metaData = resultSet.getMetaData();
+
+                // Create mappings for the target table (only once)
+                if (mappings == null) {
+                    mappings = new ArrayList<>();
+                    for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                        String columnName = metaData.getColumnLabel(i);
+                        if (!rowKey.equals(columnName)) {
+                            Mapping mapping = new Mapping();
+                            mapping.setFieldMapping(columnName);
+                            mapping.setFieldType("text"); // Default type for cloned data
+                            mappings.add(mapping);
+                        }
                     }
                 }
-                
-                // Batch insert data to target table
-                tidbWriter.batchInsert(targetTable, mappings, jsonData);
-            } else {
-                // For subsequent batches, reuse the same mapping structure
-                List<Mapping> mappings = new ArrayList<>();
-                for (String columnName : rows.get(0).keySet()) {
-                    if (!"_id_".equals(columnName)) {
-                        Mapping mapping = new Mapping();
-                        mapping.setFieldMapping(columnName);
-                        mapping.setFieldType("text");
-                        mappings.add(mapping);
+
+                while (resultSet.hasNext()) {
+                    Object[] row = resultSet.next();
+                    JSONObject jsonRow = new JSONObject();
+                    for (int i = 0; i < row.length; i++) {
+                        String columnName = metaData.getColumnLabel(i + 1);
+                        jsonRow.put(columnName, row[i]);
+                        if (rowKey.equals(columnName)) {
+                            lastKey = row[i];
+                        }
                     }
+                    jsonData.add(jsonRow);
                 }
-                tidbWriter.batchInsert(targetTable, mappings, jsonData);
             }
             
-            totalCopied += rows.size();
-            offset += BATCH_SIZE;
+            if (jsonData.isEmpty()) {
+                break; // No more data to copy
+            }
+            
+            tidbWriter.batchInsert(targetTable, mappings, jsonData, numericRowKey);
+            
+            totalCopied += jsonData.size();
             
             log.info("Copied batch of {} rows, total: {} rows from {} to {}", 
-                    rows.size(), totalCopied, sourceTable, targetTable);
+                    jsonData.size(), totalCopied, sourceTable, targetTable);
+
+            if (jsonData.size() < BATCH_SIZE) {
+                break; // Last page
+            }
         }
         
         log.info("Completed copying {} total rows from {} to {}", totalCopied, sourceTable, targetTable);
     }
 
+    @Override
+    public int migrateSourceTables(boolean rebuild, int batchRows) {
+        int migrated = 0;
+        try (SourceTableMigrator migrator = new SourceTableMigrator(writeDataSource)) {
+            List<String> tables = migrator.findLegacyTables();
+            log.info("Found {} source tables with a text row key", tables.size());
+            for (String table : tables) {
+                try {
+                    if (rebuild) {
+                        migrator.rebuild(table, batchRows, shardRowIdBits, regionSizeBytes);
+                        migrated++;
+                    } else if (migrator.addRowKeyIndex(table)) {
+                        migrated++;
+                    }
+                } catch (SQLException e) {
+                    // One broken table must not stop the others
+                    log.error("Migrate table {} failed! {}", table, e.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            log.error("Migrate source tables failed! {}", e.getMessage());
+            throw new RuntimeException("Migrate source tables failed! " + e.getMessage(), e);
+        }
+        return migrated;
+    }
+
+    @Override
+    public QueryRows queryRows(String sqlQuery, List<Object> parameters) {
+        try (TidbReader tidbReader = new TidbReader(writeDataSource)) {
+            return tidbReader.readRows(sqlQuery, parameters, fetchSize, maxResultBytes);
+        } catch (Exception e) {
+            log.error("Query rows failed! {}", e.getMessage());
+            throw new RuntimeException("Query rows failed! " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public RowKeyStats getRowKeyStats(String table, Long upTo) {
+        try (TidbReader tidbReader = new TidbReader(writeDataSource)) {
+            return tidbReader.getRowKeyStats(table, upTo);
+        } catch (Exception e) {
+            log.error("Get row key stats of {} failed! {}", table, e.getMessage());
+            throw new RuntimeException("Get row key stats failed! " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean hasNumericRowKey(String table) {
+        try {
+            return isNumericRowKey(table);
+        } catch (Exception e) {
+            log.error("Get row key type of {} failed! {}", table, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Row keys are bound with the type of the table's own key column: a text
+     * key compared with a number is compared as a double, which cannot tell
+     * neighbouring snowflake ids apart.
+     */
+    private boolean isNumericRowKey(String table) throws SQLException, IOException {
+        if (numericRowKeyTables.contains(table)) {
+            return true;
+        }
+        try (TidbReader tidbReader = new TidbReader(writeDataSource)) {
+            boolean numeric = SourceTableDdl.isNumericRowKeyType(
+                    tidbReader.getColumnDataType(table, SourceTableDdl.ROW_KEY_COLUMN));
+            if (numeric) {
+                numericRowKeyTables.add(table);
+            }
+            return numeric;
+        }
+    }
+
+    @Override
+    public ChartMaterialization getChartMaterialization(Long chartId) {
+        try (TidbReader tidbReader = new TidbReader(writeDataSource)) {
+            ensureMaterializationTable();
+            return tidbReader.getChartMaterialization(chartId);
+        } catch (Exception e) {
+            log.error("Get materialization of chart {} failed! {}", chartId, e.getMessage());
+            throw new RuntimeException("Get chart materialization failed! " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void saveChartMaterialization(ChartMaterialization materialization) {
+        try (TidbWriter tidbWriter = createWriter()) {
+            ensureMaterializationTable();
+            tidbWriter.saveChartMaterialization(materialization);
+        } catch (Exception e) {
+            log.error("Save materialization of chart {} failed! {}", materialization.getChartId(), e.getMessage());
+            throw new RuntimeException("Save chart materialization failed! " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public QueryRows getChartRows(Long chartId, long offset, int limit, boolean latest) {
+        String sql = "SELECT * FROM " + ChartTableDdl.tableName(chartId) + " WHERE " + ChartTableDdl.ROW_COLUMN
+                + " >= ? ORDER BY " + ChartTableDdl.ROW_COLUMN + (limit > 0 ? " LIMIT " + limit : "");
+        try (TidbReader tidbReader = new TidbReader(latest ? writeDataSource : readDataSource)) {
+            QueryRows rows = tidbReader.readRows(sql, List.of(offset), fetchSize, maxResultBytes);
+            // Drop the row number
+            List<Object[]> values = new ArrayList<>(rows.getRows().size());
+            for (Object[] row : rows.getRows()) {
+                values.add(Arrays.copyOfRange(row, 1, row.length));
+            }
+            return new QueryRows(rows.getColumns().subList(1, rows.getColumns().size()),
+                    rows.getTypeNames().subList(1, rows.getTypeNames().size()), values);
+        } catch (Exception e) {
+            log.error("Get rows of chart {} failed! {}", chartId, e.getMessage());
+            throw new RuntimeException("Get chart rows failed! " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void saveChartResult(ChartMaterialization materialization, List<String> columnTypes,
+            List<Object[]> rows) {
+        Long chartId = materialization.getChartId();
+        try (TidbWriter tidbWriter = createWriter()) {
+            ensureMaterializationTable();
+            // If the swap succeeds but the state is never saved, the next refresh must not merge into these rows
+            tidbWriter.clearAppendOnly(chartId);
+            tidbWriter.replaceChartTable(ChartTableDdl.tableName(chartId), columnTypes, rows);
+            tidbWriter.saveChartMaterialization(materialization);
+        } catch (Exception e) {
+            log.error("Save result of chart {} failed! {}", chartId, e.getMessage());
+            throw new RuntimeException("Save chart result failed! " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void markSourceChanged(String sourceTable, boolean inPlace) {
+        try (TidbWriter tidbWriter = createWriter()) {
+            ensureMaterializationTable();
+            tidbWriter.markSourceChanged(sourceTable, inPlace, System.currentTimeMillis());
+        } catch (Exception e) {
+            log.error("Mark materializations of {} changed failed! {}", sourceTable, e.getMessage());
+            throw new RuntimeException("Mark source changed failed! " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void deleteChartResult(Long chartId) {
+        try (TidbWriter tidbWriter = createWriter()) {
+            ensureMaterializationTable();
+            tidbWriter.deleteChartMaterialization(chartId);
+        } catch (Exception e) {
+            log.error("Delete result of chart {} failed! {}", chartId, e.getMessage());
+            throw new RuntimeException("Delete chart result failed! " + e.getMessage(), e);
+        }
+    }
+
+    private void ensureMaterializationTable() throws SQLException, IOException {
+        if (materializationTableReady) {
+            return;
+        }
+        try (TidbWriter tidbWriter = createWriter()) {
+            tidbWriter.createChartMaterializationTable();
+        }
+        materializationTableReady = true;
+    }
+
 }
@@ -0,0 +1,40 @@
+package com.haiphamcoder.dataprocessing.service.impl;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import com.haiphamcoder.dataprocessing.service.UserGrpcClient;
+import com.haiphamcoder.usermanagement.proto.GetUserByIdRequest;
+import com.haiphamcoder.usermanagement.proto.GetUserByIdResponse;
+import com.haiphamcoder.usermanagement.proto.UserServiceGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.StatusRuntimeException;
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@Slf4j
+public class UserGrpcClientImpl implements UserGrpcClient {
+    private static final String ADMIN_ROLE = "admin";
+
+    private final UserServiceGrpc.UserServiceBlockingStub userServiceBlockingStub;
+
+    public UserGrpcClientImpl(@Qualifier("userManagementServiceChannel") ManagedChannel userManagementServiceChannel) {
+        this.userServiceBlockingStub = UserServiceGrpc.newBlockingStub(userManagementServiceChannel);
+    }
+
+    @Override
+    public boolean isAdmin(Long userId) {
+        if (userId == null) {
+            return false;
+        }
+        try {
+            GetUserByIdRequest request = GetUserByIdRequest.newBuilder().setId(userId).build();
+            GetUserByIdResponse response = userServiceBlockingStub.getUserById(request);
+            return response.hasUser() && !response.getUser().getDeleted()
+                    && ADMIN_ROLE.equalsIgnoreCase(response.getUser().getRole());
+        } catch (StatusRuntimeException e) {
+            log.warn("Get user {} failed! {}", userId, e.getStatus());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.haiphamcoder.dataprocessing.shared;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Opaque continuation token for keyset pagination. The token carries the row
+ * key of the last row of a page; the next page starts after it.
+ */
+@UtilityClass
+public class PageCursor {
+
+    public static String encode(Object lastKey) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(lastKey).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the row key carried by the token
+     * @throws IllegalArgumentException if the token is not a valid cursor
+     */
+    public static String decode(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+
+}
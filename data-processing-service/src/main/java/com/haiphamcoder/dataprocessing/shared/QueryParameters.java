@@ -0,0 +1,40 @@
+package com.haiphamcoder.dataprocessing.shared;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public class QueryParameters {
+
+    /**
+     * Parse the JSON array of values bound to the placeholders of a query
+     * compiled by the reporting service.
+     */
+    public static List<Object> parse(String parameters) throws IOException {
+        List<Object> values = new ArrayList<>();
+        if (StringUtils.isNullOrEmpty(parameters)) {
+            return values;
+        }
+        // Integers are bound as longs and decimals exactly, as the compiler typed them
+        for (JsonNode value : MapperUtils.objectMapper.readTree(parameters)) {
+            if (value.isNull()) {
+                values.add(null);
+            } else if (value.isIntegralNumber()) {
+                values.add(value.longValue());
+            } else if (value.isNumber()) {
+                values.add(value.decimalValue());
+            } else if (value.isBoolean()) {
+                values.add(value.booleanValue());
+            } else {
+                values.add(value.asText());
+            }
+        }
+        return values;
+    }
+
+}
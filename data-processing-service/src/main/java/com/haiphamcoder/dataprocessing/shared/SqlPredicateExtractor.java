@@ -0,0 +1,219 @@
+package com.haiphamcoder.dataprocessing.shared;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.haiphamcoder.dataprocessing.domain.model.ColumnPredicate;
+import com.haiphamcoder.dataprocessing.domain.model.ColumnPredicate.PredicateKind;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Pulls the filtered and grouped columns out of the chart queries built by the
+ * query builder ({@code SELECT ... FROM t AS a JOIN u AS b ON ... WHERE
+ * a.col = '...' GROUP BY a.col ...}).
+ * <p>
+ * This is not a SQL parser: it only recognizes {@code prefix.column} or plain
+ * {@code column} references followed by a comparison in the {@code WHERE}
+ * clause, and the columns of the {@code GROUP BY} clause. Anything it does not
+ * recognize is ignored, so the result is a lower bound of the columns used.
+ */
+@UtilityClass
+public class SqlPredicateExtractor {
+
+    private static final String IDENTIFIER = "`?([A-Za-z_][A-Za-z0-9_]*)`?";
+    private static final Pattern TABLE = Pattern.compile(
+            "\\b(?:FROM|JOIN)\\s+" + IDENTIFIER + "(?:\\s+(?:AS\\s+)?" + IDENTIFIER + ")?",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern TABLE_KEYWORD = Pattern.compile("\\b(?:FROM|JOIN)\\b", Pattern.CASE_INSENSITIVE);
+    // A table reference with its alias, and what follows it when that makes the name unsafe to take as is
+    private static final Pattern TABLE_REFERENCE = Pattern.compile(
+            "(?:FROM|JOIN)\\s+" + IDENTIFIER + "(?:\\s+(?:AS\\s+)?(?!(?:WHERE|ON|USING|JOIN|INNER|LEFT|RIGHT|FULL|CROSS"
+                    + "|NATURAL|STRAIGHT_JOIN|GROUP|HAVING|ORDER|LIMIT|UNION|WINDOW|FOR)\\b)" + IDENTIFIER
+                    + ")?\\s*([.,(])?",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern CONDITION = Pattern.compile(
+            "(?:" + IDENTIFIER + "\\.)?" + IDENTIFIER
+                    + "\\s*(NOT\\s+LIKE|LIKE|NOT\\s+IN|IN|BETWEEN|IS|<=|>=|<>|!=|=|<|>)\\s*('?)(%?)",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern COLUMN = Pattern.compile("^(?:" + IDENTIFIER + "\\.)?" + IDENTIFIER + "$");
+    private static final Pattern CLAUSE_END = Pattern.compile(
+            "\\b(GROUP\\s+BY|HAVING|ORDER\\s+BY|LIMIT|OFFSET)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+
+    /**
+     * @return the column predicates found in the query, with prefixes resolved
+     *         to table names
+     */
+    public static List<ColumnPredicate> extract(String sql) {
+        List<ColumnPredicate> predicates = new ArrayList<>();
+        if (sql == null || sql.isBlank()) {
+            return predicates;
+        }
+
+        // Literals are blanked (keeping a leading %) so their content never looks like a column
+        String query = blankLiterals(sql);
+        Map<String, String> tables = new HashMap<>();
+        String mainTable = null;
+        Matcher tableMatcher = TABLE.matcher(query);
+        while (tableMatcher.find()) {
+            String table = tableMatcher.group(1);
+            String alias = tableMatcher.group(2);
+            if (mainTable == null) {
+                mainTable = table;
+            }
+            tables.put(table.toLowerCase(Locale.ROOT), table);
+            if (alias != null && !isKeyword(alias)) {
+                tables.put(alias.toLowerCase(Locale.ROOT), table);
+            }
+        }
+        if (mainTable == null) {
+            return predicates;
+        }
+
+        String upper = query.toUpperCase(Locale.ROOT);
+        int where = indexOfWord(upper, "WHERE", 0);
+        if (where >= 0) {
+            int end = clauseEnd(query, where);
+            Matcher condition = CONDITION.matcher(query.substring(where + 5, end));
+            while (condition.find()) {
+                String table = resolve(tables, condition.group(1), mainTable);
+                String column = condition.group(2);
+                if (table != null && !isKeyword(column)) {
+                    predicates.add(new ColumnPredicate(table, column,
+                            kindOf(condition.group(3), !condition.group(4).isEmpty(),
+                                    !condition.group(5).isEmpty())));
+                }
+            }
+        }
+
+        int groupBy = indexOfWord(upper, "GROUP BY", 0);
+        if (groupBy >= 0) {
+            int end = clauseEnd(query, groupBy + 8);
+            for (String item : query.substring(groupBy + 8, end).split(",")) {
+                Matcher column = COLUMN.matcher(item.trim());
+                if (column.matches()) {
+                    String table = resolve(tables, column.group(1), mainTable);
+                    if (table != null) {
+                        predicates.add(new ColumnPredicate(table, column.group(2), PredicateKind.GROUP_BY));
+                    }
+                }
+            }
+        }
+        return predicates;
+    }
+
+    /**
+     * @return the lower-cased names of the tables the query reads, from its
+     *         {@code FROM} and {@code JOIN} clauses, or an empty set when one
+     *         of them is not a plain table name: a subquery, a
+     *         schema-qualified name or a comma-separated table list
+     */
+    public static Set<String> extractTables(String sql) {
+        Set<String> tables = new TreeSet<>();
+        if (sql == null || sql.isBlank()) {
+            return tables;
+        }
+        String query = blankLiterals(sql);
+        Matcher keyword = TABLE_KEYWORD.matcher(query);
+        Matcher tableMatcher = TABLE_REFERENCE.matcher(query);
+        while (keyword.find()) {
+            tableMatcher.region(keyword.start(), query.length());
+            if (!tableMatcher.lookingAt() || tableMatcher.group(3) != null) {
+                return new TreeSet<>();
+            }
+            tables.add(tableMatcher.group(1).toLowerCase(Locale.ROOT));
+        }
+        return tables;
+    }
+
+    private static PredicateKind kindOf(String operator, boolean quoted, boolean leadingWildcard) {
+        String op = operator.toUpperCase(Locale.ROOT).replaceAll("\\s+", " ");
+        switch (op) {
+            case "LIKE":
+                return quoted && !leadingWildcard ? PredicateKind.PREFIX_LIKE : PredicateKind.CONTAINS_LIKE;
+            case "NOT LIKE":
+                return PredicateKind.CONTAINS_LIKE;
+            case "<":
+            case ">":
+            case "<=":
+            case ">=":
+            case "BETWEEN":
+                return PredicateKind.RANGE;
+            case "<>":
+            case "!=":
+            case "NOT IN":
+                return PredicateKind.NOT_EQUAL;
+            default:
+                return PredicateKind.EQUALITY;
+        }
+    }
+
+    private static String resolve(Map<String, String> tables, String prefix, String mainTable) {
+        if (prefix == null) {
+            return tables.size() <= 2 ? mainTable : null;
+        }
+        return tables.get(prefix.toLowerCase(Locale.ROOT));
+    }
+
+    private static String blankLiterals(String sql) {
+        Matcher matcher = STRING_LITERAL.matcher(sql);
+        StringBuilder result = new StringBuilder(sql.length());
+        while (matcher.find()) {
+            String literal = matcher.group();
+            matcher.appendReplacement(result, literal.startsWith("'%") ? "'%'" : "''");
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    private static int clauseEnd(String query, int from) {
+        Matcher matcher = CLAUSE_END.matcher(query);
+        return matcher.find(from) ? matcher.start() : query.length();
+    }
+
+    private static int indexOfWord(String upper, String word, int from) {
+        int index = upper.indexOf(word, from);
+        while (index >= 0) {
+            boolean start = index == 0 || !Character.isLetterOrDigit(upper.charAt(index - 1));
+            int after = index + word.length();
+            boolean end = after >= upper.length() || !Character.isLetterOrDigit(upper.charAt(after));
+            if (start && end) {
+                return index;
+            }
+            index = upper.indexOf(word, index + 1);
+        }
+        return -1;
+    }
+
+    private static boolean isKeyword(String word) {
+        switch (word.toUpperCase(Locale.ROOT)) {
+            case "WHERE":
+            case "ON":
+            case "JOIN":
+            case "INNER":
+            case "LEFT":
+            case "RIGHT":
+            case "CROSS":
+            case "NATURAL":
+            case "GROUP":
+            case "ORDER":
+            case "LIMIT":
+            case "AND":
+            case "OR":
+            case "NOT":
+            case "NULL":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+}
@@ -87,5 +87,17 @@ public class TidbDataTypeDetector {
 
         return DataType.TEXT;
     }
-    
+
+    /**
+     * @return true for character column types such as {@code text} or
+     *         {@code VARCHAR(64)}
+     */
+    public static boolean isStringType(String fieldType) {
+        if (fieldType == null) {
+            return false;
+        }
+        String type = fieldType.toLowerCase();
+        return type.contains("char") || type.contains("text");
+    }
+
 }
@@ -0,0 +1,367 @@
+package com.haiphamcoder.dataprocessing.shared;
+
+import java.util.List;
+
+/**
+ * Infers the narrowest TiDB column type that holds every value of a column.
+ * <p>
+ * Every value of the column is passed to {@link #observe} and checked against
+ * integer, decimal, double, date, datetime and time syntax with hand-written
+ * parsers that read the string in place, so no exception, regex or boxed
+ * number is created per value. A type stays a candidate while every non-empty
+ * value parses, so a single {@code N/A} anywhere in the file turns the column
+ * into a string. Sampled values passed to {@link #accept} are checked the same
+ * way and decide whether the column has any value at all.
+ * {@link #resolveType()} picks the first remaining candidate and sizes it from
+ * the widths seen, with some headroom for rows added later:
+ * <ul>
+ * <li>{@code INT} or {@code BIGINT} for integers</li>
+ * <li>{@code DECIMAL(p,s)} for plain decimals, {@code DOUBLE} for exponents or
+ * more than 65 digits</li>
+ * <li>{@code DATE}, {@code DATETIME(fsp)} and {@code TIME(fsp)}</li>
+ * <li>{@code VARCHAR(n)} for short strings, {@code TEXT} otherwise</li>
+ * </ul>
+ * Values with surrounding whitespace and integers with leading zeros (codes
+ * such as {@code 00123}) are kept as strings. Booleans are strings too since
+ * {@code true}/{@code false} are not accepted by numeric columns.
+ */
+public class TidbTypeInferrer {
+
+    private static final int MAX_DECIMAL_PRECISION = 65;
+    private static final int MAX_VARCHAR_LENGTH = 1024;
+    private static final int MIN_VARCHAR_LENGTH = 16;
+    private static final int DECIMAL_INTEGER_HEADROOM = 2;
+    private static final int MAX_LONG_DIGITS = 18;
+    /** INT is used only when the sampled values are 16 times below its range. */
+    private static final long INT_LIMIT = Integer.MAX_VALUE >> 4;
+
+    private boolean isInteger = true;
+    private boolean isDecimal = true;
+    private boolean isDouble = true;
+    private boolean isDate = true;
+    private boolean isDateTime = true;
+    private boolean isTime = true;
+
+    private long maxAbsInteger;
+    private int maxIntegerDigits;
+    private int maxScale;
+    private int maxFraction;
+    private int maxLength;
+    private long valueCount;
+
+    // Set by the parsers for the value being checked
+    private int integerDigits;
+    private int scale;
+    private int fraction;
+    private long integerValue;
+
+    public static TidbTypeInferrer[] forColumns(int columnCount) {
+        TidbTypeInferrer[] inferrers = new TidbTypeInferrer[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            inferrers[i] = new TidbTypeInferrer();
+        }
+        return inferrers;
+    }
+
+    /**
+     * Check one row of the column set. Rows shorter than the number of
+     * inferrers only contribute the columns they have.
+     */
+    public static void observeRow(TidbTypeInferrer[] inferrers, String[] row) {
+        for (int i = 0; i < inferrers.length && i < row.length; i++) {
+            inferrers[i].observe(row[i]);
+        }
+    }
+
+    /**
+     * Choose the type of each column from the sampled rows. Rows shorter than
+     * the number of inferrers only contribute the columns they have.
+     *
+     * @return the inferrers
+     */
+    public static TidbTypeInferrer[] inferColumns(List<String[]> sample, TidbTypeInferrer[] inferrers) {
+        for (String[] row : sample) {
+            for (int i = 0; i < inferrers.length && i < row.length; i++) {
+                inferrers[i].accept(row[i]);
+            }
+        }
+        return inferrers;
+    }
+
+    /**
+     * Record the length and numeric width of a value and drop the types it
+     * does not fit. Null and empty values are ignored.
+     */
+    public void observe(String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        check(value);
+    }
+
+    /**
+     * Add a sampled value, which is also observed. Null and empty values do not
+     * constrain the type.
+     */
+    public void accept(String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        valueCount++;
+        check(value);
+    }
+
+    private void check(String value) {
+        maxLength = Math.max(maxLength, value.length());
+        if (isInteger || isDecimal || isDouble) {
+            checkNumber(value);
+        }
+        if (isDate || isDateTime) {
+            checkDateTime(value);
+        }
+        if (isTime) {
+            isTime = parseTime(value, 0) == value.length();
+            if (isTime) {
+                maxFraction = Math.max(maxFraction, fraction);
+            }
+        }
+    }
+
+    /**
+     * @return the column type for a {@code CREATE TABLE} statement; {@code TEXT}
+     *         when no value was sampled
+     */
+    public String resolveType() {
+        if (valueCount == 0) {
+            return "TEXT";
+        }
+        // Integers too long for BIGINT fall through to DECIMAL
+        if (isInteger && maxIntegerDigits <= MAX_LONG_DIGITS) {
+            return maxAbsInteger < INT_LIMIT ? "INT" : "BIGINT";
+        }
+        if (isDecimal) {
+            int integerDigits = maxIntegerDigits + DECIMAL_INTEGER_HEADROOM;
+            int precision = integerDigits + maxScale;
+            if (precision <= MAX_DECIMAL_PRECISION) {
+                return "DECIMAL(" + precision + "," + maxScale + ")";
+            }
+        }
+        if (isDouble) {
+            return "DOUBLE";
+        }
+        if (isDate) {
+            return "DATE";
+        }
+        if (isDateTime) {
+            return maxFraction > 0 ? "DATETIME(" + maxFraction + ")" : "DATETIME";
+        }
+        if (isTime) {
+            return maxFraction > 0 ? "TIME(" + maxFraction + ")" : "TIME";
+        }
+        int length = Integer.highestOneBit(Math.max(maxLength * 2, MIN_VARCHAR_LENGTH) - 1) << 1;
+        return length <= MAX_VARCHAR_LENGTH ? "VARCHAR(" + length + ")" : "TEXT";
+    }
+
+    private void checkNumber(String value) {
+        int end = parseNumber(value);
+        if (end < 0) {
+            isInteger = false;
+            isDecimal = false;
+            isDouble = false;
+            return;
+        }
+        boolean hasExponent = end < value.length();
+        if (hasExponent) {
+            isInteger = false;
+            isDecimal = false;
+            isDouble = parseExponent(value, end);
+            return;
+        }
+        if (scale >= 0 || integerDigits > MAX_LONG_DIGITS) {
+            isInteger = false;
+        }
+        recordNumberWidth();
+    }
+
+    /**
+     * Widen the numeric bounds to the number just parsed by
+     * {@link #parseNumber}.
+     */
+    private void recordNumberWidth() {
+        if (scale < 0 && integerDigits <= MAX_LONG_DIGITS) {
+            maxAbsInteger = Math.max(maxAbsInteger, integerValue);
+        }
+        maxIntegerDigits = Math.max(maxIntegerDigits, integerDigits);
+        maxScale = Math.max(maxScale, Math.max(scale, 0));
+    }
+
+    /**
+     * Parse {@code [+-]digits[.digits]}. Sets {@link #integerDigits},
+     * {@link #scale} (-1 without a decimal point) and {@link #integerValue}.
+     *
+     * @return the index after the number, or -1 if the value does not start
+     *         with a valid number or the integer part has a leading zero
+     */
+    private int parseNumber(String value) {
+        int length = value.length();
+        int i = 0;
+        char c = value.charAt(0);
+        if (c == '-' || c == '+') {
+            i++;
+        }
+        int integerStart = i;
+        long integer = 0;
+        while (i < length && isDigit(c = value.charAt(i))) {
+            if (i - integerStart < MAX_LONG_DIGITS) {
+                integer = integer * 10 + (c - '0');
+            }
+            i++;
+        }
+        integerDigits = i - integerStart;
+        if (integerDigits == 0 || (integerDigits > 1 && value.charAt(integerStart) == '0')) {
+            return -1;
+        }
+        integerValue = integer;
+        scale = -1;
+        if (i < length && value.charAt(i) == '.') {
+            int fractionStart = ++i;
+            while (i < length && isDigit(value.charAt(i))) {
+                i++;
+            }
+            scale = i - fractionStart;
+            if (scale == 0) {
+                return -1;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * @return true if {@code [eE][+-]digits} runs from {@code start} to the end
+     */
+    private static boolean parseExponent(String value, int start) {
+        int length = value.length();
+        int i = start;
+        char c = value.charAt(i++);
+        if (c != 'e' && c != 'E') {
+            return false;
+        }
+        if (i < length && ((c = value.charAt(i)) == '-' || c == '+')) {
+            i++;
+        }
+        int digitsStart = i;
+        while (i < length && isDigit(value.charAt(i))) {
+            i++;
+        }
+        return i > digitsStart && i == length;
+    }
+
+    private void checkDateTime(String value) {
+        int end = parseDate(value);
+        if (end < 0) {
+            isDate = false;
+            isDateTime = false;
+            return;
+        }
+        if (end == value.length()) {
+            return;
+        }
+        isDate = false;
+        if (isDateTime) {
+            char separator = value.charAt(end);
+            isDateTime = (separator == ' ' || separator == 'T') && parseTime(value, end + 1) == value.length();
+            if (isDateTime) {
+                maxFraction = Math.max(maxFraction, fraction);
+            }
+        }
+    }
+
+    /**
+     * Parse {@code yyyy-MM-dd} or {@code yyyy/MM/dd} with a valid day of month.
+     *
+     * @return the index after the date, or -1
+     */
+    private static int parseDate(String value) {
+        if (value.length() < 10) {
+            return -1;
+        }
+        char separator = value.charAt(4);
+        if ((separator != '-' && separator != '/') || value.charAt(7) != separator) {
+            return -1;
+        }
+        int year = parseDigits(value, 0, 4);
+        int month = parseDigits(value, 5, 2);
+        int day = parseDigits(value, 8, 2);
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            return -1;
+        }
+        return 10;
+    }
+
+    /**
+     * Parse {@code HH:mm:ss[.ffffff]} starting at {@code start}. Sets
+     * {@link #fraction} to the number of fractional digits.
+     *
+     * @return the index after the time, or -1
+     */
+    private int parseTime(String value, int start) {
+        int length = value.length();
+        if (length - start < 8 || value.charAt(start + 2) != ':' || value.charAt(start + 5) != ':') {
+            return -1;
+        }
+        int hour = parseDigits(value, start, 2);
+        int minute = parseDigits(value, start + 3, 2);
+        int second = parseDigits(value, start + 6, 2);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return -1;
+        }
+        int i = start + 8;
+        fraction = 0;
+        if (i < length && value.charAt(i) == '.') {
+            int fractionStart = ++i;
+            while (i < length && isDigit(value.charAt(i))) {
+                i++;
+            }
+            fraction = i - fractionStart;
+            if (fraction == 0 || fraction > 6) {
+                return -1;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * @return the value of {@code count} digits at {@code start}, or -1 if any
+     *         is not a digit
+     */
+    private static int parseDigits(String value, int start, int count) {
+        int result = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = value.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+}
@@ -12,7 +12,6 @@ import com.opencsv.CSVParser;
 import com.opencsv.CSVParserBuilder;
 import com.opencsv.CSVReader;
 import com.opencsv.CSVReaderBuilder;
-import com.opencsv.exceptions.CsvException;
 import com.opencsv.exceptions.CsvValidationException;
 
 import lombok.experimental.UtilityClass;
@@ -163,12 +162,14 @@ public class CSVFileUtils {
      */
     public static long countRecords(InputStream inputStream, Charset charset, char columnSeparator,
             boolean skipHeader) {
-        try (CSVReader reader = new CSVReaderBuilder(new InputStreamReader(inputStream, charset))
-                .withCSVParser(new com.opencsv.CSVParserBuilder().withSeparator(columnSeparator).build())
-                .withSkipLines(skipHeader ? 1 : 0)
-                .build()) {
-            return reader.readAll().stream().count();
-        } catch (IOException | CsvException e) {
+        // Records are counted on the raw bytes without parsing or keeping them
+        try (CSVRecordReader reader = new CSVRecordReader(inputStream, charset, columnSeparator)) {
+            long count = 0;
+            while (reader.skip()) {
+                count++;
+            }
+            return skipHeader ? Math.max(0, count - 1) : count;
+        } catch (IOException e) {
             log.error("Failed to count CSV records", e);
             throw new RuntimeException("Failed to count CSV records", e);
         }
@@ -0,0 +1,111 @@
+package com.haiphamcoder.dataprocessing.shared.processing;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.haiphamcoder.dataprocessing.domain.model.FileProfile;
+import com.haiphamcoder.dataprocessing.shared.StringUtils;
+import com.haiphamcoder.dataprocessing.shared.TidbTypeInferrer;
+import com.opencsv.CSVParser;
+import com.opencsv.CSVParserBuilder;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Builds a {@link FileProfile} of a CSV file in one pass over the stream.
+ * <p>
+ * The delimiter is detected from the raw header line before any record is
+ * parsed, so the file is opened only once. Memory is constant in the number
+ * of rows: per column a null counter, a {@link DistinctCounter} and the value
+ * widths seen by a {@link TidbTypeInferrer}, a {@link ReservoirSample} of
+ * {@code typeSampleRows} records from which the type of each column is chosen
+ * at the end, plus the first {@code previewRows} records. The type is sized
+ * from the widths of all records, not only the sampled ones.
+ */
+@UtilityClass
+public class CSVProfiler {
+
+    private static final char DEFAULT_COLUMN_SEPARATOR = ',';
+
+    /**
+     * @param inputStream    the CSV file, closed when done
+     * @param charset        the charset of the file
+     * @param previewRows    number of records to keep for previews
+     * @param typeSampleRows number of records sampled to infer column types
+     * @return the profile, without the file path and modification time
+     * @throws IOException if reading or parsing fails
+     */
+    public static FileProfile profile(InputStream inputStream, Charset charset, int previewRows,
+            int typeSampleRows) throws IOException {
+        try (CSVRecordReader reader = new CSVRecordReader(inputStream, charset, DEFAULT_COLUMN_SEPARATOR)) {
+            String headerLine = reader.readNextLine();
+            if (headerLine == null) {
+                throw new IOException("File is empty");
+            }
+            char delimiter = CSVFileUtils.detectDelimiter(headerLine);
+            if (delimiter == '\0') {
+                delimiter = DEFAULT_COLUMN_SEPARATOR;
+            }
+            CSVParser parser = new CSVParserBuilder().withSeparator(delimiter).build();
+            List<String> header = Arrays.asList(parser.parseLine(headerLine));
+
+            int columnCount = header.size();
+            long[] nullCounts = new long[columnCount];
+            DistinctCounter[] distinctCounters = new DistinctCounter[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                distinctCounters[i] = new DistinctCounter();
+            }
+            TidbTypeInferrer[] inferrers = TidbTypeInferrer.forColumns(columnCount);
+
+            List<String[]> previewRecords = new ArrayList<>(previewRows);
+            ReservoirSample<String[]> sample = new ReservoirSample<>(typeSampleRows);
+            long rowCount = 0;
+            String line;
+            while ((line = reader.readNextLine()) != null) {
+                String[] record = parser.parseLine(line);
+                rowCount++;
+                if (previewRecords.size() < previewRows) {
+                    previewRecords.add(record);
+                }
+                if (record.length != columnCount) {
+                    continue;
+                }
+                for (int i = 0; i < columnCount; i++) {
+                    String value = record[i];
+                    if (StringUtils.isNullOrEmpty(value)) {
+                        nullCounts[i]++;
+                        continue;
+                    }
+                    distinctCounters[i].add(value);
+                    inferrers[i].observe(value);
+                }
+                sample.offer(record);
+            }
+
+            TidbTypeInferrer.inferColumns(sample.getItems(), inferrers);
+
+            List<FileProfile.ColumnProfile> columns = new ArrayList<>(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                columns.add(FileProfile.ColumnProfile.builder()
+                        .name(header.get(i))
+                        .nullCount(nullCounts[i])
+                        .distinctCount(distinctCounters[i].estimate())
+                        .type(inferrers[i].resolveType())
+                        .build());
+            }
+
+            return FileProfile.builder()
+                    .delimiter(delimiter)
+                    .header(header)
+                    .rowCount(rowCount)
+                    .columns(columns)
+                    .previewRecords(previewRecords)
+                    .build();
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.haiphamcoder.dataprocessing.shared.processing;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Splits a CSV file into byte ranges that start and end on record boundaries,
+ * so each range can be parsed independently with a {@link CSVRecordReader}.
+ * <p>
+ * A newline only ends a record when it is outside quotes, and whether a split
+ * point is inside quotes depends on everything before it. The splitter scans
+ * every range in parallel without knowing its starting state: it records the
+ * quote parity of the whole range and the first newline reached with an even
+ * and with an odd number of quotes. Chaining the parities from the start of
+ * the data then tells which of the two newlines is the real record boundary.
+ */
+@UtilityClass
+@Slf4j
+public class CSVRangeSplitter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @FunctionalInterface
+    public interface StreamOpener {
+        /**
+         * @param offset byte offset to position the stream at
+         * @return a stream positioned at {@code offset}
+         */
+        InputStream open(long offset) throws IOException;
+    }
+
+    /**
+     * A range of whole records, {@code [start, end)}.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class Range {
+        private final int index;
+        private final long start;
+        private final long end;
+    }
+
+    @RequiredArgsConstructor
+    private static class RangeScan {
+        private final boolean oddQuotes;
+        private final long firstEvenRecordStart;
+        private final long firstOddRecordStart;
+    }
+
+    /**
+     * Split {@code [dataStart, fileLength)} into ranges of roughly
+     * {@code targetRangeSize} bytes aligned to record boundaries.
+     *
+     * @param opener          opens the file at a byte offset
+     * @param dataStart       offset of the first record (after the header)
+     * @param fileLength      length of the file
+     * @param targetRangeSize desired size of a range
+     * @param executorService executor used to scan the ranges
+     * @return the ranges, in file order
+     * @throws IOException if a range cannot be read
+     */
+    public static List<Range> split(StreamOpener opener, long dataStart, long fileLength, long targetRangeSize,
+            ExecutorService executorService) throws IOException, InterruptedException {
+        List<Long> splitPoints = new ArrayList<>();
+        for (long point = dataStart; point < fileLength; point += Math.max(1, targetRangeSize)) {
+            splitPoints.add(point);
+        }
+        if (splitPoints.size() <= 1) {
+            return List.of(new Range(0, dataStart, fileLength));
+        }
+
+        List<Future<RangeScan>> scans = new ArrayList<>(splitPoints.size());
+        for (int i = 0; i < splitPoints.size(); i++) {
+            long start = splitPoints.get(i);
+            long end = i + 1 < splitPoints.size() ? splitPoints.get(i + 1) : fileLength;
+            scans.add(executorService.submit(() -> scan(opener, start, end)));
+        }
+
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(dataStart);
+        boolean inQuotes = false;
+        for (int i = 0; i < scans.size(); i++) {
+            RangeScan scan;
+            try {
+                scan = scans.get(i).get();
+            } catch (ExecutionException e) {
+                throw new IOException("Scanning CSV range failed! " + e.getCause().getMessage(), e.getCause());
+            }
+            if (i > 0) {
+                long recordStart = inQuotes ? scan.firstOddRecordStart : scan.firstEvenRecordStart;
+                // A range without a record start belongs entirely to a record of an earlier range
+                if (recordStart > boundaries.get(boundaries.size() - 1) && recordStart < fileLength) {
+                    boundaries.add(recordStart);
+                }
+            }
+            inQuotes ^= scan.oddQuotes;
+        }
+
+        List<Range> ranges = new ArrayList<>(boundaries.size());
+        for (int i = 0; i < boundaries.size(); i++) {
+            long end = i + 1 < boundaries.size() ? boundaries.get(i + 1) : fileLength;
+            ranges.add(new Range(i, boundaries.get(i), end));
+        }
+        log.info("Split CSV data of {} bytes into {} ranges", fileLength - dataStart, ranges.size());
+        return ranges;
+    }
+
+    private static RangeScan scan(StreamOpener opener, long start, long end) throws IOException {
+        boolean oddQuotes = false;
+        long firstEven = -1;
+        long firstOdd = -1;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long position = start;
+        try (InputStream inputStream = opener.open(start)) {
+            while (position < end) {
+                int length = inputStream.read(buffer, 0, (int) Math.min(buffer.length, end - position));
+                if (length <= 0) {
+                    break;
+                }
+                for (int i = 0; i < length; i++) {
+                    byte b = buffer[i];
+                    if (b == '"') {
+                        oddQuotes = !oddQuotes;
+                    } else if (b == '\n') {
+                        if (!oddQuotes && firstEven < 0) {
+                            firstEven = position + i + 1;
+                        } else if (oddQuotes && firstOdd < 0) {
+                            firstOdd = position + i + 1;
+                        }
+                    }
+                }
+                position += length;
+            }
+        }
+        return new RangeScan(oddQuotes, firstEven, firstOdd);
+    }
+
+}
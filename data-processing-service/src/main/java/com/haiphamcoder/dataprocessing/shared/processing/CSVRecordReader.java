@@ -0,0 +1,155 @@
+package com.haiphamcoder.dataprocessing.shared.processing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import com.opencsv.CSVParser;
+import com.opencsv.CSVParserBuilder;
+
+/**
+ * CSV reader that keeps track of the byte offset of every record.
+ * <p>
+ * Records are split on the raw bytes: a line feed ends a record only when it
+ * is outside a quoted field, so quoted newlines are handled. Each record is
+ * then parsed with the opencsv parser. Because {@link #getOffset()} always
+ * points at the first byte of the next record, it can be stored as a
+ * checkpoint and used to re-open the file with {@code seek}.
+ */
+public class CSVRecordReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte QUOTE = '"';
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private final InputStream inputStream;
+    private final Charset charset;
+    private final CSVParser parser;
+    private final long limit;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private byte[] record = new byte[1024];
+    private int bufferLength;
+    private int bufferPosition;
+    private long offset;
+
+    /**
+     * @param inputStream     the stream, positioned at {@code startOffset}
+     * @param charset         the charset of the file
+     * @param columnSeparator the column separator
+     * @param startOffset     the byte offset of the stream's current position
+     * @param limit           stop after the record that crosses this offset,
+     *                        {@link Long#MAX_VALUE} to read to the end
+     */
+    public CSVRecordReader(InputStream inputStream, Charset charset, char columnSeparator, long startOffset,
+            long limit) {
+        this.inputStream = inputStream;
+        this.charset = charset;
+        this.parser = new CSVParserBuilder().withSeparator(columnSeparator).build();
+        this.offset = startOffset;
+        this.limit = limit;
+    }
+
+    public CSVRecordReader(InputStream inputStream, Charset charset, char columnSeparator) {
+        this(inputStream, charset, columnSeparator, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * @return the byte offset of the first byte after the last record read
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Read and parse the next record.
+     *
+     * @return the fields of the record, or null at the end of the input
+     * @throws IOException if reading or parsing fails
+     */
+    public String[] readNext() throws IOException {
+        int length = readRecordBytes();
+        if (length < 0) {
+            return null;
+        }
+        return parser.parseLine(new String(record, 0, length, charset));
+    }
+
+    /**
+     * Read the next record without parsing it, e.g. to detect the delimiter
+     * before choosing a parser.
+     *
+     * @return the raw text of the record, or null at the end of the input
+     * @throws IOException if reading fails
+     */
+    public String readNextLine() throws IOException {
+        int length = readRecordBytes();
+        if (length < 0) {
+            return null;
+        }
+        return new String(record, 0, length, charset);
+    }
+
+    /**
+     * Skip the next record without parsing it.
+     *
+     * @return false at the end of the input
+     * @throws IOException if reading fails
+     */
+    public boolean skip() throws IOException {
+        return readRecordBytes() >= 0;
+    }
+
+    /**
+     * Copy the bytes of the next record (without its line terminator) into
+     * {@link #record}.
+     *
+     * @return the record length, or -1 at the end of the input
+     */
+    private int readRecordBytes() throws IOException {
+        if (offset >= limit) {
+            return -1;
+        }
+        int length = 0;
+        boolean inQuotes = false;
+        boolean readAny = false;
+        while (true) {
+            if (bufferPosition == bufferLength) {
+                bufferLength = inputStream.read(buffer, 0, buffer.length);
+                bufferPosition = 0;
+                if (bufferLength <= 0) {
+                    bufferLength = 0;
+                    return readAny ? trimCarriageReturn(length) : -1;
+                }
+            }
+            byte b = buffer[bufferPosition++];
+            offset++;
+            readAny = true;
+            if (b == QUOTE) {
+                inQuotes = !inQuotes;
+            } else if (b == LINE_FEED && !inQuotes) {
+                return trimCarriageReturn(length);
+            }
+            if (length == record.length) {
+                record = Arrays.copyOf(record, record.length * 2);
+            }
+            record[length++] = b;
+        }
+    }
+
+    private int trimCarriageReturn(int length) {
+        if (length > 0 && record[length - 1] == CARRIAGE_RETURN) {
+            return length - 1;
+        }
+        return length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.haiphamcoder.dataprocessing.shared.processing;
+
+/**
+ * HyperLogLog estimate of the number of distinct strings in a column.
+ * <p>
+ * Uses 2^11 one-byte registers (2 KB) whatever the number of values, with a
+ * standard error of about 2.3%. Small cardinalities use linear counting and
+ * are close to exact.
+ */
+public class DistinctCounter {
+
+    private static final int PRECISION = 11;
+    private static final int REGISTER_COUNT = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+
+    private final byte[] registers = new byte[REGISTER_COUNT];
+
+    public void add(String value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+        if (estimate <= 2.5 * REGISTER_COUNT && zeros > 0) {
+            estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 chars, finished with the MurmurHash3 mixer
+     * so the high bits used for the register index are well distributed.
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.haiphamcoder.dataprocessing.shared.processing;
+
+import java.util.Arrays;
+
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+
+/**
+ * Converts Excel cell values to the strings stored by the import.
+ * <p>
+ * One instance is used per sheet and is not thread safe. It reuses a single
+ * {@link DataFormatter} and {@link FormulaEvaluator}, never creates or clones
+ * cell styles, and remembers the number format last seen in each column, so
+ * the usual case of a column with one format costs an array lookup instead of
+ * a style and format string lookup per cell. Integral numbers in the General
+ * format, the most common case, are printed without going through
+ * {@code java.text.Format} at all.
+ */
+public class ExcelCellConverter {
+
+    private static final String TRUE = "TRUE";
+    private static final String FALSE = "FALSE";
+    private static final double MAX_PLAIN_INTEGER = 1e10;
+
+    private final DataFormatter dataFormatter;
+    private final FormulaEvaluator evaluator;
+    private NumberFormatEntry[] columnFormats = new NumberFormatEntry[16];
+
+    /**
+     * Number format of a column, resolved once per (column, data format index).
+     */
+    private static final class NumberFormatEntry {
+        private final int formatIndex;
+        private final String formatString;
+        private final boolean general;
+
+        private NumberFormatEntry(int formatIndex, String formatString) {
+            this.formatIndex = formatIndex;
+            this.formatString = formatString;
+            this.general = formatIndex == 0 || "General".equalsIgnoreCase(formatString);
+        }
+    }
+
+    /**
+     * @param evaluator evaluator for formula cells, null to use the cached
+     *                  formula results
+     */
+    public ExcelCellConverter(FormulaEvaluator evaluator) {
+        this.dataFormatter = new DataFormatter();
+        this.evaluator = evaluator;
+    }
+
+    public ExcelCellConverter() {
+        this(null);
+    }
+
+    /**
+     * Convert a cell of a loaded workbook.
+     *
+     * @param cell the cell
+     * @return the formatted value, empty for blank cells
+     */
+    public String convert(Cell cell) {
+        switch (cell.getCellType()) {
+            case NUMERIC: {
+                CellStyle style = cell.getCellStyle();
+                return formatNumeric(cell.getColumnIndex(), cell.getNumericCellValue(), style.getDataFormat(),
+                        style.getDataFormatString());
+            }
+            case STRING:
+                return cell.getRichStringCellValue().getString();
+            case BOOLEAN:
+                return formatBoolean(cell.getBooleanCellValue());
+            case BLANK:
+                return "";
+            default:
+                // Formula and error cells are rare; let DataFormatter handle them
+                return dataFormatter.formatCellValue(cell, evaluator);
+        }
+    }
+
+    /**
+     * Format a numeric cell value with its number format.
+     *
+     * @param column       zero-based column of the cell
+     * @param value        the raw value
+     * @param formatIndex  the data format index of the cell style
+     * @param formatString the format string, null for a built-in format
+     * @return the formatted value
+     */
+    public String formatNumeric(int column, double value, int formatIndex, String formatString) {
+        NumberFormatEntry entry = formatEntry(column, formatIndex, formatString);
+        if (entry.general && value == Math.rint(value) && Math.abs(value) < MAX_PLAIN_INTEGER) {
+            return Long.toString((long) value);
+        }
+        return dataFormatter.formatRawCellContents(value, entry.formatIndex, entry.formatString);
+    }
+
+    public static String formatBoolean(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    public static String formatBoolean(String rawValue) {
+        return formatBoolean(!"0".equals(rawValue));
+    }
+
+    private NumberFormatEntry formatEntry(int column, int formatIndex, String formatString) {
+        if (column >= columnFormats.length) {
+            columnFormats = Arrays.copyOf(columnFormats, Math.max(column + 1, columnFormats.length * 2));
+        }
+        NumberFormatEntry entry = columnFormats[column];
+        if (entry == null || entry.formatIndex != formatIndex) {
+            if (formatString == null) {
+                formatString = BuiltinFormats.getBuiltinFormat(formatIndex);
+            }
+            entry = new NumberFormatEntry(formatIndex, formatString);
+            columnFormats[column] = entry;
+        }
+        return entry;
+    }
+
+}
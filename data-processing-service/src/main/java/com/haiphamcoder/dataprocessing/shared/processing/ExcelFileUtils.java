@@ -3,14 +3,11 @@ package com.haiphamcoder.dataprocessing.shared.processing;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
-import java.util.Collections;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Spliterator;
-import java.util.Spliterators;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
@@ -46,6 +43,19 @@ public class ExcelFileUtils {
      * @return the options for the file selection
      */
     public static int[] processFileSelection(Sheet sheet, String dataRangeSelected) {
+        return processFileSelection(sheet.getFirstRowNum(), sheet.getLastRowNum(), dataRangeSelected);
+    }
+
+    /**
+     * Process the file selection without a loaded sheet. When the row bounds
+     * are not known, pass 0 and {@link Integer#MAX_VALUE}.
+     *
+     * @param firstRowNum       the first row of the sheet
+     * @param lastRowNum        the last row of the sheet
+     * @param dataRangeSelected the data range selected
+     * @return the options for the file selection
+     */
+    public static int[] processFileSelection(int firstRowNum, int lastRowNum, String dataRangeSelected) {
         int[] options = new int[4];
         String locationUpperLeft = "";
         String locationMustUnder = "";
@@ -54,9 +64,9 @@ public class ExcelFileUtils {
             locationUpperLeft = optionalRange[0];
             locationMustUnder = optionalRange[1];
         }
-        int rowsMaxDefault = sheet.getLastRowNum();
+        int rowsMaxDefault = lastRowNum;
         int colsMinDefault = 0;
-        int rowsMinDefault = sheet.getFirstRowNum();
+        int rowsMinDefault = firstRowNum;
         int colsMaxDefault = 256;
         int rowsMaxSelected = 0;
         int colsMaxSelected = 0;
@@ -134,6 +144,61 @@ public class ExcelFileUtils {
         }
     }
 
+    /**
+     * Stream the rows of a sheet inside the selected data range. XLSX files are
+     * read with {@link XlsxStreamReader}, so only one row is in memory at a
+     * time; XLS files are limited to 65536 rows and still use the workbook.
+     *
+     * @param inputStream       the input stream of the Excel file
+     * @param fileFormat        the format of the workbook
+     * @param sheetName         the name of the sheet to read
+     * @param dataRangeSelected the data range selected, null for the whole sheet
+     * @param handler           receives the values of each row in the range
+     * @return false if the sheet does not exist
+     */
+    public static boolean readRows(InputStream inputStream, ExcelFileFormat fileFormat, String sheetName,
+            String dataRangeSelected, XlsxStreamReader.RowHandler handler) throws IOException {
+        if (fileFormat == ExcelFileFormat.XLSX) {
+            int[] options = processFileSelection(0, Integer.MAX_VALUE, dataRangeSelected);
+            try (XlsxStreamReader reader = new XlsxStreamReader(inputStream)) {
+                return reader.readSheet(sheetName, options[0], options[1], options[2], options[3], handler);
+            }
+        }
+
+        try (Workbook workbook = createWorkbook(inputStream, fileFormat)) {
+            Sheet sheet = workbook.getSheet(sheetName);
+            if (sheet == null) {
+                return false;
+            }
+            ExcelCellConverter converter = new ExcelCellConverter(
+                    workbook.getCreationHelper().createFormulaEvaluator());
+            int[] options = processFileSelection(sheet, dataRangeSelected);
+            int rowsMin = options[0];
+            int colsMin = options[1];
+            int rowsMax = options[2];
+            int colsMax = options[3];
+            for (Row row : sheet) {
+                if (row.getRowNum() < rowsMin) {
+                    continue;
+                }
+                if (row.getRowNum() > rowsMax) {
+                    break;
+                }
+                String[] values = new String[Math.max(0, colsMax - colsMin)];
+                for (int i = colsMin; i < colsMax; i++) {
+                    Cell cell = row.getCell(i, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
+                    if (cell != null) {
+                        values[i - colsMin] = converter.convert(cell);
+                    }
+                }
+                if (!handler.handleRow(row.getRowNum(), values)) {
+                    break;
+                }
+            }
+            return true;
+        }
+    }
+
     /**
      * Get the sheets from an Excel file
      * 
@@ -142,6 +207,15 @@ public class ExcelFileUtils {
      * @return the sheets from the Excel file
      */
     public static List<String> getSheets(InputStream inputStream, ExcelFileFormat fileFormat) {
+        if (fileFormat == ExcelFileFormat.XLSX) {
+            try (XlsxStreamReader reader = new XlsxStreamReader(inputStream)) {
+                return reader.getSheetNames();
+            } catch (IOException e) {
+                log.error("Failed to get sheets from Excel file", e);
+                throw new UncheckedIOException(e);
+            }
+        }
+
         List<String> sheets = new LinkedList<>();
         try (Workbook workbook = createWorkbook(inputStream, fileFormat)) {
             for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
@@ -165,13 +239,19 @@ public class ExcelFileUtils {
      */
     public static List<String> getFieldNames(InputStream inputStream, ExcelFileFormat fileFormat, String sheetName,
             int headerRowIndex) {
-        try (Workbook workbook = createWorkbook(inputStream, fileFormat)) {
-            Sheet sheet = workbook.getSheet(sheetName);
-            Row headerRow = sheet.getRow(headerRowIndex);
-            if (headerRow == null) {
-                return Collections.emptyList();
-            }
-            return splitToList(headerRow);
+        List<String> fieldNames = new LinkedList<>();
+        String headerRange = new CellAddress(headerRowIndex, 0).formatAsString() + ":"
+                + new CellAddress(headerRowIndex, 256).formatAsString();
+        try {
+            readRows(inputStream, fileFormat, sheetName, headerRange, (rowNum, values) -> {
+                for (String value : values) {
+                    if (value != null) {
+                        fieldNames.add(value);
+                    }
+                }
+                return false;
+            });
+            return fieldNames;
         } catch (IOException e) {
             log.error("Failed to get field names from Excel file", e);
             throw new UncheckedIOException(e);
@@ -189,28 +269,11 @@ public class ExcelFileUtils {
     public static List<String> getHeader(InputStream inputStream, ExcelFileFormat fileFormat, String sheetName,
             String dataRangeSelected) {
         List<String> header = new LinkedList<>();
-        try (Workbook workbook = createWorkbook(inputStream, fileFormat)) {
-            Sheet sheet = workbook.getSheet(sheetName);
-            int[] options = processFileSelection(sheet, dataRangeSelected);
-            int rowsMin = options[0];
-            int colsMin = options[1];
-            int rowsMax = options[2];
-            int colsMax = options[3];
-            Iterator<Row> rowIterator = sheet.iterator();
-            while (rowIterator.hasNext() && header.isEmpty()) {
-                Row row = rowIterator.next();
-                if (row.getRowNum() < rowsMin || row.getRowNum() > rowsMax) {
-                    continue;
-                }
-                for (int i = colsMin; i < colsMax; i++) {
-                    Cell cell = row.getCell(i);
-                    if (cell == null) {
-                        header.add(null);
-                        continue;
-                    }
-                    header.add(getCellValueAsString(cell));
-                }
-            }
+        try {
+            readRows(inputStream, fileFormat, sheetName, dataRangeSelected, (rowNum, values) -> {
+                header.addAll(Arrays.asList(values));
+                return false;
+            });
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -218,7 +281,10 @@ public class ExcelFileUtils {
     }
 
     /**
-     * Get the records from an Excel file
+     * Get the records from an Excel file, without the header row. The records
+     * are collected before the stream is returned; use
+     * {@link #readRows(InputStream, ExcelFileFormat, String, String, XlsxStreamReader.RowHandler)}
+     * to process large sheets row by row.
      * 
      * @param inputStream the input stream to get the records from
      * @param fileFormat  the format of the workbook
@@ -226,15 +292,22 @@ public class ExcelFileUtils {
      * @return the records from the Excel file
      */
     public static Stream<List<?>> getRecords(InputStream inputStream, ExcelFileFormat fileFormat, String sheetName) {
-        try (Workbook workbook = createWorkbook(inputStream, fileFormat)) {
-            Sheet sheet = workbook.getSheet(sheetName);
-            Spliterator<Row> spliterator = Spliterators.spliteratorUnknownSize(sheet.iterator(), 0);
-            return StreamSupport.stream(spliterator, false)
-                    .skip(1)
-                    .map(ExcelFileUtils::splitToList);
+        List<List<?>> records = new ArrayList<>();
+        try {
+            readRows(inputStream, fileFormat, sheetName, null, (rowNum, values) -> {
+                List<String> record = new ArrayList<>();
+                for (String value : values) {
+                    if (value != null) {
+                        record.add(value);
+                    }
+                }
+                records.add(record);
+                return true;
+            });
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
+        return records.stream().skip(1);
     }
 
     /**
@@ -0,0 +1,48 @@
+package com.haiphamcoder.dataprocessing.shared.processing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Uniform random sample of at most {@code capacity} items from a stream of
+ * unknown length (Algorithm R). Every item offered ends up in the sample with
+ * the same probability.
+ * <p>
+ * The random generator has a fixed seed, so sampling the same stream always
+ * gives the same sample.
+ */
+public class ReservoirSample<T> {
+
+    private static final long SEED = 0x5DEECE66DL;
+
+    private final int capacity;
+    private final List<T> items;
+    private final SplittableRandom random = new SplittableRandom(SEED);
+    private long offered;
+
+    public ReservoirSample(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        this.items = new ArrayList<>(Math.min(this.capacity, 1024));
+    }
+
+    public void offer(T item) {
+        offered++;
+        if (items.size() < capacity) {
+            items.add(item);
+        } else if (capacity > 0) {
+            long slot = random.nextLong(offered);
+            if (slot < capacity) {
+                items.set((int) slot, item);
+            }
+        }
+    }
+
+    /**
+     * @return the sampled items, in no particular order
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+}
@@ -0,0 +1,353 @@
+package com.haiphamcoder.dataprocessing.shared.processing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streaming XLSX reader built on the POI event API.
+ * <p>
+ * The sheet XML is parsed with SAX and handed to a {@link RowHandler} one row
+ * at a time, so memory does not grow with the number of rows. Only the shared
+ * strings and styles tables are loaded. Listing sheets reads just the workbook
+ * part. The input is copied to a temporary file first because the OPC package
+ * needs random access to the zip entries; the file is removed on
+ * {@link #close()}.
+ * <p>
+ * Cell values are formatted by an {@link ExcelCellConverter}, like
+ * {@code DataFormatter#formatCellValue}. For formula cells the result cached
+ * in the file is used.
+ */
+@Slf4j
+public class XlsxStreamReader implements Closeable {
+
+    /**
+     * Receives the rows of a sheet.
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+        /**
+         * @param rowNum zero-based row number
+         * @param values formatted cell values of the selected columns, null
+         *               where the cell is missing
+         * @return false to stop reading the sheet
+         */
+        boolean handleRow(int rowNum, String[] values);
+    }
+
+    /**
+     * Thrown from the SAX callbacks to stop parsing once the handler is done.
+     */
+    private static class StopReadingException extends RuntimeException {
+        StopReadingException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final Path tempFile;
+    private final OPCPackage opcPackage;
+    private final XSSFReader xssfReader;
+    private SharedStrings sharedStrings;
+    private StylesTable stylesTable;
+
+    public XlsxStreamReader(InputStream inputStream) throws IOException {
+        this.tempFile = Files.createTempFile("xlsx-stream-", ".xlsx");
+        try {
+            Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            this.opcPackage = OPCPackage.open(tempFile.toFile(), PackageAccess.READ);
+            this.xssfReader = new XSSFReader(opcPackage);
+        } catch (IOException | OpenXML4JException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e instanceof IOException ioException ? ioException : new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the sheet names, in workbook order
+     */
+    public List<String> getSheetNames() throws IOException {
+        List<String> sheetNames = new ArrayList<>();
+        XSSFReader.SheetIterator sheets = sheetIterator();
+        while (sheets.hasNext()) {
+            try (InputStream ignored = sheets.next()) {
+                sheetNames.add(sheets.getSheetName());
+            }
+        }
+        return sheetNames;
+    }
+
+    /**
+     * Stream the rows of a sheet within {@code [rowsMin, rowsMax]} and columns
+     * {@code [colsMin, colsMax)}.
+     *
+     * @param sheetName the sheet to read
+     * @param rowsMin   first row to report
+     * @param colsMin   first column to report
+     * @param rowsMax   last row to report; reading stops after it
+     * @param colsMax   column after the last one to report
+     * @param handler   receives each row
+     * @return false if the sheet does not exist
+     */
+    public boolean readSheet(String sheetName, int rowsMin, int colsMin, int rowsMax, int colsMax,
+            RowHandler handler) throws IOException {
+        XSSFReader.SheetIterator sheets = sheetIterator();
+        while (sheets.hasNext()) {
+            try (InputStream sheetStream = sheets.next()) {
+                if (!sheets.getSheetName().equals(sheetName)) {
+                    continue;
+                }
+                parseSheet(sheetStream, new SheetHandler(getSharedStrings(), getStylesTable(), rowsMin, colsMin,
+                        rowsMax, colsMax, handler));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void parseSheet(InputStream sheetStream, SheetHandler sheetHandler) throws IOException {
+        try {
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(sheetHandler);
+            parser.parse(new InputSource(sheetStream));
+        } catch (StopReadingException e) {
+            // The handler has all the rows it needs
+        } catch (SAXException | ParserConfigurationException e) {
+            throw new IOException("Read sheet failed! " + e.getMessage(), e);
+        }
+    }
+
+    private SharedStrings getSharedStrings() throws IOException {
+        if (sharedStrings == null) {
+            try {
+                sharedStrings = new ReadOnlySharedStringsTable(opcPackage, false);
+            } catch (SAXException e) {
+                throw new IOException("Read shared strings failed! " + e.getMessage(), e);
+            }
+        }
+        return sharedStrings;
+    }
+
+    private StylesTable getStylesTable() throws IOException {
+        if (stylesTable == null) {
+            try {
+                stylesTable = xssfReader.getStylesTable();
+            } catch (OpenXML4JException e) {
+                throw new IOException("Read styles failed! " + e.getMessage(), e);
+            }
+        }
+        return stylesTable;
+    }
+
+    private XSSFReader.SheetIterator sheetIterator() throws IOException {
+        try {
+            return (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+        } catch (OpenXML4JException e) {
+            throw new IOException("Read workbook failed! " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * SAX handler for the sheet XML. Collects the cells of each row inside the
+     * selected range and converts them with an {@link ExcelCellConverter}. The
+     * number format of a style is resolved once per style index.
+     */
+    private static class SheetHandler extends DefaultHandler {
+        private final SharedStrings sharedStrings;
+        private final StylesTable stylesTable;
+        private final ExcelCellConverter converter = new ExcelCellConverter();
+        private final int rowsMin;
+        private final int colsMin;
+        private final int rowsMax;
+        private final int colsMax;
+        private final RowHandler handler;
+        private final StringBuilder text = new StringBuilder();
+
+        private int[] styleFormatIndexes = new int[0];
+        private String[] styleFormatStrings = new String[0];
+        private String[] values;
+        private int rowNum = -1;
+        private int column;
+        private int nextColumn;
+        private String cellType;
+        private int styleIndex;
+        private boolean inCell;
+        private boolean hasValue;
+        private boolean collecting;
+
+        SheetHandler(SharedStrings sharedStrings, StylesTable stylesTable, int rowsMin, int colsMin, int rowsMax,
+                int colsMax, RowHandler handler) {
+            this.sharedStrings = sharedStrings;
+            this.stylesTable = stylesTable;
+            this.rowsMin = rowsMin;
+            this.colsMin = colsMin;
+            this.rowsMax = rowsMax;
+            this.colsMax = colsMax;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row": {
+                    String reference = attributes.getValue("r");
+                    rowNum = reference != null ? Integer.parseInt(reference) - 1 : rowNum + 1;
+                    if (rowNum > rowsMax) {
+                        throw new StopReadingException();
+                    }
+                    values = rowNum >= rowsMin ? new String[Math.max(0, colsMax - colsMin)] : null;
+                    nextColumn = 0;
+                    break;
+                }
+                case "c": {
+                    String reference = attributes.getValue("r");
+                    column = reference != null ? columnIndex(reference) : nextColumn;
+                    nextColumn = column + 1;
+                    inCell = values != null && column >= colsMin && column < colsMax;
+                    if (inCell) {
+                        cellType = attributes.getValue("t");
+                        String style = attributes.getValue("s");
+                        styleIndex = style != null ? Integer.parseInt(style) : 0;
+                        hasValue = false;
+                        text.setLength(0);
+                    }
+                    break;
+                }
+                case "v":
+                case "t":
+                    if (inCell) {
+                        collecting = true;
+                        hasValue = true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (collecting) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v":
+                case "t":
+                    collecting = false;
+                    break;
+                case "c":
+                    if (inCell && hasValue) {
+                        values[column - colsMin] = convertCell();
+                    }
+                    inCell = false;
+                    break;
+                case "row":
+                    if (values != null && !handler.handleRow(rowNum, values)) {
+                        throw new StopReadingException();
+                    }
+                    values = null;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private String convertCell() {
+            String value = text.toString();
+            if (cellType == null || cellType.equals("n")) {
+                if (value.isEmpty()) {
+                    return value;
+                }
+                resolveStyle(styleIndex);
+                return converter.formatNumeric(column, Double.parseDouble(value), styleFormatIndexes[styleIndex],
+                        styleFormatStrings[styleIndex]);
+            }
+            switch (cellType) {
+                case "s":
+                    return sharedStrings.getItemAt(Integer.parseInt(value)).getString();
+                case "b":
+                    return ExcelCellConverter.formatBoolean(value);
+                default:
+                    // inlineStr, str (formula string result), e (error) and d (ISO date) are kept as written
+                    return value;
+            }
+        }
+
+        private void resolveStyle(int index) {
+            if (index >= styleFormatStrings.length) {
+                int size = Math.max(index + 1, stylesTable != null ? stylesTable.getNumCellStyles() : 0);
+                styleFormatIndexes = Arrays.copyOf(styleFormatIndexes, size);
+                styleFormatStrings = Arrays.copyOf(styleFormatStrings, size);
+            }
+            if (styleFormatStrings[index] == null) {
+                int formatIndex = 0;
+                String formatString = null;
+                if (stylesTable != null && index < stylesTable.getNumCellStyles()) {
+                    XSSFCellStyle style = stylesTable.getStyleAt(index);
+                    formatIndex = style.getDataFormat();
+                    formatString = style.getDataFormatString();
+                }
+                if (formatString == null) {
+                    formatString = BuiltinFormats.getBuiltinFormat(formatIndex);
+                }
+                styleFormatIndexes[index] = formatIndex;
+                styleFormatStrings[index] = formatString != null ? formatString : "General";
+            }
+        }
+
+        /**
+         * Zero-based column of an A1 style reference, without allocating a
+         * {@code CellReference}.
+         */
+        private static int columnIndex(String cellReference) {
+            int column = 0;
+            for (int i = 0; i < cellReference.length(); i++) {
+                char c = cellReference.charAt(i);
+                if (c < 'A' || c > 'Z') {
+                    break;
+                }
+                column = column * 26 + (c - 'A' + 1);
+            }
+            return column - 1;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            opcPackage.revert();
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+}
@@ -8,6 +8,8 @@ import org.springframework.stereotype.Component;
 
 import com.haiphamcoder.dataprocessing.domain.dto.Mapping;
 import com.haiphamcoder.dataprocessing.domain.dto.SourceDto;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.haiphamcoder.dataprocessing.service.HdfsFileService;
 import com.haiphamcoder.dataprocessing.service.SourceGrpcClient;
 import com.haiphamcoder.dataprocessing.service.StorageService;
 import com.haiphamcoder.dataprocessing.shared.concurrent.TaskManager;
@@ -22,13 +24,16 @@ public class ImportDataSourceManager {
     private final StorageService storageService;
     private final SourceGrpcClient sourceGrpcClient;
     private final ImportDataThreadFactory importDataThreadFactory;
+    private final HdfsFileService hdfsFileService;
 
     public ImportDataSourceManager(SourceGrpcClient sourceGrpcClient,
             StorageService storageService,
-            ImportDataThreadFactory importDataThreadFactory) {
+            ImportDataThreadFactory importDataThreadFactory,
+            HdfsFileService hdfsFileService) {
         this.sourceGrpcClient = sourceGrpcClient;
         this.storageService = storageService;
         this.importDataThreadFactory = importDataThreadFactory;
+        this.hdfsFileService = hdfsFileService;
 
         ExecutorService executor = ThreadPool.builder()
                 .setCoreSize(Runtime.getRuntime().availableProcessors())
@@ -60,7 +65,7 @@ public class ImportDataSourceManager {
             }
 
             if (isFirstTime) {
-                storageService.createStorageSource(source);
+                storageService.createStorageSource(source, getImportSize(source));
             }
 
             AbstractProcessingThread task = importDataThreadFactory.getThreadImportData(userId, source);
@@ -79,4 +84,15 @@ public class ImportDataSourceManager {
             throw new RuntimeException("Source not found");
         }
     }
+
+    /**
+     * @return the size of the file about to be imported, -1 if unknown
+     */
+    private long getImportSize(SourceDto source) {
+        JsonNode filePath = source.getConfig() != null ? source.getConfig().get("file_path") : null;
+        if (filePath == null || filePath.isNull()) {
+            return -1;
+        }
+        return hdfsFileService.getFileSize(filePath.asText());
+    }
 }
@@ -1,8 +1,11 @@
 package com.haiphamcoder.dataprocessing.threads;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import com.haiphamcoder.dataprocessing.config.properties.ImportProperties;
 import com.haiphamcoder.dataprocessing.domain.dto.SourceDto;
+import com.haiphamcoder.dataprocessing.service.ChartCacheService;
 import com.haiphamcoder.dataprocessing.service.HdfsFileService;
 import com.haiphamcoder.dataprocessing.service.SourceGrpcClient;
 import com.haiphamcoder.dataprocessing.service.StorageService;
@@ -10,27 +13,39 @@ import com.haiphamcoder.dataprocessing.threads.impl.CSVProcessingThread;
 import com.haiphamcoder.dataprocessing.threads.impl.ExcelProcessingThread;
 import com.haiphamcoder.dataprocessing.config.CommonConstants;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
 @Slf4j
-@RequiredArgsConstructor
 public class ImportDataThreadFactory {
 
     private final StorageService storageService;
     private final HdfsFileService hdfsFileService;
     private final SourceGrpcClient sourceGrpcClient;
+    private final ImportProperties importProperties;
+    private final ChartCacheService chartCacheService;
+
+    public ImportDataThreadFactory(StorageService storageService, HdfsFileService hdfsFileService,
+            SourceGrpcClient sourceGrpcClient, @Qualifier("importProperties") ImportProperties importProperties,
+            ChartCacheService chartCacheService) {
+        this.storageService = storageService;
+        this.hdfsFileService = hdfsFileService;
+        this.sourceGrpcClient = sourceGrpcClient;
+        this.importProperties = importProperties;
+        this.chartCacheService = chartCacheService;
+    }
 
     public AbstractProcessingThread getThreadImportData(Long userId, SourceDto sourceDto) {
 
         switch (sourceDto.getConnectorType()) {
             case CommonConstants.CONNECTOR_TYPE_CSV: {
-                return new CSVProcessingThread(userId, sourceDto, storageService, hdfsFileService, sourceGrpcClient);
+                return new CSVProcessingThread(userId, sourceDto, storageService, hdfsFileService, sourceGrpcClient,
+                        importProperties, chartCacheService);
             }
 
             case CommonConstants.CONNECTOR_TYPE_EXCEL: {
-                return new ExcelProcessingThread(userId, sourceDto, storageService, hdfsFileService, sourceGrpcClient);
+                return new ExcelProcessingThread(userId, sourceDto, storageService, hdfsFileService, sourceGrpcClient,
+                        importProperties, chartCacheService);
             }
 
             default:
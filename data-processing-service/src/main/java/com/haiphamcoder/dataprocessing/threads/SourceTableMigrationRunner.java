@@ -0,0 +1,57 @@
+package com.haiphamcoder.dataprocessing.threads;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.haiphamcoder.dataprocessing.service.StorageService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Migrates source tables created with a text row key once the application is
+ * up, in a background thread. Mode {@code index} only indexes the text key
+ * online; {@code rebuild} moves every table to the numeric primary key and
+ * needs imports and edits of source data stopped while it runs.
+ */
+@Component
+@Slf4j
+public class SourceTableMigrationRunner {
+
+    private final StorageService storageService;
+    private final String mode;
+    private final int batchRows;
+
+    public SourceTableMigrationRunner(StorageService storageService,
+            @Value("${tidb.migration.source-tables:none}") String mode,
+            @Value("${tidb.migration.batch-rows:10000}") int batchRows) {
+        this.storageService = storageService;
+        this.mode = mode;
+        this.batchRows = batchRows;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        boolean rebuild;
+        if ("index".equalsIgnoreCase(mode)) {
+            rebuild = false;
+        } else if ("rebuild".equalsIgnoreCase(mode)) {
+            rebuild = true;
+        } else {
+            return;
+        }
+
+        Thread thread = new Thread(() -> {
+            try {
+                int migrated = storageService.migrateSourceTables(rebuild, batchRows);
+                log.info("Source table migration ({}) finished, {} tables migrated", mode, migrated);
+            } catch (Exception e) {
+                log.error("Source table migration failed! {}", e.getMessage());
+            }
+        }, "source-table-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+}
@@ -2,133 +2,269 @@ package com.haiphamcoder.dataprocessing.threads.impl;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 
+import com.haiphamcoder.dataprocessing.config.properties.ImportProperties;
 import com.haiphamcoder.dataprocessing.domain.dto.SourceDto;
+import com.haiphamcoder.dataprocessing.domain.model.ImportCheckpoint;
+import com.haiphamcoder.dataprocessing.domain.model.RecordBatch;
+import com.haiphamcoder.dataprocessing.service.ChartCacheService;
 import com.haiphamcoder.dataprocessing.service.HdfsFileService;
 import com.haiphamcoder.dataprocessing.service.SourceGrpcClient;
 import com.haiphamcoder.dataprocessing.threads.AbstractProcessingThread;
+import com.haiphamcoder.dataprocessing.threads.pipeline.ImportChunk;
+import com.haiphamcoder.dataprocessing.threads.pipeline.ImportPipeline;
 import com.haiphamcoder.dataprocessing.service.StorageService;
 import com.haiphamcoder.dataprocessing.shared.concurrent.ThreadPool;
 import com.haiphamcoder.dataprocessing.shared.processing.CSVFileUtils;
+import com.haiphamcoder.dataprocessing.shared.processing.CSVRangeSplitter;
+import com.haiphamcoder.dataprocessing.shared.processing.CSVRecordReader;
 import com.haiphamcoder.dataprocessing.shared.processing.HeaderNormalizer;
-import com.opencsv.CSVReader;
-import com.opencsv.exceptions.CsvValidationException;
-import org.json.JSONObject;
+import com.opencsv.CSVParserBuilder;
 
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Imports a CSV file through an {@link ImportPipeline}.
+ * <p>
+ * Every chunk is written together with an {@link ImportCheckpoint} holding its
+ * byte range, in the same transaction. When an import is restarted after a
+ * failure the committed chunks are skipped, so each record is stored exactly
+ * once, and the file is re-opened at the end of the last contiguous committed
+ * chunk instead of being parsed from the start.
+ * <p>
+ * With {@code import.csv-parse-parallelism} above one, files larger than a
+ * range are split by {@link CSVRangeSplitter} and the ranges are parsed on
+ * separate threads, all feeding the same pipeline.
+ * <p>
+ * Chunks are committed in whatever order their writes finish, so each row is
+ * keyed by the byte offset of its record in the file rather than by the
+ * writer: the key order is the file order, and a restarted import writes the
+ * same keys again. Rows added later get snowflake keys, which are far above
+ * any file offset and sort after the imported rows.
+ */
 @Slf4j
 public class CSVProcessingThread extends AbstractProcessingThread {
+    private static final char DEFAULT_COLUMN_SEPARATOR = ',';
+    private static final long RANGE_SEQUENCE_STRIDE = 1L << 32;
+
     private final HdfsFileService hdfsFileService;
-    private final ExecutorService executorService;
     private final StorageService storageService;
     private final SourceGrpcClient sourceGrpcClient;
+    private final ImportProperties importProperties;
+    private final ChartCacheService chartCacheService;
     private final SourceDto sourceDto;
     private final Long userId;
 
     public CSVProcessingThread(Long userId, SourceDto sourceDto,
             StorageService storageService,
             HdfsFileService hdfsFileService,
-            SourceGrpcClient sourceGrpcClient) {
+            SourceGrpcClient sourceGrpcClient,
+            ImportProperties importProperties,
+            ChartCacheService chartCacheService) {
         super("csv-processing-thread", false);
         this.hdfsFileService = hdfsFileService;
         this.storageService = storageService;
         this.sourceDto = sourceDto;
         this.userId = userId;
         this.sourceGrpcClient = sourceGrpcClient;
-
-        executorService = ThreadPool.builder()
-                .setCoreSize(Runtime.getRuntime().availableProcessors())
-                .setMaxSize(Runtime.getRuntime().availableProcessors() * 2)
-                .setQueueSize(100)
-                .setNamePrefix("csv-processing-thread")
-                .build()
-                .getExecutorService();
+        this.importProperties = importProperties;
+        this.chartCacheService = chartCacheService;
     }
 
     protected boolean process() {
-        List<Future<?>> futures = new ArrayList<>();
-        try (InputStream inputStream = hdfsFileService.streamFile(sourceDto.getConfig().get("file_path").asText())) {
-            try (CSVReader csvReader = CSVFileUtils.createCSVReader(inputStream)) {
-                String[] firstLine = csvReader.readNext();
-                List<String> header = firstLine != null ? Arrays.asList(firstLine) : Collections.emptyList();
-                if (header.isEmpty()) {
-                    log.error("Header is empty");
-                    return false;
-                }
+        String filePath = sourceDto.getConfig().get("file_path").asText();
+        Charset charset = Charset.defaultCharset();
 
-                int chunkSize = 200;
-                int recordCount = 0;
-                List<String[]> records = new LinkedList<>();
-                String[] record;
-                while ((record = csvReader.readNext()) != null) {
-                    if (record.length != header.size()) {
-                        log.error("Record length does not match field names size");
-                        continue;
-                    }
-                    recordCount++;
-
-                    if (records.size() == chunkSize) {
-                        final List<String[]> recordsChunk = new LinkedList<>(records);
-                        futures.add(executorService.submit(() -> processChunk(recordsChunk, header)));
-                        records.clear();
-                    }
-                    records.add(record);
-                }
+        InputStream inputStream = hdfsFileService.streamFile(filePath);
+        if (inputStream == null) {
+            log.error("File {} not found", filePath);
+            return false;
+        }
 
-                if (records.size() > 0) {
-                    futures.add(executorService.submit(() -> processChunk(records, header)));
-                }
+        List<String> header = new ArrayList<>();
+        long dataStartOffset;
+        char delimiter;
+        try (CSVRecordReader headerReader = new CSVRecordReader(inputStream, charset, DEFAULT_COLUMN_SEPARATOR)) {
+            // Same delimiter detection as the file profile the schema was built from
+            String headerLine = headerReader.readNextLine();
+            if (headerLine == null || headerLine.isEmpty()) {
+                log.error("Header is empty");
+                return false;
+            }
+            char detected = CSVFileUtils.detectDelimiter(headerLine);
+            delimiter = detected != '\0' ? detected : DEFAULT_COLUMN_SEPARATOR;
+            for (String fieldName : new CSVParserBuilder().withSeparator(delimiter).build().parseLine(headerLine)) {
+                header.add(HeaderNormalizer.normalize(fieldName));
+            }
+            dataStartOffset = headerReader.getOffset();
+        } catch (IOException e) {
+            log.error("Error reading CSV header", e);
+            return false;
+        }
 
-                for (Future<?> future : futures) {
-                    try {
-                        future.get();
-                    } catch (InterruptedException | ExecutionException e) {
-                        log.error("Error processing chunk", e);
-                    }
-                }
+        Map<Long, ImportCheckpoint> committed = new ConcurrentHashMap<>();
+        long sequenceBase = 0;
+        for (ImportCheckpoint checkpoint : storageService.getImportCheckpoints(sourceDto.getId())) {
+            committed.put(checkpoint.getStartOffset(), checkpoint);
+            sequenceBase = Math.max(sequenceBase, checkpoint.getSequence() + 1);
+        }
+        if (!committed.isEmpty()) {
+            log.info("Resuming import of source {} ({} chunks already committed)", sourceDto.getId(),
+                    committed.size());
+        }
 
-                log.info("Total records: {}", recordCount);
-            } catch (CsvValidationException e) {
-                throw new RuntimeException(e);
+        int parseParallelism = Math.max(1, importProperties.getCsvParseParallelism());
+        long rangeSize = importProperties.getCsvRangeSizeMb() * 1024 * 1024;
+        long fileSize = parseParallelism > 1 ? hdfsFileService.getFileSize(filePath) : -1;
+        ThreadPool parsePool = null;
+        long recordCount = 0;
+        try (ImportPipeline pipeline = new ImportPipeline("csv-import-" + sourceDto.getId(), importProperties,
+                chunk -> convertChunk(chunk, header), this::writeChunk)) {
+            if (fileSize - dataStartOffset > rangeSize) {
+                parsePool = ThreadPool.builder()
+                        .setCoreSize(parseParallelism)
+                        .setMaxSize(parseParallelism)
+                        .setNamePrefix("csv-parse-" + sourceDto.getId())
+                        .build();
+                List<CSVRangeSplitter.Range> ranges = CSVRangeSplitter.split(offset -> openFile(filePath, offset),
+                        dataStartOffset, fileSize, rangeSize, parsePool.getExecutorService());
+                List<Future<Long>> futures = new ArrayList<>(ranges.size());
+                for (CSVRangeSplitter.Range range : ranges) {
+                    final long base = sequenceBase;
+                    futures.add(parsePool.getExecutorService().submit(
+                            () -> parseRange(range, filePath, charset, delimiter, header, committed, pipeline,
+                                    base)));
+                }
+                for (Future<Long> future : futures) {
+                    recordCount += future.get();
+                }
+            } else {
+                recordCount = parseRange(new CSVRangeSplitter.Range(0, dataStartOffset, Long.MAX_VALUE), filePath,
+                        charset, delimiter, header, committed, pipeline, sequenceBase);
             }
-
-            return true;
+            pipeline.finish();
+        } catch (ExecutionException e) {
+            log.error("Error importing CSV", e.getCause());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("CSV import of {} interrupted", sourceDto.getId());
+            return false;
         } catch (IOException e) {
             log.error("Error processing CSV", e);
             return false;
+        } finally {
+            if (parsePool != null) {
+                parsePool.getExecutorService().shutdownNow();
+            }
         }
+
+        log.info("Total records: {}", recordCount);
+        storageService.clearImportCheckpoints(sourceDto.getId());
+        return true;
     }
 
-    private void processChunk(List<String[]> records, List<String> fieldNames) {
-        log.info("Processing chunk of {} records", records.size());
-        List<JSONObject> chunkData = new LinkedList<>();
-        for (String[] record : records) {
-            if (record.length != fieldNames.size()) {
-                log.error("Record length does not match field names size");
-                continue;
+    /**
+     * Parse the records of one byte range into chunks and submit them to the
+     * pipeline. Chunks of range {@code i} get sequence numbers starting at
+     * {@code sequenceBase + i * RANGE_SEQUENCE_STRIDE}, so the sequence orders
+     * chunks by their position in the file across all ranges.
+     *
+     * @return the number of records submitted
+     */
+    private long parseRange(CSVRangeSplitter.Range range, String filePath, Charset charset, char delimiter,
+            List<String> header, Map<Long, ImportCheckpoint> committed, ImportPipeline pipeline, long sequenceBase)
+            throws IOException, ExecutionException, InterruptedException {
+        // Re-open the range after the committed chunks at its start instead of re-reading them
+        long startOffset = range.getStart();
+        ImportCheckpoint checkpoint;
+        while ((checkpoint = committed.get(startOffset)) != null && checkpoint.getEndOffset() <= range.getEnd()) {
+            committed.remove(startOffset);
+            startOffset = checkpoint.getEndOffset();
+        }
+
+        int chunkSize = Math.max(1, importProperties.getChunkSize());
+        long sequence = sequenceBase + range.getIndex() * RANGE_SEQUENCE_STRIDE;
+        long recordCount = 0;
+        try (CSVRecordReader reader = new CSVRecordReader(openFile(filePath, startOffset), charset,
+                delimiter, startOffset, range.getEnd())) {
+            List<String[]> records = new ArrayList<>(chunkSize);
+            long[] rowKeys = new long[chunkSize];
+            long chunkStart = startOffset;
+            while (true) {
+                if (records.isEmpty()) {
+                    chunkStart = skipCommitted(reader, committed);
+                }
+                long recordOffset = reader.getOffset();
+                String[] record = reader.readNext();
+                if (record == null) {
+                    break;
+                }
+                if (record.length != header.size()) {
+                    log.error("Record length does not match field names size");
+                    continue;
+                }
+                recordCount++;
+                rowKeys[records.size()] = recordOffset;
+                records.add(record);
+                if (records.size() == chunkSize) {
+                    pipeline.submit(new ImportChunk(sequence++, chunkStart, reader.getOffset(), records, rowKeys));
+                    records = new ArrayList<>(chunkSize);
+                    rowKeys = new long[chunkSize];
+                }
             }
+            if (!records.isEmpty()) {
+                pipeline.submit(new ImportChunk(sequence, chunkStart, reader.getOffset(), records, rowKeys));
+            }
+        }
+        return recordCount;
+    }
 
-            JSONObject recordJson = new JSONObject();
-            for (int i = 0; i < fieldNames.size(); i++) {
-                String fieldName = HeaderNormalizer.normalize(fieldNames.get(i));
-                String value = record[i];
-                recordJson.put(fieldName, value);
+    private InputStream openFile(String filePath, long offset) throws IOException {
+        InputStream inputStream = hdfsFileService.streamFile(filePath, offset);
+        if (inputStream == null) {
+            throw new IOException("Cannot open " + filePath + " at offset " + offset);
+        }
+        return inputStream;
+    }
+
+    /**
+     * Skip every chunk that starts at the reader's position and was already
+     * committed by a previous run.
+     *
+     * @return the offset at which the next chunk starts
+     */
+    private long skipCommitted(CSVRecordReader reader, Map<Long, ImportCheckpoint> committed) throws IOException {
+        ImportCheckpoint checkpoint;
+        while ((checkpoint = committed.remove(reader.getOffset())) != null) {
+            while (reader.getOffset() < checkpoint.getEndOffset() && reader.skip()) {
+                // skip records of the committed chunk
             }
-            chunkData.add(recordJson);
         }
+        return reader.getOffset();
+    }
 
-        storageService.batchInsert(sourceDto, chunkData);
+    private void convertChunk(ImportChunk chunk, List<String> fieldNames) {
+        chunk.setBatch(RecordBatch.fromRecords(fieldNames, chunk.getRecords(), chunk.getRowKeys()));
+    }
 
-        log.info("Chunk of {} records processed", records.size());
+    private void writeChunk(ImportChunk chunk) {
+        ImportCheckpoint checkpoint = ImportCheckpoint.builder()
+                .sourceId(sourceDto.getId())
+                .sequence(chunk.getSequence())
+                .startOffset(chunk.getStartOffset())
+                .endOffset(chunk.getEndOffset())
+                .rowCount((long) chunk.getBatch().getRowCount())
+                .build();
+        storageService.batchInsert(sourceDto, chunk.getBatch(), checkpoint);
+        log.info("Chunk {} of {} records processed", chunk.getSequence(), chunk.getBatch().getRowCount());
     }
 
     @Override
@@ -146,7 +282,16 @@ public class CSVProcessingThread extends AbstractProcessingThread {
         } catch (Exception exception) {
             log.error("CSV of {} process error!", sourceDto.getId());
             log.error(exception.getMessage());
-            sourceGrpcClient.updateSourceStatus(userId, sourceDto.getId(), 4);
+            sourceGrpcClient.updateSourceStatus(userId, sourceDto.getId(), -1);
+        } finally {
+            // Even a failed import may have committed chunks
+            chartCacheService.invalidateTable(sourceDto.getTableName());
+            try {
+                // Rows keyed by file offset can land below the row key watermark of a materialized chart
+                storageService.markSourceChanged(sourceDto.getTableName(), true);
+            } catch (RuntimeException e) {
+                log.error("Mark charts of {} out of date failed! {}", sourceDto.getId(), e.getMessage());
+            }
         }
     }
 }
@@ -3,68 +3,69 @@ package com.haiphamcoder.dataprocessing.threads.impl;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
-
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.CellStyle;
-import org.apache.poi.ss.usermodel.CellType;
-import org.apache.poi.ss.usermodel.FormulaEvaluator;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.json.JSONObject;
+
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.haiphamcoder.dataprocessing.config.properties.ImportProperties;
 import com.haiphamcoder.dataprocessing.domain.dto.SourceDto;
+import com.haiphamcoder.dataprocessing.domain.model.ImportCheckpoint;
+import com.haiphamcoder.dataprocessing.domain.model.RecordBatch;
+import com.haiphamcoder.dataprocessing.service.ChartCacheService;
 import com.haiphamcoder.dataprocessing.service.HdfsFileService;
 import com.haiphamcoder.dataprocessing.service.SourceGrpcClient;
 import com.haiphamcoder.dataprocessing.service.StorageService;
 import com.haiphamcoder.dataprocessing.shared.StringUtils;
-import com.haiphamcoder.dataprocessing.shared.concurrent.ThreadPool;
 import com.haiphamcoder.dataprocessing.shared.processing.ExcelFileUtils.ExcelFileFormat;
 import com.haiphamcoder.dataprocessing.shared.processing.HeaderNormalizer;
+import com.haiphamcoder.dataprocessing.shared.processing.XlsxStreamReader;
 import com.haiphamcoder.dataprocessing.threads.AbstractProcessingThread;
+import com.haiphamcoder.dataprocessing.threads.pipeline.ImportChunk;
+import com.haiphamcoder.dataprocessing.threads.pipeline.ImportPipeline;
 import com.haiphamcoder.dataprocessing.shared.processing.ExcelFileUtils;
 
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Imports a sheet of an Excel file through an {@link ImportPipeline}.
+ * <p>
+ * Rows are streamed from the file (see
+ * {@link ExcelFileUtils#readRows(InputStream, ExcelFileFormat, String, String, XlsxStreamReader.RowHandler)})
+ * and written in chunks. The checkpoint of a chunk records its row numbers,
+ * so a restarted import skips the rows that were already committed.
+ */
 @Slf4j
 public class ExcelProcessingThread extends AbstractProcessingThread {
     private final HdfsFileService hdfsFileService;
-    private final ExecutorService executorService;
     private final StorageService storageService;
     private final SourceDto sourceDto;
     private final SourceGrpcClient sourceGrpcClient;
+    private final ImportProperties importProperties;
+    private final ChartCacheService chartCacheService;
     private final Long userId;
 
     public ExcelProcessingThread(Long userId, SourceDto sourceDto,
             StorageService storageService,
             HdfsFileService hdfsFileService,
-            SourceGrpcClient sourceGrpcClient) {
+            SourceGrpcClient sourceGrpcClient,
+            ImportProperties importProperties,
+            ChartCacheService chartCacheService) {
         super("excel-processing-thread", false);
         this.hdfsFileService = hdfsFileService;
         this.storageService = storageService;
         this.sourceDto = sourceDto;
         this.sourceGrpcClient = sourceGrpcClient;
+        this.importProperties = importProperties;
+        this.chartCacheService = chartCacheService;
         this.userId = userId;
-
-        executorService = ThreadPool.builder()
-                .setCoreSize(Runtime.getRuntime().availableProcessors())
-                .setMaxSize(Runtime.getRuntime().availableProcessors() * 2)
-                .setQueueSize(100)
-                .setNamePrefix("excel-processing-thread")
-                .build()
-                .getExecutorService();
     }
 
     /**
      * Process the Excel file
-     * 
+     *
      * @return true if the Excel file is processed successfully, false otherwise
      */
     protected boolean process() {
@@ -90,118 +91,143 @@ public class ExcelProcessingThread extends AbstractProcessingThread {
         }
         String dataRangeSelected = dataRangeSelectedNode.asText();
 
-        List<Future<?>> futures = new ArrayList<>();
-        try (InputStream inputStream = hdfsFileService.streamFile(filePath)) {
+        Map<Long, ImportCheckpoint> committed = new HashMap<>();
+        long nextSequence = 0;
+        for (ImportCheckpoint checkpoint : storageService.getImportCheckpoints(sourceDto.getId())) {
+            committed.put(checkpoint.getStartOffset(), checkpoint);
+            nextSequence = Math.max(nextSequence, checkpoint.getSequence() + 1);
+        }
+        if (!committed.isEmpty()) {
+            log.info("Resuming import of source {} ({} chunks already committed)", sourceDto.getId(),
+                    committed.size());
+        }
+
+        List<String> header = new ArrayList<>();
+        try (ImportPipeline pipeline = new ImportPipeline("excel-import-" + sourceDto.getId(), importProperties,
+                chunk -> convertChunk(chunk, header), this::writeChunk);
+                InputStream inputStream = hdfsFileService.streamFile(filePath)) {
             ExcelFileFormat fileFormat = ExcelFileUtils.getFileFormat(filePath);
-            try (Workbook workbook = ExcelFileUtils.createWorkbook(inputStream, fileFormat)) {
-                FormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
-                Sheet sheet = workbook.getSheet(sheetName);
-                if (sheet == null) {
-                    throw new RuntimeException("Sheet not found");
-                }
+            SheetChunker chunker = new SheetChunker(pipeline, header, committed, nextSequence);
+            if (!ExcelFileUtils.readRows(inputStream, fileFormat, sheetName, dataRangeSelected, chunker)) {
+                throw new RuntimeException("Sheet not found");
+            }
+            chunker.flush();
+            pipeline.finish();
+            log.info("Total records: {}", chunker.recordCount);
+        } catch (ExecutionException e) {
+            log.error("Error importing Excel", e.getCause());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Excel import of {} interrupted", sourceDto.getId());
+            return false;
+        } catch (IOException e) {
+            log.error("Error processing Excel", e);
+            return false;
+        }
 
-                int[] dataRange = ExcelFileUtils.processFileSelection(sheet, dataRangeSelected);
-                int rowsMin = dataRange[0];
-                int colsMin = dataRange[1];
-                int rowsMax = dataRange[2];
-                int colsMax = dataRange[3];
-
-                List<String> header = new LinkedList<>();
-                Iterator<Row> rowIterator = sheet.iterator();
-                while (rowIterator.hasNext() && header.isEmpty()) {
-                    Row row = rowIterator.next();
-                    if (row.getRowNum() < rowsMin || row.getRowNum() > rowsMax) {
-                        continue;
-                    }
-                    for (int i = colsMin; i < colsMax; i++) {
-                        Cell cell = row.getCell(i, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-                        if (cell != null && !cell.equals("")) {
-                            header.add(ExcelFileUtils.getCellValueAsString(cell));
-                        }
-                    }
-                }
+        storageService.clearImportCheckpoints(sourceDto.getId());
+        return true;
+    }
 
-                int chunkSize = 200;
-                int recordCount = 0;
-                List<String[]> records = new LinkedList<>();
-                String[] record;
-                while (rowIterator.hasNext()) {
-                    Row row = rowIterator.next();
-                    if (row.getRowNum() < rowsMin || row.getRowNum() > rowsMax) {
-                        continue;
-                    }
-                    record = new String[colsMax - colsMin];
-                    for (int i = colsMin; i < colsMax; i++) {
-                        Cell cell = row.getCell(i, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-                        if (cell != null && !cell.equals("")) {
-                            if (cell.getCellStyle().equals(CellType.NUMERIC)
-                                    && ExcelFileUtils.getCellValueAsString(cell, evaluator).contains("$")) {
-                                CellStyle cellStyle = workbook.createCellStyle();
-                                cell.setCellStyle(cellStyle);
-                            }
-                            String value = ExcelFileUtils.getCellValueAsString(cell, evaluator);
-                            if (!StringUtils.isNullOrEmpty(value)) {
-                                record[i - colsMin] = value;
-                            } else {
-                                record[i - colsMin] = null;
-                            }
-                        }
-                    }
+    /**
+     * Groups streamed rows into chunks and submits them to the pipeline. The
+     * first row of the range is the header; rows of committed chunks are skipped.
+     */
+    private class SheetChunker implements XlsxStreamReader.RowHandler {
+        private final ImportPipeline pipeline;
+        private final List<String> header;
+        private final Map<Long, ImportCheckpoint> committed;
+        private final int chunkSize = Math.max(1, importProperties.getChunkSize());
+        private long sequence;
+        private long skipUntil = -1;
+        private long chunkStart;
+        private long chunkEnd;
+        private long recordCount;
+        private List<String[]> records = new ArrayList<>();
+
+        SheetChunker(ImportPipeline pipeline, List<String> header, Map<Long, ImportCheckpoint> committed,
+                long sequence) {
+            this.pipeline = pipeline;
+            this.header = header;
+            this.committed = committed;
+            this.sequence = sequence;
+        }
 
-                    recordCount++;
-                    if (records.size() == chunkSize) {
-                        final List<String[]> recordsChunk = new LinkedList<>(records);
-                        futures.add(executorService.submit(() -> processChunk(recordsChunk, header)));
-                        records.clear();
+        @Override
+        public boolean handleRow(int rowNum, String[] values) {
+            if (header.isEmpty()) {
+                for (String value : values) {
+                    if (!StringUtils.isNullOrEmpty(value)) {
+                        header.add(HeaderNormalizer.normalize(value));
                     }
-                    records.add(record);
                 }
-
-                if (records.size() > 0) {
-                    futures.add(executorService.submit(() -> processChunk(records, header)));
+                return true;
+            }
+            if (rowNum < skipUntil) {
+                return true;
+            }
+            if (records.isEmpty()) {
+                ImportCheckpoint checkpoint = committed.get((long) rowNum);
+                if (checkpoint != null) {
+                    skipUntil = checkpoint.getEndOffset();
+                    return true;
                 }
-
-                log.info("Total records: {}", recordCount);
-            } catch (IOException e) {
-                log.error("Error processing Excel", e);
-                return false;
+                chunkStart = rowNum;
             }
 
-            for (Future<?> future : futures) {
-                try {
-                    future.get();
-                } catch (InterruptedException | ExecutionException e) {
-                    log.error("Error processing chunk", e);
-                }
+            // Each row gets a fresh array from the reader; empty cells become nulls in the batch
+            records.add(values);
+            chunkEnd = rowNum + 1L;
+            recordCount++;
+            if (records.size() == chunkSize) {
+                return submit();
             }
             return true;
-        } catch (IOException e) {
-            log.error("Error processing CSV", e);
-            return false;
         }
-    }
 
-    private void processChunk(List<String[]> records, List<String> fieldNames) {
-        log.info("Processing chunk of {} records", records.size());
-        List<JSONObject> chunkData = new LinkedList<>();
-        for (String[] record : records) {
-            if (record.length != fieldNames.size()) {
-                log.error("Record length does not match field names size");
-                continue;
+        void flush() throws ExecutionException, InterruptedException {
+            if (!records.isEmpty()) {
+                pipeline.submit(new ImportChunk(sequence++, chunkStart, chunkEnd, records));
+                records = new ArrayList<>();
             }
+        }
 
-            JSONObject recordJson = new JSONObject();
-            for (int i = 0; i < fieldNames.size(); i++) {
-                String fieldName = HeaderNormalizer.normalize(fieldNames.get(i));
-                String value = record[i];
-                recordJson.put(fieldName, value);
+        /**
+         * @return false to stop reading when the pipeline has failed
+         */
+        private boolean submit() {
+            try {
+                flush();
+                return true;
+            } catch (ExecutionException e) {
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
             }
-            chunkData.add(recordJson);
         }
+    }
 
-        storageService.batchInsert(sourceDto, chunkData);
+    private void convertChunk(ImportChunk chunk, List<String> fieldNames) {
+        RecordBatch batch = RecordBatch.fromRecords(fieldNames, chunk.getRecords());
+        int skipped = chunk.getRecords().size() - batch.getRowCount();
+        if (skipped > 0) {
+            log.error("{} records of chunk {} do not match field names size", skipped, chunk.getSequence());
+        }
+        chunk.setBatch(batch);
+    }
 
-        log.info("Chunk of {} records processed", records.size());
+    private void writeChunk(ImportChunk chunk) {
+        ImportCheckpoint checkpoint = ImportCheckpoint.builder()
+                .sourceId(sourceDto.getId())
+                .sequence(chunk.getSequence())
+                .startOffset(chunk.getStartOffset())
+                .endOffset(chunk.getEndOffset())
+                .rowCount((long) chunk.getBatch().getRowCount())
+                .build();
+        storageService.batchInsert(sourceDto, chunk.getBatch(), checkpoint);
+        log.info("Chunk {} of {} records processed", chunk.getSequence(), chunk.getBatch().getRowCount());
     }
 
     @Override
@@ -219,6 +245,15 @@ public class ExcelProcessingThread extends AbstractProcessingThread {
         } catch (Exception exception) {
             log.error("Excel of {} process error!", sourceDto.getId());
             log.error(exception.getMessage());
+            sourceGrpcClient.updateSourceStatus(userId, sourceDto.getId(), -1);
+        } finally {
+            // Even a failed import may have committed chunks
+            chartCacheService.invalidateTable(sourceDto.getTableName());
+            try {
+                storageService.markSourceChanged(sourceDto.getTableName(), false);
+            } catch (RuntimeException e) {
+                log.error("Mark charts of {} out of date failed! {}", sourceDto.getId(), e.getMessage());
+            }
         }
     }
 }
@@ -0,0 +1,38 @@
+package com.haiphamcoder.dataprocessing.threads.pipeline;
+
+import java.util.List;
+
+import com.haiphamcoder.dataprocessing.domain.model.RecordBatch;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A run of consecutive records travelling through an {@link ImportPipeline}.
+ * The byte range locates the chunk in the source file; the rows are filled in
+ * by the convert stage as a columnar {@link RecordBatch}. Readers that know
+ * the position of every record pass it as {@code rowKeys}, one per record.
+ */
+@Getter
+public class ImportChunk {
+    private final long sequence;
+    private final long startOffset;
+    private final long endOffset;
+    private final List<String[]> records;
+    private final long[] rowKeys;
+
+    @Setter
+    private RecordBatch batch;
+
+    public ImportChunk(long sequence, long startOffset, long endOffset, List<String[]> records, long[] rowKeys) {
+        this.sequence = sequence;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        this.records = records;
+        this.rowKeys = rowKeys;
+    }
+
+    public ImportChunk(long sequence, long startOffset, long endOffset, List<String[]> records) {
+        this(sequence, startOffset, endOffset, records, null);
+    }
+}
@@ -0,0 +1,185 @@
+package com.haiphamcoder.dataprocessing.threads.pipeline;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.haiphamcoder.dataprocessing.config.properties.ImportProperties;
+import com.haiphamcoder.dataprocessing.shared.concurrent.ThreadPool;
+import com.haiphamcoder.dataprocessing.shared.concurrent.Threads;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Three stage import pipeline: the caller parses chunks and {@link #submit}s
+ * them, a pool of convert workers turns records into rows, and a pool of write
+ * workers stores them. Stages are connected by bounded queues, so a slow stage
+ * blocks the one before it instead of letting chunks pile up in memory.
+ * <p>
+ * The first failure (after {@code maxRetries} for writes) stops the pipeline:
+ * later chunks are drained without being processed and the failure is rethrown
+ * from {@link #submit} or {@link #finish}.
+ */
+@Slf4j
+public class ImportPipeline implements Closeable {
+
+    private static final ImportChunk END = new ImportChunk(-1, -1, -1, List.of());
+
+    private final ImportProperties properties;
+    private final Consumer<ImportChunk> writer;
+    private final BlockingQueue<ImportChunk> convertQueue;
+    private final BlockingQueue<ImportChunk> writeQueue;
+    private final ThreadPool convertPool;
+    private final ThreadPool writePool;
+    private final List<Future<?>> convertWorkers = new ArrayList<>();
+    private final List<Future<?>> writeWorkers = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    public ImportPipeline(String name, ImportProperties properties, Consumer<ImportChunk> converter,
+            Consumer<ImportChunk> writer) {
+        this.properties = properties;
+        this.writer = writer;
+        int queueCapacity = Math.max(1, properties.getQueueCapacity());
+        int convertParallelism = Math.max(1, properties.getConvertParallelism());
+        int writeParallelism = Math.max(1, properties.getWriteParallelism());
+        this.convertQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writeQueue = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.convertPool = ThreadPool.builder()
+                .setCoreSize(convertParallelism)
+                .setMaxSize(convertParallelism)
+                .setNamePrefix(name + "-convert")
+                .build();
+        this.writePool = ThreadPool.builder()
+                .setCoreSize(writeParallelism)
+                .setMaxSize(writeParallelism)
+                .setNamePrefix(name + "-write")
+                .build();
+
+        for (int i = 0; i < convertParallelism; i++) {
+            convertWorkers.add(convertPool.getExecutorService().submit(() -> runStage(convertQueue, chunk -> {
+                converter.accept(chunk);
+                put(writeQueue, chunk);
+            })));
+        }
+        for (int i = 0; i < writeParallelism; i++) {
+            writeWorkers.add(writePool.getExecutorService().submit(() -> runStage(writeQueue, this::write)));
+        }
+    }
+
+    /**
+     * Hand a parsed chunk to the convert stage, blocking while its queue is full.
+     *
+     * @param chunk the chunk to process
+     * @throws ExecutionException   if a previous chunk failed
+     * @throws InterruptedException if interrupted while waiting for queue space
+     */
+    public void submit(ImportChunk chunk) throws ExecutionException, InterruptedException {
+        checkFailure();
+        convertQueue.put(chunk);
+    }
+
+    /**
+     * Signal the end of input and wait until every submitted chunk is written.
+     *
+     * @throws ExecutionException   if any chunk failed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void finish() throws ExecutionException, InterruptedException {
+        for (int i = 0; i < convertWorkers.size(); i++) {
+            convertQueue.put(END);
+        }
+        awaitAll(convertWorkers);
+        for (int i = 0; i < writeWorkers.size(); i++) {
+            writeQueue.put(END);
+        }
+        awaitAll(writeWorkers);
+        checkFailure();
+    }
+
+    public boolean hasFailed() {
+        return failure.get() != null;
+    }
+
+    private void runStage(BlockingQueue<ImportChunk> queue, Consumer<ImportChunk> action) {
+        while (true) {
+            ImportChunk chunk;
+            try {
+                chunk = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (chunk == END) {
+                return;
+            }
+            if (failure.get() != null) {
+                // Keep draining so upstream stages never block on a stopped pipeline
+                continue;
+            }
+            try {
+                action.accept(chunk);
+            } catch (Throwable t) {
+                log.error("Chunk {} failed: {}", chunk.getSequence(), t.getMessage());
+                failure.compareAndSet(null, t);
+            }
+        }
+    }
+
+    private void write(ImportChunk chunk) {
+        int attempt = 0;
+        while (true) {
+            try {
+                writer.accept(chunk);
+                return;
+            } catch (RuntimeException e) {
+                attempt++;
+                if (attempt > properties.getMaxRetries()) {
+                    throw e;
+                }
+                log.warn("Writing chunk {} failed (attempt {}), retrying: {}", chunk.getSequence(), attempt,
+                        e.getMessage());
+                Threads.sleep(properties.getRetryDelayMs() * attempt);
+            }
+        }
+    }
+
+    private void put(BlockingQueue<ImportChunk> queue, ImportChunk chunk) {
+        try {
+            queue.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing chunk " + chunk.getSequence(), e);
+        }
+    }
+
+    private void awaitAll(List<Future<?>> workers) throws InterruptedException {
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (ExecutionException e) {
+                failure.compareAndSet(null, e.getCause());
+            }
+        }
+    }
+
+    private void checkFailure() throws ExecutionException {
+        Throwable cause = failure.get();
+        if (cause != null) {
+            throw new ExecutionException("Import pipeline failed", cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        convertPool.getExecutorService().shutdownNow();
+        writePool.getExecutorService().shutdownNow();
+    }
+
+}
@@ -0,0 +1,205 @@
+package com.haiphamcoder.dataprocessing.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import com.haiphamcoder.dataprocessing.shared.processing.ExcelCellConverter;
+import com.haiphamcoder.dataprocessing.shared.processing.XlsxStreamReader;
+
+/**
+ * Time to convert every cell of a 1M cell sheet (100k rows x 10 columns of
+ * text, integers, decimals, dates and booleans) to strings.
+ * <p>
+ * {@code *Workbook} benchmarks convert the cells of a loaded workbook with
+ * {@link DataFormatter#formatCellValue} and with {@link ExcelCellConverter}.
+ * {@code *Stream} benchmarks read the same data from an XLSX file with POI's
+ * {@link XSSFSheetXMLHandler} and with {@link XlsxStreamReader}; both include
+ * opening the package, and the latter also its temporary file copy.
+ *
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *     com.haiphamcoder.dataprocessing.benchmark.ExcelCellConverterBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ExcelCellConverterBenchmark {
+
+    private static final int ROWS = 100_000;
+    private static final int COLUMNS = 10;
+    private static final String SHEET_NAME = "data";
+
+    private Workbook workbook;
+    private FormulaEvaluator evaluator;
+    private byte[] xlsx;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        workbook = new HSSFWorkbook();
+        fill(workbook);
+        evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+
+        try (SXSSFWorkbook streamingWorkbook = new SXSSFWorkbook(1000);
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            fill(streamingWorkbook);
+            streamingWorkbook.write(outputStream);
+            xlsx = outputStream.toByteArray();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        workbook.close();
+    }
+
+    /**
+     * Write the benchmark rows. HSSF sheets hold at most 65536 rows, so the
+     * rows are spread over two sheets there; the cell count is the same.
+     */
+    private static void fill(Workbook target) {
+        CellStyle decimalStyle = target.createCellStyle();
+        decimalStyle.setDataFormat(target.createDataFormat().getFormat("#,##0.00"));
+        CellStyle dateStyle = target.createCellStyle();
+        dateStyle.setDataFormat(target.createDataFormat().getFormat("yyyy-mm-dd"));
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2024, Calendar.JANUARY, 1);
+
+        int maxRowsPerSheet = target instanceof HSSFWorkbook ? 50_000 : ROWS;
+        Sheet sheet = null;
+        for (int r = 0; r < ROWS; r++) {
+            if (r % maxRowsPerSheet == 0) {
+                sheet = target.createSheet(r == 0 ? SHEET_NAME : SHEET_NAME + r);
+            }
+            Row row = sheet.createRow(r % maxRowsPerSheet);
+            for (int c = 0; c < COLUMNS; c++) {
+                Cell cell = row.createCell(c);
+                switch (c % 5) {
+                    case 0 -> cell.setCellValue("text " + r + "-" + c);
+                    case 1 -> cell.setCellValue(r * 10L + c);
+                    case 2 -> {
+                        cell.setCellValue(r * 1.25 + c);
+                        cell.setCellStyle(decimalStyle);
+                    }
+                    case 3 -> {
+                        cell.setCellValue(calendar.getTime());
+                        cell.setCellStyle(dateStyle);
+                    }
+                    default -> cell.setCellValue(r % 2 == 0);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void dataFormatterWorkbook(Blackhole blackhole) {
+        DataFormatter dataFormatter = new DataFormatter();
+        for (Sheet sheet : workbook) {
+            for (Row row : sheet) {
+                for (Cell cell : row) {
+                    blackhole.consume(dataFormatter.formatCellValue(cell, evaluator));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void converterWorkbook(Blackhole blackhole) {
+        ExcelCellConverter converter = new ExcelCellConverter(evaluator);
+        for (Sheet sheet : workbook) {
+            for (Row row : sheet) {
+                for (Cell cell : row) {
+                    blackhole.consume(converter.convert(cell));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void dataFormatterStream(Blackhole blackhole) throws Exception {
+        try (InputStream inputStream = new ByteArrayInputStream(xlsx);
+                OPCPackage opcPackage = OPCPackage.open(inputStream)) {
+            XSSFReader reader = new XSSFReader(opcPackage);
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(),
+                    new ReadOnlySharedStringsTable(opcPackage, false), new SheetContentsHandler() {
+                        @Override
+                        public void startRow(int rowNum) {
+                        }
+
+                        @Override
+                        public void endRow(int rowNum) {
+                        }
+
+                        @Override
+                        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+                            blackhole.consume(formattedValue);
+                        }
+                    }, new DataFormatter(), false));
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            try (InputStream sheetStream = sheets.next()) {
+                parser.parse(new InputSource(sheetStream));
+            }
+        }
+    }
+
+    @Benchmark
+    public void converterStream(Blackhole blackhole) throws IOException {
+        try (XlsxStreamReader reader = new XlsxStreamReader(new ByteArrayInputStream(xlsx))) {
+            reader.readSheet(SHEET_NAME, 0, 0, Integer.MAX_VALUE, COLUMNS, (rowNum, values) -> {
+                blackhole.consume(values);
+                return true;
+            });
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ExcelCellConverterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+}
@@ -0,0 +1,288 @@
+package com.haiphamcoder.dataprocessing.benchmark;
+
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.haiphamcoder.dataprocessing.domain.dto.Mapping;
+import com.haiphamcoder.dataprocessing.infrastructure.tidb.impl.write.TidbWriter;
+import com.haiphamcoder.dataprocessing.shared.SnowflakeIdGenerator;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Rows/sec of {@link TidbWriter#batchInsert} against the previous single-row
+ * {@code addBatch} implementation for 10, 50 and 200 column tables.
+ * <p>
+ * By default the writers talk to a no-op JDBC connection, which isolates the
+ * client-side cost (row conversion, SQL building, parameter binding). Pass
+ * {@code -Dtidb.benchmark.url=jdbc:mysql://host:4000/test} (plus
+ * {@code tidb.benchmark.username}/{@code tidb.benchmark.password}) to run
+ * against a real TiDB instead. The baseline then runs on a pool with the
+ * connection settings it had before multi-row statements, without
+ * {@code rewriteBatchedStatements}, so its {@code addBatch} loop still sends
+ * one statement per row.
+ *
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *     com.haiphamcoder.dataprocessing.benchmark.TidbWriterBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TidbWriterBenchmark {
+
+    private static final int ROWS_PER_BATCH = 200;
+
+    @Param({ "10", "50", "200" })
+    private int columnCount;
+
+    private DataSource dataSource;
+    private DataSource legacyDataSource;
+    private String table;
+    private List<Mapping> mappings;
+    private List<JSONObject> dataList;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        mappings = new ArrayList<>(columnCount);
+        for (int c = 0; c < columnCount; c++) {
+            mappings.add(Mapping.builder()
+                    .fieldName("Column " + c)
+                    .fieldMapping("column_" + c)
+                    .fieldType(c % 2 == 0 ? "text" : "BIGINT")
+                    .build());
+        }
+
+        dataList = new ArrayList<>(ROWS_PER_BATCH);
+        for (int r = 0; r < ROWS_PER_BATCH; r++) {
+            JSONObject data = new JSONObject();
+            for (int c = 0; c < columnCount; c++) {
+                data.put("column_" + c, c % 2 == 0 ? "value_" + r + "_" + c : String.valueOf(r * c));
+            }
+            dataList.add(data);
+        }
+
+        table = "benchmark_writer_" + columnCount;
+        String url = System.getProperty("tidb.benchmark.url");
+        if (url == null) {
+            dataSource = new NoopDataSource();
+            legacyDataSource = dataSource;
+            return;
+        }
+
+        dataSource = createDataSource(url, true);
+        legacyDataSource = createDataSource(url, false);
+
+        StringBuilder ddl = new StringBuilder("CREATE TABLE IF NOT EXISTS ").append(table).append(" (_id_ text");
+        for (Mapping mapping : mappings) {
+            ddl.append(",").append(mapping.getFieldMapping()).append(" ").append(mapping.getFieldType());
+        }
+        ddl.append(")");
+        try (Connection connection = dataSource.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DROP TABLE IF EXISTS " + table);
+            statement.executeUpdate(ddl.toString());
+        }
+    }
+
+    /**
+     * A pool with the driver settings of TidbDataSourceConfiguration;
+     * {@code rewriteBatchedStatements} was only added with multi-row inserts.
+     */
+    private static HikariDataSource createDataSource(String url, boolean rewriteBatchedStatements) {
+        HikariDataSource hikariDataSource = new HikariDataSource();
+        hikariDataSource.setJdbcUrl(url);
+        hikariDataSource.setUsername(System.getProperty("tidb.benchmark.username", "root"));
+        hikariDataSource.setPassword(System.getProperty("tidb.benchmark.password", ""));
+        hikariDataSource.addDataSourceProperty("cachePrepStmts", "true");
+        hikariDataSource.addDataSourceProperty("prepStmtCacheSize", "250");
+        hikariDataSource.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        hikariDataSource.addDataSourceProperty("useServerPrepStmts", "true");
+        hikariDataSource.addDataSourceProperty("useCursorFetch", "true");
+        if (rewriteBatchedStatements) {
+            hikariDataSource.addDataSourceProperty("rewriteBatchedStatements", "true");
+        }
+        return hikariDataSource;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (dataSource instanceof HikariDataSource hikariDataSource) {
+            hikariDataSource.close();
+        }
+        if (legacyDataSource instanceof HikariDataSource hikariDataSource) {
+            hikariDataSource.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_BATCH)
+    public void singleRowAddBatch() throws Exception {
+        try (Connection connection = legacyDataSource.getConnection()) {
+            legacyBatchInsert(connection, table, mappings, dataList);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_BATCH)
+    public void multiRowInsert() throws Exception {
+        try (TidbWriter tidbWriter = new TidbWriter(dataSource)) {
+            tidbWriter.batchInsert(table, mappings, dataList, false);
+        }
+    }
+
+    /**
+     * The implementation of {@code TidbWriter.batchInsert} before multi-row
+     * statements, kept here as the baseline.
+     */
+    private static void legacyBatchInsert(Connection connection, String table, List<Mapping> mappings,
+            List<JSONObject> dataList) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        for (Mapping mapping : mappings) {
+            columns.add(mapping.getFieldMapping());
+        }
+
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+        StringBuilder values = new StringBuilder(" VALUES (");
+        sql.append("_id_").append(",");
+        values.append("?,");
+        columns.forEach(column -> {
+            sql.append(column).append(",");
+            values.append("?,");
+        });
+        sql.deleteCharAt(sql.length() - 1).append(") ");
+        values.deleteCharAt(values.length() - 1).append(")");
+        sql.append(values);
+
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            for (JSONObject data : dataList) {
+                statement.setString(1, "row_" + SnowflakeIdGenerator.getInstance().generateId());
+                for (int i = 0; i < columns.size(); i++) {
+                    Object value = data.get(columns.get(i));
+                    if (mappings.get(i).getFieldType().equals("text")) {
+                        value = value.toString().isEmpty() ? null : value.toString();
+                    } else if (value.toString().isEmpty()) {
+                        value = null;
+                    }
+                    statement.setObject(i + 2, value);
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Data source whose connections and statements accept every call and do
+     * nothing, so only the client-side work is measured.
+     */
+    static class NoopDataSource implements DataSource {
+
+        @Override
+        public Connection getConnection() {
+            return noop(Connection.class);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) {
+            return getConnection();
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T noop(Class<T> type) {
+            return (T) Proxy.newProxyInstance(TidbWriterBenchmark.class.getClassLoader(), new Class<?>[] { type },
+                    (proxy, method, args) -> {
+                        Class<?> returnType = method.getReturnType();
+                        if (returnType == PreparedStatement.class || returnType == Statement.class) {
+                            return noop(PreparedStatement.class);
+                        }
+                        if (returnType == boolean.class) {
+                            return method.getName().equals("getAutoCommit");
+                        }
+                        if (returnType == int.class) {
+                            return 0;
+                        }
+                        if (returnType == long.class) {
+                            return 0L;
+                        }
+                        if (returnType == int[].class) {
+                            return new int[0];
+                        }
+                        return null;
+                    });
+        }
+
+        @Override
+        public PrintWriter getLogWriter() {
+            return null;
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) {
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) {
+        }
+
+        @Override
+        public int getLoginTimeout() {
+            return 0;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) {
+            return null;
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) {
+            return false;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TidbWriterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+}
@@ -43,6 +43,8 @@ CREATE INDEX idx_source_description ON source (description);
 
 CREATE INDEX idx_source_user_id ON source (user_id);
 
+CREATE INDEX idx_source_user_id_created_at ON source (user_id, created_at);
+
 CREATE INDEX idx_source_type_connector ON source (connector_type);
 
 CREATE INDEX idx_source_status ON source (status);
@@ -36,4 +36,6 @@ CREATE INDEX idx_chart_description ON chart (description);
 
 CREATE INDEX idx_chart_user_id ON chart (user_id);
 
+CREATE INDEX idx_chart_user_id_created_at ON chart (user_id, created_at);
+
 CREATE INDEX idx_chart_is_deleted ON chart (is_deleted);
@@ -35,4 +35,6 @@ CREATE INDEX idx_report_description ON report (description);
 
 CREATE INDEX idx_report_user_id ON report (user_id);
 
+CREATE INDEX idx_report_user_id_created_at ON report (user_id, created_at);
+
 CREATE INDEX idx_report_is_deleted ON report (is_deleted);
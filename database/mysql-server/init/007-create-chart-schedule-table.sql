@@ -0,0 +1,22 @@
+CREATE DATABASE IF NOT EXISTS `reporting_tool`;
+
+USE `reporting_tool`;
+
+DROP TABLE IF EXISTS chart_schedule;
+
+CREATE TABLE
+    chart_schedule (
+        chart_id BIGINT NOT NULL PRIMARY KEY COMMENT 'ID của chart',
+        cron_expression VARCHAR(255) NOT NULL COMMENT 'Biểu thức cron của lịch làm mới',
+        enabled BOOLEAN NOT NULL DEFAULT TRUE COMMENT 'Trạng thái kích hoạt của lịch',
+        status VARCHAR(32) NOT NULL COMMENT 'Trạng thái lần chạy gần nhất',
+        next_fire_at BIGINT NOT NULL COMMENT 'Thời điểm chạy tiếp theo (epoch ms)',
+        last_started_at BIGINT NULL COMMENT 'Thời điểm bắt đầu lần chạy gần nhất (epoch ms)',
+        last_duration_ms BIGINT NULL COMMENT 'Thời gian chạy lần gần nhất (ms)',
+        lease_owner VARCHAR(128) NULL COMMENT 'Instance đang giữ quyền chạy lịch',
+        lease_until BIGINT NULL COMMENT 'Thời điểm hết hạn quyền chạy (epoch ms)',
+        created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT 'Thời điểm tạo lịch',
+        modified_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT 'Thời điểm cập nhật gần nhất'
+    );
+
+CREATE INDEX idx_chart_schedule_due ON chart_schedule (enabled, next_fire_at);
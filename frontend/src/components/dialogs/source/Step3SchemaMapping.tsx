@@ -3,7 +3,25 @@ import Stack from '@mui/material/Stack';
 import Box from '@mui/material/Box';
 import Typography from '@mui/material/Typography';
 import CustomizedDataGrid from '../../CustomizedDataGrid';
-import { GridColDef, GridRenderEditCellParams } from '@mui/x-data-grid';
+import { GridColDef, GridRenderEditCellParams, GridValueOptionsParams } from '@mui/x-data-grid';
+
+const FIELD_TYPE_OPTIONS = [
+  { value: 'TEXT', label: 'TEXT' },
+  { value: 'VARCHAR(255)', label: 'VARCHAR(255)' },
+  { value: 'INT', label: 'INT' },
+  { value: 'BIGINT', label: 'BIGINT' },
+  { value: 'DECIMAL(20,6)', label: 'DECIMAL(20,6)' },
+  { value: 'DOUBLE', label: 'DOUBLE' },
+  { value: 'BOOLEAN', label: 'BOOLEAN' },
+  { value: 'DATE', label: 'DATE' },
+  { value: 'DATETIME', label: 'DATETIME' },
+  { value: 'TIMESTAMP', label: 'TIMESTAMP' },
+  { value: 'TIME', label: 'TIME' },
+  { value: 'ARRAY', label: 'ARRAY' },
+  { value: 'OBJECT', label: 'OBJECT' },
+  { value: 'ENUM', label: 'ENUM' },
+  // Thêm các type khác nếu cần
+];
 
 interface Step3SchemaMappingProps {
   addForm: any;
@@ -41,19 +59,13 @@ const Step3SchemaMapping: React.FC<Step3SchemaMappingProps> = ({
       minWidth: 120,
       editable: true,
       type: 'singleSelect',
-      valueOptions: [
-        { value: 'TEXT', label: 'TEXT' },
-        { value: 'BIGINT', label: 'BIGINT' },
-        { value: 'DOUBLE', label: 'DOUBLE' },
-        { value: 'BOOLEAN', label: 'BOOLEAN' },
-        { value: 'DATE', label: 'DATE' },
-        { value: 'DATETIME', label: 'DATETIME' },
-        { value: 'TIMESTAMP', label: 'TIMESTAMP' },
-        { value: 'ARRAY', label: 'ARRAY' },
-        { value: 'OBJECT', label: 'OBJECT' },
-        { value: 'ENUM', label: 'ENUM' },
-        // Thêm các type khác nếu cần
-      ],
+      // Kiểu được suy ra có kích thước, ví dụ VARCHAR(64) hay DECIMAL(10,2), nên luôn giữ kiểu hiện tại của dòng
+      valueOptions: (params: GridValueOptionsParams) => {
+        const current = params.row?.field_type;
+        return current && !FIELD_TYPE_OPTIONS.some(option => option.value === current)
+          ? [{ value: current, label: current }, ...FIELD_TYPE_OPTIONS]
+          : FIELD_TYPE_OPTIONS;
+      },
       align: 'center',
       headerAlign: 'center',
     },
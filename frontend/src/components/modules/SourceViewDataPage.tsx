@@ -7,7 +7,7 @@ import CustomDataGrid from '../CustomizedDataGrid';
 import { Button, Stack, Alert, CircularProgress, Snackbar, Chip } from '@mui/material';
 import RefreshIcon from '@mui/icons-material/Refresh';
 import { useNavigate, useParams, useLocation } from 'react-router-dom';
-import { useState, useEffect, useCallback, useMemo } from 'react';
+import { useState, useEffect, useCallback, useMemo, useRef } from 'react';
 import { API_CONFIG } from '../../config/api';
 import Dialog from '@mui/material/Dialog';
 import DialogTitle from '@mui/material/DialogTitle';
@@ -27,6 +27,7 @@ interface Schema {
 interface PreviewData {
   schema: Schema[];
   records: any[];
+  next_cursor?: string;
 }
 
 interface SourceDetail {
@@ -59,6 +60,8 @@ export default function SourceViewDataPage() {
   const [error, setError] = useState<string | null>(null);
   const [currentPage, setCurrentPage] = useState(0);
   const [pageSize, setPageSize] = useState(10);
+  // Continuation tokens returned by the server, keyed by the page they lead to
+  const pageCursors = useRef<Map<string, string>>(new Map());
   const [editLoading, setEditLoading] = useState(false);
   const [snackbar, setSnackbar] = useState<{
     open: boolean;
@@ -169,6 +172,12 @@ export default function SourceViewDataPage() {
       if (search && field) {
         url += `&search=${encodeURIComponent(search)}&search-by=${encodeURIComponent(field)}`;
       }
+
+      // Seek from the previous page's last row instead of skipping page * size rows
+      const cursor = pageCursors.current.get(`${size}|${search}|${field}|${page}`);
+      if (cursor) {
+        url += `&cursor=${encodeURIComponent(cursor)}`;
+      }
       
       const response = await fetch(url, {
         method: 'GET',
@@ -189,8 +198,11 @@ export default function SourceViewDataPage() {
         let previewDataToSet;
 
         if (data.result && data.result.schema && data.result.records) {
-          // Expected structure: { schema: [...], records: [...] }
+          // Expected structure: { schema: [...], records: [...], next_cursor?: string }
           previewDataToSet = data.result;
+          if (data.result.next_cursor) {
+            pageCursors.current.set(`${size}|${search}|${field}|${page + 1}`, data.result.next_cursor);
+          }
         } else if (data.result && Array.isArray(data.result)) {
           // If result is an array, treat it as records
           previewDataToSet = {
@@ -232,7 +232,31 @@ export const OPERATORS_BY_DATA_TYPE: Record<string, Array<FilterCondition['opera
   date: ['EQ', 'NE', 'GT', 'GTE', 'LT', 'LTE', 'BETWEEN', 'IS_NULL', 'IS_NOT_NULL'],
 };
 
+// Họ kiểu dữ liệu của một cột TiDB, ví dụ VARCHAR(64) -> TEXT, DECIMAL(10,2) -> BIGINT, DATETIME(3) -> date
+export function getDataTypeFamily(dataType: string): string {
+  const type = dataType.trim().toUpperCase().replace(/\(.*\)$/, '');
+  switch (type) {
+    case 'TEXT':
+    case 'VARCHAR':
+    case 'CHAR':
+      return 'TEXT';
+    case 'INT':
+    case 'BIGINT':
+    case 'DECIMAL':
+    case 'DOUBLE':
+      return 'BIGINT';
+    case 'DATE':
+    case 'DATETIME':
+    case 'TIMESTAMP':
+    case 'TIME':
+      return 'date';
+    case 'BOOLEAN':
+      return 'boolean';
+    default:
+      return dataType;
+  }
+}
+
 export function getOperatorsForDataType(dataType: string): Array<FilterCondition['operator']> {
-  console.log(dataType);
-    return OPERATORS_BY_DATA_TYPE[dataType] || ['EQ', 'NE', 'IS_NULL', 'IS_NOT_NULL'];
+    return OPERATORS_BY_DATA_TYPE[getDataTypeFamily(dataType)] || ['EQ', 'NE', 'IS_NULL', 'IS_NOT_NULL'];
 }
\ No newline at end of file
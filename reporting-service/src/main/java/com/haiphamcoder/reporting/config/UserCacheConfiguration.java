@@ -0,0 +1,17 @@
+package com.haiphamcoder.reporting.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.haiphamcoder.reporting.config.properties.UserCacheProperties;
+
+@Configuration
+public class UserCacheConfiguration {
+
+    @Bean(name = "userCacheProperties")
+    @ConfigurationProperties(prefix = "user.cache")
+    UserCacheProperties getUserCacheProperties() {
+        return new UserCacheProperties();
+    }
+}
@@ -0,0 +1,15 @@
+package com.haiphamcoder.reporting.config.properties;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserCacheProperties {
+    private boolean enabled = true;
+    private int maxEntries = 10000;
+    private long ttlSeconds = 600;
+    private long reconnectDelayMs = 5000;
+}
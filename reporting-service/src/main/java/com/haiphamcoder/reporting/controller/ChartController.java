@@ -15,11 +15,17 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.haiphamcoder.reporting.domain.dto.ChartDto;
 import com.haiphamcoder.reporting.domain.dto.ChartDto.UserChartPermission;
+import com.haiphamcoder.reporting.domain.model.ChartData;
+import com.haiphamcoder.reporting.domain.model.PreviewData;
+import com.haiphamcoder.reporting.domain.model.QueryOption;
+import com.haiphamcoder.reporting.domain.model.QueryPlan;
+import com.haiphamcoder.reporting.domain.model.request.ChartsDataRequest;
 import com.haiphamcoder.reporting.domain.model.request.CreateChartRequest;
 import com.haiphamcoder.reporting.domain.model.request.ShareChartRequest;
 import com.haiphamcoder.reporting.domain.model.response.GetAllChartsResponse;
 import com.haiphamcoder.reporting.domain.model.response.Metadata;
 import com.haiphamcoder.reporting.service.ChartService;
+import com.haiphamcoder.reporting.service.QueryService;
 import com.haiphamcoder.reporting.shared.Pair;
 import com.haiphamcoder.reporting.shared.http.ApiResponse;
 import lombok.RequiredArgsConstructor;
@@ -30,6 +36,7 @@ import lombok.RequiredArgsConstructor;
 public class ChartController {
 
     private final ChartService chartService;
+    private final QueryService queryService;
 
     @GetMapping
     public ResponseEntity<ApiResponse<Object>> getAll(@CookieValue(name = "user-id") Long userId,
@@ -79,6 +86,47 @@ public class ChartController {
         return ResponseEntity.ok(ApiResponse.success(clonedChart, "Chart cloned successfully"));
     }
 
+    @GetMapping("/{chart-id}/data")
+    public ResponseEntity<ApiResponse<Object>> getData(@CookieValue(name = "user-id") Long userId,
+            @PathVariable("chart-id") Long chartId,
+            @RequestParam(name = "page", required = false, defaultValue = "0") Integer page,
+            @RequestParam(name = "limit", required = false, defaultValue = "10") Integer limit) {
+        PreviewData data = queryService.getChartData(userId, chartId, page, limit);
+        return ResponseEntity.ok(ApiResponse.success(data, "Chart data fetched successfully"));
+    }
+
+    @PostMapping("/data")
+    public ResponseEntity<ApiResponse<Object>> getChartsData(@CookieValue(name = "user-id") Long userId,
+            @RequestBody ChartsDataRequest request) {
+        List<ChartData> data = queryService.getChartsData(userId, request.getChartIds(),
+                request.getPage() != null ? request.getPage() : 0,
+                request.getLimit() != null ? request.getLimit() : 10);
+        return ResponseEntity.ok(ApiResponse.success(data, "Charts data fetched successfully"));
+    }
+
+    @PostMapping("/query")
+    public ResponseEntity<ApiResponse<Object>> query(@CookieValue(name = "user-id") Long userId,
+            @RequestBody QueryOption queryOption,
+            @RequestParam(name = "page", required = false, defaultValue = "0") Integer page,
+            @RequestParam(name = "limit", required = false, defaultValue = "10") Integer limit) {
+        PreviewData data = queryService.query(userId, queryOption, page, limit);
+        return ResponseEntity.ok(ApiResponse.success(data, "Query executed successfully"));
+    }
+
+    @PostMapping("/convert-query")
+    public ResponseEntity<ApiResponse<Object>> convertQuery(@CookieValue(name = "user-id") Long userId,
+            @RequestBody QueryOption queryOption) {
+        String sqlQuery = queryService.convertQuery(userId, queryOption);
+        return ResponseEntity.ok(ApiResponse.success(sqlQuery, "Query converted successfully"));
+    }
+
+    @PostMapping("/explain")
+    public ResponseEntity<ApiResponse<Object>> explain(@CookieValue(name = "user-id") Long userId,
+            @RequestBody QueryOption queryOption) {
+        QueryPlan plan = queryService.explain(userId, queryOption);
+        return ResponseEntity.ok(ApiResponse.success(plan, "Query explained successfully"));
+    }
+
     @GetMapping("/{chart-id}")
     public ResponseEntity<ApiResponse<Object>> getById(@CookieValue(name = "user-id") Long userId,
             @PathVariable("chart-id") Long chartId) {
@@ -1,6 +1,9 @@
 package com.haiphamcoder.reporting.controller;
 
 import java.util.List;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CookieValue;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -12,13 +15,17 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.haiphamcoder.reporting.domain.dto.ReportDto;
 import com.haiphamcoder.reporting.domain.dto.ReportDto.UserReportPermission;
+import com.haiphamcoder.reporting.domain.model.ChartData;
+import com.haiphamcoder.reporting.domain.model.ReportRender;
 import com.haiphamcoder.reporting.domain.model.request.CreateReportRequest;
 import com.haiphamcoder.reporting.domain.model.request.ShareReportRequest;
 import com.haiphamcoder.reporting.domain.model.response.GetAllReportsResponse;
 import com.haiphamcoder.reporting.domain.model.response.Metadata;
+import com.haiphamcoder.reporting.service.QueryService;
 import com.haiphamcoder.reporting.service.ReportService;
 import com.haiphamcoder.reporting.shared.Pair;
 import com.haiphamcoder.reporting.shared.http.ApiResponse;
@@ -30,6 +37,7 @@ import lombok.RequiredArgsConstructor;
 public class ReportController {
 
     private final ReportService reportService;
+    private final QueryService queryService;
 
     @GetMapping
     public ResponseEntity<ApiResponse<Object>> getAll(@CookieValue(name = "user-id") Long userId,
@@ -61,6 +69,48 @@ public class ReportController {
         return ResponseEntity.ok(ApiResponse.success(report, "Report fetched successfully"));
     }
 
+    @GetMapping("/{report-id}/data")
+    public ResponseEntity<ApiResponse<Object>> getData(@CookieValue(name = "user-id") Long userId,
+            @PathVariable("report-id") Long reportId,
+            @RequestParam(name = "page", required = false, defaultValue = "0") Integer page,
+            @RequestParam(name = "limit", required = false, defaultValue = "10") Integer limit) {
+        List<Long> chartIds = reportService.getReportChartIds(userId, reportId);
+        List<ChartData> data = queryService.getChartsData(userId, chartIds, page, limit);
+        return ResponseEntity.ok(ApiResponse.success(data, "Report data fetched successfully"));
+    }
+
+    @GetMapping("/{report-id}/render")
+    public ResponseEntity<ApiResponse<Object>> render(@CookieValue(name = "user-id") Long userId,
+            @PathVariable("report-id") Long reportId,
+            @RequestParam(name = "page", required = false, defaultValue = "0") Integer page,
+            @RequestParam(name = "limit", required = false, defaultValue = "10") Integer limit,
+            WebRequest webRequest) {
+        // Checked before any chart data is read, so a 304 Not Modified costs no chart query
+        String etag = reportService.getRenderEtag(userId, reportId, page, limit);
+        if (etag != null && isNotModified(webRequest, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        ReportRender render = reportService.renderReport(userId, reportId, page, limit);
+        // A chart that failed is read again on the next request instead of being kept by the client
+        if (etag == null || render.getCharts().stream().anyMatch(chart -> chart.getError() != null)) {
+            return ResponseEntity.ok(ApiResponse.success(render, "Report rendered successfully"));
+        }
+        return ResponseEntity.ok().eTag(etag).body(ApiResponse.success(render, "Report rendered successfully"));
+    }
+
+    /**
+     * @return whether the If-None-Match header of the request lists the ETag,
+     *         compared weakly as in {@link WebRequest#checkNotModified(String)}
+     */
+    private static boolean isNotModified(WebRequest webRequest, String etag) {
+        String ifNoneMatch = webRequest.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        ETag current = ETag.create(etag);
+        return ETag.parse(ifNoneMatch).stream().anyMatch(requested -> requested.compare(current, false));
+    }
+
     @GetMapping("/{report-id}/clone")
     public ResponseEntity<ApiResponse<Object>> clone(@CookieValue(name = "user-id") Long userId,
             @PathVariable("report-id") Long reportId) {
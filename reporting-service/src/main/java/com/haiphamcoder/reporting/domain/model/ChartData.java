@@ -0,0 +1,39 @@
+package com.haiphamcoder.reporting.domain.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.haiphamcoder.reporting.domain.dto.ChartDto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data of one chart of a batch, or why it could not be read.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ChartData {
+
+    @JsonProperty("chart_id")
+    private Long chartId;
+
+    @JsonProperty("chart")
+    private ChartDto chart;
+
+    @JsonProperty("data")
+    private PreviewData data;
+
+    @JsonProperty("materialized")
+    private Boolean materialized;
+
+    @JsonProperty("error")
+    private String error;
+
+}
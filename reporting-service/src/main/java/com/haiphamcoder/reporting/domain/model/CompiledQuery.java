@@ -0,0 +1,51 @@
+package com.haiphamcoder.reporting.domain.model;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * SQL compiled from a {@link QueryOption}: the statement text with {@code ?}
+ * placeholders and the values bound to them, in order.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CompiledQuery {
+
+    @JsonProperty("sql")
+    private String sql;
+
+    @JsonProperty("parameters")
+    private List<Object> parameters;
+
+    /**
+     * Hash of the statement text. Queries of the same shape that differ only
+     * in their values share the text, and so the hash and the prepared
+     * statement.
+     */
+    @JsonProperty("shape_hash")
+    private String shapeHash;
+
+    /** Labels of the result columns, in order. */
+    @JsonProperty("columns")
+    private List<String> columns;
+
+    /**
+     * Tables the query reads, so its cached results can be dropped when one
+     * of them changes.
+     */
+    @JsonProperty("tables")
+    private List<String> tables;
+
+}
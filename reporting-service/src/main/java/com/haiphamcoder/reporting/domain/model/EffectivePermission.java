@@ -0,0 +1,29 @@
+package com.haiphamcoder.reporting.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * What a user may do with a chart, source or report, resolved from its
+ * permission row: edit implies view, and owner implies both.
+ */
+@Getter
+@AllArgsConstructor
+public class EffectivePermission {
+
+    public static final EffectivePermission NONE = new EffectivePermission(false, false, false);
+
+    private final boolean view;
+    private final boolean edit;
+    private final boolean owner;
+
+    public static EffectivePermission of(String permission) {
+        if (permission == null) {
+            return NONE;
+        }
+        boolean owner = permission.contains("owner");
+        boolean edit = owner || permission.contains("edit");
+        return new EffectivePermission(edit || permission.contains("view"), edit, owner);
+    }
+
+}
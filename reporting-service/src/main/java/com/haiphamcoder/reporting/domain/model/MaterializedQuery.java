@@ -0,0 +1,63 @@
+package com.haiphamcoder.reporting.domain.model;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The query of a chart as the materialization of its result needs it: all
+ * rows, and when the result can be refreshed from the rows added to its table
+ * alone, how to do it.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class MaterializedQuery {
+
+    /** All rows of the chart, within its row limit. */
+    @JsonProperty("query")
+    private CompiledQuery query;
+
+    /**
+     * Hash of the query with its values inlined: a materialized result is only
+     * served while the chart still compiles to the same query.
+     */
+    @JsonProperty("definition_hash")
+    private String definitionHash;
+
+    /**
+     * The query restricted to a range of row keys of {@link #sourceTable},
+     * whose exclusive lower and inclusive upper bound are bound after the
+     * parameters of {@link #query}. Null when new rows cannot simply be merged
+     * into the result.
+     */
+    @JsonProperty("delta_query")
+    private CompiledQuery deltaQuery;
+
+    @JsonProperty("source_table")
+    private String sourceTable;
+
+    /**
+     * For every column, the function merging the values of new rows into it
+     * ({@code SUM}, {@code COUNT}, {@code MIN} or {@code MAX}), null for the
+     * group keys. All null when the rows are not grouped, and new rows are
+     * appended.
+     */
+    @JsonProperty("aggregates")
+    private List<String> aggregates;
+
+    /** Columns the rows are ordered by, as {@code <column index> ASC|DESC}. */
+    @JsonProperty("sort")
+    private List<String> sort;
+
+}
@@ -1,5 +1,6 @@
 package com.haiphamcoder.reporting.domain.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -27,6 +28,12 @@ public class QueryOption {
     @JsonProperty("table")
     private String table;
 
+    @JsonProperty("table_alias")
+    private String tableAlias;
+
+    @JsonProperty("distinct")
+    private Boolean distinct;
+
     @JsonProperty("fields")
     private List<Field> fields;
 
@@ -45,6 +52,13 @@ public class QueryOption {
     @JsonProperty("joins")
     private List<Join> joins;
 
+    /** Maximum number of rows of the chart, e.g. a top 10; pages never go past it. */
+    @JsonProperty("limit")
+    private Integer limit;
+
+    @JsonProperty("offset")
+    private Integer offset;
+
     @Data
     @Builder
     @AllArgsConstructor
@@ -89,6 +103,14 @@ public class QueryOption {
         @JsonProperty("prefix")
         private String prefix;
 
+        /** Comparison of a {@code having} condition. */
+        @JsonProperty("operator")
+        private String operator;
+
+        /** Value of a {@code having} condition. */
+        @JsonProperty("value")
+        private Object value;
+
     }
 
     @AllArgsConstructor
@@ -113,7 +135,7 @@ public class QueryOption {
 
     @JsonTypeInfo(
         use = JsonTypeInfo.Id.NAME,
-        include = JsonTypeInfo.As.PROPERTY,
+        include = JsonTypeInfo.As.EXISTING_PROPERTY,
         property = "type"
     )
     @JsonSubTypes({
@@ -169,15 +191,22 @@ public class QueryOption {
         BETWEEN("BETWEEN"),
         LIKE("LIKE"),
         IS_NULL("IS NULL"),
-        IS_NOT_NULL("IS NOT NULL");
+        IS_NOT_NULL("IS NOT NULL"),
+        REGEXP("REGEXP");
 
         @Getter
         @JsonValue
         private String value;
 
+        /**
+         * Accepts both the SQL form ({@code NOT IN}) and the constant name
+         * ({@code NOT_IN}) sent by the query builder.
+         */
+        @JsonCreator
         public static FilterConditionOperator fromValue(String value) {
             return Arrays.stream(FilterConditionOperator.values())
-                    .filter(filterConditionOperator -> filterConditionOperator.value.equals(value))
+                    .filter(filterConditionOperator -> filterConditionOperator.value.equals(value)
+                            || filterConditionOperator.name().equals(value))
                     .findFirst()
                     .orElse(null);
         }
@@ -304,6 +333,10 @@ public class QueryOption {
         @JsonProperty("conditions")
         private List<JoinCondition> conditions;
 
+        /** Conditions on the joined table alone, applied together with the join conditions. */
+        @JsonProperty("filters")
+        private FilterNode filters;
+
         @JsonProperty("alias")
         private String alias;
     }
@@ -321,9 +354,10 @@ public class QueryOption {
         @JsonValue
         private String value;
 
+        @JsonCreator
         public static JoinType fromValue(String value) {
             return Arrays.stream(JoinType.values())
-                    .filter(joinType -> joinType.value.equals(value))
+                    .filter(joinType -> joinType.value.equals(value) || joinType.name().equals(value))
                     .findFirst()
                     .orElse(null);
         }
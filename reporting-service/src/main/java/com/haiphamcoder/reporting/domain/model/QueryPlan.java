@@ -0,0 +1,52 @@
+package com.haiphamcoder.reporting.domain.model;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A chart query before and after optimization, with the TiDB plan of each.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class QueryPlan {
+
+    @JsonProperty("original_sql")
+    private String originalSql;
+
+    @JsonProperty("optimized_sql")
+    private String optimizedSql;
+
+    @JsonProperty("optimized_query_option")
+    private QueryOption optimizedQueryOption;
+
+    /** What the optimizer changed, in the order it did. */
+    @JsonProperty("rewrites")
+    private List<String> rewrites;
+
+    @JsonProperty("original_plan")
+    private List<JsonNode> originalPlan;
+
+    @JsonProperty("optimized_plan")
+    private List<JsonNode> optimizedPlan;
+
+    /** Estimated cost of the root operator of the plan, if TiDB reports one. */
+    @JsonProperty("original_cost")
+    private Double originalCost;
+
+    @JsonProperty("optimized_cost")
+    private Double optimizedCost;
+
+}
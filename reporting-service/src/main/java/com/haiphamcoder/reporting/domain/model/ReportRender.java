@@ -0,0 +1,33 @@
+package com.haiphamcoder.reporting.domain.model;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.haiphamcoder.reporting.domain.dto.ReportDto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Everything needed to draw a report: the report, and every chart it shows
+ * with a page of its data.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ReportRender {
+
+    @JsonProperty("report")
+    private ReportDto report;
+
+    @JsonProperty("charts")
+    private List<ChartData> charts;
+
+}
@@ -0,0 +1,31 @@
+package com.haiphamcoder.reporting.domain.model.request;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ChartsDataRequest {
+
+    @JsonProperty("chart_ids")
+    private List<Long> chartIds;
+
+    @JsonProperty("page")
+    private Integer page;
+
+    @JsonProperty("limit")
+    private Integer limit;
+
+}
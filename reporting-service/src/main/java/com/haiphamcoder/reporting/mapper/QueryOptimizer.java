@@ -0,0 +1,802 @@
+package com.haiphamcoder.reporting.mapper;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.haiphamcoder.reporting.domain.model.QueryOption;
+import com.haiphamcoder.reporting.domain.model.QueryOption.AggregateFunction;
+import com.haiphamcoder.reporting.domain.model.QueryOption.Field;
+import com.haiphamcoder.reporting.domain.model.QueryOption.FilterConditionNode;
+import com.haiphamcoder.reporting.domain.model.QueryOption.FilterConditionOperator;
+import com.haiphamcoder.reporting.domain.model.QueryOption.FilterGroupNode;
+import com.haiphamcoder.reporting.domain.model.QueryOption.FilterGroupNode.GroupOperator;
+import com.haiphamcoder.reporting.domain.model.QueryOption.FilterNode;
+import com.haiphamcoder.reporting.domain.model.QueryOption.Join;
+import com.haiphamcoder.reporting.domain.model.QueryOption.JoinCondition;
+import com.haiphamcoder.reporting.domain.model.QueryOption.JoinOperator;
+import com.haiphamcoder.reporting.domain.model.QueryOption.JoinType;
+import com.haiphamcoder.reporting.domain.model.QueryOption.Sort;
+import com.haiphamcoder.reporting.shared.MapperUtils;
+import com.haiphamcoder.reporting.shared.Pair;
+import com.haiphamcoder.reporting.shared.StringUtils;
+
+/**
+ * Rewrites a {@link QueryOption} into an equivalent one that is cheaper to
+ * run, before {@link SQLQueryBuilder} compiles it:
+ * <ul>
+ * <li>nested groups with the same operator are flattened;</li>
+ * <li>duplicate predicates are removed and predicates that can never match
+ * fold their group;</li>
+ * <li>equalities on one column joined by OR become one {@code IN}, and
+ * inequalities joined by AND one {@code NOT IN};</li>
+ * <li>a {@code LEFT JOIN} whose unmatched rows the filters reject becomes an
+ * inner join, and predicates on a single inner joined table move into its
+ * join;</li>
+ * <li>aggregates the chart does not show, and {@code LEFT JOIN}s nothing
+ * refers to that cannot change the result, are dropped.</li>
+ * </ul>
+ * Conditions the compiler would skip (no field, no operator, no value) are
+ * dropped, exactly as the compiler does. The input query is not modified.
+ */
+public class QueryOptimizer {
+
+    private static final String ROW_KEY_COLUMN = "_id_";
+
+    private final QueryOption query;
+    private final List<TableRef> tables = new ArrayList<>();
+    private final List<String> rewrites = new ArrayList<>();
+
+    private QueryOptimizer(QueryOption query, Map<String, String> tableNames) {
+        this.query = query;
+        String mainTable = tableNames.get(query.getTable());
+        tables.add(new TableRef(query.getTable(), mainTable,
+                !StringUtils.isNullOrEmpty(query.getTableAlias()) ? query.getTableAlias() : mainTable, null));
+        if (query.getJoins() != null) {
+            for (Join join : query.getJoins()) {
+                if (join != null && !StringUtils.isNullOrEmpty(join.getTable())) {
+                    String table = tableNames.get(join.getTable());
+                    tables.add(new TableRef(join.getTable(), table,
+                            !StringUtils.isNullOrEmpty(join.getTableAlias()) ? join.getTableAlias() : table, join));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param tableNames  table name of every source referenced by the query,
+     *                    by source id
+     * @param usedColumns names of the columns the chart shows, or null if it
+     *                    shows them all
+     * @return the optimized copy of the query and a description of every
+     *         rewrite applied
+     */
+    public static Pair<QueryOption, List<String>> optimize(QueryOption queryOption, Map<String, String> tableNames,
+            Set<String> usedColumns) {
+        QueryOption copy = MapperUtils.objectMapper.convertValue(queryOption, QueryOption.class);
+        QueryOptimizer optimizer = new QueryOptimizer(copy, tableNames);
+        optimizer.run(usedColumns);
+        return new Pair<>(copy, optimizer.rewrites);
+    }
+
+    private void run(Set<String> usedColumns) {
+        query.setFilters(simplify(query.getFilters()));
+        for (TableRef table : tables) {
+            if (table.join != null) {
+                table.join.setFilters(simplify(table.join.getFilters()));
+            }
+        }
+        simplifyOuterJoins();
+        pushDownPredicates();
+        pruneFields(usedColumns);
+        pruneJoins();
+    }
+
+    // Filter tree
+
+    /**
+     * @return the simplified node, or null if it has no condition left
+     */
+    private FilterNode simplify(FilterNode node) {
+        if (node instanceof FilterConditionNode condition) {
+            return simplifyCondition(condition);
+        }
+        if (node instanceof FilterGroupNode group) {
+            return simplifyGroup(group);
+        }
+        return null;
+    }
+
+    private FilterNode simplifyCondition(FilterConditionNode node) {
+        Field source = node.getSourceField();
+        FilterConditionOperator operator = node.getOperator();
+        if (source == null || StringUtils.isNullOrEmpty(source.getFieldMapping()) || operator == null) {
+            return null;
+        }
+        if (Boolean.TRUE.equals(node.getCompareWithOtherField())) {
+            Field target = node.getTargetField();
+            return target == null || StringUtils.isNullOrEmpty(target.getFieldMapping()) ? null : node;
+        }
+        switch (operator) {
+            case IS_NULL:
+            case IS_NOT_NULL:
+                return node;
+            case IN:
+            case NOT_IN: {
+                List<Object> values = distinct(SQLQueryBuilder.values(node.getValue(), SQLQueryBuilder.LIST_SEPARATOR));
+                if (values.isEmpty()) {
+                    if (operator == FilterConditionOperator.IN) {
+                        rewrites.add("IN on " + source.getFieldMapping() + " has no values and never matches");
+                        return falseNode(source);
+                    }
+                    return null;
+                }
+                setValues(node, operator == FilterConditionOperator.IN, values);
+                return node;
+            }
+            case BETWEEN:
+                return SQLQueryBuilder.values(node.getValue(), SQLQueryBuilder.RANGE_SEPARATOR).size() == 2 ? node
+                        : null;
+            default:
+                return node.getValue() == null ? null : node;
+        }
+    }
+
+    private FilterNode simplifyGroup(FilterGroupNode group) {
+        if (group.getElements() == null) {
+            return null;
+        }
+        boolean and = group.getOperator() != GroupOperator.OR;
+        List<FilterNode> children = new ArrayList<>();
+        for (FilterNode element : group.getElements()) {
+            FilterNode child = simplify(element);
+            if (child == null) {
+                continue;
+            }
+            if (child instanceof FilterGroupNode nested && (nested.getOperator() != GroupOperator.OR) == and) {
+                rewrites.add("Flattened a nested " + operatorName(and) + " group");
+                children.addAll(nested.getElements());
+            } else {
+                children.add(child);
+            }
+        }
+
+        FilterNode firstFalse = children.stream().filter(QueryOptimizer::isFalse).findFirst().orElse(null);
+        if (firstFalse != null) {
+            if (and) {
+                rewrites.add("AND group folded to false: one of its predicates never matches");
+                return firstFalse;
+            }
+            children.removeIf(QueryOptimizer::isFalse);
+            if (children.isEmpty()) {
+                return firstFalse;
+            }
+            rewrites.add("Removed predicates that never match from an OR group");
+        }
+
+        Map<String, FilterNode> unique = new LinkedHashMap<>();
+        for (FilterNode child : children) {
+            if (unique.putIfAbsent(signature(child), child) != null) {
+                rewrites.add("Removed a duplicate predicate" + describe(child));
+            }
+        }
+        children = new ArrayList<>(unique.values());
+
+        FilterNode merged = and ? mergeAnd(children) : mergeOr(children);
+        if (merged != null) {
+            return merged;
+        }
+        if (children.isEmpty()) {
+            return null;
+        }
+        if (children.size() == 1) {
+            return children.get(0);
+        }
+        group.setElements(children);
+        return group;
+    }
+
+    /**
+     * Merge equalities on the same column into one {@code IN}.
+     */
+    private FilterNode mergeOr(List<FilterNode> children) {
+        Map<String, List<FilterConditionNode>> byColumn = groupByColumn(children, true);
+        for (List<FilterConditionNode> conditions : byColumn.values()) {
+            if (conditions.size() < 2) {
+                continue;
+            }
+            List<Object> values = new ArrayList<>();
+            for (FilterConditionNode condition : conditions) {
+                values.addAll(valuesOf(condition));
+            }
+            FilterConditionNode first = conditions.get(0);
+            setValues(first, true, distinct(values));
+            children.removeAll(conditions.subList(1, conditions.size()));
+            rewrites.add("Merged " + conditions.size() + " OR-ed equalities on "
+                    + first.getSourceField().getFieldMapping() + " into one IN");
+        }
+        return null;
+    }
+
+    /**
+     * Merge inequalities on the same column into one {@code NOT IN}, and
+     * intersect the values allowed for a numeric column.
+     *
+     * @return a predicate that never matches if the intersection is empty,
+     *         otherwise null
+     */
+    private FilterNode mergeAnd(List<FilterNode> children) {
+        for (List<FilterConditionNode> conditions : groupByColumn(children, false).values()) {
+            if (conditions.size() < 2) {
+                continue;
+            }
+            List<Object> values = new ArrayList<>();
+            for (FilterConditionNode condition : conditions) {
+                values.addAll(valuesOf(condition));
+            }
+            FilterConditionNode first = conditions.get(0);
+            setValues(first, false, distinct(values));
+            children.removeAll(conditions.subList(1, conditions.size()));
+            rewrites.add("Merged " + conditions.size() + " AND-ed inequalities on "
+                    + first.getSourceField().getFieldMapping() + " into one NOT IN");
+        }
+
+        for (List<FilterConditionNode> conditions : groupByColumn(children, true).values()) {
+            // Only numbers compare the same here and in TiDB; text depends on the collation
+            if (conditions.size() < 2 || !SQLQueryBuilder.isNumeric(conditions.get(0).getSourceField())) {
+                continue;
+            }
+            List<BigDecimal> allowed = null;
+            List<Object> kept = null;
+            boolean numeric = true;
+            for (FilterConditionNode condition : conditions) {
+                List<Object> values = valuesOf(condition);
+                List<BigDecimal> numbers = toNumbers(values);
+                if (numbers == null) {
+                    numeric = false;
+                    break;
+                }
+                if (allowed == null) {
+                    allowed = numbers;
+                    kept = values;
+                } else {
+                    List<BigDecimal> nextAllowed = new ArrayList<>();
+                    List<Object> nextKept = new ArrayList<>();
+                    for (int i = 0; i < allowed.size(); i++) {
+                        if (containsNumber(numbers, allowed.get(i))) {
+                            nextAllowed.add(allowed.get(i));
+                            nextKept.add(kept.get(i));
+                        }
+                    }
+                    allowed = nextAllowed;
+                    kept = nextKept;
+                }
+            }
+            if (!numeric) {
+                continue;
+            }
+            FilterConditionNode first = conditions.get(0);
+            String column = first.getSourceField().getFieldMapping();
+            if (kept.isEmpty()) {
+                rewrites.add("Equalities on " + column + " have no value in common and never match");
+                return falseNode(first.getSourceField());
+            }
+            setValues(first, true, kept);
+            children.removeAll(conditions.subList(1, conditions.size()));
+            rewrites.add("Intersected " + conditions.size() + " AND-ed equalities on " + column);
+        }
+        return null;
+    }
+
+    /**
+     * @param positive group {@code EQ}/{@code IN} conditions if true,
+     *                 {@code NE}/{@code NOT IN} ones otherwise
+     */
+    private static Map<String, List<FilterConditionNode>> groupByColumn(List<FilterNode> children, boolean positive) {
+        Map<String, List<FilterConditionNode>> byColumn = new LinkedHashMap<>();
+        for (FilterNode child : children) {
+            if (child instanceof FilterConditionNode condition && !isFalse(condition)
+                    && !Boolean.TRUE.equals(condition.getCompareWithOtherField())) {
+                FilterConditionOperator operator = condition.getOperator();
+                boolean matches = positive
+                        ? operator == FilterConditionOperator.EQ || operator == FilterConditionOperator.IN
+                        : operator == FilterConditionOperator.NE || operator == FilterConditionOperator.NOT_IN;
+                if (matches) {
+                    byColumn.computeIfAbsent(fieldKey(condition.getSourceField()), k -> new ArrayList<>())
+                            .add(condition);
+                }
+            }
+        }
+        return byColumn;
+    }
+
+    // Joins
+
+    /**
+     * A {@code LEFT JOIN} is an inner join when the filters reject the rows
+     * it completes with NULLs.
+     */
+    private void simplifyOuterJoins() {
+        for (int i = 1; i < tables.size(); i++) {
+            TableRef table = tables.get(i);
+            if (table.join.getType() != JoinType.LEFT || !isJoinUsable(table.join) || !isUnique(i)) {
+                continue;
+            }
+            for (FilterNode conjunct : conjuncts(query.getFilters())) {
+                if (referencesOnly(conjunct, i) && rejectsNull(conjunct)) {
+                    table.join.setType(JoinType.INNER);
+                    rewrites.add("LEFT JOIN " + table.name + " is an inner join: the filters reject its NULL rows");
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Move the predicates on a single inner joined table into its join. A
+     * later {@code RIGHT JOIN} would bring back the rows they filter, so
+     * nothing is moved past one.
+     */
+    private void pushDownPredicates() {
+        List<FilterNode> conjuncts = conjuncts(query.getFilters());
+        if (conjuncts.isEmpty()) {
+            return;
+        }
+        boolean pushed = false;
+        for (int i = 1; i < tables.size(); i++) {
+            TableRef table = tables.get(i);
+            JoinType type = table.join.getType() != null ? table.join.getType() : JoinType.INNER;
+            if (type != JoinType.INNER || !isJoinUsable(table.join) || !isUnique(i) || hasRightJoinAfter(i)) {
+                continue;
+            }
+            for (Iterator<FilterNode> iterator = conjuncts.iterator(); iterator.hasNext();) {
+                FilterNode conjunct = iterator.next();
+                if (referencesOnly(conjunct, i)) {
+                    table.join.setFilters(and(table.join.getFilters(), conjunct));
+                    iterator.remove();
+                    pushed = true;
+                    rewrites.add("Moved predicate" + describe(conjunct) + " into the join of " + table.name);
+                }
+            }
+        }
+        if (pushed) {
+            query.setFilters(conjuncts.isEmpty() ? null
+                    : conjuncts.size() == 1 ? conjuncts.get(0) : andGroup(conjuncts));
+        }
+    }
+
+    /**
+     * Drop a {@code LEFT JOIN} nothing refers to when it cannot change the
+     * rows: it is joined on the row key of its table, which matches at most
+     * once, or the query ignores duplicate rows.
+     */
+    private void pruneJoins() {
+        for (int i = tables.size() - 1; i >= 1; i--) {
+            TableRef table = tables.get(i);
+            if (table.join.getType() != JoinType.LEFT || table.join.getFilters() != null || !isUnique(i)
+                    || !isJoinUsable(table.join) || isReferenced(i)) {
+                continue;
+            }
+            if (isJoinedOnRowKey(table.join, i) || ignoresDuplicates()) {
+                query.getJoins().remove(table.join);
+                tables.remove(i);
+                rewrites.add("Removed LEFT JOIN " + table.name + ": nothing refers to it");
+            }
+        }
+    }
+
+    private boolean isJoinedOnRowKey(Join join, int index) {
+        for (JoinCondition condition : join.getConditions()) {
+            if (condition == null || condition.getOperator() != JoinOperator.EQ) {
+                continue;
+            }
+            boolean rightIsJoin = StringUtils.isNullOrEmpty(condition.getRightTable())
+                    || mentions(index, condition.getRightTableAlias(), condition.getRightTable(),
+                            condition.getRightTableName());
+            boolean leftIsJoin = mentions(index, condition.getLeftTableAlias(), condition.getLeftTable(),
+                    condition.getLeftTableName());
+            if ((rightIsJoin && ROW_KEY_COLUMN.equals(condition.getRightField()))
+                    || (leftIsJoin && ROW_KEY_COLUMN.equals(condition.getLeftField()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Grouping on every plain field with only {@code MIN} and {@code MAX}
+     * aggregates, or {@code DISTINCT}, gives the same rows with or without
+     * duplicates.
+     */
+    private boolean ignoresDuplicates() {
+        if (Boolean.TRUE.equals(query.getDistinct())) {
+            return true;
+        }
+        if (query.getFields() == null || query.getFields().isEmpty()) {
+            return false;
+        }
+        List<Field> aggregates = new ArrayList<>(query.getFields());
+        if (query.getHaving() != null) {
+            aggregates.addAll(query.getHaving());
+        }
+        for (Field field : aggregates) {
+            AggregateFunction function = field.getFunction();
+            if (function != null && function != AggregateFunction.MIN && function != AggregateFunction.MAX) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isReferenced(int index) {
+        List<Field> fields = new ArrayList<>();
+        if (query.getFields() != null) {
+            fields.addAll(query.getFields());
+        }
+        if (query.getHaving() != null) {
+            fields.addAll(query.getHaving());
+        }
+        collectFields(query.getFilters(), fields);
+        for (int i = 1; i < tables.size(); i++) {
+            if (i != index) {
+                collectFields(tables.get(i).join.getFilters(), fields);
+            }
+        }
+        for (Field field : fields) {
+            if (field != null && mentions(index, field.getTableAlias(), field.getSourceId(), field.getTableName())) {
+                return true;
+            }
+        }
+        if (query.getSort() != null) {
+            for (Sort sort : query.getSort()) {
+                if (sort != null && (mentions(index, sort.getTableAlias(), sort.getSourceId(), sort.getTableName())
+                        || mentionsPrefix(index, sort.getField()))) {
+                    return true;
+                }
+            }
+        }
+        if (query.getGroupBy() != null) {
+            for (String key : query.getGroupBy()) {
+                if (mentionsPrefix(index, key)) {
+                    return true;
+                }
+            }
+        }
+        for (int i = 1; i < tables.size(); i++) {
+            if (i == index || tables.get(i).join.getConditions() == null) {
+                continue;
+            }
+            for (JoinCondition condition : tables.get(i).join.getConditions()) {
+                if (condition != null
+                        && (mentions(index, condition.getLeftTableAlias(), condition.getLeftTable(),
+                                condition.getLeftTableName())
+                                || mentions(index, condition.getRightTableAlias(), condition.getRightTable(),
+                                        condition.getRightTableName()))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Fields
+
+    private void pruneFields(Set<String> usedColumns) {
+        List<Field> fields = query.getFields();
+        if (fields == null || fields.isEmpty()) {
+            return;
+        }
+        Map<String, Field> unique = new LinkedHashMap<>();
+        for (Field field : fields) {
+            String key = field == null ? "" : field.getFunction() + "|" + fieldKey(field) + "|" + field.getAlias();
+            if (unique.putIfAbsent(key, field) != null && field != null) {
+                rewrites.add("Removed a duplicate of field " + label(field));
+            }
+        }
+        List<Field> kept = new ArrayList<>(unique.values());
+
+        // Names the chart uses must all be fields, or the chart names them some other way
+        if (usedColumns != null && !usedColumns.isEmpty()
+                && usedColumns.stream().allMatch(name -> kept.stream().anyMatch(f -> isNamed(f, name)))) {
+            for (Iterator<Field> iterator = kept.iterator(); iterator.hasNext();) {
+                Field field = iterator.next();
+                // Plain fields are grouped on, so dropping one would change the rows
+                if (kept.size() > 1 && field != null && field.getFunction() != null
+                        && usedColumns.stream().noneMatch(name -> isNamed(field, name)) && !isSorted(field)) {
+                    iterator.remove();
+                    rewrites.add("Removed field " + label(field) + ": the chart does not show it");
+                }
+            }
+        }
+        query.setFields(kept);
+    }
+
+    private boolean isSorted(Field field) {
+        if (query.getSort() == null) {
+            return false;
+        }
+        return query.getSort().stream().anyMatch(sort -> sort != null && sort.getField() != null
+                && (sort.getField().equals(field.getFieldMapping()) || sort.getField().equals(field.getAlias())));
+    }
+
+    private static boolean isNamed(Field field, String name) {
+        return field != null && (name.equals(field.getAlias()) || name.equals(field.getFieldMapping())
+                || name.equals(field.getFieldName()));
+    }
+
+    // Table references
+
+    /**
+     * @return the index of the table a field belongs to, the way the compiler
+     *         resolves it, or -1 if that is ambiguous
+     */
+    private int resolve(Field field) {
+        if (!StringUtils.isNullOrEmpty(field.getTableAlias())) {
+            int index = find(field.getTableAlias(), 2);
+            if (index >= 0) {
+                return index;
+            }
+        }
+        if (!StringUtils.isNullOrEmpty(field.getSourceId())) {
+            int index = find(field.getSourceId(), 0);
+            if (index != -2) {
+                return index;
+            }
+        }
+        if (!StringUtils.isNullOrEmpty(field.getTableName())) {
+            int index = find(field.getTableName(), 1);
+            if (index != -2) {
+                return index;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param attribute 0 for the source id, 1 for the table name, 2 for the alias
+     * @return the only table with that value, -1 if several have it, -2 if none
+     */
+    private int find(String value, int attribute) {
+        int found = -2;
+        for (int i = 0; i < tables.size(); i++) {
+            TableRef table = tables.get(i);
+            String candidate = attribute == 0 ? table.sourceId : attribute == 1 ? table.name : table.alias;
+            if (value.equals(candidate)) {
+                if (found != -2) {
+                    return -1;
+                }
+                found = i;
+            }
+        }
+        return found;
+    }
+
+    private boolean mentions(int index, String alias, String sourceId, String tableName) {
+        TableRef table = tables.get(index);
+        return (alias != null && alias.equals(table.alias)) || (sourceId != null && sourceId.equals(table.sourceId))
+                || (tableName != null && tableName.equals(table.name));
+    }
+
+    private boolean mentionsPrefix(int index, String key) {
+        if (key == null || key.indexOf('.') < 0) {
+            return false;
+        }
+        String prefix = key.substring(0, key.indexOf('.'));
+        return prefix.equals(tables.get(index).alias) || prefix.equals(tables.get(index).name);
+    }
+
+    private boolean isUnique(int index) {
+        TableRef table = tables.get(index);
+        for (int i = 0; i < tables.size(); i++) {
+            if (i != index && (table.sourceId.equals(tables.get(i).sourceId)
+                    || (table.alias != null && table.alias.equals(tables.get(i).alias)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean hasRightJoinAfter(int index) {
+        for (int i = index + 1; i < tables.size(); i++) {
+            JoinType type = tables.get(i).join.getType();
+            if (type == JoinType.RIGHT || type == JoinType.NATURAL_RIGHT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean referencesOnly(FilterNode node, int index) {
+        List<Field> fields = new ArrayList<>();
+        collectFields(node, fields);
+        return !fields.isEmpty() && fields.stream().allMatch(field -> resolve(field) == index);
+    }
+
+    /**
+     * The compiler skips a join without a complete condition.
+     */
+    private static boolean isJoinUsable(Join join) {
+        JoinType type = join.getType() != null ? join.getType() : JoinType.INNER;
+        if (type == JoinType.NATURAL_LEFT || type == JoinType.NATURAL_RIGHT || join.getConditions() == null) {
+            return false;
+        }
+        return join.getConditions().stream().anyMatch(condition -> condition != null
+                && !StringUtils.isNullOrEmpty(condition.getLeftField())
+                && !StringUtils.isNullOrEmpty(condition.getRightField()) && condition.getOperator() != null);
+    }
+
+    private static boolean rejectsNull(FilterNode node) {
+        if (node instanceof FilterConditionNode condition) {
+            return condition.getOperator() != FilterConditionOperator.IS_NULL;
+        }
+        if (node instanceof FilterGroupNode group) {
+            return group.getElements().stream().allMatch(QueryOptimizer::rejectsNull);
+        }
+        return false;
+    }
+
+    private static void collectFields(FilterNode node, List<Field> fields) {
+        if (node instanceof FilterConditionNode condition) {
+            fields.add(condition.getSourceField());
+            if (Boolean.TRUE.equals(condition.getCompareWithOtherField()) && condition.getTargetField() != null) {
+                fields.add(condition.getTargetField());
+            }
+        } else if (node instanceof FilterGroupNode group && group.getElements() != null) {
+            group.getElements().forEach(element -> collectFields(element, fields));
+        }
+    }
+
+    // Helpers
+
+    private static List<FilterNode> conjuncts(FilterNode node) {
+        List<FilterNode> conjuncts = new ArrayList<>();
+        if (node instanceof FilterGroupNode group && group.getOperator() != GroupOperator.OR) {
+            conjuncts.addAll(group.getElements());
+        } else if (node != null) {
+            conjuncts.add(node);
+        }
+        return conjuncts;
+    }
+
+    private static FilterNode and(FilterNode left, FilterNode right) {
+        if (left == null) {
+            return right;
+        }
+        List<FilterNode> elements = conjuncts(left);
+        elements.add(right);
+        return andGroup(elements);
+    }
+
+    private static FilterGroupNode andGroup(List<FilterNode> elements) {
+        return FilterGroupNode.builder().operator(GroupOperator.AND).elements(elements).build();
+    }
+
+    /**
+     * A condition that never matches: {@code IN} with no values, which the
+     * compiler writes as {@code 1 = 0}.
+     */
+    private static FilterConditionNode falseNode(Field field) {
+        return FilterConditionNode.builder()
+                .operator(FilterConditionOperator.IN)
+                .value(new ArrayList<>())
+                .sourceField(field)
+                .build();
+    }
+
+    private static boolean isFalse(FilterNode node) {
+        return node instanceof FilterConditionNode condition && condition.getOperator() == FilterConditionOperator.IN
+                && SQLQueryBuilder.values(condition.getValue(), SQLQueryBuilder.LIST_SEPARATOR).isEmpty();
+    }
+
+    private static void setValues(FilterConditionNode node, boolean positive, List<Object> values) {
+        if (values.size() == 1) {
+            node.setOperator(positive ? FilterConditionOperator.EQ : FilterConditionOperator.NE);
+            node.setValue(values.get(0));
+        } else {
+            node.setOperator(positive ? FilterConditionOperator.IN : FilterConditionOperator.NOT_IN);
+            node.setValue(values);
+        }
+    }
+
+    private static List<Object> valuesOf(FilterConditionNode node) {
+        FilterConditionOperator operator = node.getOperator();
+        if (operator == FilterConditionOperator.IN || operator == FilterConditionOperator.NOT_IN) {
+            return SQLQueryBuilder.values(node.getValue(), SQLQueryBuilder.LIST_SEPARATOR);
+        }
+        List<Object> values = new ArrayList<>(1);
+        values.add(node.getValue());
+        return values;
+    }
+
+    private static List<Object> distinct(List<Object> values) {
+        Map<String, Object> unique = new LinkedHashMap<>();
+        for (Object value : values) {
+            unique.putIfAbsent(String.valueOf(value).trim(), value);
+        }
+        return new ArrayList<>(unique.values());
+    }
+
+    private static List<BigDecimal> toNumbers(List<Object> values) {
+        List<BigDecimal> numbers = new ArrayList<>(values.size());
+        for (Object value : values) {
+            try {
+                numbers.add(new BigDecimal(String.valueOf(value).trim()));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return numbers;
+    }
+
+    private static boolean containsNumber(List<BigDecimal> numbers, BigDecimal number) {
+        return numbers.stream().anyMatch(candidate -> candidate.compareTo(number) == 0);
+    }
+
+    private static String signature(FilterNode node) {
+        if (node instanceof FilterConditionNode condition) {
+            StringBuilder signature = new StringBuilder(fieldKey(condition.getSourceField()))
+                    .append('|').append(condition.getOperator());
+            if (Boolean.TRUE.equals(condition.getCompareWithOtherField())) {
+                signature.append("|field|").append(fieldKey(condition.getTargetField()));
+            } else {
+                List<String> values = new ArrayList<>();
+                valuesOf(condition).forEach(value -> values.add(String.valueOf(value).trim()));
+                if (condition.getOperator() == FilterConditionOperator.IN
+                        || condition.getOperator() == FilterConditionOperator.NOT_IN) {
+                    values.sort(null);
+                }
+                signature.append('|').append(String.join("\u0001", values));
+            }
+            return signature.toString();
+        }
+        FilterGroupNode group = (FilterGroupNode) node;
+        List<String> elements = new ArrayList<>();
+        group.getElements().forEach(element -> elements.add(signature(element)));
+        elements.sort(null);
+        return operatorName(group.getOperator() != GroupOperator.OR) + "(" + String.join(",", elements) + ")";
+    }
+
+    private static String fieldKey(Field field) {
+        return nullToEmpty(field.getTableAlias()) + "/" + nullToEmpty(field.getSourceId()) + "/"
+                + nullToEmpty(field.getTableName()) + "/" + nullToEmpty(field.getFieldMapping());
+    }
+
+    private static String describe(FilterNode node) {
+        return node instanceof FilterConditionNode condition
+                ? " on " + condition.getSourceField().getFieldMapping()
+                : "";
+    }
+
+    private static String label(Field field) {
+        return !StringUtils.isNullOrEmpty(field.getAlias()) ? field.getAlias()
+                : !StringUtils.isNullOrEmpty(field.getFieldMapping()) ? field.getFieldMapping()
+                        : field.getFieldName();
+    }
+
+    private static String operatorName(boolean and) {
+        return and ? "AND" : "OR";
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static class TableRef {
+        private final String sourceId;
+        private final String name;
+        private final String alias;
+        private final Join join;
+
+        TableRef(String sourceId, String name, String alias, Join join) {
+            this.sourceId = sourceId;
+            this.name = name;
+            this.alias = alias;
+            this.join = join;
+        }
+    }
+
+}
@@ -1,6 +1,747 @@
 package com.haiphamcoder.reporting.mapper;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import com.haiphamcoder.reporting.domain.exception.business.detail.InvalidInputException;
+import com.haiphamcoder.reporting.domain.model.CompiledQuery;
+import com.haiphamcoder.reporting.domain.model.MaterializedQuery;
+import com.haiphamcoder.reporting.domain.model.QueryOption;
+import com.haiphamcoder.reporting.domain.model.QueryOption.AggregateFunction;
+import com.haiphamcoder.reporting.domain.model.QueryOption.Field;
+import com.haiphamcoder.reporting.domain.model.QueryOption.FilterConditionNode;
+import com.haiphamcoder.reporting.domain.model.QueryOption.FilterConditionOperator;
+import com.haiphamcoder.reporting.domain.model.QueryOption.FilterGroupNode;
+import com.haiphamcoder.reporting.domain.model.QueryOption.FilterNode;
+import com.haiphamcoder.reporting.domain.model.QueryOption.Join;
+import com.haiphamcoder.reporting.domain.model.QueryOption.JoinCondition;
+import com.haiphamcoder.reporting.domain.model.QueryOption.JoinType;
+import com.haiphamcoder.reporting.domain.model.QueryOption.Sort;
+import com.haiphamcoder.reporting.shared.StringUtils;
+
+/**
+ * Compiles a {@link QueryOption} into parameterized SQL.
+ * <p>
+ * The statement has the same shape as the one built by the chart query
+ * builder of the frontend, but every identifier is checked and quoted and
+ * every value is bound as a parameter, so the text only depends on the shape
+ * of the chart and never on its filter values. Pagination is decided here:
+ * the page is applied with bound {@code LIMIT ? OFFSET ?} inside the row limit
+ * of the chart.
+ */
 public class SQLQueryBuilder {
 
-    
-}
\ No newline at end of file
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    static final Pattern LIST_SEPARATOR = Pattern.compile("\\s*,\\s*");
+    static final Pattern RANGE_SEPARATOR = Pattern.compile("\\s*,\\s*|\\s+(?i:AND)\\s+");
+    /** Row key of the source tables, see the table DDL of the data processing service. */
+    static final String ROW_KEY_COLUMN = "_id_";
+
+    private final QueryOption queryOption;
+    private final Map<String, String> tableNames;
+    private final List<Object> parameters = new ArrayList<>();
+    private final List<String> columns = new ArrayList<>();
+    // Per result column: its aggregate function (null for plain columns), expression and quoted alias
+    private final List<AggregateFunction> functions = new ArrayList<>();
+    private final List<String> expressions = new ArrayList<>();
+    private final List<String> aliases = new ArrayList<>();
+    private final List<String> sortColumns = new ArrayList<>();
+    private final Map<String, String> prefixBySourceId = new HashMap<>();
+    private final Map<String, String> prefixByTableName = new HashMap<>();
+    private final Set<String> prefixes = new HashSet<>();
+    private String mainPrefix;
+    private boolean rowKeyRange;
+    private boolean hasHaving;
+    private Set<String> groupKeys = Set.of();
+
+    private SQLQueryBuilder(QueryOption queryOption, Map<String, String> tableNames) {
+        this.queryOption = queryOption;
+        this.tableNames = tableNames;
+    }
+
+    /**
+     * Compile the query for all its rows.
+     *
+     * @param tableNames table name of every source referenced by the query,
+     *                   by source id
+     */
+    public static CompiledQuery compile(QueryOption queryOption, Map<String, String> tableNames) {
+        return compile(queryOption, tableNames, null, null);
+    }
+
+    /**
+     * Compile the query for one page of its rows.
+     *
+     * @param tableNames table name of every source referenced by the query,
+     *                   by source id
+     * @param page       the page number, null for all rows
+     * @param limit      the page size
+     */
+    public static CompiledQuery compile(QueryOption queryOption, Map<String, String> tableNames, Integer page,
+            Integer limit) {
+        if (queryOption == null || StringUtils.isNullOrEmpty(queryOption.getTable())) {
+            throw new InvalidInputException("query_option.table");
+        }
+        return new SQLQueryBuilder(queryOption, tableNames).build(page, limit);
+    }
+
+    /**
+     * Compile the query of a chart for the materialization of its result. The
+     * result can be refreshed from new rows when the query reads a single
+     * table, without {@code DISTINCT}, {@code HAVING} or row limit, and every
+     * column is either grouped on or a {@code SUM}, {@code COUNT}, {@code MIN}
+     * or {@code MAX}: the aggregates of new rows then merge into the old ones.
+     */
+    public static MaterializedQuery compileMaterialization(QueryOption queryOption, Map<String, String> tableNames) {
+        CompiledQuery query = compile(queryOption, tableNames);
+        MaterializedQuery.MaterializedQueryBuilder materialized = MaterializedQuery.builder()
+                .query(query)
+                .definitionHash(shapeHash(render(query)));
+
+        SQLQueryBuilder builder = new SQLQueryBuilder(queryOption, tableNames);
+        builder.rowKeyRange = true;
+        CompiledQuery delta = builder.build(null, null);
+        if (builder.isMergeable()) {
+            // The row key bounds are the last two parameters
+            delta.setParameters(new ArrayList<>(delta.getParameters().subList(0, delta.getParameters().size() - 2)));
+            materialized.deltaQuery(delta)
+                    .sourceTable(tableNames.get(queryOption.getTable()))
+                    .aggregates(builder.functions.stream()
+                            .map(function -> function != null ? function.getValue() : null)
+                            .toList())
+                    .sort(builder.sortColumns);
+        }
+        return materialized.build();
+    }
+
+    /**
+     * Inline the parameters of a compiled query as SQL literals, for display or
+     * for clients that can only send SQL text.
+     */
+    public static String render(CompiledQuery query) {
+        String sql = query.getSql();
+        List<Object> values = query.getParameters();
+        StringBuilder rendered = new StringBuilder(sql.length() + values.size() * 8);
+        boolean quoted = false;
+        int parameter = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '`') {
+                quoted = !quoted;
+            }
+            if (c == '?' && !quoted) {
+                rendered.append(toLiteral(values.get(parameter++)));
+            } else {
+                rendered.append(c);
+            }
+        }
+        return rendered.toString();
+    }
+
+    private CompiledQuery build(Integer page, Integer limit) {
+        String mainTable = tableName(queryOption.getTable());
+        mainPrefix = StringUtils.isNullOrEmpty(queryOption.getTableAlias())
+                ? mainTable
+                : identifier(queryOption.getTableAlias());
+        register(queryOption.getTable(), mainTable, mainPrefix);
+
+        // Joins first: select fields, filters and sorts may refer to their prefixes
+        String joins = buildJoins();
+
+        StringBuilder sql = new StringBuilder("SELECT ");
+        if (Boolean.TRUE.equals(queryOption.getDistinct())) {
+            sql.append("DISTINCT ");
+        }
+        sql.append(buildSelect());
+        sql.append(" FROM ").append(quote(mainTable));
+        if (!mainPrefix.equals(mainTable)) {
+            sql.append(" AS ").append(quote(mainPrefix));
+        }
+        sql.append(joins);
+
+        String where = buildFilter(queryOption.getFilters());
+        if (rowKeyRange) {
+            String rowKey = column(mainPrefix, ROW_KEY_COLUMN);
+            where = (where.isEmpty() ? "" : where + " AND ") + rowKey + " > ? AND " + rowKey + " <= ?";
+            parameters.add(0L);
+            parameters.add(0L);
+        }
+        if (!where.isEmpty()) {
+            sql.append(" WHERE ").append(where);
+        }
+        String groupBy = buildGroupBy();
+        if (!groupBy.isEmpty()) {
+            sql.append(" GROUP BY ").append(groupBy);
+        }
+        String having = buildHaving();
+        hasHaving = !having.isEmpty();
+        if (!having.isEmpty()) {
+            sql.append(" HAVING ").append(having);
+        }
+        String orderBy = buildOrderBy();
+        if (!orderBy.isEmpty()) {
+            sql.append(" ORDER BY ").append(orderBy);
+        }
+        appendLimit(sql, page, limit);
+
+        String text = sql.toString();
+        return CompiledQuery.builder()
+                .sql(text)
+                .parameters(parameters)
+                .shapeHash(shapeHash(text))
+                .columns(columns)
+                .tables(new ArrayList<>(prefixByTableName.keySet()))
+                .build();
+    }
+
+    private String buildJoins() {
+        StringBuilder sql = new StringBuilder();
+        if (queryOption.getJoins() == null) {
+            return "";
+        }
+        int aliasCounter = 1;
+        for (Join join : queryOption.getJoins()) {
+            if (join == null || StringUtils.isNullOrEmpty(join.getTable())) {
+                continue;
+            }
+            String table = tableName(join.getTable());
+            String alias;
+            if (!StringUtils.isNullOrEmpty(join.getTableAlias())) {
+                alias = identifier(join.getTableAlias());
+            } else if (prefixes.contains(table)) {
+                // The same table joined twice needs a name of its own
+                do {
+                    alias = "t" + aliasCounter++;
+                } while (prefixes.contains(alias));
+            } else {
+                alias = table;
+            }
+
+            JoinType type = join.getType() != null ? join.getType() : JoinType.INNER;
+            boolean natural = type == JoinType.NATURAL_LEFT || type == JoinType.NATURAL_RIGHT;
+            List<String> conditions = new ArrayList<>();
+            if (!natural && join.getConditions() != null) {
+                for (JoinCondition condition : join.getConditions()) {
+                    if (condition == null || StringUtils.isNullOrEmpty(condition.getLeftField())
+                            || StringUtils.isNullOrEmpty(condition.getRightField())
+                            || condition.getOperator() == null) {
+                        continue;
+                    }
+                    String left = joinPrefix(condition.getLeftTableAlias(), condition.getLeftTable(),
+                            condition.getLeftTableName(), join.getTable(), alias, mainPrefix);
+                    String right = joinPrefix(condition.getRightTableAlias(), condition.getRightTable(),
+                            condition.getRightTableName(), join.getTable(), alias, alias);
+                    conditions.add(column(left, condition.getLeftField()) + " "
+                            + comparison(condition.getOperator().name()) + " "
+                            + column(right, condition.getRightField()));
+                }
+            }
+            if (!natural && conditions.isEmpty()) {
+                // A join without a usable condition is left out, as the query builder does
+                continue;
+            }
+
+            register(join.getTable(), table, alias);
+            if (!natural) {
+                String filter = buildFilter(join.getFilters());
+                if (!filter.isEmpty()) {
+                    conditions.add(filter);
+                }
+            }
+
+            sql.append(' ').append(type.getValue()).append(" JOIN ").append(quote(table));
+            if (!alias.equals(table)) {
+                sql.append(" AS ").append(quote(alias));
+            }
+            if (!conditions.isEmpty()) {
+                sql.append(" ON ").append(String.join(" AND ", conditions));
+            }
+        }
+        return sql.toString();
+    }
+
+    private String joinPrefix(String tableAlias, String sourceId, String tableName, String joinSourceId,
+            String joinAlias, String defaultPrefix) {
+        if (!StringUtils.isNullOrEmpty(tableAlias) && (prefixes.contains(tableAlias) || tableAlias.equals(joinAlias))) {
+            return tableAlias;
+        }
+        if (!StringUtils.isNullOrEmpty(sourceId)) {
+            if (sourceId.equals(joinSourceId)) {
+                return joinAlias;
+            }
+            if (prefixBySourceId.containsKey(sourceId)) {
+                return prefixBySourceId.get(sourceId);
+            }
+        }
+        if (!StringUtils.isNullOrEmpty(tableName) && prefixByTableName.containsKey(tableName)) {
+            return prefixByTableName.get(tableName);
+        }
+        return defaultPrefix;
+    }
+
+    private String buildSelect() {
+        List<String> select = new ArrayList<>();
+        if (queryOption.getFields() != null) {
+            for (Field field : queryOption.getFields()) {
+                String name = fieldColumn(field);
+                if (name == null) {
+                    continue;
+                }
+                String expression = fieldExpression(field, name);
+                functions.add(field.getFunction());
+                expressions.add(expression);
+                aliases.add(StringUtils.isNullOrEmpty(field.getAlias()) ? null : quote(field.getAlias()));
+                if (!StringUtils.isNullOrEmpty(field.getAlias())) {
+                    select.add(expression + " AS " + quote(field.getAlias()));
+                    columns.add(field.getAlias());
+                } else {
+                    select.add(expression);
+                    columns.add(field.getFunction() != null
+                            ? field.getFunction().getValue() + "(" + fieldPrefix(field) + "." + name + ")"
+                            : name);
+                }
+            }
+        }
+        return select.isEmpty() ? "*" : String.join(", ", select);
+    }
+
+    private String fieldExpression(Field field, String name) {
+        String column = column(fieldPrefix(field), name);
+        return field.getFunction() != null ? field.getFunction().getValue() + "(" + column + ")" : column;
+    }
+
+    private String buildFilter(FilterNode node) {
+        if (node instanceof FilterConditionNode condition) {
+            return buildCondition(condition);
+        }
+        if (node instanceof FilterGroupNode group) {
+            if (group.getElements() == null) {
+                return "";
+            }
+            List<String> elements = new ArrayList<>();
+            for (FilterNode element : group.getElements()) {
+                String sql = buildFilter(element);
+                if (!sql.isEmpty()) {
+                    elements.add(sql);
+                }
+            }
+            if (elements.isEmpty()) {
+                return "";
+            }
+            String operator = group.getOperator() != null ? group.getOperator().getValue() : "AND";
+            return elements.size() == 1 ? elements.get(0) : "(" + String.join(" " + operator + " ", elements) + ")";
+        }
+        return "";
+    }
+
+    private String buildCondition(FilterConditionNode node) {
+        Field source = node.getSourceField();
+        FilterConditionOperator operator = node.getOperator();
+        if (source == null || operator == null || StringUtils.isNullOrEmpty(source.getFieldMapping())) {
+            return "";
+        }
+        String left = column(fieldPrefix(source), source.getFieldMapping());
+
+        if (Boolean.TRUE.equals(node.getCompareWithOtherField())) {
+            Field target = node.getTargetField();
+            if (target == null || StringUtils.isNullOrEmpty(target.getFieldMapping())) {
+                return "";
+            }
+            return left + " " + comparison(operator.name()) + " "
+                    + column(fieldPrefix(target), target.getFieldMapping());
+        }
+
+        switch (operator) {
+            case IS_NULL:
+            case IS_NOT_NULL:
+                return left + " " + operator.getValue();
+            case IN:
+            case NOT_IN: {
+                List<Object> values = values(node.getValue(), LIST_SEPARATOR);
+                if (values.isEmpty()) {
+                    // Nothing is in an empty list
+                    return operator == FilterConditionOperator.IN ? "1 = 0" : "";
+                }
+                StringBuilder sql = new StringBuilder(left).append(' ').append(operator.getValue()).append(" (");
+                for (int i = 0; i < values.size(); i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                    parameters.add(bindValue(values.get(i), source));
+                }
+                return sql.append(')').toString();
+            }
+            case BETWEEN: {
+                List<Object> values = values(node.getValue(), RANGE_SEPARATOR);
+                if (values.size() != 2) {
+                    return "";
+                }
+                parameters.add(bindValue(values.get(0), source));
+                parameters.add(bindValue(values.get(1), source));
+                return left + " BETWEEN ? AND ?";
+            }
+            default:
+                if (node.getValue() == null) {
+                    return "";
+                }
+                parameters.add(operator == FilterConditionOperator.LIKE || operator == FilterConditionOperator.REGEXP
+                        ? String.valueOf(node.getValue())
+                        : bindValue(node.getValue(), source));
+                return left + " " + (operator == FilterConditionOperator.REGEXP ? "REGEXP" : comparison(operator.name()))
+                        + " ?";
+        }
+    }
+
+    private String buildGroupBy() {
+        boolean hasFields = queryOption.getFields() != null && !queryOption.getFields().isEmpty();
+        boolean hasGroupBy = queryOption.getGroupBy() != null && !queryOption.getGroupBy().isEmpty();
+        if (!hasFields && !hasGroupBy) {
+            return "";
+        }
+        // Every plain selected column is grouped on, followed by the extra group by columns
+        Set<String> groupBy = new LinkedHashSet<>();
+        if (hasFields) {
+            for (Field field : queryOption.getFields()) {
+                String name = fieldColumn(field);
+                if (name != null && field.getFunction() == null) {
+                    groupBy.add(column(fieldPrefix(field), name));
+                }
+            }
+        }
+        if (hasGroupBy) {
+            for (String key : queryOption.getGroupBy()) {
+                if (!StringUtils.isNullOrEmpty(key)) {
+                    groupBy.add(qualifiedColumn(key));
+                }
+            }
+        }
+        groupKeys = groupBy;
+        return String.join(", ", groupBy);
+    }
+
+    private String buildHaving() {
+        if (queryOption.getHaving() == null) {
+            return "";
+        }
+        List<String> conditions = new ArrayList<>();
+        for (Field having : queryOption.getHaving()) {
+            if (having == null || StringUtils.isNullOrEmpty(having.getField()) || having.getFunction() == null
+                    || StringUtils.isNullOrEmpty(having.getOperator()) || having.getValue() == null
+                    || "".equals(having.getValue())) {
+                continue;
+            }
+            String column = column(fieldPrefix(having), having.getField());
+            parameters.add(numericOrText(having.getValue()));
+            conditions.add(having.getFunction().getValue() + "(" + column + ") " + comparison(having.getOperator())
+                    + " ?");
+        }
+        return String.join(" AND ", conditions);
+    }
+
+    private String buildOrderBy() {
+        if (queryOption.getSort() == null) {
+            return "";
+        }
+        List<String> orderBy = new ArrayList<>();
+        for (Sort sort : queryOption.getSort()) {
+            if (sort == null || StringUtils.isNullOrEmpty(sort.getField())) {
+                continue;
+            }
+            String direction = sort.getDirection() != null ? sort.getDirection().getValue() : "ASC";
+            String expression = sortExpression(sort);
+            orderBy.add(expression + " " + direction);
+            int column = aliases.indexOf(expression);
+            if (column < 0) {
+                column = expressions.indexOf(expression);
+            }
+            sortColumns.add(column >= 0 ? column + " " + direction : null);
+        }
+        return String.join(", ", orderBy);
+    }
+
+    private String sortExpression(Sort sort) {
+        if (queryOption.getFields() != null) {
+            // A selected field is sorted by its alias, or by the same expression it is selected with
+            for (Field field : queryOption.getFields()) {
+                if (sort.getField().equals(field.getFieldMapping())) {
+                    return !StringUtils.isNullOrEmpty(field.getAlias())
+                            ? quote(field.getAlias())
+                            : fieldExpression(field, identifier(field.getFieldMapping()));
+                }
+            }
+            for (Field field : queryOption.getFields()) {
+                if (sort.getField().equals(field.getAlias())) {
+                    return quote(field.getAlias());
+                }
+            }
+        }
+        if (sort.getField().indexOf('.') < 0) {
+            String prefix = tablePrefix(sort.getTableAlias(), sort.getSourceId(), sort.getTableName());
+            return column(prefix, sort.getField());
+        }
+        return qualifiedColumn(sort.getField());
+    }
+
+    private boolean isMergeable() {
+        if (prefixes.size() != 1 || Boolean.TRUE.equals(queryOption.getDistinct()) || hasHaving
+                || (queryOption.getLimit() != null && queryOption.getLimit() > 0)
+                || (queryOption.getOffset() != null && queryOption.getOffset() > 0)
+                || columns.isEmpty() || new HashSet<>(columns).size() != columns.size()
+                || sortColumns.contains(null)) {
+            return false;
+        }
+        // Every group is a row of its own, told apart by its visible columns
+        for (String key : groupKeys) {
+            int column = expressions.indexOf(key);
+            if (column < 0 || functions.get(column) != null) {
+                return false;
+            }
+        }
+        // Without aggregates new rows are appended, so a grouping must aggregate something
+        boolean aggregated = functions.stream().anyMatch(Objects::nonNull);
+        if (!aggregated && !groupKeys.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < functions.size(); i++) {
+            if (aggregated && functions.get(i) == null && !groupKeys.contains(expressions.get(i))) {
+                return false;
+            }
+        }
+        return !functions.contains(AggregateFunction.AVG);
+    }
+
+    private void appendLimit(StringBuilder sql, Integer page, Integer limit) {
+        Integer rowLimit = queryOption.getLimit() != null && queryOption.getLimit() > 0 ? queryOption.getLimit() : null;
+        long baseOffset = queryOption.getOffset() != null ? Math.max(0, queryOption.getOffset()) : 0;
+        if (page == null) {
+            if (rowLimit != null) {
+                sql.append(" LIMIT ? OFFSET ?");
+                parameters.add(rowLimit);
+                parameters.add(baseOffset);
+            }
+            return;
+        }
+        int pageSize = Math.max(1, limit != null ? limit : 10);
+        long start = (long) Math.max(0, page) * pageSize;
+        long rows = pageSize;
+        if (rowLimit != null) {
+            // The last page stops at the row limit of the chart
+            rows = Math.max(0, Math.min(pageSize, rowLimit - start));
+        }
+        sql.append(" LIMIT ? OFFSET ?");
+        parameters.add(rows);
+        parameters.add(baseOffset + start);
+    }
+
+    private void register(String sourceId, String table, String prefix) {
+        if (prefixes.contains(prefix)) {
+            throw new InvalidInputException("Duplicate table alias " + prefix);
+        }
+        prefixes.add(prefix);
+        prefixBySourceId.putIfAbsent(sourceId, prefix);
+        prefixByTableName.putIfAbsent(table, prefix);
+    }
+
+    private String fieldPrefix(Field field) {
+        return tablePrefix(field.getTableAlias(), field.getSourceId(), field.getTableName());
+    }
+
+    /**
+     * Name a column is qualified with: the alias of its table in this query,
+     * found by alias, source id or table name, in that order.
+     */
+    private String tablePrefix(String tableAlias, String sourceId, String tableName) {
+        if (!StringUtils.isNullOrEmpty(tableAlias) && prefixes.contains(tableAlias)) {
+            return tableAlias;
+        }
+        if (!StringUtils.isNullOrEmpty(sourceId) && prefixBySourceId.containsKey(sourceId)) {
+            return prefixBySourceId.get(sourceId);
+        }
+        if (!StringUtils.isNullOrEmpty(tableName) && prefixByTableName.containsKey(tableName)) {
+            return prefixByTableName.get(tableName);
+        }
+        return mainPrefix;
+    }
+
+    private String qualifiedColumn(String key) {
+        int dot = key.indexOf('.');
+        if (dot < 0) {
+            return column(mainPrefix, key);
+        }
+        String prefix = key.substring(0, dot);
+        if (!prefixes.contains(prefix)) {
+            prefix = prefixByTableName.get(prefix);
+            if (prefix == null) {
+                throw new InvalidInputException("Unknown table in " + key);
+            }
+        }
+        return column(prefix, key.substring(dot + 1));
+    }
+
+    private String tableName(String sourceId) {
+        String table = tableNames.get(sourceId);
+        if (StringUtils.isNullOrEmpty(table)) {
+            throw new InvalidInputException("Source " + sourceId + " has no table");
+        }
+        return identifier(table);
+    }
+
+    private static String fieldColumn(Field field) {
+        if (field == null) {
+            return null;
+        }
+        String name = !StringUtils.isNullOrEmpty(field.getFieldMapping()) ? field.getFieldMapping()
+                : field.getFieldName();
+        return StringUtils.isNullOrEmpty(name) || name.isBlank() ? null : identifier(name.trim());
+    }
+
+    private static String column(String prefix, String name) {
+        return quote(prefix) + "." + quote(identifier(name));
+    }
+
+    private static String identifier(String name) {
+        if (name == null || !IDENTIFIER.matcher(name).matches()) {
+            throw new InvalidInputException("Invalid identifier " + name);
+        }
+        return name;
+    }
+
+    private static String quote(String name) {
+        return "`" + name.replace("`", "``") + "`";
+    }
+
+    private static String comparison(String operator) {
+        switch (operator.trim().toUpperCase(Locale.ROOT)) {
+            case "EQ":
+            case "=":
+                return "=";
+            case "NE":
+            case "!=":
+            case "<>":
+                return "!=";
+            case "GT":
+            case ">":
+                return ">";
+            case "GTE":
+            case ">=":
+                return ">=";
+            case "LT":
+            case "<":
+                return "<";
+            case "LTE":
+            case "<=":
+                return "<=";
+            case "LIKE":
+                return "LIKE";
+            default:
+                throw new InvalidInputException("Unsupported comparison " + operator);
+        }
+    }
+
+    static List<Object> values(Object value, Pattern separator) {
+        List<Object> values = new ArrayList<>();
+        if (value instanceof Collection<?> collection) {
+            for (Object item : collection) {
+                if (item != null) {
+                    values.add(item);
+                }
+            }
+        } else if (value instanceof String text) {
+            for (String item : separator.split(text.trim())) {
+                if (!item.isEmpty()) {
+                    values.add(item);
+                }
+            }
+        } else if (value != null) {
+            values.add(value);
+        }
+        return values;
+    }
+
+    /**
+     * Bind a filter value with the type of its column: numbers for numeric
+     * columns, so they are compared exactly, and text for the rest, as the
+     * quoted literals of the query builder were.
+     */
+    private static Object bindValue(Object value, Field field) {
+        if (value instanceof Boolean) {
+            return value;
+        }
+        String text = String.valueOf(value).trim();
+        String type = typeOf(field);
+        try {
+            if (type.contains("int")) {
+                return Long.parseLong(text);
+            }
+            if (isNumeric(field)) {
+                return new BigDecimal(text);
+            }
+        } catch (NumberFormatException e) {
+            // Not a number: bind the text and let TiDB convert it
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * @return true if values of the field are bound as numbers
+     */
+    static boolean isNumeric(Field field) {
+        String type = typeOf(field);
+        return type.contains("int") || type.contains("decimal") || type.contains("double") || type.contains("float")
+                || type.equals("number");
+    }
+
+    private static String typeOf(Field field) {
+        String type = !StringUtils.isNullOrEmpty(field.getFieldType()) ? field.getFieldType() : field.getDataType();
+        return type != null ? type.toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static Object numericOrText(Object value) {
+        if (value instanceof Number) {
+            return value;
+        }
+        try {
+            return new BigDecimal(String.valueOf(value).trim());
+        } catch (NumberFormatException e) {
+            return String.valueOf(value);
+        }
+    }
+
+    private static String toLiteral(Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString().toUpperCase(Locale.ROOT);
+        }
+        return "'" + value.toString().replace("\\", "\\\\").replace("'", "''") + "'";
+    }
+
+    private static String shapeHash(String sql) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(sql.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hash = new StringBuilder(32);
+            for (int i = 0; i < 16; i++) {
+                hash.append(String.format("%02x", digest[i]));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -1,13 +1,24 @@
 package com.haiphamcoder.reporting.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import com.haiphamcoder.reporting.domain.entity.ChartPermission;
 
 public interface ChartPermissionRepository {
+    /**
+     * Served from the permission cache. The returned row only carries its ids
+     * and permission, without timestamps, and must not be saved.
+     */
     Optional<ChartPermission> getChartPermissionByChartIdAndUserId(Long chartId, Long userId);
 
+    /**
+     * Read the permission from the database, bypassing the cache, for writes
+     * that depend on whether it exists.
+     */
+    Optional<ChartPermission> findChartPermissionByChartIdAndUserId(Long chartId, Long userId);
+
     Optional<ChartPermission> saveChartPermission(ChartPermission chartPermission);
 
     List<ChartPermission> getAllChartPermissionsByUserId(Long userId);
@@ -17,4 +28,10 @@ public interface ChartPermissionRepository {
     void deleteAllChartPermissionsByChartIdAndUserIdNot(Long chartId, Long userId);
 
     void deleteAllChartPermissionsByChartIdAndUserId(Long chartId, Long userId);
+
+    /**
+     * Served from the permission cache. The returned rows only carry their ids
+     * and permission, without timestamps, and must not be saved.
+     */
+    List<ChartPermission> getChartPermissionsByUserIdAndChartIds(Long userId, Collection<Long> chartIds);
 }
@@ -1,6 +1,10 @@
 package com.haiphamcoder.reporting.repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -22,12 +26,21 @@ public interface ChartRepository {
     
     Optional<Chart> getChartById(Long id);
 
+    /**
+     * @return the charts among the ids that are not deleted, in any order
+     */
+    List<Chart> getChartsByIds(Collection<Long> ids);
+
     Long getTotalChartByUserIdAndIsDeleted(Long userId, Boolean isDeleted);
 
     Long getTotalChartByUserIdOrChartIdAndIsDeleted(Long userId, Set<Long> chartIds, Boolean isDeleted);
 
-    Long getChartCountByUserIdOrChartIdAndIsDeletedAndCreatedDate(Long userId, Set<Long> chartIds, Boolean isDeleted,
-            LocalDate date);
+    /**
+     * @return the number of charts created on each day since from, leaving out
+     *         the days without any
+     */
+    Map<LocalDate, Long> getChartCountByUserIdOrChartIdAndIsDeletedGroupByCreatedDate(Long userId,
+            Set<Long> chartIds, Boolean isDeleted, LocalDateTime from);
 
     Optional<Chart> updateChart(Chart chart);
 
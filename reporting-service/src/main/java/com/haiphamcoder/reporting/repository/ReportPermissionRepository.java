@@ -1,11 +1,16 @@
 package com.haiphamcoder.reporting.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import com.haiphamcoder.reporting.domain.entity.ReportPermission;
 
 public interface ReportPermissionRepository {
+    /**
+     * Served from the permission cache. The returned row only carries its ids
+     * and permission, without timestamps, and must not be saved.
+     */
     Optional<ReportPermission> getReportPermissionByReportIdAndUserId(Long reportId, Long userId);
 
     Optional<ReportPermission> saveReportPermission(ReportPermission reportPermission);
@@ -17,4 +22,10 @@ public interface ReportPermissionRepository {
     void deleteAllReportPermissionsByReportIdAndUserId(Long reportId, Long userId);
 
     void deleteAllReportPermissionsByReportIdAndUserIdNot(Long reportId, Long userId);
+
+    /**
+     * Served from the permission cache. The returned rows only carry their ids
+     * and permission, without timestamps, and must not be saved.
+     */
+    List<ReportPermission> getReportPermissionsByUserIdAndReportIds(Long userId, Collection<Long> reportIds);
 }
@@ -1,6 +1,8 @@
 package com.haiphamcoder.reporting.repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -26,8 +28,12 @@ public interface ReportRepository {
 
     Long getTotalReportByUserIdOrReportIdAndIsDeleted(Long userId, Set<Long> reportIds, Boolean isDeleted);
 
-    Long getReportCountByUserIdOrReportIdAndIsDeletedAndCreatedDate(Long userId, Set<Long> reportIds, Boolean isDeleted,
-            LocalDate date);
+    /**
+     * @return the number of reports created on each day since from, leaving out
+     *         the days without any
+     */
+    Map<LocalDate, Long> getReportCountByUserIdOrReportIdAndIsDeletedGroupByCreatedDate(Long userId,
+            Set<Long> reportIds, Boolean isDeleted, LocalDateTime from);
 
     Optional<Report> updateReport(Report report);
 
@@ -1,5 +1,6 @@
 package com.haiphamcoder.reporting.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -7,8 +8,18 @@ import com.haiphamcoder.reporting.domain.entity.SourcePermission;
 
 public interface SourcePermissionRepository {
 
+    /**
+     * Served from the permission cache. The returned row only carries its ids
+     * and permission, without timestamps, and must not be saved.
+     */
     Optional<SourcePermission> getSourcePermissionBySourceIdAndUserId(Long sourceId, Long userId);
 
+    /**
+     * Read the permission from the database, bypassing the cache, for writes
+     * that depend on whether it exists.
+     */
+    Optional<SourcePermission> findSourcePermissionBySourceIdAndUserId(Long sourceId, Long userId);
+
     List<SourcePermission> getSourcePermissionsBySourceId(Long sourceId);
 
     SourcePermission createSourcePermission(SourcePermission sourcePermission);
@@ -20,5 +31,10 @@ public interface SourcePermissionRepository {
     void deleteAllSourcePermissionsBySourceIdAndUserId(Long sourceId, Long userId);
 
     void deleteAllSourcePermissionsBySourceIdAndUserIdNot(Long sourceId, Long userId);
-    
+
+    /**
+     * Served from the permission cache. The returned rows only carry their ids
+     * and permission, without timestamps, and must not be saved.
+     */
+    List<SourcePermission> getSourcePermissionsByUserIdAndSourceIds(Long userId, Collection<Long> sourceIds);
 }
@@ -1,6 +1,8 @@
 package com.haiphamcoder.reporting.repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -32,8 +34,12 @@ public interface SourceRepository {
 
     Long getTotalSourceByUserIdOrSourceIdAndIsDeleted(Long userId, Set<Long> sourceIds, Boolean isDeleted);
 
-    Long getSourceCountByUserIdOrSourceIdAndIsDeletedAndCreatedDate(Long userId, Set<Long> sourceIds, Boolean isDeleted,
-            LocalDate date);
+    /**
+     * @return the number of sources created on each day since from, leaving out
+     *         the days without any
+     */
+    Map<LocalDate, Long> getSourceCountByUserIdOrSourceIdAndIsDeletedGroupByCreatedDate(Long userId,
+            Set<Long> sourceIds, Boolean isDeleted, LocalDateTime from);
 
     Optional<Source> updateSource(Source source);
 
@@ -1,7 +1,11 @@
 package com.haiphamcoder.reporting.repository.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Component;
@@ -10,6 +14,7 @@ import org.springframework.stereotype.Repository;
 import com.haiphamcoder.reporting.domain.entity.ChartPermission;
 import com.haiphamcoder.reporting.domain.model.ChartPermissionComposeKey;
 import com.haiphamcoder.reporting.repository.ChartPermissionRepository;
+import com.haiphamcoder.reporting.repository.impl.PermissionCache.ResourceType;
 
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -21,6 +26,8 @@ interface ChartPermissionJpaRepository extends JpaRepository<ChartPermission, Ch
 
     List<ChartPermission> findAllByUserId(Long userId);
 
+    List<ChartPermission> findAllByUserIdAndChartIdIn(Long userId, Collection<Long> chartIds);
+
     List<ChartPermission> findAllByChartId(Long chartId);
 
     void deleteAllByChartId(Long chartId);
@@ -35,16 +42,24 @@ interface ChartPermissionJpaRepository extends JpaRepository<ChartPermission, Ch
 @RequiredArgsConstructor
 public class ChartPermissionRepositoryImpl implements ChartPermissionRepository {
     private final ChartPermissionJpaRepository chartPermissionJpaRepository;
+    private final PermissionCache permissionCache;
 
     @Override
     public Optional<ChartPermission> getChartPermissionByChartIdAndUserId(Long chartId, Long userId) {
+        return getChartPermissionsByUserIdAndChartIds(userId, List.of(chartId)).stream().findFirst();
+    }
+
+    @Override
+    public Optional<ChartPermission> findChartPermissionByChartIdAndUserId(Long chartId, Long userId) {
         return chartPermissionJpaRepository.findByChartIdAndUserId(chartId, userId);
     }
 
     @Override
     @Transactional
     public Optional<ChartPermission> saveChartPermission(ChartPermission chartPermission) {
-        return Optional.of(chartPermissionJpaRepository.save(chartPermission));
+        ChartPermission saved = chartPermissionJpaRepository.save(chartPermission);
+        permissionCache.invalidate(ResourceType.CHART, saved.getChartId(), saved.getUserId());
+        return Optional.of(saved);
     }
 
     @Override
@@ -61,11 +76,30 @@ public class ChartPermissionRepositoryImpl implements ChartPermissionRepository
     @Transactional
     public void deleteAllChartPermissionsByChartIdAndUserIdNot(Long chartId, Long userId) {
         chartPermissionJpaRepository.deleteAllByChartIdAndUserIdNot(chartId, userId);
+        permissionCache.invalidate(ResourceType.CHART, chartId, null);
     }
 
     @Override
     @Transactional
     public void deleteAllChartPermissionsByChartIdAndUserId(Long chartId, Long userId) {
         chartPermissionJpaRepository.deleteAllByChartIdAndUserId(chartId, userId);
+        permissionCache.invalidate(ResourceType.CHART, chartId, userId);
+    }
+
+    @Override
+    public List<ChartPermission> getChartPermissionsByUserIdAndChartIds(Long userId, Collection<Long> chartIds) {
+        if (chartIds == null || chartIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, String> permissions = permissionCache.getAll(ResourceType.CHART, userId, chartIds,
+                missing -> chartPermissionJpaRepository.findAllByUserIdAndChartIdIn(userId, missing).stream()
+                        .collect(Collectors.toMap(ChartPermission::getChartId, ChartPermission::getPermission)));
+        List<ChartPermission> result = new ArrayList<>();
+        permissions.forEach((id, permission) -> {
+            if (permission != null) {
+                result.add(ChartPermission.builder().chartId(id).userId(userId).permission(permission).build());
+            }
+        });
+        return result;
     }
 }
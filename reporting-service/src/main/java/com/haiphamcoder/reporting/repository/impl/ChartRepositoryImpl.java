@@ -1,6 +1,12 @@
 package com.haiphamcoder.reporting.repository.impl;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -22,6 +28,8 @@ import lombok.RequiredArgsConstructor;
 interface ChartJpaRepository extends JpaRepository<Chart, Long> {
     Page<Chart> findAllByUserIdAndIsDeleted(Long userId, Boolean isDeleted, Pageable pageable);
 
+    List<Chart> findAllByIdInAndIsDeleted(Collection<Long> ids, Boolean isDeleted);
+
     @Query("SELECT c FROM Chart c WHERE c.userId = :userId AND c.isDeleted = :isDeleted AND (c.name LIKE %:search% OR c.description LIKE %:search%)")
     Page<Chart> findAllByUserIdAndIsDeletedAndNameContainsOrDescriptionContains(@Param("userId") Long userId,
             @Param("isDeleted") Boolean isDeleted, @Param("search") String search, Pageable pageable);
@@ -32,9 +40,11 @@ interface ChartJpaRepository extends JpaRepository<Chart, Long> {
 
     Long countByUserIdAndIsDeleted(Long userId, Boolean isDeleted);
 
-    @Query("SELECT COUNT(c) FROM Chart c WHERE (c.userId = :userId OR c.id IN :chartIds) AND c.isDeleted = :isDeleted AND DATE(c.createdAt) = DATE(:date)")
-    Long countByUserIdOrChartIdAndIsDeletedAndCreatedDate(@Param("userId") Long userId,
-            @Param("chartIds") Set<Long> chartIds, @Param("isDeleted") Boolean isDeleted, @Param("date") LocalDate date);
+    @Query("SELECT CAST(c.createdAt AS LocalDate), COUNT(c) FROM Chart c WHERE (c.userId = :userId OR c.id IN :chartIds) AND c.isDeleted = :isDeleted AND c.createdAt >= :from GROUP BY CAST(c.createdAt AS LocalDate)")
+    List<Object[]> countByUserIdOrChartIdAndIsDeletedGroupByCreatedDate(@Param("userId") Long userId,
+            @Param("chartIds") Set<Long> chartIds,
+            @Param("isDeleted") Boolean isDeleted,
+            @Param("from") LocalDateTime from);
 
     @Query("SELECT c FROM Chart c WHERE (c.userId = :userId OR c.id IN :chartIds) AND c.isDeleted = false AND (c.name LIKE %:search% OR c.description LIKE %:search%)")
     Page<Chart> findAllByUserIdOrChartId(@Param("userId") Long userId, @Param("chartIds") Set<Long> chartIds,
@@ -69,6 +79,14 @@ public class ChartRepositoryImpl implements ChartRepository {
         return chartJpaRepository.findById(id);
     }
 
+    @Override
+    public List<Chart> getChartsByIds(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return chartJpaRepository.findAllByIdInAndIsDeleted(ids, false);
+    }
+
     @Override
     public Long getTotalChartByUserIdAndIsDeleted(Long userId, Boolean isDeleted) {
         return chartJpaRepository.countByUserIdAndIsDeleted(userId, isDeleted);
@@ -90,9 +108,14 @@ public class ChartRepositoryImpl implements ChartRepository {
     }
 
     @Override
-    public Long getChartCountByUserIdOrChartIdAndIsDeletedAndCreatedDate(Long userId, Set<Long> chartIds,
-            Boolean isDeleted, LocalDate date) {
-        return chartJpaRepository.countByUserIdOrChartIdAndIsDeletedAndCreatedDate(userId, chartIds, isDeleted, date);
+    public Map<LocalDate, Long> getChartCountByUserIdOrChartIdAndIsDeletedGroupByCreatedDate(Long userId,
+            Set<Long> chartIds, Boolean isDeleted, LocalDateTime from) {
+        Map<LocalDate, Long> counts = new HashMap<>();
+        for (Object[] row : chartJpaRepository.countByUserIdOrChartIdAndIsDeletedGroupByCreatedDate(userId,
+                chartIds, isDeleted, from)) {
+            counts.put((LocalDate) row[0], (Long) row[1]);
+        }
+        return counts;
     }
 
 }
@@ -0,0 +1,262 @@
+package com.haiphamcoder.reporting.repository.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Caches the permission of a user on a chart, source or report, including
+ * the absence of one, for {@code permission.cache.ttl-seconds}, evicting the
+ * least recently used one beyond {@code permission.cache.max-entries}. Within
+ * an HTTP request the permissions read are also memoized, so repeated checks
+ * cost nothing.
+ * <p>
+ * The permission repositories are the only writers of permission rows and
+ * invalidate what they write, again once the transaction ends. Writes made
+ * through another instance are only seen here once the entry expires, which
+ * is why the TTL is short.
+ */
+@Component
+public class PermissionCache {
+
+    public enum ResourceType {
+        CHART, SOURCE, REPORT
+    }
+
+    private static final String METRIC_PREFIX = "permission.cache";
+    private static final String MEMO_ATTRIBUTE = PermissionCache.class.getName() + ".memo";
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlMillis;
+    // Access order, so the eldest entry is the least recently used
+    private final LinkedHashMap<Key, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Bumped by every invalidation, so a load that raced one is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Counter memoHits;
+    private final Counter hits;
+    private final Counter misses;
+
+    public PermissionCache(@Value("${permission.cache.enabled:true}") boolean enabled,
+            @Value("${permission.cache.max-entries:50000}") int maxEntries,
+            @Value("${permission.cache.ttl-seconds:30}") long ttlSeconds,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.memoHits = meterRegistry.counter(METRIC_PREFIX + ".requests", "result", "memo");
+        this.hits = meterRegistry.counter(METRIC_PREFIX + ".requests", "result", "hit");
+        this.misses = meterRegistry.counter(METRIC_PREFIX + ".requests", "result", "miss");
+        Gauge.builder(METRIC_PREFIX + ".entries", this, PermissionCache::size).register(meterRegistry);
+    }
+
+    /**
+     * Get the permissions of a user on several resources, loading the ones not
+     * cached with one call of the loader.
+     *
+     * @param loader loads the permissions of the user on the given ids, leaving
+     *               out the ids the user has no permission row for
+     * @return the permission on every given id, null when the user has none
+     */
+    public Map<Long, String> getAll(ResourceType type, Long userId, Collection<Long> resourceIds,
+            Function<Collection<Long>, Map<Long, String>> loader) {
+        Map<Long, String> permissions = new HashMap<>();
+        if (!enabled) {
+            permissions.putAll(loader.apply(resourceIds));
+            return permissions;
+        }
+
+        Map<Key, Optional<String>> memo = memo();
+        Set<Long> missing = new LinkedHashSet<>();
+        long now = System.currentTimeMillis();
+        for (Long resourceId : resourceIds) {
+            Key key = new Key(type, userId, resourceId);
+            Optional<String> memoized = memo != null ? memo.get(key) : null;
+            if (memoized != null) {
+                memoHits.increment();
+                permissions.put(resourceId, memoized.orElse(null));
+                continue;
+            }
+            Optional<String> cached = lookup(key, now);
+            if (cached != null) {
+                hits.increment();
+                permissions.put(resourceId, cached.orElse(null));
+                if (memo != null) {
+                    memo.put(key, cached);
+                }
+            } else {
+                misses.increment();
+                missing.add(resourceId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            long loadGeneration = generation.get();
+            Map<Long, String> loaded = loader.apply(missing);
+            long loadedAt = System.currentTimeMillis();
+            for (Long resourceId : missing) {
+                Key key = new Key(type, userId, resourceId);
+                Optional<String> permission = Optional.ofNullable(loaded.get(resourceId));
+                permissions.put(resourceId, permission.orElse(null));
+                if (memo != null) {
+                    memo.put(key, permission);
+                }
+                put(key, new CacheEntry(permission, loadedAt), loadGeneration);
+            }
+        }
+        return permissions;
+    }
+
+    /**
+     * Drop the permission of a user on a resource, or of every user when
+     * userId is null, now and again once the current transaction ends.
+     */
+    public void invalidate(ResourceType type, Long resourceId, Long userId) {
+        if (!enabled) {
+            return;
+        }
+        evict(type, resourceId, userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(type, resourceId, userId);
+                }
+            });
+        }
+    }
+
+    private void evict(ResourceType type, Long resourceId, Long userId) {
+        generation.incrementAndGet();
+        Map<Key, Optional<String>> memo = memo();
+        if (userId != null) {
+            Key key = new Key(type, userId, resourceId);
+            synchronized (this) {
+                entries.remove(key);
+            }
+            if (memo != null) {
+                memo.remove(key);
+            }
+            return;
+        }
+        // Every user of the resource, only known by scanning
+        synchronized (this) {
+            Iterator<Key> keys = entries.keySet().iterator();
+            while (keys.hasNext()) {
+                if (keys.next().matches(type, resourceId)) {
+                    keys.remove();
+                }
+            }
+        }
+        if (memo != null) {
+            memo.keySet().removeIf(key -> key.matches(type, resourceId));
+        }
+    }
+
+    private synchronized Optional<String> lookup(Key key, long now) {
+        CacheEntry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (now - entry.loadedAt >= ttlMillis) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.permission;
+    }
+
+    private synchronized void put(Key key, CacheEntry entry, long loadGeneration) {
+        if (generation.get() != loadGeneration) {
+            return;
+        }
+        entries.put(key, entry);
+        Iterator<Key> eldest = entries.keySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the memo of the current HTTP request, or null outside of one
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<Key, Optional<String>> memo() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Object memo = attributes.getAttribute(MEMO_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (memo == null) {
+            memo = new ConcurrentHashMap<Key, Optional<String>>();
+            attributes.setAttribute(MEMO_ATTRIBUTE, memo, RequestAttributes.SCOPE_REQUEST);
+        }
+        return (Map<Key, Optional<String>>) memo;
+    }
+
+    private static class Key {
+        private final ResourceType type;
+        private final Long userId;
+        private final Long resourceId;
+
+        Key(ResourceType type, Long userId, Long resourceId) {
+            this.type = type;
+            this.userId = userId;
+            this.resourceId = resourceId;
+        }
+
+        boolean matches(ResourceType type, Long resourceId) {
+            return this.type == type && Objects.equals(this.resourceId, resourceId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key other)) {
+                return false;
+            }
+            return type == other.type && Objects.equals(userId, other.userId)
+                    && Objects.equals(resourceId, other.resourceId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, userId, resourceId);
+        }
+    }
+
+    private static class CacheEntry {
+        private final Optional<String> permission;
+        private final long loadedAt;
+
+        CacheEntry(Optional<String> permission, long loadedAt) {
+            this.permission = permission;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+}
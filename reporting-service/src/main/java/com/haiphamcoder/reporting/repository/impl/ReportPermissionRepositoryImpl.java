@@ -1,7 +1,11 @@
 package com.haiphamcoder.reporting.repository.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Component;
@@ -10,6 +14,7 @@ import org.springframework.stereotype.Repository;
 import com.haiphamcoder.reporting.domain.entity.ReportPermission;
 import com.haiphamcoder.reporting.domain.model.ReportPermissionComposeKey;
 import com.haiphamcoder.reporting.repository.ReportPermissionRepository;
+import com.haiphamcoder.reporting.repository.impl.PermissionCache.ResourceType;
 
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -21,6 +26,8 @@ interface ReportPermissionJpaRepository extends JpaRepository<ReportPermission,
 
     List<ReportPermission> findAllByUserId(Long userId);
 
+    List<ReportPermission> findAllByUserIdAndReportIdIn(Long userId, Collection<Long> reportIds);
+
     void deleteAllByReportIdAndUserId(Long reportId, Long userId);
 
     void deleteAllByReportIdAndUserIdNot(Long reportId, Long userId);
@@ -33,16 +40,19 @@ interface ReportPermissionJpaRepository extends JpaRepository<ReportPermission,
 @RequiredArgsConstructor
 public class ReportPermissionRepositoryImpl implements ReportPermissionRepository {
     private final ReportPermissionJpaRepository reportPermissionJpaRepository;
+    private final PermissionCache permissionCache;
 
     @Override
     public Optional<ReportPermission> getReportPermissionByReportIdAndUserId(Long reportId, Long userId) {
-        return reportPermissionJpaRepository.findByReportIdAndUserId(reportId, userId);
+        return getReportPermissionsByUserIdAndReportIds(userId, List.of(reportId)).stream().findFirst();
     }
 
     @Override
     @Transactional
     public Optional<ReportPermission> saveReportPermission(ReportPermission reportPermission) {
-        return Optional.of(reportPermissionJpaRepository.save(reportPermission));
+        ReportPermission saved = reportPermissionJpaRepository.save(reportPermission);
+        permissionCache.invalidate(ResourceType.REPORT, saved.getReportId(), saved.getUserId());
+        return Optional.of(saved);
     }
 
     @Override
@@ -59,11 +69,30 @@ public class ReportPermissionRepositoryImpl implements ReportPermissionRepositor
     @Transactional
     public void deleteAllReportPermissionsByReportIdAndUserId(Long reportId, Long userId) {
         reportPermissionJpaRepository.deleteAllByReportIdAndUserId(reportId, userId);
+        permissionCache.invalidate(ResourceType.REPORT, reportId, userId);
     }
 
     @Override
     @Transactional
     public void deleteAllReportPermissionsByReportIdAndUserIdNot(Long reportId, Long userId) {
         reportPermissionJpaRepository.deleteAllByReportIdAndUserIdNot(reportId, userId);
+        permissionCache.invalidate(ResourceType.REPORT, reportId, null);
+    }
+
+    @Override
+    public List<ReportPermission> getReportPermissionsByUserIdAndReportIds(Long userId, Collection<Long> reportIds) {
+        if (reportIds == null || reportIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, String> permissions = permissionCache.getAll(ResourceType.REPORT, userId, reportIds,
+                missing -> reportPermissionJpaRepository.findAllByUserIdAndReportIdIn(userId, missing).stream()
+                        .collect(Collectors.toMap(ReportPermission::getReportId, ReportPermission::getPermission)));
+        List<ReportPermission> result = new ArrayList<>();
+        permissions.forEach((id, permission) -> {
+            if (permission != null) {
+                result.add(ReportPermission.builder().reportId(id).userId(userId).permission(permission).build());
+            }
+        });
+        return result;
     }
 }
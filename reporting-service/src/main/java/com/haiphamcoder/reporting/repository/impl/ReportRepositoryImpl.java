@@ -1,6 +1,10 @@
 package com.haiphamcoder.reporting.repository.impl;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -32,9 +36,11 @@ interface ReportJpaRepository extends JpaRepository<Report, Long> {
 
     Long countByUserIdAndIsDeleted(Long userId, Boolean isDeleted);
 
-    @Query("SELECT COUNT(r) FROM Report r WHERE (r.userId = :userId OR r.id IN :reportIds) AND r.isDeleted = :isDeleted AND DATE(r.createdAt) = DATE(:date)")
-    Long countByUserIdOrReportIdAndIsDeletedAndCreatedDate(@Param("userId") Long userId,
-            @Param("reportIds") Set<Long> reportIds, @Param("isDeleted") Boolean isDeleted, @Param("date") LocalDate date);
+    @Query("SELECT CAST(r.createdAt AS LocalDate), COUNT(r) FROM Report r WHERE (r.userId = :userId OR r.id IN :reportIds) AND r.isDeleted = :isDeleted AND r.createdAt >= :from GROUP BY CAST(r.createdAt AS LocalDate)")
+    List<Object[]> countByUserIdOrReportIdAndIsDeletedGroupByCreatedDate(@Param("userId") Long userId,
+            @Param("reportIds") Set<Long> reportIds,
+            @Param("isDeleted") Boolean isDeleted,
+            @Param("from") LocalDateTime from);
 
     @Query("SELECT r FROM Report r WHERE (r.userId = :userId OR r.id IN :reportIds) AND r.isDeleted = false AND (r.name LIKE %:search% OR r.description LIKE %:search%)")
     Page<Report> findAllByUserIdOrReportId(@Param("userId") Long userId, @Param("reportIds") Set<Long> reportIds,
@@ -96,10 +102,14 @@ public class ReportRepositoryImpl implements ReportRepository {
     }
 
     @Override
-    public Long getReportCountByUserIdOrReportIdAndIsDeletedAndCreatedDate(Long userId, Set<Long> reportIds,
-            Boolean isDeleted, LocalDate date) {
-        return reportJpaRepository.countByUserIdOrReportIdAndIsDeletedAndCreatedDate(userId, reportIds, isDeleted,
-                date);
+    public Map<LocalDate, Long> getReportCountByUserIdOrReportIdAndIsDeletedGroupByCreatedDate(Long userId,
+            Set<Long> reportIds, Boolean isDeleted, LocalDateTime from) {
+        Map<LocalDate, Long> counts = new HashMap<>();
+        for (Object[] row : reportJpaRepository.countByUserIdOrReportIdAndIsDeletedGroupByCreatedDate(userId,
+                reportIds, isDeleted, from)) {
+            counts.put((LocalDate) row[0], (Long) row[1]);
+        }
+        return counts;
     }
 
 }
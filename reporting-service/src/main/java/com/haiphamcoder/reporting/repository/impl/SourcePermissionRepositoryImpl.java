@@ -1,7 +1,11 @@
 package com.haiphamcoder.reporting.repository.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Component;
@@ -10,6 +14,7 @@ import org.springframework.stereotype.Repository;
 import com.haiphamcoder.reporting.domain.entity.SourcePermission;
 import com.haiphamcoder.reporting.domain.model.SourcePermissionComposeKey;
 import com.haiphamcoder.reporting.repository.SourcePermissionRepository;
+import com.haiphamcoder.reporting.repository.impl.PermissionCache.ResourceType;
 
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -22,6 +27,8 @@ interface SourcePermissionJpaRepository extends JpaRepository<SourcePermission,
 
     List<SourcePermission> findAllByUserId(Long userId);
 
+    List<SourcePermission> findAllByUserIdAndSourceIdIn(Long userId, Collection<Long> sourceIds);
+
     void deleteAllBySourceIdAndUserId(Long sourceId, Long userId);
 
     void deleteAllBySourceIdAndUserIdNot(Long sourceId, Long userId);
@@ -32,9 +39,15 @@ interface SourcePermissionJpaRepository extends JpaRepository<SourcePermission,
 public class SourcePermissionRepositoryImpl implements SourcePermissionRepository {
 
     private final SourcePermissionJpaRepository sourcePermissionJpaRepository;
+    private final PermissionCache permissionCache;
 
     @Override
     public Optional<SourcePermission> getSourcePermissionBySourceIdAndUserId(Long sourceId, Long userId) {
+        return getSourcePermissionsByUserIdAndSourceIds(userId, List.of(sourceId)).stream().findFirst();
+    }
+
+    @Override
+    public Optional<SourcePermission> findSourcePermissionBySourceIdAndUserId(Long sourceId, Long userId) {
         return sourcePermissionJpaRepository.findBySourceIdAndUserId(sourceId, userId);
     }
 
@@ -46,13 +59,17 @@ public class SourcePermissionRepositoryImpl implements SourcePermissionRepositor
     @Override
     @Transactional
     public SourcePermission createSourcePermission(SourcePermission sourcePermission) {
-        return sourcePermissionJpaRepository.save(sourcePermission);
+        SourcePermission saved = sourcePermissionJpaRepository.save(sourcePermission);
+        permissionCache.invalidate(ResourceType.SOURCE, saved.getSourceId(), saved.getUserId());
+        return saved;
     }
 
     @Override
     @Transactional
     public SourcePermission saveSourcePermission(SourcePermission sourcePermission) {
-        return sourcePermissionJpaRepository.save(sourcePermission);
+        SourcePermission saved = sourcePermissionJpaRepository.save(sourcePermission);
+        permissionCache.invalidate(ResourceType.SOURCE, saved.getSourceId(), saved.getUserId());
+        return saved;
     }
 
     @Override
@@ -64,12 +81,30 @@ public class SourcePermissionRepositoryImpl implements SourcePermissionRepositor
     @Transactional
     public void deleteAllSourcePermissionsBySourceIdAndUserId(Long sourceId, Long userId) {
         sourcePermissionJpaRepository.deleteAllBySourceIdAndUserId(sourceId, userId);
+        permissionCache.invalidate(ResourceType.SOURCE, sourceId, userId);
     }
 
     @Override
     @Transactional
     public void deleteAllSourcePermissionsBySourceIdAndUserIdNot(Long sourceId, Long userId) {
         sourcePermissionJpaRepository.deleteAllBySourceIdAndUserIdNot(sourceId, userId);
+        permissionCache.invalidate(ResourceType.SOURCE, sourceId, null);
     }
 
+    @Override
+    public List<SourcePermission> getSourcePermissionsByUserIdAndSourceIds(Long userId, Collection<Long> sourceIds) {
+        if (sourceIds == null || sourceIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, String> permissions = permissionCache.getAll(ResourceType.SOURCE, userId, sourceIds,
+                missing -> sourcePermissionJpaRepository.findAllByUserIdAndSourceIdIn(userId, missing).stream()
+                        .collect(Collectors.toMap(SourcePermission::getSourceId, SourcePermission::getPermission)));
+        List<SourcePermission> result = new ArrayList<>();
+        permissions.forEach((id, permission) -> {
+            if (permission != null) {
+                result.add(SourcePermission.builder().sourceId(id).userId(userId).permission(permission).build());
+            }
+        });
+        return result;
+    }
 }
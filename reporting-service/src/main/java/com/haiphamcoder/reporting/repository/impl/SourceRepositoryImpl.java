@@ -1,6 +1,10 @@
 package com.haiphamcoder.reporting.repository.impl;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -49,11 +53,11 @@ interface SourceJpaRepository extends JpaRepository<Source, Long> {
     @Query("SELECT COUNT(s) FROM Source s WHERE s.userId = :userId AND DATE(s.createdAt) = DATE(:date)")
     Long countByUserIdAndCreatedDate(@Param("userId") Long userId, @Param("date") LocalDate date);
 
-    @Query("SELECT COUNT(s) FROM Source s WHERE (s.userId = :userId OR s.id IN :sourceIds) AND s.isDeleted = :isDeleted AND DATE(s.createdAt) = DATE(:date)")
-    Long countByUserIdOrSourceIdAndIsDeletedAndCreatedDate(@Param("userId") Long userId,
+    @Query("SELECT CAST(s.createdAt AS LocalDate), COUNT(s) FROM Source s WHERE (s.userId = :userId OR s.id IN :sourceIds) AND s.isDeleted = :isDeleted AND s.createdAt >= :from GROUP BY CAST(s.createdAt AS LocalDate)")
+    List<Object[]> countByUserIdOrSourceIdAndIsDeletedGroupByCreatedDate(@Param("userId") Long userId,
             @Param("sourceIds") Set<Long> sourceIds,
             @Param("isDeleted") Boolean isDeleted,
-            @Param("date") LocalDate date);
+            @Param("from") LocalDateTime from);
 
     @Query("SELECT COUNT(s) FROM Source s WHERE s.userId = :userId AND s.name = :sourceName AND s.isDeleted = false")
     Long countByUserIdAndName(@Param("userId") Long userId, @Param("sourceName") String sourceName);
@@ -114,9 +118,14 @@ public class SourceRepositoryImpl implements SourceRepository {
     }
 
     @Override
-    public Long getSourceCountByUserIdOrSourceIdAndIsDeletedAndCreatedDate(Long userId, Set<Long> sourceIds,
-            Boolean isDeleted, LocalDate date) {
-        return sourceJpaRepository.countByUserIdOrSourceIdAndIsDeletedAndCreatedDate(userId, sourceIds, isDeleted, date);
+    public Map<LocalDate, Long> getSourceCountByUserIdOrSourceIdAndIsDeletedGroupByCreatedDate(Long userId,
+            Set<Long> sourceIds, Boolean isDeleted, LocalDateTime from) {
+        Map<LocalDate, Long> counts = new HashMap<>();
+        for (Object[] row : sourceJpaRepository.countByUserIdOrSourceIdAndIsDeletedGroupByCreatedDate(userId,
+                sourceIds, isDeleted, from)) {
+            counts.put((LocalDate) row[0], (Long) row[1]);
+        }
+        return counts;
     }
 
     @Override
@@ -1,18 +1,44 @@
 package com.haiphamcoder.reporting.service;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.haiphamcoder.dataprocessing.proto.ChartDataQuery;
+import com.haiphamcoder.dataprocessing.proto.ChartDataResult;
+import com.haiphamcoder.dataprocessing.proto.ChartVersion;
 import com.haiphamcoder.dataprocessing.proto.CloneSourceRequest;
 import com.haiphamcoder.dataprocessing.proto.CloneSourceResponse;
 import com.haiphamcoder.dataprocessing.proto.DataProcessingServiceGrpc;
+import com.haiphamcoder.dataprocessing.proto.ExplainQueryRequest;
+import com.haiphamcoder.dataprocessing.proto.ExplainQueryResponse;
+import com.haiphamcoder.dataprocessing.proto.GetChartsDataRequest;
+import com.haiphamcoder.dataprocessing.proto.GetMaterializedChartDataRequest;
+import com.haiphamcoder.dataprocessing.proto.GetMaterializedChartDataResponse;
+import com.haiphamcoder.dataprocessing.proto.QueryDataRequest;
+import com.haiphamcoder.dataprocessing.proto.QueryDataResponse;
+import com.haiphamcoder.reporting.domain.model.ChartData;
+import com.haiphamcoder.reporting.domain.model.CompiledQuery;
+import com.haiphamcoder.reporting.domain.model.PreviewData;
+import com.haiphamcoder.reporting.shared.MapperUtils;
 
 import io.grpc.ManagedChannel;
+import io.grpc.StatusRuntimeException;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
 @Slf4j
 public class DataProcessingGrpcClient {
+    private static final long CHARTS_DATA_DEADLINE_MARGIN_MS = 2000;
+
     private final DataProcessingServiceGrpc.DataProcessingServiceBlockingStub dataProcessingServiceBlockingStub;
 
     public DataProcessingGrpcClient(
@@ -29,4 +55,158 @@ public class DataProcessingGrpcClient {
         CloneSourceResponse response = dataProcessingServiceBlockingStub.cloneSource(request);
         return response.getSuccess();
     }
+
+    public List<JsonNode> queryData(Long chartId, CompiledQuery query) {
+        try {
+            QueryDataRequest request = QueryDataRequest.newBuilder()
+                    .setSql(query.getSql())
+                    .setParameters(MapperUtils.objectMapper.writeValueAsString(query.getParameters()))
+                    .setChartId(chartId != null ? chartId : 0L)
+                    .addAllTables(query.getTables() != null ? query.getTables() : List.of())
+                    .build();
+            QueryDataResponse response = dataProcessingServiceBlockingStub.queryData(request);
+            List<JsonNode> records = new ArrayList<>(response.getRecordsCount());
+            for (String record : response.getRecordsList()) {
+                records.add(MapperUtils.objectMapper.readTree(record));
+            }
+            return records;
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Query data failed! " + e.getMessage());
+        }
+    }
+
+    public List<JsonNode> explainQuery(String sql) {
+        try {
+            ExplainQueryResponse response = dataProcessingServiceBlockingStub
+                    .explainQuery(ExplainQueryRequest.newBuilder().setSql(sql).build());
+            List<JsonNode> rows = new ArrayList<>(response.getRowsCount());
+            for (String row : response.getRowsList()) {
+                rows.add(MapperUtils.objectMapper.readTree(row));
+            }
+            return rows;
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Explain query failed! " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return a page of the materialized result of the chart, or null when it
+     *         has none for this definition or it cannot be read, so the caller
+     *         queries the sources instead
+     */
+    public List<JsonNode> getMaterializedChartData(Long chartId, String definitionHash, long offset, int limit) {
+        try {
+            GetMaterializedChartDataResponse response = dataProcessingServiceBlockingStub
+                    .getMaterializedChartData(GetMaterializedChartDataRequest.newBuilder()
+                            .setChartId(chartId)
+                            .setDefinitionHash(definitionHash)
+                            .setOffset(offset)
+                            .setLimit(limit)
+                            .build());
+            if (!response.getFound()) {
+                return null;
+            }
+            List<JsonNode> records = new ArrayList<>(response.getRecordsCount());
+            for (String record : response.getRecordsList()) {
+                records.add(MapperUtils.objectMapper.readTree(record));
+            }
+            return records;
+        } catch (StatusRuntimeException | JsonProcessingException e) {
+            log.warn("Get materialized data of chart {} failed! {}", chartId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @param definitionHash the definition hash of the materialized result to
+     *                       serve, or null to always run the query
+     */
+    public static ChartDataQuery chartDataQuery(Long chartId, String definitionHash, long offset, int limit,
+            CompiledQuery query) {
+        try {
+            return ChartDataQuery.newBuilder()
+                    .setChartId(chartId)
+                    .setDefinitionHash(definitionHash != null ? definitionHash : "")
+                    .setOffset(offset)
+                    .setLimit(limit)
+                    .setSql(query.getSql())
+                    .setParameters(MapperUtils.objectMapper.writeValueAsString(query.getParameters()))
+                    .addAllTables(query.getTables() != null ? query.getTables() : List.of())
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Serialize query parameters failed! " + e.getMessage());
+        }
+    }
+
+    /**
+     * Read the data of several charts in one streaming call. The data
+     * processing service reads them concurrently and sends each chart as soon
+     * as it is read, so no message holds the data of every chart, and gives up
+     * on those not read within the timeout.
+     *
+     * @return the data of every chart received by chart id, without columns,
+     *         or with the error that kept it from being read
+     */
+    public Map<Long, ChartData> getChartsData(List<ChartDataQuery> charts, long timeoutMs) {
+        Map<Long, ChartData> result = new LinkedHashMap<>();
+        try {
+            // Leave the server time to send the charts it did read
+            Iterator<ChartDataResult> results = dataProcessingServiceBlockingStub
+                    .withDeadlineAfter(timeoutMs + CHARTS_DATA_DEADLINE_MARGIN_MS, TimeUnit.MILLISECONDS)
+                    .streamChartsData(GetChartsDataRequest.newBuilder()
+                            .addAllCharts(charts)
+                            .setTimeoutMs(timeoutMs)
+                            .build());
+            while (results.hasNext()) {
+                ChartDataResult chart = results.next();
+                result.put(chart.getChartId(), toChartData(chart));
+            }
+        } catch (StatusRuntimeException e) {
+            // The charts received so far are still served
+            log.warn("Get charts data failed after {} of {} charts! {}", result.size(), charts.size(),
+                    e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * @return the version of the data of every chart that has one by chart id,
+     *         empty when the versions cannot be read
+     */
+    public Map<Long, String> getChartsVersion(List<ChartDataQuery> charts) {
+        Map<Long, String> result = new LinkedHashMap<>();
+        try {
+            for (ChartVersion chart : dataProcessingServiceBlockingStub
+                    .getChartsVersion(GetChartsDataRequest.newBuilder().addAllCharts(charts).build())
+                    .getChartsList()) {
+                if (!chart.getVersion().isEmpty()) {
+                    result.put(chart.getChartId(), chart.getVersion());
+                }
+            }
+        } catch (StatusRuntimeException e) {
+            log.warn("Get charts version failed! {}", e.getMessage());
+        }
+        return result;
+    }
+
+    private static ChartData toChartData(ChartDataResult chart) {
+        ChartData chartData = ChartData.builder()
+                .chartId(chart.getChartId())
+                .materialized(chart.getMaterialized())
+                .build();
+        if (!chart.getError().isEmpty()) {
+            chartData.setError(chart.getError());
+            return chartData;
+        }
+        try {
+            List<JsonNode> records = new ArrayList<>(chart.getRecordsCount());
+            for (String record : chart.getRecordsList()) {
+                records.add(MapperUtils.objectMapper.readTree(record));
+            }
+            chartData.setData(new PreviewData(null, records));
+        } catch (JsonProcessingException e) {
+            chartData.setError("Read chart data failed! " + e.getMessage());
+        }
+        return chartData;
+    }
 }
@@ -1,5 +1,10 @@
 package com.haiphamcoder.reporting.service;
 
+import java.util.Collection;
+import java.util.Map;
+
+import com.haiphamcoder.reporting.domain.model.EffectivePermission;
+
 public interface PermissionService {
 
     boolean hasViewSourcePermission(Long userId, Long sourceId);
@@ -20,4 +25,22 @@ public interface PermissionService {
 
     boolean hasOwnerChartPermission(Long userId, Long chartId);
 
+    /**
+     * Resolve the permissions of the user on several sources with one query.
+     *
+     * @return the permission on every given source, NONE when the user has no
+     *         permission row for it
+     */
+    Map<Long, EffectivePermission> getSourcePermissions(Long userId, Collection<Long> sourceIds);
+
+    /**
+     * @see #getSourcePermissions
+     */
+    Map<Long, EffectivePermission> getReportPermissions(Long userId, Collection<Long> reportIds);
+
+    /**
+     * @see #getSourcePermissions
+     */
+    Map<Long, EffectivePermission> getChartPermissions(Long userId, Collection<Long> chartIds);
+
 }
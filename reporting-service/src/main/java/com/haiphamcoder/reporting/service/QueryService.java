@@ -1,5 +1,71 @@
 package com.haiphamcoder.reporting.service;
 
+import java.util.List;
+
+import com.haiphamcoder.reporting.domain.model.ChartData;
+import com.haiphamcoder.reporting.domain.model.CompiledQuery;
+import com.haiphamcoder.reporting.domain.model.MaterializedQuery;
+import com.haiphamcoder.reporting.domain.model.PreviewData;
+import com.haiphamcoder.reporting.domain.model.QueryOption;
+import com.haiphamcoder.reporting.domain.model.QueryPlan;
+
 public interface QueryService {
-    
+
+    /**
+     * Compile a query over sources the user can view into parameterized SQL.
+     *
+     * @param page  the page number, null for all rows
+     * @param limit the page size, capped by {@code chart.query.max-page-size}
+     */
+    CompiledQuery compile(Long userId, QueryOption queryOption, Integer page, Integer limit);
+
+    /**
+     * @return the SQL of the query with its values inlined, for display
+     */
+    String convertQuery(Long userId, QueryOption queryOption);
+
+    PreviewData query(Long userId, QueryOption queryOption, Integer page, Integer limit);
+
+    /**
+     * Read a page of the data of a chart, from its materialized result when
+     * it is materialized for the current query of the chart.
+     */
+    PreviewData getChartData(Long userId, Long chartId, Integer page, Integer limit);
+
+    /**
+     * Read the same page of the data of several charts, such as the charts of
+     * a report, in one call to the data processing service. A chart that
+     * cannot be viewed, compiled or read comes back with its error instead of
+     * failing the others.
+     *
+     * @param withCharts whether to return every chart along with its data
+     */
+    List<ChartData> getChartsData(Long userId, List<Long> chartIds, Integer page, Integer limit,
+            boolean withCharts);
+
+    default List<ChartData> getChartsData(Long userId, List<Long> chartIds, Integer page, Integer limit) {
+        return getChartsData(userId, chartIds, page, limit, false);
+    }
+
+    /**
+     * Tell whether what getChartsData returns for the same page of the charts
+     * may have changed, without reading their data.
+     *
+     * @return a string that changes whenever it may have changed, null when a
+     *         chart cannot be told apart without reading its data
+     */
+    String getChartsVersion(Long userId, List<Long> chartIds, Integer page, Integer limit);
+
+    /**
+     * Compile the query of a chart for the materialization of its result, on
+     * behalf of the data processing service.
+     */
+    MaterializedQuery compileMaterialization(Long chartId);
+
+    /**
+     * Show what the optimizer does to a query and how TiDB plans it before and
+     * after.
+     */
+    QueryPlan explain(Long userId, QueryOption queryOption);
+
 }
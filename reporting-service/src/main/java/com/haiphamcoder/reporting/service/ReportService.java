@@ -4,6 +4,7 @@ import java.util.List;
 
 import com.haiphamcoder.reporting.domain.dto.ReportDto;
 import com.haiphamcoder.reporting.domain.dto.ReportDto.UserReportPermission;
+import com.haiphamcoder.reporting.domain.model.ReportRender;
 import com.haiphamcoder.reporting.domain.model.request.CreateReportRequest;
 import com.haiphamcoder.reporting.domain.model.request.ShareReportRequest;
 import com.haiphamcoder.reporting.domain.model.response.Metadata;
@@ -15,6 +16,23 @@ public interface ReportService {
 
     ReportDto getReportById(Long userId, Long reportId);
 
+    /**
+     * @return the ids of the charts shown by the report, in block order
+     */
+    List<Long> getReportChartIds(Long userId, Long reportId);
+
+    /**
+     * Load the report, its charts and the given page of their data at once.
+     */
+    ReportRender renderReport(Long userId, Long reportId, Integer page, Integer limit);
+
+    /**
+     * @return the ETag of the render of the report, computed from the report,
+     *         its charts and the versions of their data without reading the
+     *         data, or null when it cannot be
+     */
+    String getRenderEtag(Long userId, Long reportId, Integer page, Integer limit);
+
     ReportDto updateReport(Long userId, Long reportId, ReportDto reportDto);
 
     void deleteReport(Long userId, Long reportId);
@@ -0,0 +1,35 @@
+package com.haiphamcoder.reporting.service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.haiphamcoder.reporting.domain.dto.UserDto;
+
+public interface UserCacheService {
+
+    /**
+     * Get users from the cache, loading the missing ones with one call of the
+     * loader. A user already being loaded by another thread is waited for
+     * instead of loaded again.
+     *
+     * @param loader loads the users of the given ids, leaving out those that
+     *               do not exist
+     * @return the users that exist, by id
+     */
+    Map<Long, UserDto> getAll(Collection<Long> userIds, Function<Set<Long>, Map<Long, UserDto>> loader);
+
+    /**
+     * Drop the cached copy of a user that changed.
+     *
+     * @param changedAt epoch millis of the change, 0 if unknown
+     */
+    void invalidate(Long userId, long changedAt);
+
+    /**
+     * Drop every cached user, when changes may have been missed.
+     */
+    void invalidateAll();
+
+}
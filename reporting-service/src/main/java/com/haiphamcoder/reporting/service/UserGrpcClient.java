@@ -3,23 +3,100 @@ package com.haiphamcoder.reporting.service;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import com.haiphamcoder.reporting.config.properties.UserCacheProperties;
 import com.haiphamcoder.reporting.domain.dto.UserDto;
+import com.haiphamcoder.reporting.domain.exception.business.detail.ResourceNotFoundException;
 import com.haiphamcoder.usermanagement.proto.*;
 
 import io.grpc.ManagedChannel;
+import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
 @Slf4j
 public class UserGrpcClient {
     private final UserServiceGrpc.UserServiceBlockingStub userServiceBlockingStub;
+    private final UserServiceGrpc.UserServiceStub userServiceStub;
+    private final UserCacheService userCacheService;
+    private final UserCacheProperties userCacheProperties;
+    private final ScheduledExecutorService watchScheduler;
+    private volatile boolean stopped;
 
-    public UserGrpcClient(@Qualifier("userManagementServiceChannel") ManagedChannel userManagementServiceChannel) {
+    public UserGrpcClient(@Qualifier("userManagementServiceChannel") ManagedChannel userManagementServiceChannel,
+            UserCacheService userCacheService,
+            @Qualifier("userCacheProperties") UserCacheProperties userCacheProperties) {
         this.userServiceBlockingStub = UserServiceGrpc.newBlockingStub(userManagementServiceChannel);
+        this.userServiceStub = UserServiceGrpc.newStub(userManagementServiceChannel);
+        this.userCacheService = userCacheService;
+        this.userCacheProperties = userCacheProperties;
+        this.watchScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-change-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        if (userCacheProperties.isEnabled()) {
+            watchScheduler.execute(this::watchUserChanges);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        watchScheduler.shutdownNow();
+    }
+
+    /**
+     * Drop cached users as user-management-service reports their changes.
+     * Changes made while the stream is down are missed, so the whole cache is
+     * dropped whenever the stream ends and the stream is reopened.
+     */
+    private void watchUserChanges() {
+        // Changes may have been missed before this stream opens
+        userCacheService.invalidateAll();
+        userServiceStub.watchUserChanges(WatchUserChangesRequest.getDefaultInstance(),
+                new StreamObserver<UserChange>() {
+                    @Override
+                    public void onNext(UserChange change) {
+                        userCacheService.invalidate(change.getUserId(), change.getChangedAt());
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        log.warn("Watch user changes failed! {}", t.getMessage());
+                        rewatch();
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        rewatch();
+                    }
+                });
+    }
+
+    private void rewatch() {
+        userCacheService.invalidateAll();
+        if (!stopped) {
+            watchScheduler.schedule(this::watchUserChanges, userCacheProperties.getReconnectDelayMs(),
+                    TimeUnit.MILLISECONDS);
+        }
     }
 
     public UserDto getUserByEmail(String email) {
@@ -30,10 +107,41 @@ public class UserGrpcClient {
     }
 
     public UserDto getUserById(Long userId) {
-        GetUserByIdRequest request = GetUserByIdRequest.newBuilder().setId(userId).build();
-        GetUserByIdResponse response = userServiceBlockingStub.getUserById(request);
-        UserProto user = response.getUser();
-        return convertUserToUserDto(user);
+        return getUsersByIds(Set.of(userId)).get(userId);
+    }
+
+    /**
+     * Get several users in one call, such as the owners of a page of charts.
+     * Users are served from the user cache, and the missing ones are loaded
+     * with one call.
+     *
+     * @return the users by id
+     * @throws ResourceNotFoundException if one of the users does not exist, as
+     *                                   getUserById fails for it
+     */
+    public Map<Long, UserDto> getUsersByIds(Collection<Long> userIds) {
+        Collection<Long> ids = new LinkedHashSet<>(userIds);
+        ids.remove(null);
+        if (ids.isEmpty()) {
+            return new HashMap<>();
+        }
+        Map<Long, UserDto> users = userCacheService.getAll(ids, this::loadUsersByIds);
+        for (Long id : ids) {
+            if (!users.containsKey(id)) {
+                throw new ResourceNotFoundException("User", id);
+            }
+        }
+        return users;
+    }
+
+    private Map<Long, UserDto> loadUsersByIds(Set<Long> ids) {
+        GetUsersByIdsRequest request = GetUsersByIdsRequest.newBuilder().addAllIds(ids).build();
+        GetUsersByIdsResponse response = userServiceBlockingStub.getUsersByIds(request);
+        Map<Long, UserDto> users = new HashMap<>();
+        for (UserProto user : response.getUsersList()) {
+            users.put(user.getId(), convertUserToUserDto(user));
+        }
+        return users;
     }
 
     public UserDto getUserByUsername(String username) {
@@ -1,18 +1,28 @@
 package com.haiphamcoder.reporting.service.impl;
 
+import java.util.Objects;
 import java.util.Optional;
 import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.haiphamcoder.reporting.domain.entity.Chart;
 import com.haiphamcoder.reporting.domain.entity.Chart.ChartBuilder;
+import com.haiphamcoder.reporting.domain.enums.ChartPermissionType;
+import com.haiphamcoder.reporting.domain.exception.business.detail.ResourceNotFoundException;
+import com.haiphamcoder.reporting.domain.model.MaterializedQuery;
 import com.haiphamcoder.reporting.proto.ChartProto;
 import com.haiphamcoder.reporting.proto.ChartServiceGrpc;
+import com.haiphamcoder.reporting.proto.CheckChartPermissionRequest;
+import com.haiphamcoder.reporting.proto.CheckChartPermissionResponse;
 import com.haiphamcoder.reporting.proto.GetChartByIdRequest;
 import com.haiphamcoder.reporting.proto.GetChartByIdResponse;
+import com.haiphamcoder.reporting.proto.GetChartQueryRequest;
+import com.haiphamcoder.reporting.proto.GetChartQueryResponse;
 import com.haiphamcoder.reporting.proto.UpdateChartRequest;
 import com.haiphamcoder.reporting.proto.UpdateChartResponse;
 import com.haiphamcoder.reporting.repository.ChartRepository;
+import com.haiphamcoder.reporting.service.PermissionService;
+import com.haiphamcoder.reporting.service.QueryService;
 import com.haiphamcoder.reporting.shared.MapperUtils;
 import com.haiphamcoder.reporting.shared.StringUtils;
 
@@ -26,6 +36,8 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class ChartServiceGrpcImpl extends ChartServiceGrpc.ChartServiceImplBase {
     private final ChartRepository chartRepository;
+    private final QueryService queryService;
+    private final PermissionService permissionService;
 
     @Override
     public void getChartById(GetChartByIdRequest request, StreamObserver<GetChartByIdResponse> responseObserver) {
@@ -58,6 +70,57 @@ public class ChartServiceGrpcImpl extends ChartServiceGrpc.ChartServiceImplBase
         }
     }
 
+    @Override
+    public void getChartQuery(GetChartQueryRequest request, StreamObserver<GetChartQueryResponse> responseObserver) {
+        try {
+            MaterializedQuery materialized = queryService.compileMaterialization(request.getId());
+            GetChartQueryResponse.Builder response = GetChartQueryResponse.newBuilder()
+                    .setSql(materialized.getQuery().getSql())
+                    .setParameters(MapperUtils.objectMapper.writeValueAsString(materialized.getQuery().getParameters()))
+                    .addAllColumns(materialized.getQuery().getColumns())
+                    .setDefinitionHash(materialized.getDefinitionHash());
+            if (materialized.getQuery().getTables() != null) {
+                response.addAllTables(materialized.getQuery().getTables());
+            }
+            if (materialized.getDeltaQuery() != null) {
+                response.setDeltaSql(materialized.getDeltaQuery().getSql())
+                        .setSourceTable(materialized.getSourceTable())
+                        .addAllSort(materialized.getSort());
+                for (String aggregate : materialized.getAggregates()) {
+                    response.addAggregates(aggregate != null ? aggregate : "");
+                }
+            }
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        } catch (ResourceNotFoundException e) {
+            responseObserver.onError(Status.NOT_FOUND.withDescription(e.getMessage()).asException());
+        } catch (Exception e) {
+            log.error("Get chart query failed! {}", e.getMessage());
+            responseObserver.onError(Status.INTERNAL.withDescription(e.getMessage()).asException());
+        }
+    }
+
+    @Override
+    public void checkChartPermission(CheckChartPermissionRequest request,
+            StreamObserver<CheckChartPermissionResponse> responseObserver) {
+        Optional<Chart> chart = chartRepository.getChartById(request.getChartId());
+        if (chart.isEmpty()) {
+            responseObserver.onError(Status.NOT_FOUND.withDescription("Chart not found").asException());
+            return;
+        }
+        Long userId = request.getUserId();
+        boolean allowed;
+        if (Objects.equals(chart.get().getUserId(), userId)) {
+            allowed = true;
+        } else if (ChartPermissionType.EDIT.getValue().equals(request.getPermission())) {
+            allowed = permissionService.hasEditChartPermission(userId, request.getChartId());
+        } else {
+            allowed = permissionService.hasViewChartPermission(userId, request.getChartId());
+        }
+        responseObserver.onNext(CheckChartPermissionResponse.newBuilder().setAllowed(allowed).build());
+        responseObserver.onCompleted();
+    }
+
     private ChartProto convertToChartProto(Chart chart) {
         ChartProto.Builder builder = ChartProto.newBuilder();
         builder.setId(chart.getId());
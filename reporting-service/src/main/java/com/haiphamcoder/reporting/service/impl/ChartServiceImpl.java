@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -19,6 +20,7 @@ import com.haiphamcoder.reporting.domain.entity.Chart;
 import com.haiphamcoder.reporting.domain.entity.ChartPermission;
 import com.haiphamcoder.reporting.domain.entity.SourcePermission;
 import com.haiphamcoder.reporting.domain.enums.ChartPermissionType;
+import com.haiphamcoder.reporting.domain.model.EffectivePermission;
 import com.haiphamcoder.reporting.domain.exception.business.detail.ForbiddenException;
 import com.haiphamcoder.reporting.domain.exception.business.detail.InvalidInputException;
 import com.haiphamcoder.reporting.domain.exception.business.detail.ResourceNotFoundException;
@@ -57,17 +59,20 @@ public class ChartServiceImpl implements ChartService {
         List<ChartPermission> chartPermissions = chartPermissionRepository.getAllChartPermissionsByUserId(userId);
         Set<Long> chartIds = chartPermissions.stream().map(ChartPermission::getChartId).collect(Collectors.toSet());
         Page<Chart> charts = chartRepository.getAllChartsByUserIdOrChartId(userId, chartIds, search, page, limit);
+        Map<Long, UserDto> owners = userGrpcClient.getUsersByIds(charts.stream().map(Chart::getUserId).toList());
+        Map<Long, EffectivePermission> permissions = permissionService.getChartPermissions(userId,
+                charts.stream().map(Chart::getId).toList());
         return new Pair<>(charts.stream().map(chart -> {
             ChartDto chartDto = ChartMapper.toChartDto(chart);
-            UserDto userDto = userGrpcClient.getUserById(chart.getUserId());
+            UserDto userDto = owners.get(chart.getUserId());
             chartDto.setOwner(ChartDto.Owner.builder()
                     .id(String.valueOf(userDto.getId()))
                     .name(userDto.getFirstName() + " " + userDto.getLastName())
                     .email(userDto.getEmail())
                     .avatar(userDto.getAvatarUrl())
                     .build());
-            chartDto.setCanEdit(permissionService.hasEditChartPermission(userId, chart.getId()));
-            chartDto.setCanShare(permissionService.hasOwnerChartPermission(userId, chart.getId()));
+            chartDto.setCanEdit(permissions.get(chart.getId()).isEdit());
+            chartDto.setCanShare(permissions.get(chart.getId()).isOwner());
             return chartDto;
         }).toList(),
                 Metadata.builder()
@@ -184,12 +189,17 @@ public class ChartServiceImpl implements ChartService {
         }
         if (Objects.equals(chart.get().getUserId(), userId)) {
             List<ChartPermission> chartPermissions = chartPermissionRepository.getChartPermissionsByChartId(chartId);
+            Map<Long, UserDto> users = userGrpcClient.getUsersByIds(chartPermissions.stream()
+                    .filter(chartPermission -> !chartPermission.getPermission()
+                            .equals(ChartPermissionType.OWNER.getValue()))
+                    .map(ChartPermission::getUserId)
+                    .toList());
             List<UserChartPermission> userChartPermissions = new ArrayList<>();
             for (ChartPermission chartPermission : chartPermissions) {
                 if (chartPermission.getPermission().equals(ChartPermissionType.OWNER.getValue())) {
                     continue;
                 }
-                UserDto userDto = userGrpcClient.getUserById(chartPermission.getUserId());
+                UserDto userDto = users.get(chartPermission.getUserId());
                 userChartPermissions.add(UserChartPermission.builder()
                         .userId(String.valueOf(chartPermission.getUserId()))
                         .name(userDto.getFirstName() + " " + userDto.getLastName())
@@ -250,7 +260,7 @@ public class ChartServiceImpl implements ChartService {
         }
         for (String sourceId : relatedSourceIds) {
             Optional<SourcePermission> sourcePermission = sourcePermissionRepository
-                    .getSourcePermissionBySourceIdAndUserId(Long.parseLong(sourceId), userId);
+                    .findSourcePermissionBySourceIdAndUserId(Long.parseLong(sourceId), userId);
             if (sourcePermission.isEmpty()) {
                 SourcePermission newSourcePermission = SourcePermission.builder()
                         .sourceId(Long.parseLong(sourceId))
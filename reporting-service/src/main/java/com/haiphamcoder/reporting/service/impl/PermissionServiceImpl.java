@@ -1,5 +1,8 @@
 package com.haiphamcoder.reporting.service.impl;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.stereotype.Service;
@@ -7,6 +10,7 @@ import org.springframework.stereotype.Service;
 import com.haiphamcoder.reporting.domain.entity.ChartPermission;
 import com.haiphamcoder.reporting.domain.entity.ReportPermission;
 import com.haiphamcoder.reporting.domain.entity.SourcePermission;
+import com.haiphamcoder.reporting.domain.model.EffectivePermission;
 import com.haiphamcoder.reporting.repository.ChartPermissionRepository;
 import com.haiphamcoder.reporting.repository.ReportPermissionRepository;
 import com.haiphamcoder.reporting.repository.SourcePermissionRepository;
@@ -117,4 +121,44 @@ public class PermissionServiceImpl implements PermissionService {
         return false;
     }
 
+    @Override
+    public Map<Long, EffectivePermission> getSourcePermissions(Long userId, Collection<Long> sourceIds) {
+        Map<Long, EffectivePermission> permissions = none(sourceIds);
+        for (SourcePermission sourcePermission : sourcePermissionRepository
+                .getSourcePermissionsByUserIdAndSourceIds(userId, permissions.keySet())) {
+            permissions.put(sourcePermission.getSourceId(), EffectivePermission.of(sourcePermission.getPermission()));
+        }
+        return permissions;
+    }
+
+    @Override
+    public Map<Long, EffectivePermission> getReportPermissions(Long userId, Collection<Long> reportIds) {
+        Map<Long, EffectivePermission> permissions = none(reportIds);
+        for (ReportPermission reportPermission : reportPermissionRepository
+                .getReportPermissionsByUserIdAndReportIds(userId, permissions.keySet())) {
+            permissions.put(reportPermission.getReportId(), EffectivePermission.of(reportPermission.getPermission()));
+        }
+        return permissions;
+    }
+
+    @Override
+    public Map<Long, EffectivePermission> getChartPermissions(Long userId, Collection<Long> chartIds) {
+        Map<Long, EffectivePermission> permissions = none(chartIds);
+        for (ChartPermission chartPermission : chartPermissionRepository
+                .getChartPermissionsByUserIdAndChartIds(userId, permissions.keySet())) {
+            permissions.put(chartPermission.getChartId(), EffectivePermission.of(chartPermission.getPermission()));
+        }
+        return permissions;
+    }
+
+    private static Map<Long, EffectivePermission> none(Collection<Long> ids) {
+        Map<Long, EffectivePermission> permissions = new HashMap<>();
+        for (Long id : ids) {
+            if (id != null) {
+                permissions.put(id, EffectivePermission.NONE);
+            }
+        }
+        return permissions;
+    }
+
 }
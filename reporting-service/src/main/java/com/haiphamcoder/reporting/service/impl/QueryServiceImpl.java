@@ -1,8 +1,48 @@
 package com.haiphamcoder.reporting.service.impl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.haiphamcoder.dataprocessing.proto.ChartDataQuery;
+import com.haiphamcoder.reporting.domain.dto.ChartDto;
+import com.haiphamcoder.reporting.domain.dto.ChartDto.ChartConfig;
+import com.haiphamcoder.reporting.domain.entity.Chart;
+import com.haiphamcoder.reporting.domain.entity.Source;
+import com.haiphamcoder.reporting.domain.enums.ChartType;
+import com.haiphamcoder.reporting.domain.exception.business.detail.ForbiddenException;
+import com.haiphamcoder.reporting.domain.exception.business.detail.InvalidInputException;
+import com.haiphamcoder.reporting.domain.exception.business.detail.ResourceNotFoundException;
+import com.haiphamcoder.reporting.domain.model.ChartData;
+import com.haiphamcoder.reporting.domain.model.CompiledQuery;
+import com.haiphamcoder.reporting.domain.model.EffectivePermission;
+import com.haiphamcoder.reporting.domain.model.MaterializedQuery;
+import com.haiphamcoder.reporting.domain.model.PreviewData;
+import com.haiphamcoder.reporting.domain.model.QueryOption;
+import com.haiphamcoder.reporting.domain.model.QueryPlan;
+import com.haiphamcoder.reporting.mapper.ChartMapper;
+import com.haiphamcoder.reporting.mapper.QueryOptimizer;
+import com.haiphamcoder.reporting.mapper.SQLQueryBuilder;
+import com.haiphamcoder.reporting.repository.ChartRepository;
+import com.haiphamcoder.reporting.repository.SourceRepository;
+import com.haiphamcoder.reporting.service.ChartService;
+import com.haiphamcoder.reporting.service.DataProcessingGrpcClient;
+import com.haiphamcoder.reporting.service.PermissionService;
 import com.haiphamcoder.reporting.service.QueryService;
+import com.haiphamcoder.reporting.shared.Pair;
+import com.haiphamcoder.reporting.shared.StringUtils;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -10,4 +50,353 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class QueryServiceImpl implements QueryService {
 
+    private final SourceRepository sourceRepository;
+    private final ChartRepository chartRepository;
+    private final PermissionService permissionService;
+    private final ChartService chartService;
+    private final DataProcessingGrpcClient dataProcessingGrpcClient;
+    private final int maxPageSize;
+    private final boolean optimize;
+    private final boolean useMaterialized;
+    private final long batchTimeoutMs;
+
+    public QueryServiceImpl(SourceRepository sourceRepository,
+            ChartRepository chartRepository,
+            PermissionService permissionService,
+            ChartService chartService,
+            DataProcessingGrpcClient dataProcessingGrpcClient,
+            @Value("${chart.query.max-page-size:1000}") int maxPageSize,
+            @Value("${chart.query.optimize:true}") boolean optimize,
+            @Value("${chart.query.use-materialized:true}") boolean useMaterialized,
+            @Value("${chart.query.batch-timeout-ms:10000}") long batchTimeoutMs) {
+        this.sourceRepository = sourceRepository;
+        this.chartRepository = chartRepository;
+        this.permissionService = permissionService;
+        this.chartService = chartService;
+        this.dataProcessingGrpcClient = dataProcessingGrpcClient;
+        this.maxPageSize = maxPageSize;
+        this.optimize = optimize;
+        this.useMaterialized = useMaterialized;
+        this.batchTimeoutMs = batchTimeoutMs;
+    }
+
+    @Override
+    public CompiledQuery compile(Long userId, QueryOption queryOption, Integer page, Integer limit) {
+        Map<String, String> tables = resolveTables(userId, queryOption, true);
+        return SQLQueryBuilder.compile(optimize(queryOption, tables, null), tables, page,
+                page != null ? pageSize(limit) : null);
+    }
+
+    @Override
+    public String convertQuery(Long userId, QueryOption queryOption) {
+        return SQLQueryBuilder.render(compile(userId, queryOption, null, null));
+    }
+
+    @Override
+    public PreviewData query(Long userId, QueryOption queryOption, Integer page, Integer limit) {
+        return execute(null, compile(userId, queryOption, page, limit));
+    }
+
+    @Override
+    public PreviewData getChartData(Long userId, Long chartId, Integer page, Integer limit) {
+        // Viewing the chart is enough: its sources were checked when its owner built it
+        ChartDto chart = chartService.getChartById(userId, chartId);
+        if (chart.getConfig() == null || chart.getConfig().getQueryOption() == null) {
+            throw new InvalidInputException("Chart has no query option");
+        }
+        QueryOption queryOption = chart.getConfig().getQueryOption();
+        Map<String, String> tables = resolveTables(userId, queryOption, false);
+        QueryOption optimized = optimize(queryOption, tables, shownColumns(chart.getConfig()));
+        int pageSize = pageSize(limit);
+        if (useMaterialized) {
+            MaterializedQuery materialized = SQLQueryBuilder.compileMaterialization(optimized, tables);
+            long offset = (long) Math.max(0, page != null ? page : 0) * pageSize;
+            List<JsonNode> records = dataProcessingGrpcClient.getMaterializedChartData(chartId,
+                    materialized.getDefinitionHash(), offset, pageSize);
+            if (records != null) {
+                return new PreviewData(materialized.getQuery().getColumns(), records);
+            }
+        }
+        return execute(chartId, SQLQueryBuilder.compile(optimized, tables, page, pageSize));
+    }
+
+    @Override
+    public List<ChartData> getChartsData(Long userId, List<Long> chartIds, Integer page, Integer limit,
+            boolean withCharts) {
+        if (chartIds == null || chartIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<Long> ids = new LinkedHashSet<>(chartIds);
+        ids.remove(null);
+        Map<Long, Chart> charts = new HashMap<>();
+        for (Chart chart : chartRepository.getChartsByIds(ids)) {
+            charts.put(chart.getId(), chart);
+        }
+        Map<Long, EffectivePermission> permissions = permissionService.getChartPermissions(userId, charts.keySet());
+        int pageSize = pageSize(limit);
+        long offset = (long) Math.max(0, page != null ? page : 0) * pageSize;
+        Map<Long, ChartData> results = new LinkedHashMap<>();
+        Map<Long, List<String>> columns = new HashMap<>();
+        List<ChartDataQuery> queries = new ArrayList<>();
+        for (Long chartId : ids) {
+            ChartData result = ChartData.builder().chartId(chartId).build();
+            results.put(chartId, result);
+            try {
+                ChartDto chartDto = viewableChart(userId, chartId, charts.get(chartId), permissions);
+                if (withCharts) {
+                    result.setChart(chartDto);
+                }
+                Pair<CompiledQuery, MaterializedQuery> compiled = compileChartData(userId, chartDto, page, pageSize);
+                CompiledQuery query = compiled.getFirst();
+                String definitionHash = null;
+                if (compiled.getSecond() != null) {
+                    definitionHash = compiled.getSecond().getDefinitionHash();
+                    columns.put(chartId, compiled.getSecond().getQuery().getColumns());
+                }
+                queries.add(DataProcessingGrpcClient.chartDataQuery(chartId, definitionHash, offset, pageSize,
+                        query));
+                result.setData(new PreviewData(query.getColumns(), null));
+            } catch (RuntimeException e) {
+                log.debug("Compile query of chart {} failed! {}", chartId, e.getMessage());
+                result.setError(e.getMessage());
+            }
+        }
+
+        if (!queries.isEmpty()) {
+            long startTime = System.currentTimeMillis();
+            Map<Long, ChartData> read = dataProcessingGrpcClient.getChartsData(queries, batchTimeoutMs);
+            for (ChartDataQuery query : queries) {
+                ChartData result = results.get(query.getChartId());
+                ChartData chartData = read.get(query.getChartId());
+                if (chartData == null) {
+                    result.setData(null);
+                    result.setError("Chart data was not returned");
+                } else if (chartData.getError() != null) {
+                    result.setData(null);
+                    result.setError(chartData.getError());
+                } else {
+                    if (Boolean.TRUE.equals(chartData.getMaterialized())) {
+                        result.getData().setSchema(columns.get(query.getChartId()));
+                    }
+                    result.getData().setRecords(chartData.getData().getRecords());
+                    result.setMaterialized(chartData.getMaterialized());
+                }
+            }
+            log.info("Read data of {} charts in {} ms", queries.size(), System.currentTimeMillis() - startTime);
+        }
+        return new ArrayList<>(results.values());
+    }
+
+    @Override
+    public String getChartsVersion(Long userId, List<Long> chartIds, Integer page, Integer limit) {
+        if (chartIds == null || chartIds.isEmpty()) {
+            return "";
+        }
+        Set<Long> ids = new LinkedHashSet<>(chartIds);
+        ids.remove(null);
+        Map<Long, Chart> charts = new HashMap<>();
+        for (Chart chart : chartRepository.getChartsByIds(ids)) {
+            charts.put(chart.getId(), chart);
+        }
+        Map<Long, EffectivePermission> permissions = permissionService.getChartPermissions(userId, charts.keySet());
+        int pageSize = pageSize(limit);
+        long offset = (long) Math.max(0, page != null ? page : 0) * pageSize;
+        // What getChartsData returns for a chart other than its data, versioned by the data processing service
+        Map<Long, String> versions = new LinkedHashMap<>();
+        List<ChartDataQuery> queries = new ArrayList<>();
+        for (Long chartId : ids) {
+            try {
+                ChartDto chartDto = viewableChart(userId, chartId, charts.get(chartId), permissions);
+                Pair<CompiledQuery, MaterializedQuery> compiled = compileChartData(userId, chartDto, page, pageSize);
+                ChartDataQuery query = DataProcessingGrpcClient.chartDataQuery(chartId,
+                        compiled.getSecond() != null ? compiled.getSecond().getDefinitionHash() : null, offset,
+                        pageSize, compiled.getFirst());
+                queries.add(query);
+                versions.put(chartId, chartDto.getModifiedAt() + "\n" + query.getDefinitionHash() + "\n"
+                        + query.getSql() + "\n" + query.getParameters());
+            } catch (RuntimeException e) {
+                versions.put(chartId, "error:" + e.getMessage());
+            }
+        }
+
+        if (!queries.isEmpty()) {
+            Map<Long, String> dataVersions = dataProcessingGrpcClient.getChartsVersion(queries);
+            for (ChartDataQuery query : queries) {
+                String dataVersion = dataVersions.get(query.getChartId());
+                if (dataVersion == null) {
+                    return null;
+                }
+                versions.merge(query.getChartId(), dataVersion, (version, data) -> version + "\n" + data);
+            }
+        }
+        StringBuilder version = new StringBuilder();
+        for (Map.Entry<Long, String> chart : versions.entrySet()) {
+            version.append(chart.getKey()).append('\n').append(chart.getValue()).append('\n');
+        }
+        return version.toString();
+    }
+
+    /**
+     * @return the chart, checked as ChartService.getChartById does
+     */
+    private static ChartDto viewableChart(Long userId, Long chartId, Chart chart,
+            Map<Long, EffectivePermission> permissions) {
+        if (chart == null) {
+            throw new ResourceNotFoundException("Chart", chartId);
+        }
+        if (!Objects.equals(chart.getUserId(), userId) && !permissions.get(chartId).isView()) {
+            throw new ForbiddenException("You are not allowed to view this chart");
+        }
+        return ChartMapper.toChartDto(chart);
+    }
+
+    /**
+     * Compile the query of a chart as getChartData does, so the materialized
+     * results match.
+     *
+     * @return the query of the page and the query of the materialized result,
+     *         null when materialized results are not used
+     */
+    private Pair<CompiledQuery, MaterializedQuery> compileChartData(Long userId, ChartDto chartDto, Integer page,
+            int pageSize) {
+        if (chartDto.getConfig() == null || chartDto.getConfig().getQueryOption() == null) {
+            throw new InvalidInputException("Chart has no query option");
+        }
+        QueryOption queryOption = chartDto.getConfig().getQueryOption();
+        Map<String, String> tables = resolveTables(userId, queryOption, false);
+        QueryOption optimized = optimize(queryOption, tables, shownColumns(chartDto.getConfig()));
+        return new Pair<>(SQLQueryBuilder.compile(optimized, tables, page, pageSize),
+                useMaterialized ? SQLQueryBuilder.compileMaterialization(optimized, tables) : null);
+    }
+
+    @Override
+    public MaterializedQuery compileMaterialization(Long chartId) {
+        Optional<Chart> chart = chartRepository.getChartById(chartId);
+        if (chart.isEmpty() || Boolean.TRUE.equals(chart.get().getIsDeleted())) {
+            throw new ResourceNotFoundException("Chart", chartId);
+        }
+        ChartDto chartDto = ChartMapper.toChartDto(chart.get());
+        if (chartDto.getConfig() == null || chartDto.getConfig().getQueryOption() == null) {
+            throw new InvalidInputException("Chart has no query option");
+        }
+        // Compiled as getChartData does, so the definition hashes match
+        QueryOption queryOption = chartDto.getConfig().getQueryOption();
+        Map<String, String> tables = resolveTables(chart.get().getUserId(), queryOption, false);
+        return SQLQueryBuilder.compileMaterialization(
+                optimize(queryOption, tables, shownColumns(chartDto.getConfig())), tables);
+    }
+
+    @Override
+    public QueryPlan explain(Long userId, QueryOption queryOption) {
+        Map<String, String> tables = resolveTables(userId, queryOption, true);
+        Pair<QueryOption, List<String>> optimized = QueryOptimizer.optimize(queryOption, tables, null);
+        String originalSql = SQLQueryBuilder.render(SQLQueryBuilder.compile(queryOption, tables));
+        String optimizedSql = SQLQueryBuilder.render(SQLQueryBuilder.compile(optimized.getFirst(), tables));
+        List<JsonNode> originalPlan = dataProcessingGrpcClient.explainQuery(originalSql);
+        List<JsonNode> optimizedPlan = dataProcessingGrpcClient.explainQuery(optimizedSql);
+        return QueryPlan.builder()
+                .originalSql(originalSql)
+                .optimizedSql(optimizedSql)
+                .optimizedQueryOption(optimized.getFirst())
+                .rewrites(optimized.getSecond())
+                .originalPlan(originalPlan)
+                .optimizedPlan(optimizedPlan)
+                .originalCost(rootCost(originalPlan))
+                .optimizedCost(rootCost(optimizedPlan))
+                .build();
+    }
+
+    private QueryOption optimize(QueryOption queryOption, Map<String, String> tables, Set<String> shownColumns) {
+        if (!optimize) {
+            return queryOption;
+        }
+        Pair<QueryOption, List<String>> optimized = QueryOptimizer.optimize(queryOption, tables, shownColumns);
+        if (!optimized.getSecond().isEmpty()) {
+            log.debug("Optimized query: {}", optimized.getSecond());
+        }
+        return optimized.getFirst();
+    }
+
+    /**
+     * @return the columns drawn by an axis chart, or null for charts that show
+     *         every column
+     */
+    private static Set<String> shownColumns(ChartConfig config) {
+        List<String> columns;
+        if (config.getBarChartConfig() != null && config.getType() == ChartType.BAR) {
+            columns = Arrays.asList(config.getBarChartConfig().getXAxis(), config.getBarChartConfig().getYAxis());
+        } else if (config.getLineChartConfig() != null && config.getType() == ChartType.LINE) {
+            columns = Arrays.asList(config.getLineChartConfig().getXAxis(), config.getLineChartConfig().getYAxis());
+        } else if (config.getAreaChartConfig() != null && config.getType() == ChartType.AREA) {
+            columns = Arrays.asList(config.getAreaChartConfig().getXAxis(), config.getAreaChartConfig().getYAxis());
+        } else if (config.getPieChartConfig() != null && config.getType() == ChartType.PIE) {
+            columns = Arrays.asList(config.getPieChartConfig().getLabelField(),
+                    config.getPieChartConfig().getValueField());
+        } else {
+            return null;
+        }
+        return columns.stream().allMatch(StringUtils::isNotBlank) ? new HashSet<>(columns) : null;
+    }
+
+    private static Double rootCost(List<JsonNode> plan) {
+        if (plan.isEmpty() || !plan.get(0).hasNonNull("estCost")) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(plan.get(0).get("estCost").asText());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private PreviewData execute(Long chartId, CompiledQuery query) {
+        long startTime = System.currentTimeMillis();
+        PreviewData previewData = new PreviewData(query.getColumns(),
+                dataProcessingGrpcClient.queryData(chartId, query));
+        log.info("Query {} returned {} rows in {} ms", query.getShapeHash(), previewData.getRecords().size(),
+                System.currentTimeMillis() - startTime);
+        return previewData;
+    }
+
+    private int pageSize(Integer limit) {
+        return Math.min(Math.max(1, limit != null ? limit : 10), maxPageSize);
+    }
+
+    /**
+     * @return the table of every source of the query, by source id
+     */
+    private Map<String, String> resolveTables(Long userId, QueryOption queryOption, boolean checkPermission) {
+        if (queryOption == null || queryOption.getTable() == null) {
+            throw new InvalidInputException("query_option.table");
+        }
+        Map<String, String> tables = new HashMap<>();
+        resolveTable(userId, queryOption.getTable(), tables, checkPermission);
+        if (queryOption.getJoins() != null) {
+            for (QueryOption.Join join : queryOption.getJoins()) {
+                if (join != null && join.getTable() != null && !tables.containsKey(join.getTable())) {
+                    resolveTable(userId, join.getTable(), tables, checkPermission);
+                }
+            }
+        }
+        return tables;
+    }
+
+    private void resolveTable(Long userId, String sourceId, Map<String, String> tables, boolean checkPermission) {
+        Long id;
+        try {
+            id = Long.parseLong(sourceId);
+        } catch (NumberFormatException e) {
+            throw new InvalidInputException("Invalid source id " + sourceId);
+        }
+        Optional<Source> source = sourceRepository.getSourceById(id);
+        if (source.isEmpty() || Boolean.TRUE.equals(source.get().getIsDeleted())) {
+            throw new ResourceNotFoundException("Source", id);
+        }
+        if (checkPermission && !Objects.equals(source.get().getUserId(), userId)
+                && !permissionService.hasViewSourcePermission(userId, id)) {
+            throw new ForbiddenException("You are not allowed to view this source");
+        }
+        tables.put(sourceId, source.get().getTableName());
+    }
+
 }
@@ -3,7 +3,9 @@ package com.haiphamcoder.reporting.service.impl;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -12,6 +14,7 @@ import java.util.stream.Collectors;
 import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.haiphamcoder.reporting.domain.dto.ChartDto;
 import com.haiphamcoder.reporting.domain.dto.ReportDto;
 import com.haiphamcoder.reporting.domain.dto.ReportDto.UserReportPermission;
@@ -29,7 +32,9 @@ import com.haiphamcoder.reporting.domain.exception.business.detail.ForbiddenExce
 import com.haiphamcoder.reporting.domain.exception.business.detail.InvalidInputException;
 import com.haiphamcoder.reporting.domain.exception.business.detail.ResourceNotFoundException;
 import com.haiphamcoder.reporting.domain.exception.business.detail.ReportPersistenceException;
+import com.haiphamcoder.reporting.domain.model.EffectivePermission;
 import com.haiphamcoder.reporting.domain.model.QueryOption;
+import com.haiphamcoder.reporting.domain.model.ReportRender;
 import com.haiphamcoder.reporting.domain.model.QueryOption.Join;
 import com.haiphamcoder.reporting.domain.model.request.CreateReportRequest;
 import com.haiphamcoder.reporting.domain.model.request.ShareReportRequest;
@@ -42,11 +47,15 @@ import com.haiphamcoder.reporting.repository.ReportPermissionRepository;
 import com.haiphamcoder.reporting.repository.ReportRepository;
 import com.haiphamcoder.reporting.repository.SourcePermissionRepository;
 import com.haiphamcoder.reporting.service.PermissionService;
+import com.haiphamcoder.reporting.service.QueryService;
 import com.haiphamcoder.reporting.service.ReportService;
 import com.haiphamcoder.reporting.service.UserGrpcClient;
+import com.haiphamcoder.reporting.shared.MapperUtils;
 import com.haiphamcoder.reporting.shared.Pair;
 import com.haiphamcoder.reporting.shared.SnowflakeIdGenerator;
 import com.haiphamcoder.reporting.shared.StringUtils;
+import com.haiphamcoder.reporting.shared.security.HashUtils;
+import com.haiphamcoder.reporting.shared.security.exception.HashingException;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -62,6 +71,7 @@ public class ReportServiceImpl implements ReportService {
     private final SourcePermissionRepository sourcePermissionRepository;
     private final UserGrpcClient userGrpcClient;
     private final PermissionService permissionService;
+    private final QueryService queryService;
 
     @Override
     public Pair<List<ReportDto>, Metadata> getAllReportsByUserId(Long userId, String search, Integer page,
@@ -69,17 +79,21 @@ public class ReportServiceImpl implements ReportService {
         List<ReportPermission> reportPermissions = reportPermissionRepository.getAllReportPermissionsByUserId(userId);
         Set<Long> reportIds = reportPermissions.stream().map(ReportPermission::getReportId).collect(Collectors.toSet());
         Page<Report> reports = reportRepository.getReportsByUserIdOrReportId(userId, reportIds, search, page, limit);
+        Map<Long, UserDto> owners = userGrpcClient
+                .getUsersByIds(reports.stream().map(Report::getUserId).toList());
+        Map<Long, EffectivePermission> permissions = permissionService.getReportPermissions(userId,
+                reports.stream().map(Report::getId).toList());
         return new Pair<>(reports.stream().map(report -> {
             ReportDto reportDto = ReportMapper.toReportDto(report);
-            UserDto userDto = userGrpcClient.getUserById(report.getUserId());
+            UserDto userDto = owners.get(report.getUserId());
             reportDto.setOwner(ReportDto.Owner.builder()
                     .id(String.valueOf(userDto.getId()))
                     .name(userDto.getFirstName() + " " + userDto.getLastName())
                     .email(userDto.getEmail())
                     .avatar(userDto.getAvatarUrl())
                     .build());
-            reportDto.setCanEdit(permissionService.hasEditReportPermission(userId, report.getId()));
-            reportDto.setCanShare(permissionService.hasOwnerReportPermission(userId, report.getId()));
+            reportDto.setCanEdit(permissions.get(report.getId()).isEdit());
+            reportDto.setCanShare(permissions.get(report.getId()).isOwner());
             return reportDto;
         }).toList(),
                 Metadata.builder()
@@ -106,6 +120,57 @@ public class ReportServiceImpl implements ReportService {
         return reportDto;
     }
 
+    @Override
+    public List<Long> getReportChartIds(Long userId, Long reportId) {
+        return chartIds(getReportById(userId, reportId));
+    }
+
+    @Override
+    public ReportRender renderReport(Long userId, Long reportId, Integer page, Integer limit) {
+        ReportDto reportDto = getReportById(userId, reportId);
+        return ReportRender.builder()
+                .report(reportDto)
+                .charts(queryService.getChartsData(userId, chartIds(reportDto), page, limit, true))
+                .build();
+    }
+
+    @Override
+    public String getRenderEtag(Long userId, Long reportId, Integer page, Integer limit) {
+        ReportDto reportDto = getReportById(userId, reportId);
+        String chartsVersion = queryService.getChartsVersion(userId, chartIds(reportDto), page, limit);
+        if (chartsVersion == null) {
+            return null;
+        }
+        try {
+            String report = MapperUtils.objectMapper.writeValueAsString(reportDto);
+            return "\"" + HashUtils.hashSHA256(report + "\n" + page + "\n" + limit + "\n" + chartsVersion) + "\"";
+        } catch (JsonProcessingException | HashingException e) {
+            log.warn("Hash report {} failed! {}", reportId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return the ids of the charts of the chart blocks, in block order
+     */
+    private static List<Long> chartIds(ReportDto reportDto) {
+        Set<Long> chartIds = new LinkedHashSet<>();
+        if (reportDto.getConfig() != null && reportDto.getConfig().getBlocks() != null) {
+            for (Block block : reportDto.getConfig().getBlocks()) {
+                if (block.getType() == BlockType.CHART && block.getContent() != null
+                        && !StringUtils.isNullOrEmpty(block.getContent().getChartId())) {
+                    try {
+                        chartIds.add(Long.parseLong(block.getContent().getChartId().trim()));
+                    } catch (NumberFormatException e) {
+                        log.warn("Report {} has an invalid chart id {}", reportDto.getId(),
+                                block.getContent().getChartId());
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(chartIds);
+    }
+
     @Override
     public ReportDto updateReport(Long userId, Long reportId, ReportDto reportDto) {
         Optional<Report> report = reportRepository.getReportById(reportId);
@@ -195,12 +260,17 @@ public class ReportServiceImpl implements ReportService {
         if (Objects.equals(report.get().getUserId(), userId)) {
             List<ReportPermission> reportPermissions = reportPermissionRepository
                     .getAllReportPermissionsByReportId(reportId);
+            Map<Long, UserDto> users = userGrpcClient.getUsersByIds(reportPermissions.stream()
+                    .filter(reportPermission -> !reportPermission.getPermission()
+                            .equals(ReportPermissionType.OWNER.getValue()))
+                    .map(ReportPermission::getUserId)
+                    .toList());
             List<UserReportPermission> userReportPermissions = new ArrayList<>();
             for (ReportPermission reportPermission : reportPermissions) {
                 if (reportPermission.getPermission().equals(ReportPermissionType.OWNER.getValue())) {
                     continue;
                 }
-                UserDto userDto = userGrpcClient.getUserById(reportPermission.getUserId());
+                UserDto userDto = users.get(reportPermission.getUserId());
                 userReportPermissions.add(UserReportPermission.builder()
                         .userId(String.valueOf(reportPermission.getUserId()))
                         .name(userDto.getFirstName() + " " + userDto.getLastName())
@@ -257,7 +327,9 @@ public class ReportServiceImpl implements ReportService {
 
         }
         for (String chartId : relatedChartIds) {
-            if (!permissionService.hasViewChartPermission(userId, Long.parseLong(chartId))) {
+            // Read past the cache, a stale miss would downgrade an edit permission to view
+            if (chartPermissionRepository.findChartPermissionByChartIdAndUserId(Long.parseLong(chartId), userId)
+                    .isEmpty()) {
                 ChartPermission chartPermission = ChartPermission.builder()
                         .chartId(Long.parseLong(chartId))
                         .userId(userId)
@@ -288,7 +360,8 @@ public class ReportServiceImpl implements ReportService {
             }
         }
         for (String sourceId : relatedSourceIds) {
-            if (!permissionService.hasViewSourcePermission(userId, Long.parseLong(sourceId))) {
+            if (sourcePermissionRepository.findSourcePermissionBySourceIdAndUserId(Long.parseLong(sourceId), userId)
+                    .isEmpty()) {
                 SourcePermission newSourcePermission = SourcePermission.builder()
                         .sourceId(Long.parseLong(sourceId))
                         .userId(userId)
@@ -30,6 +30,7 @@ import com.haiphamcoder.reporting.domain.exception.business.detail.ForbiddenExce
 import com.haiphamcoder.reporting.domain.exception.business.detail.InvalidInputException;
 import com.haiphamcoder.reporting.domain.exception.business.detail.ResourceAlreadyExistsException;
 import com.haiphamcoder.reporting.domain.exception.business.detail.ResourceNotFoundException;
+import com.haiphamcoder.reporting.domain.model.EffectivePermission;
 import com.haiphamcoder.reporting.domain.model.request.ConfirmSheetRequest;
 import com.haiphamcoder.reporting.domain.model.request.InitSourceRequest;
 import com.haiphamcoder.reporting.domain.model.request.ShareSourceRequest;
@@ -121,19 +122,22 @@ public class SourceServiceImpl implements SourceService {
         Set<Long> sourceIds = sourcePermissions.stream().map(SourcePermission::getSourceId).collect(Collectors.toSet());
 
         Page<Source> sources = sourceRepository.getAllSourcesByUserIdOrSourceId(userId, sourceIds, search, page, limit);
+        Map<Long, UserDto> owners = userGrpcClient.getUsersByIds(sources.stream().map(Source::getUserId).toList());
+        Map<Long, EffectivePermission> permissions = permissionService.getSourcePermissions(userId,
+                sources.stream().map(Source::getId).toList());
 
         return new Pair<>(sources.stream()
                 .map(source -> {
                     SourceDto sourceDto = SourceMapper.toDto(source);
-                    UserDto userDto = userGrpcClient.getUserById(source.getUserId());
+                    UserDto userDto = owners.get(source.getUserId());
                     sourceDto.setOwner(SourceDto.Owner.builder()
                             .id(String.valueOf(userDto.getId()))
                             .name(userDto.getFirstName() + " " + userDto.getLastName())
                             .email(userDto.getEmail())
                             .avatar(userDto.getAvatarUrl())
                             .build());
-                    sourceDto.setCanEdit(permissionService.hasEditSourcePermission(userId, source.getId()));
-                    sourceDto.setCanShare(permissionService.hasOwnerSourcePermission(userId, source.getId()));
+                    sourceDto.setCanEdit(permissions.get(source.getId()).isEdit());
+                    sourceDto.setCanShare(permissions.get(source.getId()).isOwner());
                     return sourceDto;
                 })
                 .toList(),
@@ -365,12 +369,17 @@ public class SourceServiceImpl implements SourceService {
         if (Objects.equals(source.get().getUserId(), userId)) {
             List<SourcePermission> sourcePermissions = sourcePermissionRepository
                     .getSourcePermissionsBySourceId(sourceId);
+            Map<Long, UserDto> users = userGrpcClient.getUsersByIds(sourcePermissions.stream()
+                    .filter(sourcePermission -> !sourcePermission.getPermission()
+                            .equals(SourcePermissionType.OWNER.getValue()))
+                    .map(SourcePermission::getUserId)
+                    .toList());
             List<UserSourcePermission> userSourcePermissions = new ArrayList<>();
             for (SourcePermission sourcePermission : sourcePermissions) {
                 if (sourcePermission.getPermission().equals(SourcePermissionType.OWNER.getValue())) {
                     continue;
                 }
-                UserDto userDto = userGrpcClient.getUserById(sourcePermission.getUserId());
+                UserDto userDto = users.get(sourcePermission.getUserId());
                 userSourcePermissions.add(UserSourcePermission.builder()
                         .userId(String.valueOf(sourcePermission.getUserId()))
                         .name(userDto.getFirstName() + " " + userDto.getLastName())
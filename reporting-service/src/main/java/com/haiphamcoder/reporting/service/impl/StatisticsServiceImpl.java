@@ -1,11 +1,21 @@
 package com.haiphamcoder.reporting.service.impl;
 
 import java.time.LocalDate;
-import java.util.LinkedList;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.haiphamcoder.reporting.domain.entity.ChartPermission;
@@ -20,87 +30,186 @@ import com.haiphamcoder.reporting.repository.ReportRepository;
 import com.haiphamcoder.reporting.repository.SourcePermissionRepository;
 import com.haiphamcoder.reporting.repository.SourceRepository;
 import com.haiphamcoder.reporting.service.StatisticsService;
+import com.haiphamcoder.reporting.shared.concurrent.ThreadPool;
 
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Counts the sources, charts and reports a user can see, in total and per day
+ * over the last {@link #DAYS} days. Each type is counted by two queries run
+ * concurrently with the other types; days without any are filled with zero.
+ * The statistics of a user are cached for {@code statistics.cache.ttl-seconds}.
+ */
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class StatisticsServiceImpl implements StatisticsService {
 
+        private static final int DAYS = 30;
+
         private final SourceRepository sourceRepository;
         private final SourcePermissionRepository sourcePermissionRepository;
         private final ChartRepository chartRepository;
         private final ChartPermissionRepository chartPermissionRepository;
         private final ReportRepository reportRepository;
         private final ReportPermissionRepository reportPermissionRepository;
+        private final ExecutorService executor;
+        private final long ttlMillis;
+        private final int maxEntries;
+        // Access order, so the eldest entry is the least recently used
+        private final LinkedHashMap<Long, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        public StatisticsServiceImpl(SourceRepository sourceRepository,
+                        SourcePermissionRepository sourcePermissionRepository,
+                        ChartRepository chartRepository,
+                        ChartPermissionRepository chartPermissionRepository,
+                        ReportRepository reportRepository,
+                        ReportPermissionRepository reportPermissionRepository,
+                        @Value("${statistics.parallelism:6}") int parallelism,
+                        @Value("${statistics.cache.ttl-seconds:60}") long ttlSeconds,
+                        @Value("${statistics.cache.max-entries:10000}") int maxEntries) {
+                this.sourceRepository = sourceRepository;
+                this.sourcePermissionRepository = sourcePermissionRepository;
+                this.chartRepository = chartRepository;
+                this.chartPermissionRepository = chartPermissionRepository;
+                this.reportRepository = reportRepository;
+                this.reportPermissionRepository = reportPermissionRepository;
+                // Counts run on the request thread once the pool is busy
+                this.executor = ThreadPool.builder()
+                                .setCoreSize(Math.max(1, parallelism))
+                                .setMaxSize(Math.max(1, parallelism))
+                                .setQueueSize(Math.max(1, parallelism))
+                                .setNamePrefix("statistics-")
+                                .setDaemon(true)
+                                .setRejectionHandler(new ThreadPoolExecutor.CallerRunsPolicy())
+                                .build()
+                                .getExecutorService();
+                this.ttlMillis = ttlSeconds * 1000;
+                this.maxEntries = maxEntries;
+        }
+
+        @PreDestroy
+        public void shutdown() {
+                executor.shutdownNow();
+        }
 
         @Override
         public StatisticData getStatistics(Long userId) {
+                StatisticData cached = lookup(userId);
+                if (cached != null) {
+                        return cached;
+                }
 
-                List<SourcePermission> sourcePermissions = sourcePermissionRepository
-                                .getAllSourcePermissionsByUserId(userId);
-                Set<Long> sourceIds = sourcePermissions.stream()
-                                .map(SourcePermission::getSourceId)
-                                .collect(Collectors.toSet());
-
-                Long totalSource = sourceRepository.getTotalSourceByUserIdOrSourceIdAndIsDeleted(userId, sourceIds,
-                                false);
-                List<Long> sourceCountByLast30Days = new LinkedList<>();
                 LocalDate today = LocalDate.now();
+                LocalDateTime from = today.minusDays(DAYS - 1L).atStartOfDay();
+
+                CompletableFuture<StatisticItem> sourceStatistic = supply(() -> {
+                        Set<Long> sourceIds = sourcePermissionRepository.getAllSourcePermissionsByUserId(userId)
+                                        .stream()
+                                        .map(SourcePermission::getSourceId)
+                                        .collect(Collectors.toSet());
+                        return statisticItem(
+                                        sourceRepository.getTotalSourceByUserIdOrSourceIdAndIsDeleted(userId,
+                                                        sourceIds, false),
+                                        sourceRepository.getSourceCountByUserIdOrSourceIdAndIsDeletedGroupByCreatedDate(
+                                                        userId, sourceIds, false, from),
+                                        today);
+                });
+                CompletableFuture<StatisticItem> chartStatistic = supply(() -> {
+                        Set<Long> chartIds = chartPermissionRepository.getAllChartPermissionsByUserId(userId)
+                                        .stream()
+                                        .map(ChartPermission::getChartId)
+                                        .collect(Collectors.toSet());
+                        return statisticItem(
+                                        chartRepository.getTotalChartByUserIdOrChartIdAndIsDeleted(userId, chartIds,
+                                                        false),
+                                        chartRepository.getChartCountByUserIdOrChartIdAndIsDeletedGroupByCreatedDate(
+                                                        userId, chartIds, false, from),
+                                        today);
+                });
+                CompletableFuture<StatisticItem> reportStatistic = supply(() -> {
+                        Set<Long> reportIds = reportPermissionRepository.getAllReportPermissionsByUserId(userId)
+                                        .stream()
+                                        .map(ReportPermission::getReportId)
+                                        .collect(Collectors.toSet());
+                        return statisticItem(
+                                        reportRepository.getTotalReportByUserIdOrReportIdAndIsDeleted(userId,
+                                                        reportIds, false),
+                                        reportRepository.getReportCountByUserIdOrReportIdAndIsDeletedGroupByCreatedDate(
+                                                        userId, reportIds, false, from),
+                                        today);
+                });
+
+                StatisticData statisticData = StatisticData.builder()
+                                .sourceStatistic(join(sourceStatistic))
+                                .chartStatistic(join(chartStatistic))
+                                .reportStatistic(join(reportStatistic))
+                                .build();
+                put(userId, new CacheEntry(statisticData, System.currentTimeMillis()));
+                return statisticData;
+        }
 
-                for (int i = 29; i >= 0; i--) {
-                        LocalDate date = today.minusDays(i);
-                        Long count = sourceRepository.getSourceCountByUserIdOrSourceIdAndIsDeletedAndCreatedDate(userId,
-                                        sourceIds, false, date);
-                        sourceCountByLast30Days.add(count);
+        /**
+         * @param countByDate the count of every day of the series that has any
+         */
+        private static StatisticItem statisticItem(Long total, Map<LocalDate, Long> countByDate, LocalDate today) {
+                List<Long> countByLast30Days = new ArrayList<>(DAYS);
+                for (int i = DAYS - 1; i >= 0; i--) {
+                        countByLast30Days.add(countByDate.getOrDefault(today.minusDays(i), 0L));
                 }
+                return StatisticItem.builder()
+                                .total(total)
+                                .data(countByLast30Days)
+                                .build();
+        }
 
-                List<ChartPermission> chartPermissions = chartPermissionRepository.getAllChartPermissionsByUserId(userId);
-                Set<Long> chartIds = chartPermissions.stream()
-                                .map(ChartPermission::getChartId)
-                                .collect(Collectors.toSet());
+        private CompletableFuture<StatisticItem> supply(Supplier<StatisticItem> supplier) {
+                return CompletableFuture.supplyAsync(supplier, executor);
+        }
 
-                Long totalChart = chartRepository.getTotalChartByUserIdOrChartIdAndIsDeleted(userId, chartIds, false);
-                List<Long> chartCountByLast30Days = new LinkedList<>();
+        private static StatisticItem join(CompletableFuture<StatisticItem> statistic) {
+                try {
+                        return statistic.join();
+                } catch (CompletionException e) {
+                        if (e.getCause() instanceof RuntimeException cause) {
+                                throw cause;
+                        }
+                        throw e;
+                }
+        }
 
-                for (int i = 29; i >= 0; i--) {
-                        LocalDate date = today.minusDays(i);
-                        Long count = chartRepository.getChartCountByUserIdOrChartIdAndIsDeletedAndCreatedDate(userId,
-                                        chartIds, false, date);
-                        chartCountByLast30Days.add(count);
+        private synchronized StatisticData lookup(Long userId) {
+                CacheEntry entry = entries.get(userId);
+                if (entry == null) {
+                        return null;
                 }
+                if (System.currentTimeMillis() - entry.createdAt >= ttlMillis) {
+                        entries.remove(userId);
+                        return null;
+                }
+                return entry.statisticData;
+        }
 
-                List<ReportPermission> reportPermissions = reportPermissionRepository.getAllReportPermissionsByUserId(userId);
-                Set<Long> reportIds = reportPermissions.stream()
-                                .map(ReportPermission::getReportId)
-                                .collect(Collectors.toSet());
-
-                Long totalReport = reportRepository.getTotalReportByUserIdOrReportIdAndIsDeleted(userId, reportIds,
-                                false);
-                List<Long> reportCountByLast30Days = new LinkedList<>();
-                for (int i = 29; i >= 0; i--) {
-                        LocalDate date = today.minusDays(i);
-                        Long count = reportRepository.getReportCountByUserIdOrReportIdAndIsDeletedAndCreatedDate(userId,
-                                        reportIds, false, date);
-                        reportCountByLast30Days.add(count);
+        private synchronized void put(Long userId, CacheEntry entry) {
+                if (ttlMillis <= 0) {
+                        return;
                 }
+                entries.put(userId, entry);
+                Iterator<Long> eldest = entries.keySet().iterator();
+                while (entries.size() > maxEntries && eldest.hasNext()) {
+                        eldest.next();
+                        eldest.remove();
+                }
+        }
 
-                return StatisticData.builder()
-                                .sourceStatistic(StatisticItem.builder()
-                                                .total(totalSource)
-                                                .data(sourceCountByLast30Days)
-                                                .build())
-                                .chartStatistic(StatisticItem.builder()
-                                                .total(totalChart)
-                                                .data(chartCountByLast30Days)
-                                                .build())
-                                .reportStatistic(StatisticItem.builder()
-                                                .total(totalReport)
-                                                .data(reportCountByLast30Days)
-                                                .build())
-                                .build();
+        private static class CacheEntry {
+                private final StatisticData statisticData;
+                private final long createdAt;
+
+                CacheEntry(StatisticData statisticData, long createdAt) {
+                        this.statisticData = statisticData;
+                        this.createdAt = createdAt;
+                }
         }
 
 }
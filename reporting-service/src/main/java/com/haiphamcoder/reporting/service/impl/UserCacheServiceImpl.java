@@ -0,0 +1,221 @@
+package com.haiphamcoder.reporting.service.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import com.haiphamcoder.reporting.config.properties.UserCacheProperties;
+import com.haiphamcoder.reporting.domain.dto.UserDto;
+import com.haiphamcoder.reporting.service.UserCacheService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caches users in memory for {@code user.cache.ttl-seconds}, evicting the
+ * least recently used one beyond {@code user.cache.max-entries}. Concurrent
+ * misses for a user share one load. A user is dropped when
+ * user-management-service reports a change to it; a user loaded while its
+ * change is reported is not cached.
+ */
+@Service
+@Slf4j
+public class UserCacheServiceImpl implements UserCacheService {
+
+    private static final String METRIC_PREFIX = "user.cache";
+
+    private final UserCacheProperties properties;
+    // Access order, so the eldest entry is the least recently used
+    private final LinkedHashMap<Long, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, CompletableFuture<UserDto>> loading = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+    private final Counter invalidatedEvictions;
+    private final Timer age;
+    private final Timer invalidationLag;
+
+    public UserCacheServiceImpl(@Qualifier("userCacheProperties") UserCacheProperties properties,
+            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.hits = meterRegistry.counter(METRIC_PREFIX + ".requests", "result", "hit");
+        this.misses = meterRegistry.counter(METRIC_PREFIX + ".requests", "result", "miss");
+        this.coalesced = meterRegistry.counter(METRIC_PREFIX + ".requests", "result", "coalesced");
+        this.sizeEvictions = meterRegistry.counter(METRIC_PREFIX + ".evictions", "reason", "size");
+        this.expiredEvictions = meterRegistry.counter(METRIC_PREFIX + ".evictions", "reason", "expired");
+        this.invalidatedEvictions = meterRegistry.counter(METRIC_PREFIX + ".evictions", "reason", "invalidated");
+        this.age = Timer.builder(METRIC_PREFIX + ".age")
+                .description("Time since the served users were loaded")
+                .register(meterRegistry);
+        this.invalidationLag = Timer.builder(METRIC_PREFIX + ".invalidation.lag")
+                .description("Delay between a change of a user and the drop of its cached copy")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".entries", this, UserCacheServiceImpl::size).register(meterRegistry);
+    }
+
+    @Override
+    public Map<Long, UserDto> getAll(Collection<Long> userIds, Function<Set<Long>, Map<Long, UserDto>> loader) {
+        Map<Long, UserDto> users = new HashMap<>();
+        if (!properties.isEnabled()) {
+            users.putAll(loader.apply(Set.copyOf(userIds)));
+            return users;
+        }
+
+        Map<Long, CompletableFuture<UserDto>> owned = new LinkedHashMap<>();
+        Map<Long, CompletableFuture<UserDto>> shared = new HashMap<>();
+        for (Long userId : userIds) {
+            if (userId == null || users.containsKey(userId) || owned.containsKey(userId)
+                    || shared.containsKey(userId)) {
+                continue;
+            }
+            UserDto cached = lookup(userId);
+            if (cached != null) {
+                users.put(userId, cached);
+                continue;
+            }
+            CompletableFuture<UserDto> load = new CompletableFuture<>();
+            CompletableFuture<UserDto> other = loading.putIfAbsent(userId, load);
+            if (other != null) {
+                coalesced.increment();
+                shared.put(userId, other);
+            } else {
+                owned.put(userId, load);
+            }
+        }
+
+        if (!owned.isEmpty()) {
+            Map<Long, UserDto> loaded;
+            try {
+                loaded = loader.apply(owned.keySet());
+            } catch (RuntimeException e) {
+                owned.forEach((userId, load) -> {
+                    loading.remove(userId, load);
+                    load.completeExceptionally(e);
+                });
+                throw e;
+            }
+            long now = System.currentTimeMillis();
+            owned.forEach((userId, load) -> {
+                UserDto user = loaded.get(userId);
+                // Not removed when the user was invalidated while it loaded
+                if (loading.remove(userId, load) && user != null) {
+                    put(userId, new CacheEntry(user, now));
+                }
+                load.complete(user);
+                if (user != null) {
+                    users.put(userId, user);
+                }
+            });
+        }
+
+        for (Map.Entry<Long, CompletableFuture<UserDto>> load : shared.entrySet()) {
+            UserDto user = join(load.getValue());
+            if (user != null) {
+                users.put(load.getKey(), user);
+            }
+        }
+        return users;
+    }
+
+    @Override
+    public void invalidate(Long userId, long changedAt) {
+        if (userId == null) {
+            return;
+        }
+        loading.remove(userId);
+        boolean removed;
+        synchronized (this) {
+            removed = entries.remove(userId) != null;
+        }
+        if (removed) {
+            invalidatedEvictions.increment();
+        }
+        if (changedAt > 0) {
+            invalidationLag.record(Math.max(0, System.currentTimeMillis() - changedAt), TimeUnit.MILLISECONDS);
+        }
+        log.debug("User {} changed, cached copy dropped: {}", userId, removed);
+    }
+
+    @Override
+    public void invalidateAll() {
+        loading.clear();
+        int removed;
+        synchronized (this) {
+            removed = entries.size();
+            entries.clear();
+        }
+        invalidatedEvictions.increment(removed);
+        log.info("User cache cleared, {} users dropped", removed);
+    }
+
+    private UserDto lookup(Long userId) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            CacheEntry entry = entries.get(userId);
+            if (entry != null) {
+                if (now - entry.loadedAt < properties.getTtlSeconds() * 1000) {
+                    hits.increment();
+                    age.record(now - entry.loadedAt, TimeUnit.MILLISECONDS);
+                    return entry.user;
+                }
+                entries.remove(userId);
+                expiredEvictions.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    private synchronized void put(Long userId, CacheEntry entry) {
+        entries.put(userId, entry);
+        Iterator<Map.Entry<Long, CacheEntry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > properties.getMaxEntries() && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            sizeEvictions.increment();
+        }
+    }
+
+    private synchronized int size() {
+        return entries.size();
+    }
+
+    private static UserDto join(CompletableFuture<UserDto> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static class CacheEntry {
+        private final UserDto user;
+        private final long loadedAt;
+
+        CacheEntry(UserDto user, long loadedAt) {
+            this.user = user;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+}
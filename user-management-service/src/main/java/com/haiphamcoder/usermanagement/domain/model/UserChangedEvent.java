@@ -0,0 +1,14 @@
+package com.haiphamcoder.usermanagement.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when the profile, role or state of a user changes.
+ */
+@Getter
+@AllArgsConstructor
+public class UserChangedEvent {
+    private final Long userId;
+    private final long changedAt;
+}
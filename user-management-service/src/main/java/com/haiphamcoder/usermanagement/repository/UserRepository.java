@@ -1,5 +1,6 @@
 package com.haiphamcoder.usermanagement.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,5 +19,7 @@ public interface UserRepository {
 
     Optional<User> getUserById(Long id);
 
+    List<User> getUsersByIds(Collection<Long> ids);
+
     User saveUser(User user);
 }
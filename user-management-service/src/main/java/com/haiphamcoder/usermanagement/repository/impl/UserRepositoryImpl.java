@@ -1,5 +1,7 @@
 package com.haiphamcoder.usermanagement.repository.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,6 +31,8 @@ interface UserJpaRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
 
     List<User> findAllByProvider(String provider);
+
+    List<User> findAllByIdIn(Collection<Long> ids);
 }
 
 @Component
@@ -62,6 +66,14 @@ public class UserRepositoryImpl implements UserRepository {
         return userJpaRepository.findById(id);
     }
 
+    @Override
+    public List<User> getUsersByIds(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return userJpaRepository.findAllByIdIn(ids);
+    }
+
     @Override
     public User saveUser(User user) {
         return userJpaRepository.save(user);
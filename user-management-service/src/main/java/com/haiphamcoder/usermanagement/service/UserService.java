@@ -22,6 +22,8 @@ public interface UserService {
 
     public UserDto getUserById(Long id);
 
+    public List<UserDto> getUsersByIds(List<Long> ids);
+
     public UserDto createUser(UserDto user);
 
     public UserDto updateUser(UserDto user);
@@ -1,16 +1,22 @@
 package com.haiphamcoder.usermanagement.service.impl;
 
 import java.time.ZoneId;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.context.event.EventListener;
 
 import org.springframework.stereotype.Service;
 
 import com.haiphamcoder.usermanagement.domain.dto.UserDto;
 import com.haiphamcoder.usermanagement.domain.exception.business.detail.ResourceNotFoundException;
+import com.haiphamcoder.usermanagement.domain.model.UserChangedEvent;
 import com.haiphamcoder.usermanagement.proto.*;
 import com.haiphamcoder.usermanagement.service.UserService;
 
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,6 +26,8 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class UserServiceGrpcImpl extends UserServiceGrpc.UserServiceImplBase {
     private final UserService userService;
+    // Open WatchUserChanges streams
+    private final Set<StreamObserver<UserChange>> watchers = ConcurrentHashMap.newKeySet();
 
     @Override
     public void getUserByUsername(GetUserByUsernameRequest request,
@@ -64,6 +72,44 @@ public class UserServiceGrpcImpl extends UserServiceGrpc.UserServiceImplBase {
         }
     }
 
+    @Override
+    public void getUsersByIds(GetUsersByIdsRequest request, StreamObserver<GetUsersByIdsResponse> responseObserver) {
+        GetUsersByIdsResponse.Builder response = GetUsersByIdsResponse.newBuilder();
+        for (UserDto user : userService.getUsersByIds(request.getIdsList())) {
+            response.addUsers(this.convertToUser(user));
+        }
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void watchUserChanges(WatchUserChangesRequest request, StreamObserver<UserChange> responseObserver) {
+        if (responseObserver instanceof ServerCallStreamObserver<UserChange> serverObserver) {
+            serverObserver.setOnCancelHandler(() -> watchers.remove(responseObserver));
+        }
+        watchers.add(responseObserver);
+        log.info("User changes watched by {} streams", watchers.size());
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        UserChange change = UserChange.newBuilder()
+                .setUserId(event.getUserId())
+                .setChangedAt(event.getChangedAt())
+                .build();
+        for (StreamObserver<UserChange> watcher : watchers) {
+            // A stream observer is not thread safe
+            synchronized (watcher) {
+                try {
+                    watcher.onNext(change);
+                } catch (RuntimeException e) {
+                    watchers.remove(watcher);
+                    log.warn("Send user change failed, stream dropped! {}", e.getMessage());
+                }
+            }
+        }
+    }
+
     @Override
     public void saveUser(SaveUserRequest request, StreamObserver<SaveUserResponse> responseObserver) {
         UserDto userDto = this.convertToUserDto(request.getUser());
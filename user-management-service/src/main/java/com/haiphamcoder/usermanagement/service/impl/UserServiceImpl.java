@@ -1,12 +1,14 @@
 package com.haiphamcoder.usermanagement.service.impl;
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 import org.apache.commons.lang.RandomStringUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -30,6 +32,7 @@ import com.haiphamcoder.usermanagement.domain.exception.business.detail.Resource
 import com.haiphamcoder.usermanagement.domain.model.ChangePasswordRequest;
 import com.haiphamcoder.usermanagement.domain.model.ChangeRoleRequest;
 import com.haiphamcoder.usermanagement.domain.model.Metadata;
+import com.haiphamcoder.usermanagement.domain.model.UserChangedEvent;
 import com.haiphamcoder.usermanagement.mapper.UserMapper;
 import com.haiphamcoder.usermanagement.repository.OtpRepository;
 import com.haiphamcoder.usermanagement.repository.UserRepository;
@@ -49,15 +52,18 @@ public class UserServiceImpl implements UserService {
     private final OtpRepository otpRepository;
     private final PasswordEncoder passwordEncoder;
     private final EmailGrpcClient emailGrpcClient;
+    private final ApplicationEventPublisher eventPublisher;
 
     public UserServiceImpl(UserRepository userRepository,
             OtpRepository otpRepository,
             EmailGrpcClient emailGrpcClient,
-            @Qualifier("passwordEncoder") PasswordEncoder passwordEncoder) {
+            @Qualifier("passwordEncoder") PasswordEncoder passwordEncoder,
+            ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
         this.otpRepository = otpRepository;
         this.passwordEncoder = passwordEncoder;
         this.emailGrpcClient = emailGrpcClient;
+        this.eventPublisher = eventPublisher;
     }
 
     @PostConstruct
@@ -117,12 +123,18 @@ public class UserServiceImpl implements UserService {
         return UserMapper.toDto(user.get());
     }
 
+    @Override
+    public List<UserDto> getUsersByIds(List<Long> ids) {
+        return userRepository.getUsersByIds(new HashSet<>(ids)).stream().map(UserMapper::toDto).toList();
+    }
+
     @Override
     public UserDto createUser(UserDto user) {
         user.setId(SnowflakeIdGenerator.getInstance().generateId());
         user.setPassword(passwordEncoder.encode(user.getPassword()));
         User userEntity = UserMapper.toEntity(user);
         User savedUser = userRepository.saveUser(userEntity);
+        publishChange(savedUser.getId());
         return UserMapper.toDto(savedUser);
     }
 
@@ -134,9 +146,14 @@ public class UserServiceImpl implements UserService {
         }
         UserDto updatedUser = UserMapper.updateUser(existingUser.get(), user);
         User savedUser = userRepository.saveUser(UserMapper.toEntity(updatedUser));
+        publishChange(savedUser.getId());
         return UserMapper.toDto(savedUser);
     }
 
+    private void publishChange(Long userId) {
+        eventPublisher.publishEvent(new UserChangedEvent(userId, System.currentTimeMillis()));
+    }
+
     private void autoRegisterAdminAccount() {
         Optional<User> existing = userRepository.getUserByUsername(ADMIN_USERNAME);
         if (existing.isEmpty()) {
@@ -174,6 +191,7 @@ public class UserServiceImpl implements UserService {
         targetUser.get().setPassword(passwordEncoder.encode(request.getNewPassword()));
         targetUser.get().setFirstLogin(false);
         userRepository.saveUser(targetUser.get());
+        publishChange(targetUserId);
         return UserMapper.toDto(targetUser.get());
     }
 
@@ -196,6 +214,7 @@ public class UserServiceImpl implements UserService {
         }
         targetUser.get().setRole(request.getRole());
         userRepository.saveUser(targetUser.get());
+        publishChange(targetUserId);
         return UserMapper.toDto(targetUser.get());
     }
 
@@ -218,6 +237,7 @@ public class UserServiceImpl implements UserService {
         }
         targetUser.get().setDeleted(true);
         userRepository.saveUser(targetUser.get());
+        publishChange(targetUserId);
     }
 
     @Override
@@ -283,6 +303,7 @@ public class UserServiceImpl implements UserService {
         user.get().setPassword(passwordEncoder.encode(password));
         user.get().setFirstLogin(false);
         userRepository.saveUser(user.get());
+        publishChange(userId);
     }
 
 }